@@ -0,0 +1,102 @@
+package com.sngular.adriangm.myapp.benchmark;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.config.UpstreamResultExpiry;
+import com.sngular.adriangm.myapp.infrastructure.AssembledResponseCache;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache hit lookups, with the caches built as in {@code CacheConfig}: per-status expiry, stats and the removal
+ * listener feeding the assembled-response tier.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+	private static final int WIDTH = 5;
+
+	@Param({"1000", "100000"})
+	private int size;
+
+	private AsyncCache<String, UpstreamResult<ProductDetail>> productDetailCache;
+	private AssembledResponseCache<List<ProductDetail>> assembledResponseCache;
+	private String[] keys;
+
+	@Setup
+	public void setUp() {
+		final ProductServiceProperties.Cache config = new ProductServiceProperties.Cache();
+		this.assembledResponseCache = new AssembledResponseCache<>(true, this.size, config.getExpireAfterWrite(), true);
+		this.productDetailCache = Caffeine.newBuilder().maximumSize(this.size).executor(Runnable::run)
+				.scheduler(Scheduler.systemScheduler())
+				.expireAfter(new UpstreamResultExpiry<ProductDetail>(config, () -> false))
+				.removalListener((String key, UpstreamResult<ProductDetail> value,
+						RemovalCause cause) -> this.assembledResponseCache.onProductDetailChanged(key))
+				.recordStats().buildAsync();
+
+		this.keys = new String[this.size];
+		for (int i = 0; i < this.size; i++) {
+			this.keys[i] = String.valueOf(i);
+			this.productDetailCache.put(this.keys[i],
+					CompletableFuture.completedFuture(UpstreamResult.found(Fixtures.product(i))));
+			this.assembledResponseCache.put(this.keys[i], Fixtures.products(WIDTH), Fixtures.similarIds(i, WIDTH),
+					this.assembledResponseCache.changeCount());
+		}
+	}
+
+	// The lookup the repository does: a hit returns the cached future without running the loader
+	@Benchmark
+	public UpstreamResult<ProductDetail> productDetailGet(Cursor cursor) {
+		return this.productDetailCache.get(cursor.next(this.keys), (key, executor) -> {
+			throw new IllegalStateException("Unexpected miss for " + key);
+		}).join();
+	}
+
+	@Benchmark
+	public CompletableFuture<UpstreamResult<ProductDetail>> productDetailGetIfPresent(Cursor cursor) {
+		return this.productDetailCache.getIfPresent(cursor.next(this.keys));
+	}
+
+	@Benchmark
+	public List<ProductDetail> assembledGetIfPresent(Cursor cursor) {
+		return this.assembledResponseCache.getIfPresent(cursor.next(this.keys));
+	}
+
+	/**
+	 * Per-thread walk over the keys with a large odd stride, so consecutive lookups do not share cache lines.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int index = (int) Thread.currentThread().getId();
+
+		String next(String[] keys) {
+			this.index = (this.index + 7919) % keys.length;
+			return keys[this.index];
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.sngular.adriangm.myapp.benchmark;
+
+import com.sngular.adriangm.myapp.service.fanout.FanOutExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * {@code parallelStream} on the common pool versus the bounded {@link FanOutExecutor} window, for per-product tasks
+ * that only burn CPU ({@code blockMicros} 0) or also block like an upstream call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+
+	private static final long CPU_TOKENS = 200;
+
+	@Param({"5", "50"})
+	private int width;
+
+	@Param({"0", "200"})
+	private long blockMicros;
+
+	private ThreadPoolTaskExecutor executor;
+	private FanOutExecutor fanOutExecutor;
+	private List<Integer> inputs;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setCorePoolSize(12);
+		this.executor.setMaxPoolSize(64);
+		this.executor.setQueueCapacity(500);
+		this.executor.initialize();
+		this.fanOutExecutor = new FanOutExecutor(this.executor, 8);
+		this.inputs = IntStream.range(0, this.width).boxed().toList();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.executor.shutdown();
+	}
+
+	@Benchmark
+	public List<Integer> sequential() {
+		return this.inputs.stream().map(this::task).toList();
+	}
+
+	@Benchmark
+	public List<Integer> parallelStream() {
+		return this.inputs.parallelStream().map(this::task).toList();
+	}
+
+	@Benchmark
+	public List<Integer> fanOutExecutor() {
+		return this.fanOutExecutor.fanOut(this.inputs, this::task).stream().map(CompletableFuture::join).toList();
+	}
+
+	private Integer task(Integer input) {
+		Blackhole.consumeCPU(CPU_TOKENS);
+		if (this.blockMicros > 0) {
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(this.blockMicros));
+		}
+		return input;
+	}
+}
@@ -0,0 +1,30 @@
+package com.sngular.adriangm.myapp.benchmark;
+
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarIds;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Synthetic catalog shared by the benchmarks: product {@code i} is similar to the {@code width} products after it.
+ */
+final class Fixtures {
+
+	private Fixtures() {
+	}
+
+	static ProductDetail product(int id) {
+		return new ProductDetail(String.valueOf(id), "Product " + id, 9.99 + id, id % 3 != 0);
+	}
+
+	// In the packed form the repositories cache
+	static List<String> similarIds(int id, int width) {
+		return SimilarIds.of(IntStream.rangeClosed(id + 1, id + width).mapToObj(String::valueOf)
+				.toArray(String[]::new));
+	}
+
+	static List<ProductDetail> products(int count) {
+		return IntStream.range(0, count).mapToObj(Fixtures::product).toList();
+	}
+}
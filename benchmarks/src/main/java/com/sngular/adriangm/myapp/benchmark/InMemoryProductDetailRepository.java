@@ -0,0 +1,42 @@
+package com.sngular.adriangm.myapp.benchmark;
+
+import com.sngular.adriangm.myapp.infrastructure.ProductDetailRepository;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductDetailRepository} stub over the {@link Fixtures} catalog. With a latency of zero every lookup is a
+ * completed future (all cache hits); otherwise answers arrive after the latency without holding a fan-out thread, like
+ * an upstream call that completes a cache load.
+ */
+class InMemoryProductDetailRepository implements ProductDetailRepository {
+
+	private final int width;
+	private final Executor delayed;
+
+	InMemoryProductDetailRepository(int width, long latencyMicros) {
+		this.width = width;
+		this.delayed = latencyMicros > 0 ? CompletableFuture.delayedExecutor(latencyMicros, TimeUnit.MICROSECONDS)
+				: null;
+	}
+
+	@Override
+	public CompletableFuture<UpstreamResult<List<String>>> getSimilarIds(String productId) {
+		return this.answer(UpstreamResult.found(Fixtures.similarIds(Integer.parseInt(productId), this.width)));
+	}
+
+	@Override
+	public CompletableFuture<UpstreamResult<ProductDetail>> getProductDetail(String productId) {
+		return this.answer(UpstreamResult.found(Fixtures.product(Integer.parseInt(productId))));
+	}
+
+	private <T> CompletableFuture<UpstreamResult<T>> answer(UpstreamResult<T> result) {
+		return this.delayed == null ? CompletableFuture.completedFuture(result)
+				: CompletableFuture.supplyAsync(() -> result, this.delayed);
+	}
+}
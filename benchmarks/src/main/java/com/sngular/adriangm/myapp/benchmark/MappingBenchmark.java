@@ -0,0 +1,60 @@
+package com.sngular.adriangm.myapp.benchmark;
+
+import com.sngular.adriangm.myapp.controller.mapper.ProductDetailMapper;
+import com.sngular.adriangm.myapp.dto.ProductDetailDTO;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * MapStruct mapping of product details into API models, single and as the ordered set the response assembler builds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+	@Param({"5", "50"})
+	private int size;
+
+	private ProductDetailMapper mapper;
+	private ProductDetail product;
+	private List<ProductDetail> products;
+
+	@Setup
+	public void setUp() {
+		this.mapper = Mappers.getMapper(ProductDetailMapper.class);
+		this.product = Fixtures.product(1);
+		this.products = Fixtures.products(this.size);
+	}
+
+	@Benchmark
+	public ProductDetailDTO toApiModel() {
+		return this.mapper.toApiModel(this.product);
+	}
+
+	@Benchmark
+	public Set<ProductDetailDTO> toApiModelSet() {
+		return this.products.stream().map(this.mapper::toApiModel)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+	}
+}
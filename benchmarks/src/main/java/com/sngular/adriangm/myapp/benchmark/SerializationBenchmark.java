@@ -0,0 +1,99 @@
+package com.sngular.adriangm.myapp.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.controller.PreSerializedProducts;
+import com.sngular.adriangm.myapp.controller.SimilarProductsResponseAssembler;
+import com.sngular.adriangm.myapp.controller.mapper.ProductDetailMapper;
+import com.sngular.adriangm.myapp.dto.ProductDetailDTO;
+import com.sngular.adriangm.myapp.infrastructure.AssembledResponseCache;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Jackson serialization of the response bodies, with an object mapper configured the way Spring Boot builds its own,
+ * against the assembled bodies written from the products' pre-serialized JSON fragments.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+	@Param({"5", "50"})
+	private int size;
+
+	private ObjectMapper objectMapper;
+	private Set<ProductDetailDTO> response;
+	private Map<String, Set<ProductDetailDTO>> batchResponse;
+	private PreSerializedProducts preSerializedResponse;
+	private Map<String, Set<ProductDetailDTO>> preSerializedBatchResponse;
+
+	@Setup
+	public void setUp() {
+		this.objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		final ProductDetailMapper mapper = Mappers.getMapper(ProductDetailMapper.class);
+		this.response = Fixtures.products(this.size).stream().map(mapper::toApiModel)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+		this.batchResponse = new LinkedHashMap<>();
+		for (int i = 0; i < 5; i++) {
+			this.batchResponse.put(String.valueOf(i), this.response);
+		}
+		final SimilarProductsResponseAssembler assembler = new SimilarProductsResponseAssembler(mapper,
+				new AssembledResponseCache<>(false, 1, Duration.ofMinutes(1), false), new ProductServiceProperties(),
+				Runnable::run);
+		this.preSerializedResponse = (PreSerializedProducts) assembler
+				.toResponse("0", SimilarProductsResult.complete(Fixtures.products(this.size)), 0).getBody();
+		this.preSerializedBatchResponse = new LinkedHashMap<>();
+		for (int i = 0; i < 5; i++) {
+			this.preSerializedBatchResponse.put(String.valueOf(i), this.preSerializedResponse);
+		}
+	}
+
+	@Benchmark
+	public byte[] similarProducts() throws JsonProcessingException {
+		return this.objectMapper.writeValueAsBytes(this.response);
+	}
+
+	@Benchmark
+	public byte[] similarProductsBatch() throws JsonProcessingException {
+		return this.objectMapper.writeValueAsBytes(this.batchResponse);
+	}
+
+	@Benchmark
+	public byte[] similarProductsPreSerialized() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream((int) this.preSerializedResponse.contentLength());
+		this.preSerializedResponse.writeTo(out);
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] similarProductsBatchPreSerialized() throws JsonProcessingException {
+		return this.objectMapper.writeValueAsBytes(this.preSerializedBatchResponse);
+	}
+}
@@ -0,0 +1,79 @@
+package com.sngular.adriangm.myapp.benchmark;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.infrastructure.ProductServiceMetrics;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import com.sngular.adriangm.myapp.service.fanout.FanOutExecutor;
+import com.sngular.adriangm.myapp.service.implement.SimilarProductsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full assembly in {@link SimilarProductsServiceImpl} against an in-memory repository: similar-ids lookup, windowed
+ * fan-out over the details and result assembly. A latency of 0 measures the all-hits path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimilarProductsServiceBenchmark {
+
+	@Param({"5", "50"})
+	private int width;
+
+	@Param({"0", "500"})
+	private long latencyMicros;
+
+	private ThreadPoolTaskExecutor executor;
+	private SimilarProductsServiceImpl service;
+	private List<String> batch;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final ProductServiceProperties properties = new ProductServiceProperties();
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setCorePoolSize(12);
+		this.executor.setMaxPoolSize(64);
+		this.executor.setQueueCapacity(500);
+		this.executor.initialize();
+		this.service = new SimilarProductsServiceImpl(
+				new InMemoryProductDetailRepository(this.width, this.latencyMicros),
+				new FanOutExecutor(this.executor, properties.getService().getConcurrencyLevel()),
+				new ProductServiceMetrics(new SimpleMeterRegistry()), properties);
+		this.batch = List.of("1", "2", "3", "4", "5");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.executor.shutdown();
+	}
+
+	@Benchmark
+	public SimilarProductsResult getSimilarProducts() {
+		return this.service.getSimilarProducts("1", null);
+	}
+
+	@Benchmark
+	public Map<String, SimilarProductsResult> getSimilarProductsBatch() {
+		return this.service.getSimilarProductsBatch(this.batch, null);
+	}
+}
@@ -0,0 +1,96 @@
+package com.sngular.adriangm.myapp.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamPayloadDecoder;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of upstream payloads: the RestTemplate message-converter path the repository used to take against the
+ * streaming {@link UpstreamPayloadDecoder}. Run with {@code -prof gc} to compare the allocation per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpstreamDecodingBenchmark {
+
+	@Param({"5", "50"})
+	private int width;
+
+	private MappingJackson2HttpMessageConverter converter;
+	private HttpHeaders headers;
+	private byte[] productDetail;
+	private byte[] similarIds;
+
+	@Setup
+	public void setUp() throws IOException {
+		final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		this.converter = new MappingJackson2HttpMessageConverter(objectMapper);
+		this.headers = new HttpHeaders();
+		this.headers.setContentType(MediaType.APPLICATION_JSON);
+		this.productDetail = objectMapper.writeValueAsBytes(Fixtures.product(1000));
+		this.similarIds = objectMapper.writeValueAsBytes(Fixtures.similarIds(1000, this.width));
+	}
+
+	@Benchmark
+	public ProductDetail productDetailConverter() throws IOException {
+		return (ProductDetail) this.converter.read(ProductDetail.class, this.message(this.productDetail));
+	}
+
+	@Benchmark
+	public ProductDetail productDetailStreaming() throws IOException {
+		return UpstreamPayloadDecoder.PRODUCT_DETAIL.read(new ByteArrayInputStream(this.productDetail));
+	}
+
+	@Benchmark
+	public List<String> similarIdsConverter() throws IOException {
+		return SimilarIds.of((String[]) this.converter.read(String[].class, this.message(this.similarIds)));
+	}
+
+	@Benchmark
+	public List<String> similarIdsStreaming() throws IOException {
+		return UpstreamPayloadDecoder.SIMILAR_IDS.read(new ByteArrayInputStream(this.similarIds));
+	}
+
+	// The response headers are shared, so both paths allocate only for decoding
+	private HttpInputMessage message(byte[] body) {
+		final HttpHeaders headers = this.headers;
+		return new HttpInputMessage() {
+
+			@Override
+			public InputStream getBody() {
+				return new ByteArrayInputStream(body);
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+		};
+	}
+}
@@ -0,0 +1,77 @@
+package com.sngular.adriangm.myapp.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@code --key=value} command line options; a bare {@code --flag} reads as {@code true}. Durations take the k6
+ * suffixes {@code ms}, {@code s} and {@code m}.
+ */
+final class Arguments {
+
+	private final Map<String, String> values;
+
+	private Arguments(Map<String, String> values) {
+		this.values = values;
+	}
+
+	static Arguments parse(String[] args) {
+		final Map<String, String> values = new HashMap<>();
+		for (final String arg : args) {
+			if (!arg.startsWith("--")) {
+				throw new IllegalArgumentException("Expected --key=value but got " + arg);
+			}
+			final int separator = arg.indexOf('=');
+			if (separator < 0) {
+				values.put(arg.substring(2), "true");
+			} else {
+				values.put(arg.substring(2, separator), arg.substring(separator + 1));
+			}
+		}
+		return new Arguments(values);
+	}
+
+	Optional<String> get(String key) {
+		return Optional.ofNullable(this.values.get(key));
+	}
+
+	String getString(String key, String defaultValue) {
+		return this.values.getOrDefault(key, defaultValue);
+	}
+
+	int getInt(String key, int defaultValue) {
+		return this.get(key).map(Integer::parseInt).orElse(defaultValue);
+	}
+
+	Path getPath(String key, Path defaultValue) {
+		return this.get(key).map(Path::of).orElse(defaultValue);
+	}
+
+	boolean getBoolean(String key) {
+		return this.get(key).map(Boolean::parseBoolean).orElse(false);
+	}
+
+	Optional<Double> getDouble(String key) {
+		return this.get(key).map(Double::parseDouble);
+	}
+
+	Duration getDuration(String key, Duration defaultValue) {
+		return this.get(key).map(Arguments::parseDuration).orElse(defaultValue);
+	}
+
+	static Duration parseDuration(String value) {
+		if (value.endsWith("ms")) {
+			return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+		}
+		if (value.endsWith("s")) {
+			return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+		}
+		if (value.endsWith("m")) {
+			return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+		}
+		throw new IllegalArgumentException("Expected a duration like 500ms, 10s or 1m but got " + value);
+	}
+}
@@ -0,0 +1,36 @@
+package com.sngular.adriangm.myapp.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Limits a scenario must stay within, read from {@code --p95}, {@code --p99} (corrected latency in milliseconds),
+ * {@code --min-throughput} (responses per second) and {@code --max-error-rate} (transport errors over requests). Each
+ * can be overridden per scenario, e.g. {@code --verySlow.p99=9000}; unset limits are not checked.
+ */
+record Budget(Optional<Double> p95, Optional<Double> p99, Optional<Double> minThroughput,
+		Optional<Double> maxErrorRate) {
+
+	static Budget of(Arguments arguments, String scenario) {
+		return new Budget(limit(arguments, scenario, "p95"), limit(arguments, scenario, "p99"),
+				limit(arguments, scenario, "min-throughput"), limit(arguments, scenario, "max-error-rate"));
+	}
+
+	List<String> violations(ScenarioResult.Summary summary) {
+		final List<String> violations = new ArrayList<>();
+		this.p95.filter(limit -> summary.p95() > limit)
+				.ifPresent(limit -> violations.add("p95 %.1f ms > %.1f ms".formatted(summary.p95(), limit)));
+		this.p99.filter(limit -> summary.p99() > limit)
+				.ifPresent(limit -> violations.add("p99 %.1f ms > %.1f ms".formatted(summary.p99(), limit)));
+		this.minThroughput.filter(limit -> summary.throughput() < limit).ifPresent(limit -> violations
+				.add("throughput %.1f/s < %.1f/s".formatted(summary.throughput(), limit)));
+		this.maxErrorRate.filter(limit -> summary.errorRate() > limit).ifPresent(limit -> violations
+				.add("error rate %.4f > %.4f".formatted(summary.errorRate(), limit)));
+		return violations;
+	}
+
+	private static Optional<Double> limit(Arguments arguments, String scenario, String key) {
+		return arguments.getDouble(scenario + "." + key).or(() -> arguments.getDouble(key));
+	}
+}
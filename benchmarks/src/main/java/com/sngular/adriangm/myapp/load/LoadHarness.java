@@ -0,0 +1,195 @@
+package com.sngular.adriangm.myapp.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the k6 scenarios of {@code shared/k6/test.js} against a running application and fails (exit code 1) when a
+ * scenario exceeds its {@link Budget}. With {@code --stand-in} the upstream mocks are served in-process by
+ * {@link UpstreamStandIn}, so no container is needed. The summary is printed and written as JSON to
+ * {@code results/load-<timestamp>.json} unless {@code --out} says otherwise. {@code --baseline} compares the run with
+ * an earlier report, e.g. the application on platform threads against the same scenarios on virtual threads; the
+ * optional {@code --label} names the run in its report and in later comparisons.
+ * <p>
+ * Options: {@code --target} (default {@code http://localhost:5000}), {@code --scenarios} (comma separated, default
+ * all), {@code --vus}, {@code --duration}, {@code --think}, {@code --stand-in}, {@code --upstream-port},
+ * {@code --mocks}, {@code --out}, {@code --label}, {@code --baseline} and the budget limits.
+ */
+public final class LoadHarness {
+
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+	private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+	private final HttpClient client;
+	private final URI target;
+
+	LoadHarness(HttpClient client, URI target) {
+		this.client = client;
+		this.target = target;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final Arguments arguments = Arguments.parse(args);
+		final List<Scenario> scenarios = selectScenarios(arguments);
+		final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5)).build();
+		final LoadHarness harness = new LoadHarness(client,
+				URI.create(arguments.getString("target", "http://localhost:5000")));
+
+		final List<ScenarioReport> reports = new ArrayList<>();
+		try (UpstreamStandIn ignored = arguments.getBoolean("stand-in")
+				? UpstreamStandIn.start(arguments.getPath("mocks", UpstreamStandIn.DEFAULT_MOCKS),
+						arguments.getInt("upstream-port", UpstreamStandIn.DEFAULT_PORT))
+				: null) {
+			for (final Scenario scenario : scenarios) {
+				System.out.printf("Running %s: %d VUs for %ss against %s%n", scenario.name(), scenario.vus(),
+						scenario.duration().toSeconds(), scenario.path());
+				final ScenarioResult.Summary summary = harness.run(scenario).summary();
+				reports.add(new ScenarioReport(summary, Budget.of(arguments, scenario.name()).violations(summary)));
+			}
+		}
+
+		final Report report = new Report(arguments.getString("label", null), harness.target.toString(), reports);
+		printReports(reports);
+		if (arguments.get("baseline").isPresent()) {
+			printComparison(readReport(arguments.getPath("baseline", null)), report);
+		}
+		writeReport(arguments, report);
+		if (reports.stream().anyMatch(scenario -> !scenario.violations().isEmpty())) {
+			System.exit(1);
+		}
+	}
+
+	ScenarioResult run(Scenario scenario) throws InterruptedException {
+		final ScenarioResult result = new ScenarioResult(scenario);
+		final HttpRequest request = HttpRequest.newBuilder(this.target.resolve(scenario.path())).timeout(
+				REQUEST_TIMEOUT).GET().build();
+		final long end = System.nanoTime() + scenario.duration().toNanos();
+		final long stop = end + scenario.gracefulStop().toNanos();
+
+		final ExecutorService users = Executors.newFixedThreadPool(scenario.vus());
+		for (int i = 0; i < scenario.vus(); i++) {
+			users.execute(() -> this.virtualUser(request, scenario, result, end, stop));
+		}
+		users.shutdown();
+		if (!users.awaitTermination(stop - System.nanoTime() + TimeUnit.SECONDS.toNanos(5), TimeUnit.NANOSECONDS)) {
+			users.shutdownNow();
+		}
+		return result;
+	}
+
+	// One k6 iteration per loop: request, then think; in-flight requests are interrupted at the graceful stop
+	private void virtualUser(HttpRequest request, Scenario scenario, ScenarioResult result, long end, long stop) {
+		while (System.nanoTime() < end) {
+			final long sent = System.nanoTime();
+			final Future<HttpResponse<Void>> response = this.client.sendAsync(request,
+					HttpResponse.BodyHandlers.discarding());
+			try {
+				final int status = response.get(Math.max(0, stop - sent), TimeUnit.NANOSECONDS).statusCode();
+				result.recordResponse(status, System.nanoTime() - sent);
+			} catch (TimeoutException e) {
+				response.cancel(true);
+				result.recordInterrupted();
+				return;
+			} catch (ExecutionException e) {
+				result.recordTransportError();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			LockSupport.parkNanos(scenario.think().toNanos());
+		}
+	}
+
+	private static List<Scenario> selectScenarios(Arguments arguments) {
+		final List<Scenario> all = Scenario.k6Scenarios(arguments.getInt("vus", 200),
+				arguments.getDuration("duration", Duration.ofSeconds(10)),
+				arguments.getDuration("think", Duration.ofMillis(500)));
+		return arguments.get("scenarios").map(names -> Arrays.asList(names.split(",")))
+				.map(names -> all.stream().filter(scenario -> names.contains(scenario.name())).toList()).orElse(all);
+	}
+
+	private static void printReports(List<ScenarioReport> reports) {
+		System.out.printf("%n%-9s %8s %8s %7s %7s %8s %8s %8s %8s %8s  %s%n", "scenario", "requests", "rps", "errors",
+				"interr", "p50", "p95", "p99", "max", "raw p99", "statuses");
+		for (final ScenarioReport report : reports) {
+			final ScenarioResult.Summary summary = report.summary();
+			System.out.printf("%-9s %8d %8.1f %7d %7d %8.1f %8.1f %8.1f %8.1f %8.1f  %s%n", summary.scenario(),
+					summary.requests(), summary.throughput(), summary.transportErrors(), summary.interrupted(),
+					summary.p50(), summary.p95(), summary.p99(), summary.max(), summary.rawP99(), summary.statuses());
+			report.violations().forEach(violation -> System.out.printf("  FAILED %s%n", violation));
+		}
+		System.out.println("Latencies in ms, corrected for coordinated omission except raw p99");
+	}
+
+	// Scenarios present in both runs; a negative latency change or a positive throughput change is an improvement
+	private static void printComparison(Report baseline, Report current) {
+		final Map<String, ScenarioResult.Summary> before = new HashMap<>();
+		baseline.scenarios().forEach(report -> before.put(report.summary().scenario(), report.summary()));
+		System.out.printf("%nCompared with %s (%s)%n", Objects.requireNonNullElse(baseline.label(), "baseline"),
+				baseline.target());
+		System.out.printf("%-9s %-8s %10s %10s %8s%n", "scenario", "metric", "baseline",
+				Objects.requireNonNullElse(current.label(), "current"), "change");
+		for (final ScenarioReport report : current.scenarios()) {
+			final ScenarioResult.Summary after = report.summary();
+			final ScenarioResult.Summary previous = before.get(after.scenario());
+			if (previous == null) {
+				continue;
+			}
+			printChange(after.scenario(), "rps", previous.throughput(), after.throughput());
+			printChange("", "p50", previous.p50(), after.p50());
+			printChange("", "p95", previous.p95(), after.p95());
+			printChange("", "p99", previous.p99(), after.p99());
+			printChange("", "max", previous.max(), after.max());
+			printChange("", "errors", previous.transportErrors(), after.transportErrors());
+		}
+	}
+
+	private static void printChange(String scenario, String metric, double baseline, double current) {
+		final String change = baseline == 0 ? "n/a" : String.format("%+.1f%%", (current - baseline) * 100 / baseline);
+		System.out.printf("%-9s %-8s %10.1f %10.1f %8s%n", scenario, metric, baseline, current, change);
+	}
+
+	private static Report readReport(Path file) throws IOException {
+		return new ObjectMapper().readValue(file.toFile(), Report.class);
+	}
+
+	private static void writeReport(Arguments arguments, Report report) throws IOException {
+		final Path out = arguments.getPath("out",
+				Path.of("results", "load-" + LocalDateTime.now().format(TIMESTAMP) + ".json"));
+		if (out.getParent() != null) {
+			Files.createDirectories(out.getParent());
+		}
+		new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(out.toFile(), report);
+		System.out.printf("Load result is saved to %s%n", out);
+	}
+
+	record ScenarioReport(ScenarioResult.Summary summary, List<String> violations) {
+	}
+
+	record Report(String label, String target, List<ScenarioReport> scenarios) {
+	}
+}
@@ -0,0 +1,35 @@
+package com.sngular.adriangm.myapp.load;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A {@code constant-vus} scenario of {@code shared/k6/test.js}: {@code vus} virtual users each request
+ * {@code /product/{productId}/similar} and sleep {@code think} until {@code duration} ends; iterations still in flight
+ * then get {@code gracefulStop} to finish before they are interrupted.
+ */
+record Scenario(String name, String productId, int vus, Duration duration, Duration gracefulStop, Duration think) {
+
+	private static final Duration K6_DURATION = Duration.ofSeconds(10);
+	private static final Duration K6_THINK = Duration.ofMillis(500);
+
+	/**
+	 * The k6 scenarios in start order. In k6 each one starts when the previous one has fully stopped, so running them
+	 * back to back reproduces the script's {@code startTime} offsets.
+	 */
+	static List<Scenario> k6Scenarios(int vus, Duration duration, Duration think) {
+		return List.of(new Scenario("normal", "1", vus, duration, Duration.ZERO, think),
+				new Scenario("notFound", "4", vus, duration, Duration.ZERO, think),
+				new Scenario("error", "5", vus, duration, Duration.ZERO, think),
+				new Scenario("slow", "2", vus, duration, Duration.ofSeconds(10), think),
+				new Scenario("verySlow", "3", vus, duration, Duration.ofSeconds(30), think));
+	}
+
+	static List<Scenario> k6Scenarios() {
+		return k6Scenarios(200, K6_DURATION, K6_THINK);
+	}
+
+	String path() {
+		return "/product/" + this.productId + "/similar";
+	}
+}
@@ -0,0 +1,70 @@
+package com.sngular.adriangm.myapp.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies and outcomes of one scenario, shared by its virtual users.
+ * <p>
+ * A closed-loop user that waits on a stalled response stops sending, so the plain histogram under-represents the
+ * stall (coordinated omission). The corrected histogram back-fills the requests the user would have sent during the
+ * stall, one per think time, the way HdrHistogram's {@code recordValueWithExpectedInterval} defines it.
+ */
+final class ScenarioResult {
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+	private final Scenario scenario;
+	private final Histogram raw = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+	private final Histogram corrected = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+	private final Map<Integer, Long> statuses = new TreeMap<>();
+	private long transportErrors;
+	private long interrupted;
+
+	ScenarioResult(Scenario scenario) {
+		this.scenario = scenario;
+	}
+
+	synchronized void recordResponse(int status, long latencyNanos) {
+		final long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS);
+		this.raw.recordValue(micros);
+		this.corrected.recordValueWithExpectedInterval(micros, TimeUnit.NANOSECONDS.toMicros(
+				this.scenario.think().toNanos()));
+		this.statuses.merge(status, 1L, Long::sum);
+	}
+
+	synchronized void recordTransportError() {
+		this.transportErrors++;
+	}
+
+	synchronized void recordInterrupted() {
+		this.interrupted++;
+	}
+
+	synchronized Summary summary() {
+		final long responses = this.raw.getTotalCount();
+		final long requests = responses + this.transportErrors;
+		return new Summary(this.scenario.name(), requests, responses,
+				responses / (double) this.scenario.duration().toMillis() * 1000, Map.copyOf(this.statuses),
+				this.transportErrors, this.interrupted, requests == 0 ? 0 : this.transportErrors / (double) requests,
+				millis(this.raw, 50), millis(this.raw, 95), millis(this.raw, 99), millis(this.raw, 100),
+				millis(this.corrected, 50), millis(this.corrected, 95), millis(this.corrected, 99),
+				millis(this.corrected, 100));
+	}
+
+	private static double millis(Histogram histogram, double percentile) {
+		return histogram.getValueAtPercentile(percentile) / 1000.0;
+	}
+
+	/**
+	 * Snapshot of the scenario; latencies are in milliseconds and {@code throughput} counts responses per second of
+	 * scenario duration. Serialized as is to the JSON results file.
+	 */
+	record Summary(String scenario, long requests, long responses, double throughput, Map<Integer, Long> statuses,
+			long transportErrors, long interrupted, double errorRate, double rawP50, double rawP95, double rawP99,
+			double rawMax, double p50, double p95, double p99, double max) {
+	}
+}
@@ -0,0 +1,101 @@
+package com.sngular.adriangm.myapp.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Embedded stand-in for the simulado container: serves the mocks of {@code shared/simulado/mocks.json} (path, body,
+ * headers, status and delay in milliseconds) and answers 404 for any other path. Speaks HTTP/1.1 and h2c (upgrade or
+ * prior knowledge), so both upstream transports of the application can be exercised. Delayed answers are timers on the
+ * event loops, so the 50 s mocks do not pin one thread per abandoned upstream call.
+ */
+public final class UpstreamStandIn implements AutoCloseable {
+
+	public static final int DEFAULT_PORT = 3001;
+	public static final Path DEFAULT_MOCKS = Path.of("../shared/simulado/mocks.json");
+
+	private static final byte[] NOT_FOUND = "{\"message\":\"Not found\"}".getBytes(StandardCharsets.UTF_8);
+
+	private final Map<String, Mock> mocks;
+	private DisposableServer server;
+
+	private UpstreamStandIn(Map<String, Mock> mocks) {
+		this.mocks = mocks;
+	}
+
+	public static UpstreamStandIn start(Path mocksFile, int port) throws IOException {
+		final UpstreamStandIn standIn = new UpstreamStandIn(readMocks(mocksFile));
+		standIn.server = HttpServer.create().port(port).protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+				.handle(standIn::handle).bindNow();
+		return standIn;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final Arguments arguments = Arguments.parse(args);
+		final int port = arguments.getInt("port", DEFAULT_PORT);
+		final Path mocksFile = arguments.getPath("mocks", DEFAULT_MOCKS);
+		final UpstreamStandIn standIn = start(mocksFile, port);
+		Runtime.getRuntime().addShutdownHook(new Thread(standIn::close));
+		System.out.printf("Serving %d mocks from %s on port %d%n", standIn.mocks.size(), mocksFile, port);
+		standIn.server.onDispose().block();
+	}
+
+	public int getPort() {
+		return ((InetSocketAddress) this.server.address()).getPort();
+	}
+
+	@Override
+	public void close() {
+		this.server.disposeNow();
+	}
+
+	// The caller may have given up and reset the stream by the time a delayed answer is written
+	private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+		final Mock mock = this.mocks.get(URI.create(request.uri()).getPath());
+		if (mock == null) {
+			return respond(response, 404, Map.of("Content-Type", "application/json"), NOT_FOUND);
+		}
+		final Mono<Void> answer = respond(response, mock.status(), mock.headers(), mock.body());
+		return mock.delayMillis() > 0 ? Mono.delay(Duration.ofMillis(mock.delayMillis())).then(answer) : answer;
+	}
+
+	private static Mono<Void> respond(HttpServerResponse response, int status, Map<String, String> headers,
+			byte[] body) {
+		return Mono.defer(() -> {
+			response.status(HttpResponseStatus.valueOf(status));
+			headers.forEach(response::header);
+			return body.length == 0 ? response.send() : response.sendByteArray(Mono.just(body)).then();
+		});
+	}
+
+	private static Map<String, Mock> readMocks(Path mocksFile) throws IOException {
+		final Map<String, Mock> mocks = new HashMap<>();
+		for (final JsonNode node : new ObjectMapper().readTree(mocksFile.toFile())) {
+			final Map<String, String> headers = new HashMap<>();
+			node.path("headers").fields().forEachRemaining(header -> headers.put(header.getKey(),
+					header.getValue().asText()));
+			mocks.put(node.get("path").asText(), new Mock(node.path("status").asInt(200),
+					node.path("delay").asLong(0), headers, node.path("body").asText("").getBytes(StandardCharsets.UTF_8)));
+		}
+		return mocks;
+	}
+
+	private record Mock(int status, long delayMillis, Map<String, String> headers, byte[] body) {
+	}
+}
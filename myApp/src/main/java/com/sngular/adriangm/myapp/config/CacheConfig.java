@@ -1,45 +1,146 @@
 package com.sngular.adriangm.myapp.config;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.sngular.adriangm.myapp.dto.ProductDetailDTO;
+import com.sngular.adriangm.myapp.infrastructure.AssembledResponseCache;
+import com.sngular.adriangm.myapp.infrastructure.BinaryCodec;
+import com.sngular.adriangm.myapp.infrastructure.CacheSnapshotStore;
+import com.sngular.adriangm.myapp.infrastructure.CacheSnapshotter;
+import com.sngular.adriangm.myapp.infrastructure.OffHeapCache;
+import com.sngular.adriangm.myapp.infrastructure.StaleResultStore;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamHealth;
 import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 @Configuration
 @RequiredArgsConstructor
 public class CacheConfig {
 
 	private final ProductServiceProperties properties;
+	private final UpstreamHealth upstreamHealth;
 
+	// Async caches coalesce concurrent misses into one in-flight load; loads run on the fan-out pool. Every removal
+	// is reported to the assembled-response tier, and the scheduler expires entries even when only that tier is read.
+	// Size evictions are demoted to the off-heap tier.
 	@Bean("productDetailCache")
-	public Cache<String, ProductDetail> productDetailCache() {
-		final Caffeine<Object, Object> caffeineBuilder = Caffeine.newBuilder()
-				.maximumSize(this.properties.getCache().getMaximumSize())
-				.expireAfterWrite(this.properties.getCache().getExpireAfterWrite())
-				.expireAfterAccess(this.properties.getCache().getExpireAfterAccess());
+	public AsyncCache<String, UpstreamResult<ProductDetail>> productDetailCache(
+			@Qualifier("similarProductsExecutor") Executor executor,
+			AssembledResponseCache<ResponseEntity<Set<ProductDetailDTO>>> assembledResponseCache,
+			@Qualifier("productDetailOffHeapCache") OffHeapCache<ProductDetail> offHeapCache) {
+		final Caffeine<String, UpstreamResult<ProductDetail>> caffeineBuilder = Caffeine.newBuilder()
+				.maximumSize(this.properties.getCache().getMaximumSize()).executor(executor)
+				.scheduler(Scheduler.systemScheduler())
+				.expireAfter(new UpstreamResultExpiry<ProductDetail>(this.properties.getCache(),
+						() -> this.upstreamHealth.isDegraded(this.properties.getCircuitBreaker().getName())))
+				.removalListener((String key, UpstreamResult<ProductDetail> value, RemovalCause cause) -> {
+					assembledResponseCache.onProductDetailChanged(key);
+					if (cause == RemovalCause.SIZE) {
+						offHeapCache.put(key, value);
+					}
+				});
 
 		if (this.properties.getCache().isRecordStats()) {
 			caffeineBuilder.recordStats();
 		}
 
-		return caffeineBuilder.build();
+		return caffeineBuilder.buildAsync();
 	}
 
 	@Bean("similarIdsCache")
-	public Cache<String, List<String>> similarIdsCache() {
-		final Caffeine<Object, Object> caffeineBuilder = Caffeine.newBuilder()
-				.maximumSize(this.properties.getCache().getMaximumSize())
-				.expireAfterWrite(this.properties.getCache().getExpireAfterWrite())
-				.expireAfterAccess(this.properties.getCache().getExpireAfterAccess());
+	public AsyncCache<String, UpstreamResult<List<String>>> similarIdsCache(
+			@Qualifier("similarProductsExecutor") Executor executor,
+			AssembledResponseCache<ResponseEntity<Set<ProductDetailDTO>>> assembledResponseCache,
+			@Qualifier("similarIdsOffHeapCache") OffHeapCache<List<String>> offHeapCache) {
+		final Caffeine<String, UpstreamResult<List<String>>> caffeineBuilder = Caffeine.newBuilder()
+				.maximumSize(this.properties.getCache().getMaximumSize()).executor(executor)
+				.scheduler(Scheduler.systemScheduler())
+				.expireAfter(new UpstreamResultExpiry<List<String>>(this.properties.getCache(),
+						() -> this.upstreamHealth.isDegraded(this.properties.getCircuitBreaker().getSimilarIdsName())))
+				.removalListener((String key, UpstreamResult<List<String>> value, RemovalCause cause) -> {
+					assembledResponseCache.onSimilarIdsChanged(key);
+					if (cause == RemovalCause.SIZE) {
+						offHeapCache.put(key, value);
+					}
+				});
 
 		if (this.properties.getCache().isRecordStats()) {
 			caffeineBuilder.recordStats();
 		}
 
-		return caffeineBuilder.build();
+		return caffeineBuilder.buildAsync();
+	}
+
+	@Bean("productDetailOffHeapCache")
+	public OffHeapCache<ProductDetail> productDetailOffHeapCache() {
+		return this.offHeapCache(BinaryCodec.PRODUCT_DETAIL, this.properties.getCache().getOffHeap()
+				.getProductDetailCapacity());
+	}
+
+	@Bean("similarIdsOffHeapCache")
+	public OffHeapCache<List<String>> similarIdsOffHeapCache() {
+		return this.offHeapCache(BinaryCodec.SIMILAR_IDS, this.properties.getCache().getOffHeap()
+				.getSimilarIdsCapacity());
+	}
+
+	@Bean
+	public AssembledResponseCache<ResponseEntity<Set<ProductDetailDTO>>> assembledResponseCache() {
+		final ProductServiceProperties.Cache config = this.properties.getCache();
+		return new AssembledResponseCache<>(config.isAssembledEnabled(), config.getAssembledMaximumSize(),
+				config.getExpireAfterWrite(), config.isRecordStats());
+	}
+
+	@Bean("productDetailStaleStore")
+	public StaleResultStore<ProductDetail> productDetailStaleStore() {
+		return new StaleResultStore<>(this.lastGoodCache());
+	}
+
+	@Bean("similarIdsStaleStore")
+	public StaleResultStore<List<String>> similarIdsStaleStore() {
+		return new StaleResultStore<>(this.lastGoodCache());
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "product-service.cache.snapshot", name = "enabled", havingValue = "true")
+	public CacheSnapshotter cacheSnapshotter(
+			@Qualifier("productDetailCache") AsyncCache<String, UpstreamResult<ProductDetail>> productDetailCache,
+			@Qualifier("similarIdsCache") AsyncCache<String, UpstreamResult<List<String>>> similarIdsCache) {
+		final ProductServiceProperties.Snapshot config = this.properties.getCache().getSnapshot();
+		if (!StringUtils.hasText(config.getDirectory())) {
+			throw new IllegalStateException(
+					"product-service.cache.snapshot.directory is required with snapshots enabled");
+		}
+		return new CacheSnapshotter(productDetailCache, similarIdsCache,
+				new CacheSnapshotStore(Path.of(config.getDirectory()).resolve(CacheSnapshotStore.FILE_NAME)),
+				config.getInterval(), this.properties.getCache().getExpireAfterWrite());
+	}
+
+	// A disabled tier has no capacity: it stores nothing and every promotion misses
+	private <T> OffHeapCache<T> offHeapCache(BinaryCodec<T> codec, DataSize capacity) {
+		final ProductServiceProperties.Cache config = this.properties.getCache();
+		return new OffHeapCache<>(codec, config.getOffHeap().isEnabled() ? capacity.toBytes() : 0L,
+				config.getOffHeap().getSegments(), config.getExpireAfterWrite());
+	}
+
+	private <T> Cache<String, UpstreamResult<T>> lastGoodCache() {
+		final ProductServiceProperties.Cache config = this.properties.getCache();
+		return Caffeine.newBuilder().maximumSize(config.getMaximumSize())
+				.expireAfterWrite(config.getExpireAfterWrite().plus(config.getStaleGracePeriod())).build();
 	}
 }
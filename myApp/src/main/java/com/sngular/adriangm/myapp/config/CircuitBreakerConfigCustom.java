@@ -1,11 +1,24 @@
 package com.sngular.adriangm.myapp.config;
 
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveConcurrencyLimiter;
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveTimeout;
+import com.sngular.adriangm.myapp.infrastructure.InFlightLoads;
+import com.sngular.adriangm.myapp.infrastructure.RequestHedger;
+import com.sngular.adriangm.myapp.infrastructure.SlowKeyQuarantine;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamErrorClassifier;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 @Configuration
 @RequiredArgsConstructor
 public class CircuitBreakerConfigCustom {
@@ -22,10 +35,79 @@ public class CircuitBreakerConfigCustom {
 				.slidingWindowSize(this.properties.getCircuitBreaker().getSlidingWindowSize())
 				.minimumNumberOfCalls(this.properties.getCircuitBreaker().getMinimumNumberOfCalls())
 				.slowCallRateThreshold(this.properties.getCircuitBreaker().getSlowCallRateThreshold())
-				.slowCallDurationThreshold(this.properties.getCircuitBreaker().getSlowCallDurationThreshold()).build();
+				.slowCallDurationThreshold(this.properties.getCircuitBreaker().getSlowCallDurationThreshold())
+				// A missing product is a valid answer, and a call aborted by this service says nothing of the upstream
+				.ignoreException(error -> error instanceof CancellationException
+						|| UpstreamErrorClassifier.isNotFound(error))
+				.build();
 
+		// Separate breakers per route, so a slow /similarids does not short-circuit product details and vice versa
 		final CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(defaultConfig);
 		registry.circuitBreaker(this.properties.getCircuitBreaker().getName(), customConfig);
+		registry.circuitBreaker(this.properties.getCircuitBreaker().getSimilarIdsName(), customConfig);
 		return registry;
 	}
+
+	@Bean("productDetailQuarantine")
+	public SlowKeyQuarantine productDetailQuarantine() {
+		return new SlowKeyQuarantine(this.properties.getQuarantine());
+	}
+
+	@Bean("similarIdsQuarantine")
+	public SlowKeyQuarantine similarIdsQuarantine() {
+		return new SlowKeyQuarantine(this.properties.getQuarantine());
+	}
+
+	// Hedging stops as soon as the product-detail breaker leaves the closed state
+	@Bean("productDetailHedger")
+	public RequestHedger productDetailHedger(CircuitBreakerRegistry circuitBreakerRegistry,
+			@Qualifier("hedgeScheduler") ScheduledExecutorService hedgeScheduler) {
+		final CircuitBreaker circuitBreaker = circuitBreakerRegistry
+				.circuitBreaker(this.properties.getCircuitBreaker().getName());
+		return new RequestHedger(this.properties.getHedging(),
+				() -> circuitBreaker.getState() == CircuitBreaker.State.CLOSED, hedgeScheduler);
+	}
+
+	// Waits out hedge delays and sends the hedges; it never runs an upstream call itself
+	@Bean(name = "hedgeScheduler", destroyMethod = "shutdownNow")
+	public ScheduledExecutorService hedgeScheduler() {
+		return Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "hedge-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Bean("productDetailTimeout")
+	public AdaptiveTimeout productDetailTimeout() {
+		return new AdaptiveTimeout(this.properties.getAdaptiveTimeout(), this.staticTimeout());
+	}
+
+	@Bean("similarIdsTimeout")
+	public AdaptiveTimeout similarIdsTimeout() {
+		return new AdaptiveTimeout(this.properties.getAdaptiveTimeout(), this.staticTimeout());
+	}
+
+	// One limit per route, so a slow route cannot shed the other's calls; both attempts of a hedged call share theirs
+	@Bean
+	public AdaptiveConcurrencyLimiter productDetailConcurrencyLimiter() {
+		return new AdaptiveConcurrencyLimiter(this.properties.getConcurrencyLimit());
+	}
+
+	@Bean
+	public AdaptiveConcurrencyLimiter similarIdsConcurrencyLimiter() {
+		return new AdaptiveConcurrencyLimiter(this.properties.getConcurrencyLimit());
+	}
+
+	// Both routes of the blocking repository; keys are prefixed with the route
+	@Bean
+	public InFlightLoads productInFlightLoads() {
+		return new InFlightLoads(this.properties.getCancellation(), this.properties.getRestTemplate().getReadTimeout());
+	}
+
+	private Duration staticTimeout() {
+		return this.properties.getMode() == ProductServiceProperties.Mode.REACTIVE
+				? this.properties.getWebclient().getTimeout()
+				: this.properties.getRestTemplate().getReadTimeout();
+	}
 }
@@ -0,0 +1,73 @@
+package com.sngular.adriangm.myapp.config;
+
+import com.sngular.adriangm.myapp.service.fanout.CountingRejectedExecutionHandler;
+import com.sngular.adriangm.myapp.service.fanout.FanOutExecutor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@RequiredArgsConstructor
+public class ExecutorConfig {
+
+	private final ProductServiceProperties properties;
+
+	// Pool sizes, queue capacity, keep-alive and thread name come from spring.task.execution
+	@Bean("similarProductsExecutor")
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ThreadPoolTaskExecutor similarProductsExecutor(ThreadPoolTaskExecutorBuilder builder) {
+		final ThreadPoolTaskExecutor executor = builder.build();
+		executor.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(
+				this.rejectionHandler(this.properties.getService().getRejectionPolicy())));
+		return executor;
+	}
+
+	// spring.threads.virtual.enabled=true on Java 21+: one virtual thread per task, so neither the fan-out nor the
+	// cache loads are bounded by a pool (or ever run on the caller); the concurrency limiter bounds upstream calls
+	@Bean("similarProductsExecutor")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public SimpleAsyncTaskExecutor virtualSimilarProductsExecutor(SimpleAsyncTaskExecutorBuilder builder) {
+		return builder.build();
+	}
+
+	// Client writes of streamed responses, off the fan-out threads that resolve the products; each response is written
+	// by one task at a time, so the unbounded queue holds at most one task per open stream
+	@Bean("streamWriteExecutor")
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ThreadPoolTaskExecutor streamWriteExecutor() {
+		final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(this.properties.getService().getStreamWriterThreads());
+		executor.setMaxPoolSize(this.properties.getService().getStreamWriterThreads());
+		executor.setThreadNamePrefix("stream-writer-");
+		return executor;
+	}
+
+	@Bean("streamWriteExecutor")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public SimpleAsyncTaskExecutor virtualStreamWriteExecutor(SimpleAsyncTaskExecutorBuilder builder) {
+		return builder.threadNamePrefix("stream-writer-").build();
+	}
+
+	@Bean
+	public FanOutExecutor fanOutExecutor(@Qualifier("similarProductsExecutor") TaskExecutor executor) {
+		return new FanOutExecutor(executor, this.properties.getService().getConcurrencyLevel());
+	}
+
+	private RejectedExecutionHandler rejectionHandler(ProductServiceProperties.RejectionPolicy policy) {
+		return switch (policy) {
+			case CALLER_RUNS -> new ThreadPoolExecutor.CallerRunsPolicy();
+			case ABORT -> new ThreadPoolExecutor.AbortPolicy();
+		};
+	}
+}
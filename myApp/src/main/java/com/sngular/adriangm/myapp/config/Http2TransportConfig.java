@@ -0,0 +1,45 @@
+package com.sngular.adriangm.myapp.config;
+
+import io.netty.channel.ChannelOption;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * HTTP/2 transport to the product API (product-service.transport=http2), used by the RestTemplate in blocking mode and
+ * by the WebClient in reactive mode. Requests are streams multiplexed over at most max-connections connections: h2c
+ * with prior knowledge for an http base url, h2 negotiated through ALPN for https.
+ */
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "product-service", name = "transport", havingValue = "http2")
+public class Http2TransportConfig {
+
+	private final ProductServiceProperties properties;
+
+	// Pool metrics (reactor.netty.connection.provider.*, including active and pending streams) as for the WebClient
+	@Bean(destroyMethod = "dispose")
+	public ConnectionProvider productHttp2ConnectionProvider() {
+		final ProductServiceProperties.Http2 config = this.properties.getHttp2();
+		return ConnectionProvider.builder("product-h2").maxConnections(config.getMaxConnections())
+				.allocationStrategy(Http2AllocationStrategy.builder().maxConnections(config.getMaxConnections())
+						.minConnections(1).maxConcurrentStreams(config.getMaxConcurrentStreams()).build())
+				.pendingAcquireTimeout(config.getPendingAcquireTimeout()).maxIdleTime(config.getMaxIdleTime())
+				.metrics(true).build();
+	}
+
+	@Bean
+	public HttpClient productHttp2Client(
+			@Qualifier("productHttp2ConnectionProvider") ConnectionProvider productHttp2ConnectionProvider) {
+		final HttpClient httpClient = HttpClient.create(productHttp2ConnectionProvider).option(
+				ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) this.properties.getHttp2().getConnectTimeout().toMillis());
+		return this.properties.getBaseUrl().startsWith("https:") ? httpClient.protocol(HttpProtocol.H2).secure()
+				: httpClient.protocol(HttpProtocol.H2C);
+	}
+}
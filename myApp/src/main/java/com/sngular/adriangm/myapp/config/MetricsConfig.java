@@ -0,0 +1,224 @@
+package com.sngular.adriangm.myapp.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveConcurrencyLimiter;
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveTimeout;
+import com.sngular.adriangm.myapp.infrastructure.AssembledResponseCache;
+import com.sngular.adriangm.myapp.infrastructure.CacheSnapshotter;
+import com.sngular.adriangm.myapp.infrastructure.GatedConnectionManager;
+import com.sngular.adriangm.myapp.infrastructure.InFlightLoads;
+import com.sngular.adriangm.myapp.infrastructure.OffHeapCache;
+import com.sngular.adriangm.myapp.infrastructure.ProductServiceMetrics;
+import com.sngular.adriangm.myapp.infrastructure.RequestHedger;
+import com.sngular.adriangm.myapp.infrastructure.SimilarityGraph;
+import com.sngular.adriangm.myapp.infrastructure.SlowKeyQuarantine;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamRoute;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarIds;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.service.fanout.FanOutExecutor;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Meters read from the caches, connection pools and upstream guards; Spring Boot binds every {@link MeterBinder} bean
+ * to the registry. Meters recorded on the request path live in {@link ProductServiceMetrics}, the fan-out pool itself
+ * is covered by the auto-configured {@code executor.*} meters and HTTP server latency by {@code http.server.requests}.
+ */
+@Configuration
+public class MetricsConfig {
+
+	// Hit, miss, load and eviction counts; the assembled and off-heap tiers follow the same meter names
+	@Bean
+	public MeterBinder cacheMetrics(
+			@Qualifier("productDetailCache") AsyncCache<String, UpstreamResult<ProductDetail>> productDetailCache,
+			@Qualifier("similarIdsCache") AsyncCache<String, UpstreamResult<List<String>>> similarIdsCache,
+			@Qualifier("productDetailOffHeapCache") OffHeapCache<?> productDetailOffHeapCache,
+			@Qualifier("similarIdsOffHeapCache") OffHeapCache<?> similarIdsOffHeapCache,
+			AssembledResponseCache<?> assembledResponseCache) {
+		return registry -> {
+			bindCache(registry, productDetailCache, ProductServiceMetrics.PRODUCT_DETAIL_ROUTE);
+			bindCache(registry, similarIdsCache, ProductServiceMetrics.SIMILAR_IDS_ROUTE);
+			bindFootprint(registry, productDetailCache, ProductServiceMetrics.PRODUCT_DETAIL_ROUTE,
+					ProductDetail::estimatedFootprint);
+			bindFootprint(registry, similarIdsCache, ProductServiceMetrics.SIMILAR_IDS_ROUTE,
+					ids -> SimilarIds.of(ids).estimatedFootprint());
+			bindOffHeapCache(registry, productDetailOffHeapCache, ProductServiceMetrics.PRODUCT_DETAIL_ROUTE);
+			bindOffHeapCache(registry, similarIdsOffHeapCache, ProductServiceMetrics.SIMILAR_IDS_ROUTE);
+			final Tags tags = Tags.of("cache", "assembled");
+			FunctionCounter.builder("cache.gets", assembledResponseCache, cache -> cache.stats().hitCount())
+					.tags(tags).tag("result", "hit").register(registry);
+			FunctionCounter.builder("cache.gets", assembledResponseCache, cache -> cache.stats().missCount())
+					.tags(tags).tag("result", "miss").register(registry);
+			FunctionCounter.builder("cache.evictions", assembledResponseCache, cache -> cache.stats().evictionCount())
+					.tags(tags).register(registry);
+			Gauge.builder("cache.size", assembledResponseCache, AssembledResponseCache::estimatedSize).tags(tags)
+					.register(registry);
+		};
+	}
+
+	// Vertices, edges and heap bytes of the similarity graph behind the assembled-response invalidation
+	@Bean
+	public MeterBinder similarityGraphMetrics(AssembledResponseCache<?> assembledResponseCache) {
+		final SimilarityGraph graph = assembledResponseCache.similarityGraph();
+		return registry -> {
+			Gauge.builder("similarity.graph.vertices", graph, SimilarityGraph::vertexCount).register(registry);
+			Gauge.builder("similarity.graph.edges", graph, SimilarityGraph::edgeCount).register(registry);
+			Gauge.builder("similarity.graph.footprint", graph, SimilarityGraph::estimatedFootprint)
+					.baseUnit("bytes").register(registry);
+		};
+	}
+
+	// Entries restored on start and snapshot writes, when snapshots are enabled
+	@Bean
+	public MeterBinder cacheSnapshotMetrics(ObjectProvider<CacheSnapshotter> cacheSnapshotter) {
+		return registry -> cacheSnapshotter.ifAvailable(snapshotter -> {
+			Gauge.builder("cache.snapshot.restored", snapshotter, CacheSnapshotter::getRestoredEntries)
+					.register(registry);
+			FunctionCounter.builder("cache.snapshot.writes", snapshotter, CacheSnapshotter::getWrites)
+					.tag("result", "success").register(registry);
+			FunctionCounter.builder("cache.snapshot.writes", snapshotter, CacheSnapshotter::getFailedWrites)
+					.tag("result", "failure").register(registry);
+		});
+	}
+
+	// State, call and rate meters of every breaker, plus a counter of state transitions
+	@Bean
+	public MeterBinder circuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry) {
+		return registry -> {
+			TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(registry);
+			circuitBreakerRegistry.getAllCircuitBreakers().forEach(circuitBreaker -> circuitBreaker.getEventPublisher()
+					.onStateTransition(event -> Counter.builder("upstream.circuitbreaker.transitions")
+							.tag("name", event.getCircuitBreakerName())
+							.tag("from", event.getStateTransition().getFromState().name())
+							.tag("to", event.getStateTransition().getToState().name()).register(registry).increment()));
+		};
+	}
+
+	// Leased, available and pending connections of the blocking client pool, plus the callers waiting for a connection
+	// permit in front of it (virtual threads), when the HTTP/1.1 transport is used
+	@Bean
+	public MeterBinder productConnectionPoolMetrics(
+			ObjectProvider<PoolingHttpClientConnectionManager> productConnectionManager) {
+		return registry -> productConnectionManager.ifAvailable(connectionManager -> {
+			new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "product").bindTo(registry);
+			if (connectionManager instanceof final GatedConnectionManager gated) {
+				Gauge.builder("upstream.connections.waiting", gated, GatedConnectionManager::getQueuedLeases)
+						.description("Callers parked waiting for a connection permit").register(registry);
+			}
+		});
+	}
+
+	@Bean
+	public MeterBinder fanOutMetrics(FanOutExecutor fanOutExecutor) {
+		return registry -> FunctionCounter
+				.builder("fanout.rejected", fanOutExecutor, executor -> executor.getStats().getRejectedTasks())
+				.description("Fan-out tasks rejected by the full pool").register(registry);
+	}
+
+	@Bean
+	public MeterBinder upstreamGuardMetrics(@Qualifier("productDetailRoute") UpstreamRoute<ProductDetail> productRoute,
+			@Qualifier("similarIdsRoute") UpstreamRoute<List<String>> similarIdsRoute,
+			@Qualifier("productDetailHedger") RequestHedger productHedger) {
+		return registry -> {
+			bindRoute(registry, productRoute);
+			bindRoute(registry, similarIdsRoute);
+			bindHedging(registry, productHedger);
+		};
+	}
+
+	@Bean
+	public MeterBinder inFlightLoadMetrics(InFlightLoads inFlightLoads) {
+		return registry -> {
+			Gauge.builder("upstream.loads.inflight", inFlightLoads, InFlightLoads::getInFlight).register(registry);
+			FunctionCounter.builder("upstream.loads.abandoned", inFlightLoads, InFlightLoads::getAbandonedLoads)
+					.register(registry);
+			FunctionCounter.builder("upstream.calls.aborted", inFlightLoads, InFlightLoads::getAbortedAttempts)
+					.register(registry);
+		};
+	}
+
+	private static void bindRoute(MeterRegistry registry, UpstreamRoute<?> upstreamRoute) {
+		final String route = upstreamRoute.getName();
+		final SlowKeyQuarantine quarantine = upstreamRoute.getQuarantine();
+		final AdaptiveTimeout timeout = upstreamRoute.getTimeout();
+		final AdaptiveConcurrencyLimiter limiter = upstreamRoute.getConcurrencyLimiter();
+		Gauge.builder("upstream.quarantine.keys", quarantine, q -> q.getStatus().getKeys().size()).tag("route", route)
+				.register(registry);
+		FunctionCounter.builder("upstream.quarantine.skipped", quarantine, q -> q.getStatus().getSkippedCalls())
+				.tag("route", route).register(registry);
+		TimeGauge.builder("upstream.timeout", timeout, TimeUnit.MILLISECONDS, t -> t.current().toMillis())
+				.tag("route", route).register(registry);
+		Gauge.builder("upstream.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).tag("route", route)
+				.register(registry);
+		Gauge.builder("upstream.concurrency.inflight", limiter, l -> l.getStatus().getInFlight()).tag("route", route)
+				.register(registry);
+		FunctionCounter.builder("upstream.concurrency.shed", limiter, l -> l.getStatus().getShedCalls())
+				.tag("route", route).register(registry);
+	}
+
+	// Micrometer only counts loads of a LoadingCache; these caches load through get(key, mappingFunction)
+	private static void bindCache(MeterRegistry registry, AsyncCache<String, ?> cache, String name) {
+		CaffeineCacheMetrics.monitor(registry, cache, name);
+		final Cache<String, ?> synchronous = cache.synchronous();
+		FunctionCounter.builder("cache.load", synchronous, c -> c.stats().loadSuccessCount()).tag("cache", name)
+				.tag("result", "success").register(registry);
+		FunctionCounter.builder("cache.load", synchronous, c -> c.stats().loadFailureCount()).tag("cache", name)
+				.tag("result", "failure").register(registry);
+	}
+
+	// Estimated heap held by the cached results (the cache's own nodes and keys are not counted)
+	private static <T> void bindFootprint(MeterRegistry registry, AsyncCache<String, UpstreamResult<T>> cache,
+			String name, ToLongFunction<T> valueFootprint) {
+		Gauge.builder("cache.footprint", cache, c -> c.synchronous().asMap().values().stream()
+				.mapToLong(result -> result.estimatedFootprint(valueFootprint)).sum()).tag("cache", name)
+				.baseUnit("bytes").register(registry);
+	}
+
+	// Tagged as cache "<name>OffHeap"; puts are demotions from the on-heap cache, hits are promotions back to it
+	private static void bindOffHeapCache(MeterRegistry registry, OffHeapCache<?> cache, String name) {
+		if (!cache.isEnabled()) {
+			return;
+		}
+		final Tags tags = Tags.of("cache", name + "OffHeap");
+		FunctionCounter.builder("cache.gets", cache, OffHeapCache::getHitCount).tags(tags).tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", cache, OffHeapCache::getMissCount).tags(tags).tag("result", "miss")
+				.register(registry);
+		FunctionCounter.builder("cache.puts", cache, OffHeapCache::getPutCount).tags(tags).register(registry);
+		FunctionCounter.builder("cache.evictions", cache, OffHeapCache::getEvictionCount).tags(tags)
+				.register(registry);
+		Gauge.builder("cache.size", cache, OffHeapCache::estimatedSize).tags(tags).register(registry);
+		Gauge.builder("cache.offheap.capacity", cache, OffHeapCache::capacityBytes).tags(tags).baseUnit("bytes")
+				.register(registry);
+	}
+
+	private static void bindHedging(MeterRegistry registry, RequestHedger hedger) {
+		final Tags tags = Tags.of("route", ProductServiceMetrics.PRODUCT_DETAIL_ROUTE);
+		FunctionCounter.builder("upstream.hedging.calls", hedger, h -> h.getStatus().getCalls()).tags(tags)
+				.register(registry);
+		FunctionCounter.builder("upstream.hedging.hedges", hedger, h -> h.getStatus().getHedges()).tags(tags)
+				.register(registry);
+		FunctionCounter.builder("upstream.hedging.wins", hedger, h -> h.getStatus().getHedgeWins()).tags(tags)
+				.register(registry);
+	}
+}
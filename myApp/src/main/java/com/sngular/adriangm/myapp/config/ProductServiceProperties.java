@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
 
@@ -17,25 +18,58 @@ public class ProductServiceProperties {
 	private String baseUrl;
 	private Duration timeout;
 	private int concurrency;
+	// blocking: RestTemplate + fan-out executor, reactive: WebClient + Reactor
+	private Mode mode = Mode.BLOCKING;
+	// http1: pooled HTTP/1.1 connections, http2: requests multiplexed as streams over a few HTTP/2 connections
+	private Transport transport = Transport.HTTP1;
 
 	private ServiceConfig service = new ServiceConfig();
 	private RestTemplate restTemplate = new RestTemplate();
 	private WebClient webclient = new WebClient();
+	private Http2 http2 = new Http2();
 	private Cache cache = new Cache();
 	private CircuitBreaker circuitBreaker = new CircuitBreaker();
+	private Quarantine quarantine = new Quarantine();
+	private Hedging hedging = new Hedging();
+	private AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout();
+	private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+	private Cancellation cancellation = new Cancellation();
 
 	@Setter
 	@Getter
 	public static class ServiceConfig {
 		private Duration similarProductsTimeout = Duration.ofSeconds(2);
+		private Duration maxSimilarProductsTimeout = Duration.ofSeconds(10);
 		private int concurrencyLevel = 8;
+		// The pool also runs the blocking cache loads: caller-runs would run them, unbounded, on the request thread.
+		// Aborted fan-out tasks and loads are skipped and mark the result as partial
+		private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+		// Largest number of product ids accepted by the batch endpoint
+		private int maxBatchSize = 50;
+		// Threads writing streamed responses to clients; a client that stops reading holds one until its write fails
+		private int streamWriterThreads = 16;
+	}
+
+	public enum Mode {
+		BLOCKING, REACTIVE
+	}
+
+	public enum RejectionPolicy {
+		CALLER_RUNS, ABORT
+	}
+
+	public enum Transport {
+		HTTP1, HTTP2
 	}
 
 	@Setter
 	@Getter
 	public static class RestTemplate {
 		private Duration connectTimeout = Duration.ofSeconds(2);
+		// Socket timeout; per-call response timeouts come from product-service.adaptive-timeout
 		private Duration readTimeout = Duration.ofSeconds(6);
+		// Wait for a pooled connection
+		private Duration connectionRequestTimeout = Duration.ofSeconds(2);
 		private int maxConnections = 100;
 		private int maxConnectionsPerRoute = 50;
 	}
@@ -57,6 +91,18 @@ public class ProductServiceProperties {
 		private String connectionPoolName = "custom-pool";
 	}
 
+	@Setter
+	@Getter
+	public static class Http2 {
+		// Physical connections to the product API and concurrent streams on each (the server may advertise fewer)
+		private int maxConnections = 2;
+		private int maxConcurrentStreams = 100;
+		private Duration connectTimeout = Duration.ofSeconds(2);
+		// Wait for a stream when every connection is at max-concurrent-streams
+		private Duration pendingAcquireTimeout = Duration.ofSeconds(3);
+		private Duration maxIdleTime = Duration.ofMinutes(1);
+	}
+
 	@Setter
 	@Getter
 	public static class Cache {
@@ -64,12 +110,53 @@ public class ProductServiceProperties {
 		private Duration expireAfterWrite = Duration.ofMinutes(15);
 		private Duration expireAfterAccess = Duration.ofMinutes(5);
 		private boolean recordStats = true;
+		// Negative caching, one TTL per upstream failure category
+		private Duration notFoundTtl = Duration.ofSeconds(30);
+		private Duration serverErrorTtl = Duration.ofSeconds(5);
+		private Duration timeoutTtl = Duration.ofSeconds(2);
+		private Duration circuitOpenTtl = Duration.ofSeconds(1);
+		// Serve-stale fallback: last good copies outlive expire-after-write by this grace period
+		private Duration staleGracePeriod = Duration.ofHours(1);
+		// How long a stale copy is served before the upstream is tried again
+		private Duration staleRetryInterval = Duration.ofSeconds(2);
+		// Freshness of good entries is stretched by this factor while the upstream is degraded
+		private int degradedFreshnessFactor = 4;
+		private float degradedFailureRate = 25;
+		// Assembled /product/{id}/similar responses, invalidated through their detail and similar-ids dependencies
+		private boolean assembledEnabled = true;
+		private int assembledMaximumSize = 1000;
+		private Snapshot snapshot = new Snapshot();
+		private OffHeap offHeap = new OffHeap();
+	}
+
+	@Setter
+	@Getter
+	public static class Snapshot {
+		// Product-detail and similar-ids entries are saved every interval and on shutdown, and loaded on start
+		private boolean enabled = false;
+		// Where the snapshot file is kept; required when enabled, there is no default location
+		private String directory;
+		private Duration interval = Duration.ofMinutes(1);
+	}
+
+	@Setter
+	@Getter
+	public static class OffHeap {
+		// Second-level tier behind the on-heap caches: size evictions are demoted to it, L1 misses promote from it.
+		// Capacities are allocated as direct memory on start, so the defaults stay small; size them for the host
+		private boolean enabled = false;
+		private DataSize productDetailCapacity = DataSize.ofMegabytes(8);
+		private DataSize similarIdsCapacity = DataSize.ofMegabytes(2);
+		// Independently locked ring buffers per tier
+		private int segments = 16;
 	}
 
 	@Setter
 	@Getter
 	public static class CircuitBreaker {
+		// One breaker per upstream route: name guards /product/{id}, similar-ids-name guards /product/{id}/similarids
 		private String name = "productDetailCB";
+		private String similarIdsName = "similarIdsCB";
 		private int failureRateThreshold = 60;
 		private Duration waitDurationInOpenState = Duration.ofSeconds(10);
 		private int slidingWindowSize = 50;
@@ -77,4 +164,70 @@ public class ProductServiceProperties {
 		private int slowCallRateThreshold = 50;
 		private Duration slowCallDurationThreshold = Duration.ofSeconds(3);
 	}
+
+	@Setter
+	@Getter
+	public static class Quarantine {
+		private boolean enabled = true;
+		// A call to one product is slow when it takes at least this long or times out
+		private Duration slowCallDuration = Duration.ofSeconds(1);
+		// Consecutive slow calls after which the product is skipped for the cooldown
+		private int slowCallsToQuarantine = 3;
+		private Duration cooldown = Duration.ofSeconds(30);
+		private int maximumSize = 10000;
+	}
+
+	@Setter
+	@Getter
+	public static class Hedging {
+		private boolean enabled = false;
+		// A second product-detail request is sent once the first has been outstanding for this latency percentile
+		private double percentile = 95;
+		private Duration minDelay = Duration.ofMillis(20);
+		// Hedges are capped at this percentage of product-detail calls
+		private double maxHedgePercent = 10;
+		// Recent latencies kept to compute the percentile, and how many are needed before hedging starts
+		private int sampleSize = 1000;
+		private int minSamples = 20;
+	}
+
+	@Setter
+	@Getter
+	public static class AdaptiveTimeout {
+		private boolean enabled = true;
+		// Each call's timeout is this percentile of the route's recent latency times the multiplier, within [min, max]
+		private double percentile = 99.5;
+		private double multiplier = 2;
+		private Duration min = Duration.ofMillis(250);
+		private Duration max = Duration.ofSeconds(6);
+		// Rolling window of observed latencies; below min-samples calls the max applies
+		private Duration window = Duration.ofMinutes(1);
+		private int minSamples = 50;
+	}
+
+	@Setter
+	@Getter
+	public static class ConcurrencyLimit {
+		private boolean enabled = true;
+		// Concurrent product API calls; the limit adapts between min-limit and max-limit
+		private int initialLimit = 20;
+		private int minLimit = 4;
+		private int maxLimit = 200;
+		// Recent latency may exceed the long-term average by this factor before the limit shrinks
+		private double tolerance = 1.5;
+		private double smoothing = 0.2;
+		// Samples averaged for recent and long-term latency
+		private int shortWindow = 10;
+		private int longWindow = 600;
+	}
+
+	@Setter
+	@Getter
+	public static class Cancellation {
+		// Blocking upstream calls are aborted once no request waits for them (budget spent or client gone)
+		private boolean enabled = true;
+		// Grace period before an unwanted call is aborted, so a late answer can still fill the cache; defaults to the
+		// rest-template read timeout, which already bounds every load
+		private Duration abandonAfter;
+	}
 }
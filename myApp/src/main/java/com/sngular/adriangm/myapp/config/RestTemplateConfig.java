@@ -1,31 +1,106 @@
 package com.sngular.adriangm.myapp.config;
 
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveTimeout;
+import com.sngular.adriangm.myapp.infrastructure.GatedConnectionManager;
+import com.sngular.adriangm.myapp.infrastructure.InFlightLoads;
 import lombok.RequiredArgsConstructor;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ReactorNettyClientRequestFactory;
 import org.springframework.web.client.RestTemplate;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.time.Duration;
 
 @Configuration
 @RequiredArgsConstructor
 public class RestTemplateConfig {
 
 	private final ProductServiceProperties properties;
+	private final Environment environment;
 
-	@Bean
-	public RestTemplate restTemplate() {
-		final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-		connectionManager.setMaxTotal(this.properties.getRestTemplate().getMaxConnections());
-		connectionManager.setDefaultMaxPerRoute(this.properties.getRestTemplate().getMaxConnectionsPerRoute());
+	// A bean of its own so the pool lease/pending counts can be bound to the meter registry. Virtual threads wait for a
+	// connection outside the pool, where they do not pin their carrier. Only the HTTP/1.1 transport pools connections
+	@Bean(destroyMethod = "close")
+	@ConditionalOnProperty(prefix = "product-service", name = "transport", havingValue = "http1", matchIfMissing = true)
+	public PoolingHttpClientConnectionManager productConnectionManager() {
+		final ProductServiceProperties.RestTemplate config = this.properties.getRestTemplate();
+		final PoolingHttpClientConnectionManager connectionManager = Threading.VIRTUAL.isActive(this.environment)
+				? new GatedConnectionManager(Math.min(config.getMaxConnections(), config.getMaxConnectionsPerRoute()))
+				: new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(config.getMaxConnections());
+		connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+		connectionManager.setDefaultConnectionConfig(
+				ConnectionConfig.custom().setConnectTimeout(Timeout.of(config.getConnectTimeout()))
+						.setSocketTimeout(Timeout.of(config.getReadTimeout())).build());
+		return connectionManager;
+	}
 
-		final CloseableHttpClient httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+	@Bean
+	public RestTemplate restTemplate(ObjectProvider<PoolingHttpClientConnectionManager> productConnectionManager,
+			@Qualifier("productDetailTimeout") AdaptiveTimeout productDetailTimeout,
+			@Qualifier("similarIdsTimeout") AdaptiveTimeout similarIdsTimeout,
+			@Qualifier("productHttp2Client") ObjectProvider<HttpClient> productHttp2Client) {
+		final ProductServiceProperties.RestTemplate config = this.properties.getRestTemplate();
+		final HttpClient http2Client = productHttp2Client.getIfAvailable();
+		if (http2Client != null) {
+			// product-service.transport=http2. Each request gets the current adaptive timeout of its route as its
+			// response timeout; the factory's timeouts, at the longest a route can get, only back it up. An aborted
+			// call interrupts the blocked caller, which cancels the exchange and resets its stream
+			final Duration longest = productDetailTimeout.longest().compareTo(similarIdsTimeout.longest()) >= 0
+					? productDetailTimeout.longest() : similarIdsTimeout.longest();
+			final ReactorNettyClientRequestFactory factory = new ReactorNettyClientRequestFactory(
+					http2Client.doOnRequest((request, connection) -> request.responseTimeout(
+							routeTimeout(request.path(), productDetailTimeout, similarIdsTimeout).current())));
+			factory.setReadTimeout(longest);
+			factory.setExchangeTimeout(longest.plus(config.getConnectionRequestTimeout()));
+			return new RestTemplate(factory);
+		}
+		final CloseableHttpClient httpClient = HttpClients.custom()
+				.setConnectionManager(productConnectionManager.getObject()).build();
 
-		final HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
-		factory.setConnectTimeout((int) this.properties.getRestTemplate().getConnectTimeout().toMillis());
-		factory.setConnectionRequestTimeout((int) this.properties.getRestTemplate().getReadTimeout().toMillis());
+		// Each call gets the current adaptive response timeout of its route and can be aborted by its load, which
+		// closes the connection instead of returning it to the pool
+		final HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient) {
+			@Override
+			protected ClassicHttpRequest createHttpUriRequest(HttpMethod method, URI uri) {
+				final ClassicHttpRequest request = super.createHttpUriRequest(method, uri);
+				if (request instanceof final Cancellable cancellable) {
+					InFlightLoads.onExchange(cancellable::cancel);
+				}
+				return request;
+			}
+		};
+		factory.setHttpContextFactory((method, uri) -> {
+			final AdaptiveTimeout timeout = routeTimeout(uri.getPath(), productDetailTimeout, similarIdsTimeout);
+			final HttpClientContext context = HttpClientContext.create();
+			context.setRequestConfig(RequestConfig.custom()
+					.setConnectionRequestTimeout(Timeout.of(config.getConnectionRequestTimeout()))
+					.setResponseTimeout(Timeout.of(timeout.current())).build());
+			return context;
+		});
 		return new RestTemplate(factory);
 	}
+
+	private static AdaptiveTimeout routeTimeout(String path, AdaptiveTimeout productDetailTimeout,
+			AdaptiveTimeout similarIdsTimeout) {
+		return path.endsWith("/similarids") ? similarIdsTimeout : productDetailTimeout;
+	}
 }
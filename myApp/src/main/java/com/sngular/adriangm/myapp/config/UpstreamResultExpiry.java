@@ -0,0 +1,66 @@
+package com.sngular.adriangm.myapp.config;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Per-entry expiry for cached upstream results.
+ * <p>
+ * Found entries keep the expire-after-write / expire-after-access pair from {@code product-service.cache}: an entry
+ * lives until it is older than expire-after-write or has not been read for expire-after-access. Failures get the
+ * short TTL of their status and reads do not extend them. Stale copies are kept for the stale retry interval only.
+ * <p>
+ * While the upstream is degraded the expire-after-write window of good entries is stretched by
+ * {@code degraded-freshness-factor}, so hot entries survive an upstream incident instead of expiring into it.
+ */
+public class UpstreamResultExpiry<T> implements Expiry<String, UpstreamResult<T>> {
+
+	private final ProductServiceProperties.Cache config;
+	private final BooleanSupplier upstreamDegraded;
+
+	public UpstreamResultExpiry(ProductServiceProperties.Cache config, BooleanSupplier upstreamDegraded) {
+		this.config = config;
+		this.upstreamDegraded = upstreamDegraded;
+	}
+
+	@Override
+	public long expireAfterCreate(String key, UpstreamResult<T> value, long currentTime) {
+		return value.isFound() ? this.foundTtl(value) : this.failureTtl(value.getStatus()).toNanos();
+	}
+
+	@Override
+	public long expireAfterUpdate(String key, UpstreamResult<T> value, long currentTime, long currentDuration) {
+		return this.expireAfterCreate(key, value, currentTime);
+	}
+
+	@Override
+	public long expireAfterRead(String key, UpstreamResult<T> value, long currentTime, long currentDuration) {
+		return value.isFound() && !value.isStale() ? this.foundTtl(value) : currentDuration;
+	}
+
+	private long foundTtl(UpstreamResult<T> value) {
+		if (value.isStale()) {
+			return this.config.getStaleRetryInterval().toNanos();
+		}
+		final Duration expireAfterWrite = this.upstreamDegraded.getAsBoolean()
+				? this.config.getExpireAfterWrite().multipliedBy(Math.max(1, this.config.getDegradedFreshnessFactor()))
+				: this.config.getExpireAfterWrite();
+		final long age = Math.max(0L, System.currentTimeMillis() - value.getFetchedAt());
+		final long untilWriteExpiry = expireAfterWrite.toNanos() - Duration.ofMillis(age).toNanos();
+		final Duration afterAccess = this.config.getExpireAfterAccess();
+		final long ttl = afterAccess != null ? Math.min(untilWriteExpiry, afterAccess.toNanos()) : untilWriteExpiry;
+		return Math.max(0L, ttl);
+	}
+
+	private Duration failureTtl(UpstreamResult.Status status) {
+		return switch (status) {
+			case NOT_FOUND -> this.config.getNotFoundTtl();
+			case TIMEOUT -> this.config.getTimeoutTtl();
+			case CIRCUIT_OPEN, QUARANTINED, SHED -> this.config.getCircuitOpenTtl();
+			default -> this.config.getServerErrorTtl();
+		};
+	}
+}
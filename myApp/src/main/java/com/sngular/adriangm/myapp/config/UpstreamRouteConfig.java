@@ -0,0 +1,51 @@
+package com.sngular.adriangm.myapp.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveConcurrencyLimiter;
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveTimeout;
+import com.sngular.adriangm.myapp.infrastructure.OffHeapCache;
+import com.sngular.adriangm.myapp.infrastructure.ProductServiceMetrics;
+import com.sngular.adriangm.myapp.infrastructure.SlowKeyQuarantine;
+import com.sngular.adriangm.myapp.infrastructure.StaleResultStore;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamRoute;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class UpstreamRouteConfig {
+
+	private final ProductServiceProperties properties;
+
+	@Bean("productDetailRoute")
+	public UpstreamRoute<ProductDetail> productDetailRoute(
+			@Qualifier("productDetailCache") AsyncCache<String, UpstreamResult<ProductDetail>> cache,
+			@Qualifier("productDetailOffHeapCache") OffHeapCache<ProductDetail> offHeapCache,
+			@Qualifier("productDetailStaleStore") StaleResultStore<ProductDetail> staleStore,
+			@Qualifier("productDetailQuarantine") SlowKeyQuarantine quarantine,
+			@Qualifier("productDetailTimeout") AdaptiveTimeout timeout,
+			@Qualifier("productDetailConcurrencyLimiter") AdaptiveConcurrencyLimiter concurrencyLimiter) {
+		return new UpstreamRoute<>(ProductServiceMetrics.PRODUCT_DETAIL_ROUTE,
+				this.properties.getCircuitBreaker().getName(), cache, offHeapCache, staleStore, quarantine, timeout,
+				concurrencyLimiter);
+	}
+
+	@Bean("similarIdsRoute")
+	public UpstreamRoute<List<String>> similarIdsRoute(
+			@Qualifier("similarIdsCache") AsyncCache<String, UpstreamResult<List<String>>> cache,
+			@Qualifier("similarIdsOffHeapCache") OffHeapCache<List<String>> offHeapCache,
+			@Qualifier("similarIdsStaleStore") StaleResultStore<List<String>> staleStore,
+			@Qualifier("similarIdsQuarantine") SlowKeyQuarantine quarantine,
+			@Qualifier("similarIdsTimeout") AdaptiveTimeout timeout,
+			@Qualifier("similarIdsConcurrencyLimiter") AdaptiveConcurrencyLimiter concurrencyLimiter) {
+		return new UpstreamRoute<>(ProductServiceMetrics.SIMILAR_IDS_ROUTE,
+				this.properties.getCircuitBreaker().getSimilarIdsName(), cache, offHeapCache, staleStore, quarantine,
+				timeout, concurrencyLimiter);
+	}
+}
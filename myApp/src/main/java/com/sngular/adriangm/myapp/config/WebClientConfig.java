@@ -0,0 +1,59 @@
+package com.sngular.adriangm.myapp.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "product-service", name = "mode", havingValue = "reactive")
+public class WebClientConfig {
+
+	private final ProductServiceProperties properties;
+
+	// Pool metrics (reactor.netty.connection.provider.*) go to the global registry, which Spring Boot feeds
+	@Bean(destroyMethod = "dispose")
+	public ConnectionProvider productConnectionProvider() {
+		final ProductServiceProperties.WebClient config = this.properties.getWebclient();
+		return ConnectionProvider.builder(config.getConnectionPoolName()).maxConnections(config.getMaxConnections())
+				.maxIdleTime(config.getMaxIdleTime()).maxLifeTime(config.getMaxLifeTime())
+				.pendingAcquireTimeout(config.getPendingAcquireTimeout()).metrics(true).build();
+	}
+
+	@Bean
+	public WebClient productWebClient(WebClient.Builder builder,
+			@Qualifier("productConnectionProvider") ConnectionProvider productConnectionProvider,
+			@Qualifier("productHttp2Client") ObjectProvider<HttpClient> productHttp2Client) {
+		final ProductServiceProperties.WebClient config = this.properties.getWebclient();
+
+		// Idle read/write handlers would close multiplexed connections, so HTTP/2 relies on the response timeout
+		final HttpClient http2Client = productHttp2Client.getIfAvailable();
+		final HttpClient httpClient = http2Client != null ? http2Client.responseTimeout(config.getResponseTimeout())
+				: HttpClient.create(productConnectionProvider)
+						.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) config.getConnectionTimeout().toMillis())
+						.responseTimeout(config.getResponseTimeout())
+						.doOnConnected(connection -> connection
+								.addHandlerLast(new ReadTimeoutHandler(config.getReadTimeout().toMillis(),
+										TimeUnit.MILLISECONDS))
+								.addHandlerLast(new WriteTimeoutHandler(config.getWriteTimeout().toMillis(),
+										TimeUnit.MILLISECONDS)));
+
+		final String baseUrl = config.getBaseUrl() != null ? config.getBaseUrl() : this.properties.getBaseUrl();
+		final int maxInMemorySize = (int) DataSize.parse(config.getMaxInMemorySize()).toBytes();
+		return builder.baseUrl(baseUrl).clientConnector(new ReactorClientHttpConnector(httpClient))
+				.codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySize)).build();
+	}
+}
@@ -0,0 +1,22 @@
+package com.sngular.adriangm.myapp.controller;
+
+import com.sngular.adriangm.myapp.exception.InvalidBatchRequestException;
+import com.sngular.adriangm.myapp.exception.ProductNotFoundException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ControllerExceptionHandler {
+
+	// Contract: 404 "Product Not found" when the requested product does not exist upstream
+	@ExceptionHandler(ProductNotFoundException.class)
+	public ResponseEntity<Void> handleProductNotFound(ProductNotFoundException e) {
+		return ResponseEntity.notFound().build();
+	}
+
+	@ExceptionHandler(InvalidBatchRequestException.class)
+	public ResponseEntity<Void> handleInvalidBatchRequest(InvalidBatchRequestException e) {
+		return ResponseEntity.badRequest().build();
+	}
+}
@@ -0,0 +1,89 @@
+package com.sngular.adriangm.myapp.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.sngular.adriangm.myapp.dto.ProductDetailDTO;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Body of a similar-products response: the distinct products in order, written by concatenating the JSON fragment
+ * each product carries (see {@link ProductDetail#json()}) rather than mapping and serializing every product again. It
+ * stays a read-only {@code Set<ProductDetailDTO>}, mapped on iteration, so the generated API signature holds. Written
+ * on its own by {@link PreSerializedProductsConverter}, and through {@link Serializer} inside a batch response.
+ */
+@JsonSerialize(using = PreSerializedProducts.Serializer.class)
+public final class PreSerializedProducts extends AbstractSet<ProductDetailDTO> {
+
+	private final List<ProductDetail> products;
+	private final Function<ProductDetail, ProductDetailDTO> mapper;
+
+	private PreSerializedProducts(List<ProductDetail> products, Function<ProductDetail, ProductDetailDTO> mapper) {
+		this.products = products;
+		this.mapper = mapper;
+	}
+
+	static PreSerializedProducts of(Collection<ProductDetail> products,
+			Function<ProductDetail, ProductDetailDTO> mapper) {
+		return new PreSerializedProducts(List.copyOf(new LinkedHashSet<>(products)), mapper);
+	}
+
+	@Override
+	public Iterator<ProductDetailDTO> iterator() {
+		return this.products.stream().map(this.mapper).iterator();
+	}
+
+	@Override
+	public int size() {
+		return this.products.size();
+	}
+
+	/**
+	 * Bytes written by {@link #writeTo}.
+	 */
+	public long contentLength() {
+		long length = 2 + Math.max(0, this.products.size() - 1);
+		for (final ProductDetail product : this.products) {
+			length += product.json().length();
+		}
+		return length;
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		out.write('[');
+		for (int i = 0; i < this.products.size(); i++) {
+			if (i > 0) {
+				out.write(',');
+			}
+			this.products.get(i).json().writeTo(out);
+		}
+		out.write(']');
+	}
+
+	static final class Serializer extends StdSerializer<PreSerializedProducts> {
+
+		Serializer() {
+			super(PreSerializedProducts.class);
+		}
+
+		@Override
+		public void serialize(PreSerializedProducts value, JsonGenerator generator, SerializerProvider provider)
+				throws IOException {
+			generator.writeStartArray(value, value.size());
+			for (final ProductDetail product : value.products) {
+				generator.writeRawValue(product.json());
+			}
+			generator.writeEndArray();
+		}
+	}
+}
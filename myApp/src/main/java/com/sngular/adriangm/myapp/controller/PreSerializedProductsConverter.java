@@ -0,0 +1,49 @@
+package com.sngular.adriangm.myapp.controller;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link PreSerializedProducts} body straight into the response stream, with its exact content length.
+ * Spring Boot puts converter beans ahead of the default ones, so this one wins over Jackson for these bodies only.
+ */
+@Component
+public class PreSerializedProductsConverter extends AbstractHttpMessageConverter<PreSerializedProducts> {
+
+	public PreSerializedProductsConverter() {
+		super(MediaType.APPLICATION_JSON);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return PreSerializedProducts.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	protected boolean canRead(MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected PreSerializedProducts readInternal(Class<? extends PreSerializedProducts> clazz,
+			HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("Similar products are never read", inputMessage);
+	}
+
+	@Override
+	protected Long getContentLength(PreSerializedProducts products, MediaType contentType) {
+		return products.contentLength();
+	}
+
+	@Override
+	protected void writeInternal(PreSerializedProducts products, HttpOutputMessage outputMessage)
+			throws IOException {
+		products.writeTo(outputMessage.getBody());
+	}
+}
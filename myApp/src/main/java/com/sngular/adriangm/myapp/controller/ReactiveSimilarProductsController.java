@@ -0,0 +1,96 @@
+package com.sngular.adriangm.myapp.controller;
+
+import com.sngular.adriangm.myapp.dto.ProductDetailDTO;
+import com.sngular.adriangm.myapp.service.ReactiveSimilarProductsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Same contract as {@link SimilarProductsController}; the servlet thread is released while the fan-out runs on the
+ * Reactor Netty event loops.
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "product-service", name = "mode", havingValue = "reactive")
+public class ReactiveSimilarProductsController {
+
+	private final ReactiveSimilarProductsService similarProductsService;
+	private final SimilarProductsResponseAssembler responseAssembler;
+
+	@GetMapping(value = "/product/{id}/similar", produces = "application/json")
+	public Mono<ResponseEntity<Set<ProductDetailDTO>>> getProductSimilar(@PathVariable("id") String productId,
+			@RequestHeader(value = SimilarProductsController.REQUEST_TIMEOUT_HEADER, required = false) String timeout) {
+		final ResponseEntity<Set<ProductDetailDTO>> assembled = this.responseAssembler.cached(productId);
+		if (assembled != null) {
+			return Mono.just(assembled);
+		}
+		final long changeCount = this.responseAssembler.changeCount();
+		return this.similarProductsService
+				.getSimilarProducts(productId, SimilarProductsResponseAssembler.parseTimeout(timeout))
+				.map(result -> this.responseAssembler.toResponse(productId, result, changeCount));
+	}
+
+	/**
+	 * @see SimilarProductsController#streamProductSimilar
+	 */
+	@GetMapping(value = "/product/{id}/similar",
+			produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+	public Mono<ResponseEntity<ResponseBodyEmitter>> streamProductSimilar(@PathVariable("id") String productId,
+			@RequestHeader(value = SimilarProductsController.REQUEST_TIMEOUT_HEADER, required = false) String timeout,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+		return Mono.fromFuture(() -> this.responseAssembler.stream(
+				SimilarProductsResponseAssembler.streamingMediaType(accept),
+				listener -> this.similarProductsService
+						.streamSimilarProducts(productId, SimilarProductsResponseAssembler.parseTimeout(timeout), listener)
+						.toFuture()));
+	}
+
+	@GetMapping(value = "/product/similar", produces = "application/json")
+	public Mono<ResponseEntity<Map<String, Set<ProductDetailDTO>>>> getProductsSimilar(
+			@RequestParam("ids") List<String> productIds,
+			@RequestHeader(value = SimilarProductsController.REQUEST_TIMEOUT_HEADER, required = false) String timeout) {
+		final Map<String, ResponseEntity<Set<ProductDetailDTO>>> responses = new LinkedHashMap<>();
+		final List<String> misses = new ArrayList<>();
+		for (final String productId : this.responseAssembler.batchIds(productIds)) {
+			final ResponseEntity<Set<ProductDetailDTO>> assembled = this.responseAssembler.cached(productId);
+			responses.put(productId, assembled);
+			if (assembled == null) {
+				misses.add(productId);
+			}
+		}
+		if (misses.isEmpty()) {
+			return Mono.just(this.responseAssembler.toBatchResponse(responses));
+		}
+
+		final long changeCount = this.responseAssembler.changeCount();
+		return this.similarProductsService
+				.getSimilarProductsBatch(misses, SimilarProductsResponseAssembler.parseTimeout(timeout))
+				.map(results -> {
+					for (final String productId : misses) {
+						if (results.containsKey(productId)) {
+							responses.put(productId,
+									this.responseAssembler.toResponse(productId, results.get(productId), changeCount));
+						} else {
+							responses.remove(productId);
+						}
+					}
+					return this.responseAssembler.toBatchResponse(responses);
+				});
+	}
+}
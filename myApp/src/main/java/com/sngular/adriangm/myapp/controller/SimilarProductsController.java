@@ -1,30 +1,105 @@
 package com.sngular.adriangm.myapp.controller;
 
 import com.sngular.adriangm.myapp.api.generated.DefaultApi;
-import com.sngular.adriangm.myapp.controller.mapper.ProductDetailMapper;
 import com.sngular.adriangm.myapp.dto.ProductDetailDTO;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
 import com.sngular.adriangm.myapp.service.SimilarProductsService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "product-service", name = "mode", havingValue = "blocking", matchIfMissing = true)
 public class SimilarProductsController implements DefaultApi {
 
-	private final ProductDetailMapper productDetailMapper;
+	// Client time budget in milliseconds, overrides product-service.service.similar-products-timeout
+	public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+	// Set to "true" when the budget ran out and only the ready products were returned
+	public static final String PARTIAL_RESPONSE_HEADER = "X-Partial-Response";
+	// Set to "true" when some answers are last good copies served because the upstream failed
+	public static final String STALE_RESPONSE_HEADER = "X-Stale-Response";
+
 	private final SimilarProductsService similarProductsService;
+	private final HttpServletRequest request;
+	private final SimilarProductsResponseAssembler responseAssembler;
 
 	@GetMapping("/product/{id}/similar")
 	@Override
 	public ResponseEntity<Set<ProductDetailDTO>> getProductSimilar(@PathVariable("id") String productId) {
-		final Set<ProductDetailDTO> products = this.similarProductsService.getSimilarProducts(productId).stream()
-				.map(this.productDetailMapper::toApiModel).collect(Collectors.toSet());
-		return ResponseEntity.ok(products);
+		final ResponseEntity<Set<ProductDetailDTO>> assembled = this.responseAssembler.cached(productId);
+		if (assembled != null) {
+			return assembled;
+		}
+		final long changeCount = this.responseAssembler.changeCount();
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts(productId,
+				SimilarProductsResponseAssembler.parseTimeout(this.request.getHeader(REQUEST_TIMEOUT_HEADER)));
+		return this.responseAssembler.toResponse(productId, result, changeCount);
+	}
+
+	/**
+	 * Streaming representation of {@link #getProductSimilar}, chosen through the Accept header: every product as soon
+	 * as it resolves (in completion order), then a trailer with the skipped and timed-out ids.
+	 */
+	@GetMapping(value = "/product/{id}/similar",
+			produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+	public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> streamProductSimilar(
+			@PathVariable("id") String productId) {
+		final Duration timeout = SimilarProductsResponseAssembler
+				.parseTimeout(this.request.getHeader(REQUEST_TIMEOUT_HEADER));
+		return this.responseAssembler.stream(
+				SimilarProductsResponseAssembler.streamingMediaType(this.request.getHeader(HttpHeaders.ACCEPT)),
+				listener -> this.similarProductsService.streamSimilarProducts(productId, timeout, listener));
+	}
+
+	/**
+	 * Similar products for several products in one call, keyed by product id in request order. Products that do not
+	 * exist are left out.
+	 */
+	@GetMapping("/product/similar")
+	public ResponseEntity<Map<String, Set<ProductDetailDTO>>> getProductsSimilar(
+			@RequestParam("ids") List<String> productIds) {
+		final Map<String, ResponseEntity<Set<ProductDetailDTO>>> responses = new LinkedHashMap<>();
+		final List<String> misses = new ArrayList<>();
+		for (final String productId : this.responseAssembler.batchIds(productIds)) {
+			final ResponseEntity<Set<ProductDetailDTO>> assembled = this.responseAssembler.cached(productId);
+			responses.put(productId, assembled);
+			if (assembled == null) {
+				misses.add(productId);
+			}
+		}
+
+		if (!misses.isEmpty()) {
+			final long changeCount = this.responseAssembler.changeCount();
+			final Map<String, SimilarProductsResult> results = this.similarProductsService.getSimilarProductsBatch(
+					misses,
+					SimilarProductsResponseAssembler.parseTimeout(this.request.getHeader(REQUEST_TIMEOUT_HEADER)));
+			for (final String productId : misses) {
+				final SimilarProductsResult result = results.get(productId);
+				if (result != null) {
+					responses.put(productId, this.responseAssembler.toResponse(productId, result, changeCount));
+				} else {
+					responses.remove(productId);
+				}
+			}
+		}
+		return this.responseAssembler.toBatchResponse(responses);
 	}
 }
@@ -0,0 +1,48 @@
+package com.sngular.adriangm.myapp.controller;
+
+import io.micrometer.common.KeyValues;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds a {@code result} tag to {@code http.server.requests}: {@code complete}, {@code partial} or {@code stale}, read
+ * from the response headers set by {@link SimilarProductsResponseAssembler}, {@code streamed} for NDJSON and
+ * server-sent event responses (whose outcome is in their trailer), or {@code none} for non-2xx responses.
+ * Applies to both modes, as the reactive controllers also run on the servlet stack.
+ */
+@Component
+public class SimilarProductsObservationConvention extends DefaultServerRequestObservationConvention {
+
+	@Override
+	public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+		return super.getLowCardinalityKeyValues(context).and("result", result(context.getResponse()));
+	}
+
+	private static String result(HttpServletResponse response) {
+		if (response == null || response.getStatus() / 100 != 2) {
+			return "none";
+		}
+		if (isStreamed(response.getContentType())) {
+			return "streamed";
+		}
+		if (Boolean.parseBoolean(response.getHeader(SimilarProductsController.PARTIAL_RESPONSE_HEADER))) {
+			return "partial";
+		}
+		if (Boolean.parseBoolean(response.getHeader(SimilarProductsController.STALE_RESPONSE_HEADER))) {
+			return "stale";
+		}
+		return "complete";
+	}
+
+	private static boolean isStreamed(String contentType) {
+		if (contentType == null) {
+			return false;
+		}
+		final MediaType mediaType = MediaType.parseMediaType(contentType);
+		return MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(mediaType)
+				|| MediaType.TEXT_EVENT_STREAM.equalsTypeAndSubtype(mediaType);
+	}
+}
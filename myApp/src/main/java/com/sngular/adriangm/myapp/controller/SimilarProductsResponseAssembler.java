@@ -0,0 +1,241 @@
+package com.sngular.adriangm.myapp.controller;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.controller.mapper.ProductDetailMapper;
+import com.sngular.adriangm.myapp.dto.ProductDetailDTO;
+import com.sngular.adriangm.myapp.exception.InvalidBatchRequestException;
+import com.sngular.adriangm.myapp.infrastructure.AssembledResponseCache;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import com.sngular.adriangm.myapp.model.SimilarProductsTrailer;
+import com.sngular.adriangm.myapp.service.SimilarProductsListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Builds the HTTP responses shared by the blocking and reactive controllers, backed by the assembled-response cache.
+ */
+@Component
+public class SimilarProductsResponseAssembler {
+
+	// Server-sent event names of the streamed representation
+	public static final String PRODUCT_EVENT = "product";
+	public static final String TRAILER_EVENT = "trailer";
+
+	private final ProductDetailMapper productDetailMapper;
+	private final AssembledResponseCache<ResponseEntity<Set<ProductDetailDTO>>> assembledResponseCache;
+	private final ProductServiceProperties properties;
+	private final Executor streamWriteExecutor;
+
+	public SimilarProductsResponseAssembler(ProductDetailMapper productDetailMapper,
+			AssembledResponseCache<ResponseEntity<Set<ProductDetailDTO>>> assembledResponseCache,
+			ProductServiceProperties properties, @Qualifier("streamWriteExecutor") Executor streamWriteExecutor) {
+		this.productDetailMapper = productDetailMapper;
+		this.assembledResponseCache = assembledResponseCache;
+		this.properties = properties;
+		this.streamWriteExecutor = streamWriteExecutor;
+	}
+
+	public ResponseEntity<Set<ProductDetailDTO>> cached(String productId) {
+		return this.assembledResponseCache.getIfPresent(productId);
+	}
+
+	public long changeCount() {
+		return this.assembledResponseCache.changeCount();
+	}
+
+	/**
+	 * Turns {@code result} into a response written from the products' JSON fragments, flagging partial and stale
+	 * results with headers. Complete, fresh responses are kept in the assembled-response cache.
+	 */
+	public ResponseEntity<Set<ProductDetailDTO>> toResponse(String productId, SimilarProductsResult result,
+			long changeCount) {
+		final Set<ProductDetailDTO> products = PreSerializedProducts.of(result.getProducts(),
+				this.productDetailMapper::toApiModel);
+
+		final ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+		if (result.isPartial()) {
+			builder.header(SimilarProductsController.PARTIAL_RESPONSE_HEADER, Boolean.TRUE.toString());
+		}
+		if (result.isStale()) {
+			builder.header(SimilarProductsController.STALE_RESPONSE_HEADER, Boolean.TRUE.toString());
+		}
+		final ResponseEntity<Set<ProductDetailDTO>> response = builder.body(products);
+		if (!result.isPartial() && !result.isStale()) {
+			this.assembledResponseCache.put(productId, response, result.getSimilarIds(), changeCount);
+		}
+		return response;
+	}
+
+	/**
+	 * Merges per-product responses into one batch response; the partial and stale headers are set when any product
+	 * carries them.
+	 */
+	public ResponseEntity<Map<String, Set<ProductDetailDTO>>> toBatchResponse(
+			Map<String, ResponseEntity<Set<ProductDetailDTO>>> responses) {
+		final Map<String, Set<ProductDetailDTO>> body = new LinkedHashMap<>();
+		final ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+		for (final String header : List.of(SimilarProductsController.PARTIAL_RESPONSE_HEADER,
+				SimilarProductsController.STALE_RESPONSE_HEADER)) {
+			if (responses.values().stream().map(ResponseEntity::getHeaders).anyMatch(h -> h.containsKey(header))) {
+				builder.header(header, Boolean.TRUE.toString());
+			}
+		}
+		responses.forEach((productId, response) -> body.put(productId, response.getBody()));
+		return builder.body(body);
+	}
+
+	/**
+	 * Streams the products delivered by {@code source} as NDJSON lines or server-sent {@value #PRODUCT_EVENT} events,
+	 * then its trailer as the last line or a {@value #TRAILER_EVENT} event. The returned response completes on
+	 * {@link SimilarProductsListener#onStart}, so a failure before it (e.g. an unknown product) still maps to its
+	 * status. Streamed responses are never cached. When the client goes away the source's future is cancelled, so it
+	 * can give up on the products still being fetched.
+	 * <p>
+	 * The listener only queues what it is given: the writes run in order on the stream-write executor, so the fan-out
+	 * threads that deliver products never wait on a slow client.
+	 */
+	public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> stream(MediaType mediaType,
+			Function<SimilarProductsListener, CompletionStage<SimilarProductsTrailer>> source) {
+		final StreamingResponse response = new StreamingResponse(mediaType);
+		final CompletableFuture<SimilarProductsTrailer> delivery = source.apply(response).toCompletableFuture();
+		response.clientGone.thenRun(() -> delivery.cancel(false));
+		delivery.whenComplete((trailer, error) -> response.write(() -> response.finish(trailer, error)));
+		return response.started;
+	}
+
+	/**
+	 * Distinct, non-blank ids of a batch request, in request order.
+	 */
+	public List<String> batchIds(List<String> productIds) {
+		final List<String> ids = productIds == null ? List.of()
+				: productIds.stream().filter(id -> id != null && !id.isBlank()).map(String::trim).distinct().toList();
+		if (ids.isEmpty()) {
+			throw new InvalidBatchRequestException("At least one product id is required");
+		}
+		final int maxBatchSize = this.properties.getService().getMaxBatchSize();
+		if (ids.size() > maxBatchSize) {
+			throw new InvalidBatchRequestException("At most " + maxBatchSize + " product ids are allowed");
+		}
+		return ids;
+	}
+
+	// Server-sent events when the Accept header asks for them before NDJSON, NDJSON otherwise
+	static MediaType streamingMediaType(String accept) {
+		for (final MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+			if (MediaType.TEXT_EVENT_STREAM.equalsTypeAndSubtype(mediaType)) {
+				return MediaType.TEXT_EVENT_STREAM;
+			}
+			if (MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(mediaType)) {
+				return MediaType.APPLICATION_NDJSON;
+			}
+		}
+		return MediaType.APPLICATION_NDJSON;
+	}
+
+	// Client time budget in milliseconds from the X-Request-Timeout header, null when absent or malformed
+	static Duration parseTimeout(String header) {
+		if (header == null || header.isBlank()) {
+			return null;
+		}
+		try {
+			return Duration.ofMillis(Long.parseLong(header.trim()));
+		} catch (final NumberFormatException e) {
+			return null; // Ignore malformed values and fall back to the configured budget
+		}
+	}
+
+	private final class StreamingResponse implements SimilarProductsListener {
+
+		private final CompletableFuture<ResponseEntity<ResponseBodyEmitter>> started = new CompletableFuture<>();
+		// Completed when a write fails or the container reports an error or timeout
+		private final CompletableFuture<Void> clientGone = new CompletableFuture<>();
+		private final MediaType mediaType;
+		private final ResponseBodyEmitter emitter;
+		// Writes not done yet; whoever takes the count from zero schedules the one task that drains them in order
+		private final Queue<Runnable> writes = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger pendingWrites = new AtomicInteger();
+
+		private StreamingResponse(MediaType mediaType) {
+			this.mediaType = mediaType;
+			this.emitter = MediaType.TEXT_EVENT_STREAM.equals(mediaType) ? new SseEmitter() : new ResponseBodyEmitter();
+			this.emitter.onError(error -> this.clientGone.complete(null));
+			this.emitter.onTimeout(() -> this.clientGone.complete(null));
+		}
+
+		@Override
+		public void onStart(List<String> similarIds) {
+			this.started.complete(ResponseEntity.ok().contentType(this.mediaType).body(this.emitter));
+		}
+
+		// The product's JSON fragment goes out as is, through the byte array converter
+		@Override
+		public void onProduct(ProductDetail product) {
+			this.write(() -> this.send(PRODUCT_EVENT, product.json().asUnquotedUTF8()));
+		}
+
+		private void write(Runnable write) {
+			this.writes.add(write);
+			if (this.pendingWrites.getAndIncrement() == 0) {
+				SimilarProductsResponseAssembler.this.streamWriteExecutor.execute(this::drain);
+			}
+		}
+
+		private void drain() {
+			do {
+				try {
+					this.writes.remove().run();
+				} catch (final RuntimeException e) {
+					this.clientGone.complete(null); // Keep draining, the remaining writes are skipped
+				}
+			} while (this.pendingWrites.decrementAndGet() > 0);
+		}
+
+		private void finish(SimilarProductsTrailer trailer, Throwable error) {
+			final Throwable cause = error instanceof CompletionException && error.getCause() != null
+					? error.getCause() : error;
+			if (cause == null) {
+				this.send(TRAILER_EVENT, trailer);
+				this.emitter.complete();
+			} else if (!this.started.completeExceptionally(cause)) {
+				this.emitter.completeWithError(cause);
+			}
+		}
+
+		private void send(String event, Object data) {
+			if (this.clientGone.isDone()) {
+				return;
+			}
+			try {
+				if (this.emitter instanceof SseEmitter sse) {
+					sse.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+				} else {
+					this.emitter.send(data, MediaType.APPLICATION_JSON);
+					this.emitter.send("\n", MediaType.TEXT_PLAIN);
+				}
+			} catch (final IOException | IllegalStateException e) {
+				// Client gone or emitter timed out: the container completes the request and the fetches are given up
+				this.clientGone.complete(null);
+			}
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.sngular.adriangm.myapp.controller;
+
+import com.sngular.adriangm.myapp.infrastructure.UpstreamHealth;
+import com.sngular.adriangm.myapp.model.UpstreamStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Circuit breaker states, quarantined products and hedging counters of the upstream calls, for operators.
+ */
+@RestController
+@RequiredArgsConstructor
+public class UpstreamStatusController {
+
+	private final UpstreamHealth upstreamHealth;
+
+	@GetMapping(value = "/upstream/status", produces = "application/json")
+	public UpstreamStatus getUpstreamStatus() {
+		return this.upstreamHealth.getStatus();
+	}
+}
@@ -0,0 +1,13 @@
+package com.sngular.adriangm.myapp.exception;
+
+import java.io.Serial;
+
+public class InvalidBatchRequestException extends RuntimeException {
+
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	public InvalidBatchRequestException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,111 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.model.UpstreamStatus;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Gradient-style limit on concurrent product API calls: grows while latency holds steady, shrinks when recent
+// calls get slower than the long-term average; calls over the limit are shed
+public class AdaptiveConcurrencyLimiter {
+
+	private final ProductServiceProperties.ConcurrencyLimit config;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final LongAdder shedCalls = new LongAdder();
+	private volatile double limit;
+	// Guarded by this
+	private double shortRtt;
+	private double longRtt;
+	private long samples;
+
+	public AdaptiveConcurrencyLimiter(ProductServiceProperties.ConcurrencyLimit config) {
+		this.config = config;
+		this.limit = config.getInitialLimit();
+	}
+
+	// A permit for one upstream call, or null when the call is shed
+	public Permit tryAcquire() {
+		if (!this.config.isEnabled()) {
+			this.inFlight.incrementAndGet();
+			return new Permit(System.nanoTime());
+		}
+		while (true) {
+			final int current = this.inFlight.get();
+			if (current >= (int) this.limit) {
+				this.shedCalls.increment();
+				return null;
+			}
+			if (this.inFlight.compareAndSet(current, current + 1)) {
+				return new Permit(System.nanoTime());
+			}
+		}
+	}
+
+	public int getLimit() {
+		return (int) this.limit;
+	}
+
+	public UpstreamStatus.ConcurrencyStatus getStatus() {
+		return new UpstreamStatus.ConcurrencyStatus(this.config.isEnabled(), this.getLimit(), this.inFlight.get(),
+				this.shedCalls.sum());
+	}
+
+	private synchronized void onSample(long rttNanos, int inFlightAtRelease) {
+		final double rtt = Math.max(1d, rttNanos);
+		this.samples++;
+		this.shortRtt = ema(this.shortRtt, rtt, this.config.getShortWindow(), this.samples);
+		this.longRtt = ema(this.longRtt, rtt, this.config.getLongWindow(), this.samples);
+		// After a sustained slowdown the long average drifts back down, so the limit can recover
+		if (this.longRtt / this.shortRtt > 2) {
+			this.longRtt *= 0.95;
+		}
+		if (inFlightAtRelease < this.limit / 2) {
+			return;
+		}
+		final double gradient = Math.max(0.5, Math.min(1d, this.config.getTolerance() * this.longRtt / this.shortRtt));
+		final double target = this.limit * gradient + Math.sqrt(this.limit);
+		final double smoothed = this.limit * (1 - this.config.getSmoothing()) + target * this.config.getSmoothing();
+		this.limit = Math.max(this.config.getMinLimit(), Math.min(this.config.getMaxLimit(), smoothed));
+	}
+
+	// Plain average until the window has filled, exponential moving average afterwards
+	private static double ema(double average, double sample, int window, long samples) {
+		if (samples <= window) {
+			return average + (sample - average) / samples;
+		}
+		final double factor = 2d / (window + 1);
+		return average * (1 - factor) + sample * factor;
+	}
+
+	// One acquired slot; releasing it more than once has no effect
+	public final class Permit {
+
+		private final long start;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private Permit(long start) {
+			this.start = start;
+		}
+
+		// Frees the slot and samples the latency, unless the call never reached the upstream
+		public void release(UpstreamResult.Status status) {
+			if (!this.released.compareAndSet(false, true)) {
+				return;
+			}
+			final int stillInFlight = AdaptiveConcurrencyLimiter.this.inFlight.getAndDecrement();
+			if (AdaptiveConcurrencyLimiter.this.config.isEnabled() && !status.isRejectedLocally()) {
+				AdaptiveConcurrencyLimiter.this.onSample(System.nanoTime() - this.start, stillInFlight);
+			}
+		}
+
+		// Frees the slot of an abandoned call (e.g. a cancelled hedge) without a sample
+		public void cancel() {
+			if (this.released.compareAndSet(false, true)) {
+				AdaptiveConcurrencyLimiter.this.inFlight.decrementAndGet();
+			}
+		}
+	}
+}
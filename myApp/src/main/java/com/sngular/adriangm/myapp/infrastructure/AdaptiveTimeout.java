@@ -0,0 +1,52 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.model.UpstreamStatus;
+
+import java.time.Duration;
+
+// Per-route timeout: a latency percentile times the multiplier, clamped to [min, max]; the max applies until
+// min-samples calls are seen, the static timeout when disabled
+public class AdaptiveTimeout {
+
+	private final ProductServiceProperties.AdaptiveTimeout config;
+	private final Duration staticTimeout;
+	private final LatencyHistogram histogram;
+
+	public AdaptiveTimeout(ProductServiceProperties.AdaptiveTimeout config, Duration staticTimeout) {
+		this(config, staticTimeout, Ticker.systemTicker());
+	}
+
+	public AdaptiveTimeout(ProductServiceProperties.AdaptiveTimeout config, Duration staticTimeout, Ticker ticker) {
+		this.config = config;
+		this.staticTimeout = staticTimeout;
+		this.histogram = new LatencyHistogram(config.getWindow(), ticker);
+	}
+
+	public void record(long elapsedNanos) {
+		this.histogram.record(elapsedNanos);
+	}
+
+	public Duration current() {
+		if (!this.config.isEnabled()) {
+			return this.staticTimeout;
+		}
+		if (this.histogram.count() < this.config.getMinSamples()) {
+			return this.config.getMax();
+		}
+		final long timeout = (long) (this.histogram.percentile(this.config.getPercentile())
+				* this.config.getMultiplier());
+		return Duration.ofNanos(Math.max(this.config.getMin().toNanos(), Math.min(this.config.getMax().toNanos(),
+				timeout)));
+	}
+
+	// The longest timeout current() can return
+	public Duration longest() {
+		return this.config.isEnabled() ? this.config.getMax() : this.staticTimeout;
+	}
+
+	public UpstreamStatus.TimeoutStatus getStatus() {
+		return new UpstreamStatus.TimeoutStatus(this.current().toMillis(), this.histogram.count());
+	}
+}
@@ -0,0 +1,141 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Assembled similar-products responses, dropped when a detail or similar-ids list they were built from changes;
+// a put is discarded when one of its dependencies changed while it was being assembled
+public class AssembledResponseCache<V> {
+
+	private static final int CHANGE_STRIPES = 1 << 14;
+
+	private final boolean enabled;
+	private final Cache<String, Entry<V>> responses;
+	private final SimilarityGraph graph = new SimilarityGraph();
+	private final AtomicLong changes = new AtomicLong();
+	// Number of the last change per stripe of product ids; ids sharing a stripe at worst discard an assembly
+	private final AtomicLongArray productDetailChanges = new AtomicLongArray(CHANGE_STRIPES);
+	private final AtomicLongArray similarIdsChanges = new AtomicLongArray(CHANGE_STRIPES);
+	private volatile long invalidatedAllAt;
+
+	public AssembledResponseCache(boolean enabled, int maximumSize, Duration expireAfterWrite, boolean recordStats) {
+		this.enabled = enabled;
+		final Caffeine<String, Entry<V>> builder = Caffeine.newBuilder().maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWrite).executor(Runnable::run)
+				// Size and expiry evictions, within the atomic removal; explicit removals unlink themselves
+				.evictionListener((String productId, Entry<V> entry, RemovalCause cause) -> this.unlink(productId));
+		if (recordStats) {
+			builder.recordStats();
+		}
+		this.responses = builder.build();
+	}
+
+	public V getIfPresent(String productId) {
+		if (!this.enabled) {
+			return null;
+		}
+		final Entry<V> entry = this.responses.getIfPresent(productId);
+		return entry != null ? entry.response : null;
+	}
+
+	public long changeCount() {
+		return this.changes.get();
+	}
+
+	// Only complete, fresh responses; skipped when a dependency of the response changed since changeCountAtStart
+	public void put(String productId, V response, Collection<String> similarIds, long changeCountAtStart) {
+		if (!this.enabled) {
+			return;
+		}
+		final Entry<V> entry = new Entry<>(response, List.copyOf(similarIds));
+		// The row goes in before the entry and outside the map operation, since updating the graph may compact it
+		this.graph.update(productId, entry.dependencies);
+		this.responses.put(productId, entry);
+		// A change recorded after this check finds the entry through the graph, so one of the two always drops it. So
+		// does a removal that dropped the row before the entry landed
+		if (this.changedSince(productId, entry.dependencies, changeCountAtStart)
+				|| !this.graph.links(productId, entry.dependencies)) {
+			this.responses.asMap().computeIfPresent(productId,
+					(key, current) -> current == entry ? this.unlink(key) : current);
+		}
+	}
+
+	public void onProductDetailChanged(String productId) {
+		this.recordChange(this.productDetailChanges, productId);
+		for (final String dependent : this.graph.dependentsOf(productId)) {
+			this.responses.asMap().computeIfPresent(dependent,
+					(key, entry) -> entry.dependencies.contains(productId) ? this.unlink(key) : entry);
+		}
+	}
+
+	public void onSimilarIdsChanged(String productId) {
+		this.recordChange(this.similarIdsChanges, productId);
+		this.responses.asMap().computeIfPresent(productId, (key, entry) -> this.unlink(key));
+	}
+
+	public void invalidateAll() {
+		this.invalidatedAllAt = this.changes.incrementAndGet();
+		for (final String productId : this.responses.asMap().keySet()) {
+			this.responses.asMap().computeIfPresent(productId, (key, entry) -> this.unlink(key));
+		}
+	}
+
+	public long estimatedSize() {
+		return this.responses.estimatedSize();
+	}
+
+	public CacheStats stats() {
+		return this.responses.stats();
+	}
+
+	public SimilarityGraph similarityGraph() {
+		return this.graph;
+	}
+
+	// Removes the row of a response that is being dropped, under the same map operation; always null
+	private Entry<V> unlink(String productId) {
+		this.graph.remove(productId);
+		return null;
+	}
+
+	private void recordChange(AtomicLongArray stripes, String productId) {
+		final long change = this.changes.incrementAndGet();
+		stripes.accumulateAndGet(stripe(productId), change, Math::max);
+	}
+
+	private boolean changedSince(String productId, List<String> dependencies, long changeCount) {
+		if (this.invalidatedAllAt > changeCount || this.similarIdsChanges.get(stripe(productId)) > changeCount) {
+			return true;
+		}
+		for (final String dependency : dependencies) {
+			if (this.productDetailChanges.get(stripe(dependency)) > changeCount) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int stripe(String productId) {
+		final int hash = productId.hashCode();
+		return (hash ^ (hash >>> 16)) & (CHANGE_STRIPES - 1);
+	}
+
+	// Identity semantics on purpose: the change-count check only ever drops the exact entry that was stored
+	private static final class Entry<V> {
+		private final V response;
+		private final List<String> dependencies;
+
+		private Entry(V response, List<String> dependencies) {
+			this.response = response;
+			this.dependencies = dependencies;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarIds;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Big-endian encoding of cached values for snapshots and the off-heap tier; strings are a byte length (-1 for
+// null) followed by UTF-8 bytes
+public interface BinaryCodec<T> {
+
+	BinaryCodec<ProductDetail> PRODUCT_DETAIL = new BinaryCodec<>() {
+
+		@Override
+		public byte[] encode(ProductDetail product) {
+			final byte[] id = utf8(product.getId());
+			final byte[] name = utf8(product.getName());
+			final ByteBuffer out = ByteBuffer.allocate(stringSize(id) + stringSize(name) + Double.BYTES + 1);
+			putString(out, id);
+			putString(out, name);
+			out.putDouble(product.getPrice());
+			out.put((byte) (product.isAvailability() ? 1 : 0));
+			return out.array();
+		}
+
+		@Override
+		public ProductDetail decode(ByteBuffer in) {
+			return new ProductDetail(getString(in), getString(in), in.getDouble(), in.get() != 0);
+		}
+	};
+
+	BinaryCodec<List<String>> SIMILAR_IDS = new BinaryCodec<>() {
+
+		@Override
+		public byte[] encode(List<String> ids) {
+			final List<byte[]> encoded = new ArrayList<>(ids.size());
+			int size = Integer.BYTES;
+			for (final String id : ids) {
+				final byte[] bytes = utf8(id);
+				encoded.add(bytes);
+				size += stringSize(bytes);
+			}
+			final ByteBuffer out = ByteBuffer.allocate(size);
+			out.putInt(encoded.size());
+			encoded.forEach(bytes -> putString(out, bytes));
+			return out.array();
+		}
+
+		@Override
+		public List<String> decode(ByteBuffer in) {
+			final int size = in.getInt();
+			final String[] ids = new String[Math.max(0, Math.min(size, in.remaining() / Integer.BYTES))];
+			if (ids.length != size) {
+				throw new BufferUnderflowException();
+			}
+			for (int i = 0; i < size; i++) {
+				ids[i] = getString(in);
+			}
+			return SimilarIds.of(ids);
+		}
+	};
+
+	byte[] encode(T value);
+
+	// Reads one value from the buffer's position, leaving it just past the value
+	T decode(ByteBuffer in);
+
+	static byte[] utf8(String value) {
+		return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+	}
+
+	static int stringSize(byte[] utf8) {
+		return Integer.BYTES + (utf8 != null ? utf8.length : 0);
+	}
+
+	static void putString(ByteBuffer out, byte[] utf8) {
+		if (utf8 == null) {
+			out.putInt(-1);
+			return;
+		}
+		out.putInt(utf8.length);
+		out.put(utf8);
+	}
+
+	static String getString(ByteBuffer in) {
+		final int length = in.getInt();
+		if (length < 0) {
+			return null;
+		}
+		if (length > in.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		final byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,124 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import lombok.Value;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Memory-mapped snapshot of the good answers of both caches with their fetch time; written to a temporary file
+// and moved into place
+public class CacheSnapshotStore {
+
+	// Name of the snapshot inside the configured directory
+	public static final String FILE_NAME = "cache-snapshot.bin";
+
+	private static final int MAGIC = 0x53504353; // "SPCS"
+	private static final int VERSION = 1;
+
+	private final Path file;
+
+	public CacheSnapshotStore(Path file) {
+		this.file = file;
+	}
+
+	public Path getFile() {
+		return this.file;
+	}
+
+	// Writes the found, non-stale entries of both caches and returns how many were written
+	public int write(Map<String, UpstreamResult<ProductDetail>> productDetails,
+			Map<String, UpstreamResult<List<String>>> similarIds) throws IOException {
+		final Path directory = this.file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		final Path temp = Files.createTempFile(directory, this.file.getFileName().toString(), ".tmp");
+		int written = 0;
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				written += writeSection(out, productDetails, BinaryCodec.PRODUCT_DETAIL);
+				written += writeSection(out, similarIds, BinaryCodec.SIMILAR_IDS);
+			}
+			Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		return written;
+	}
+
+	// A missing or damaged file reads as empty; it must never stop the application from starting
+	public Snapshot read() {
+		if (!Files.isRegularFile(this.file)) {
+			return Snapshot.EMPTY;
+		}
+		try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				return Snapshot.EMPTY;
+			}
+			final Map<String, UpstreamResult<ProductDetail>> productDetails = readSection(buffer,
+					BinaryCodec.PRODUCT_DETAIL);
+			final Map<String, UpstreamResult<List<String>>> similarIds = readSection(buffer, BinaryCodec.SIMILAR_IDS);
+			return new Snapshot(productDetails, similarIds);
+		} catch (final IOException | RuntimeException e) {
+			return Snapshot.EMPTY;
+		}
+	}
+
+	private static <T> int writeSection(DataOutputStream out, Map<String, UpstreamResult<T>> entries,
+			BinaryCodec<T> codec) throws IOException {
+		final List<Map.Entry<String, UpstreamResult<T>>> good = entries.entrySet().stream()
+				.filter(entry -> entry.getValue().isFound() && !entry.getValue().isStale()).toList();
+		out.writeInt(good.size());
+		for (final Map.Entry<String, UpstreamResult<T>> entry : good) {
+			writeString(out, entry.getKey());
+			out.writeLong(entry.getValue().getFetchedAt());
+			out.write(codec.encode(entry.getValue().getValue()));
+		}
+		return good.size();
+	}
+
+	private static <T> Map<String, UpstreamResult<T>> readSection(ByteBuffer in, BinaryCodec<T> codec) {
+		final int size = in.getInt();
+		final Map<String, UpstreamResult<T>> entries = new HashMap<>(Math.max(16, Math.min(size, in.remaining()) * 2));
+		for (int i = 0; i < size; i++) {
+			final String key = BinaryCodec.getString(in);
+			if (key == null) {
+				throw new IllegalArgumentException("Snapshot entry without a key");
+			}
+			final long fetchedAt = in.getLong();
+			entries.put(key, UpstreamResult.found(codec.decode(in), fetchedAt));
+		}
+		return entries;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	// Cache entries read from a snapshot, keyed by product id
+	@Value
+	public static class Snapshot {
+
+		static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of());
+
+		Map<String, UpstreamResult<ProductDetail>> productDetails;
+		Map<String, UpstreamResult<List<String>>> similarIds;
+	}
+}
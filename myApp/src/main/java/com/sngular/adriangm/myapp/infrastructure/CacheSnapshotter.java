@@ -0,0 +1,121 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Restores the caches before the web server starts, then snapshots them every interval and on shutdown; restored
+// entries keep their original fetch time
+public class CacheSnapshotter implements SmartLifecycle {
+
+	// Before the web server starts (and after it stops): its lifecycles run at DEFAULT_PHASE - 2048 and above
+	private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+	private final AsyncCache<String, UpstreamResult<ProductDetail>> productCache;
+	private final AsyncCache<String, UpstreamResult<List<String>>> similarIdsCache;
+	private final CacheSnapshotStore store;
+	private final Duration interval;
+	private final Duration expireAfterWrite;
+	private final LongAdder restoredEntries = new LongAdder();
+	private final LongAdder writes = new LongAdder();
+	private final LongAdder failedWrites = new LongAdder();
+	private ScheduledExecutorService scheduler;
+
+	public CacheSnapshotter(AsyncCache<String, UpstreamResult<ProductDetail>> productCache,
+			AsyncCache<String, UpstreamResult<List<String>>> similarIdsCache, CacheSnapshotStore store,
+			Duration interval, Duration expireAfterWrite) {
+		this.productCache = productCache;
+		this.similarIdsCache = similarIdsCache;
+		this.store = store;
+		this.interval = interval;
+		this.expireAfterWrite = expireAfterWrite;
+	}
+
+	@Override
+	public synchronized void start() {
+		this.restore();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "cache-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::snapshot, this.interval.toMillis(), this.interval.toMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (this.scheduler == null) {
+			return;
+		}
+		this.scheduler.shutdownNow();
+		this.scheduler = null;
+		this.snapshot();
+	}
+
+	@Override
+	public synchronized boolean isRunning() {
+		return this.scheduler != null;
+	}
+
+	@Override
+	public int getPhase() {
+		return PHASE;
+	}
+
+	// Loads the last snapshot into the caches and returns how many entries were restored
+	public int restore() {
+		final CacheSnapshotStore.Snapshot snapshot = this.store.read();
+		final long oldest = System.currentTimeMillis() - this.expireAfterWrite.toMillis();
+		final int restored = restoreInto(this.productCache, snapshot.getProductDetails(), oldest)
+				+ restoreInto(this.similarIdsCache, snapshot.getSimilarIds(), oldest);
+		this.restoredEntries.add(restored);
+		return restored;
+	}
+
+	// In-flight loads are skipped; failures are counted, never thrown
+	public void snapshot() {
+		try {
+			this.store.write(this.productCache.synchronous().asMap(), this.similarIdsCache.synchronous().asMap());
+			this.writes.increment();
+		} catch (final IOException | RuntimeException e) {
+			this.failedWrites.increment();
+		}
+	}
+
+	public long getRestoredEntries() {
+		return this.restoredEntries.sum();
+	}
+
+	public long getWrites() {
+		return this.writes.sum();
+	}
+
+	public long getFailedWrites() {
+		return this.failedWrites.sum();
+	}
+
+	// Entries already in the cache are newer than the snapshot and win
+	private static <T> int restoreInto(AsyncCache<String, UpstreamResult<T>> cache,
+			Map<String, UpstreamResult<T>> entries, long oldest) {
+		int restored = 0;
+		for (final Map.Entry<String, UpstreamResult<T>> entry : entries.entrySet()) {
+			if (entry.getValue().getFetchedAt() > oldest && cache.asMap().putIfAbsent(entry.getKey(),
+					CompletableFuture.completedFuture(entry.getValue())) == null) {
+				restored++;
+			}
+		}
+		return restored;
+	}
+}
@@ -0,0 +1,94 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Leases first take a permit of a fair semaphore sized to the pool, so virtual threads park there instead of
+// pinning their carrier inside the synchronized pool
+public class GatedConnectionManager extends PoolingHttpClientConnectionManager {
+
+	private final Semaphore permits;
+
+	public GatedConnectionManager(int maxConnections) {
+		this.permits = new Semaphore(maxConnections, true);
+	}
+
+	@Override
+	public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+		return new GatedLease(id, route, requestTimeout, state);
+	}
+
+	@Override
+	public void release(ConnectionEndpoint endpoint, Object state, TimeValue keepAlive) {
+		try {
+			super.release(endpoint, state, keepAlive);
+		} finally {
+			this.permits.release();
+		}
+	}
+
+	public int getAvailablePermits() {
+		return this.permits.availablePermits();
+	}
+
+	public int getQueuedLeases() {
+		return this.permits.getQueueLength();
+	}
+
+	private final class GatedLease implements LeaseRequest {
+
+		private final String id;
+		private final HttpRoute route;
+		private final Timeout requestTimeout;
+		private final Object state;
+		private volatile boolean cancelled;
+		private volatile LeaseRequest lease;
+
+		private GatedLease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+			this.id = id;
+			this.route = route;
+			this.requestTimeout = requestTimeout;
+			this.state = state;
+		}
+
+		// With a permit held the pool has a connection to hand out (or room to open one), so the lease does not wait
+		@Override
+		public ConnectionEndpoint get(Timeout timeout) throws InterruptedException, ExecutionException,
+				TimeoutException {
+			final Semaphore permits = GatedConnectionManager.this.permits;
+			if (timeout == null || timeout.isDisabled()) {
+				permits.acquire();
+			} else if (!permits.tryAcquire(timeout.toMilliseconds(), TimeUnit.MILLISECONDS)) {
+				throw new TimeoutException("Timeout deadline: " + timeout + ", waiting for a connection permit");
+			}
+			try {
+				if (this.cancelled) {
+					throw new CancellationException("Connection lease cancelled");
+				}
+				this.lease = GatedConnectionManager.super.lease(this.id, this.route, this.requestTimeout, this.state);
+				return this.lease.get(timeout);
+			} catch (final InterruptedException | ExecutionException | TimeoutException | RuntimeException e) {
+				permits.release();
+				throw e;
+			}
+		}
+
+		// A caller still waiting for its permit gives up once it is granted, or at the request timeout
+		@Override
+		public boolean cancel() {
+			this.cancelled = true;
+			final LeaseRequest current = this.lease;
+			return current == null || current.cancel();
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Blocking loads in flight and their callers; a load left without callers for abandon-after (by default the
+// load timeout) is abandoned and its exchanges aborted, closing their connections
+public class InFlightLoads {
+
+	private static final ThreadLocal<Attempt> CURRENT = new ThreadLocal<>();
+
+	private final ProductServiceProperties.Cancellation config;
+	private final Duration abandonAfter;
+	private final Map<String, Load> loads = new ConcurrentHashMap<>();
+	private final LongAdder abandonedLoads = new LongAdder();
+	private final LongAdder abortedAttempts = new LongAdder();
+
+	public InFlightLoads(ProductServiceProperties.Cancellation config, Duration loadTimeout) {
+		this.config = config;
+		this.abandonAfter = config.getAbandonAfter() != null ? config.getAbandonAfter() : loadTimeout;
+	}
+
+	// Starts the load of key, tracked until the future returned by start completes
+	public <T> CompletableFuture<T> track(String key, Function<Load, CompletableFuture<T>> start) {
+		if (!this.config.isEnabled()) {
+			return start.apply(new Load(null));
+		}
+		final Load load = new Load(key);
+		this.loads.put(key, load);
+		final CompletableFuture<T> result;
+		try {
+			result = start.apply(load);
+		} catch (final RuntimeException e) {
+			load.close();
+			throw e;
+		}
+		// Closed before callers see the outcome; an abandoned load fails with a bare CancellationException, which the
+		// cache drops without logging it as a failed load
+		final CompletableFuture<T> tracked = new CompletableFuture<>();
+		result.whenComplete((value, error) -> {
+			load.close();
+			if (error == null) {
+				tracked.complete(value);
+			} else {
+				tracked.completeExceptionally(error instanceof CompletionException
+						&& error.getCause() instanceof CancellationException ? error.getCause() : error);
+			}
+		});
+		return tracked;
+	}
+
+	// A per-caller copy of shared whose cancellation withdraws the caller; shared itself is never cancelled
+	public <T> CompletableFuture<T> join(String key, CompletableFuture<T> shared) {
+		if (shared.isDone()) {
+			return shared;
+		}
+		final Load load = this.loads.get(key);
+		final CompletableFuture<T> copy = shared.copy();
+		if (load != null && load.join()) {
+			copy.whenComplete((value, error) -> {
+				if (error instanceof CancellationException) {
+					load.withdraw();
+				}
+			});
+		}
+		return copy;
+	}
+
+	// Registers how to abort the exchange the current attempt is about to send; a no-op outside an attempt
+	public static void onExchange(Runnable abort) {
+		final Attempt attempt = CURRENT.get();
+		if (attempt != null) {
+			attempt.register(abort);
+		}
+	}
+
+	// Turns the failure of an aborted exchange into a CancellationException, so it is not taken for an upstream error
+	public static <T> T exchange(Supplier<T> exchange) {
+		try {
+			return exchange.get();
+		} catch (final RuntimeException e) {
+			final Attempt attempt = CURRENT.get();
+			if (attempt != null && attempt.isAborted()) {
+				final CancellationException cancelled = new CancellationException("Upstream call aborted");
+				cancelled.initCause(e);
+				throw cancelled;
+			}
+			throw e;
+		}
+	}
+
+	public int getInFlight() {
+		return this.loads.size();
+	}
+
+	public long getAbandonedLoads() {
+		return this.abandonedLoads.sum();
+	}
+
+	public long getAbortedAttempts() {
+		return this.abortedAttempts.sum();
+	}
+
+	// One load of a key: its callers and the attempts (primary call and hedge) currently running
+	public final class Load {
+
+		private final String key;
+		private final Set<Attempt> attempts = new HashSet<>();
+		private int callers;
+		private boolean abandoned;
+		private boolean closed;
+
+		private Load(String key) {
+			this.key = key;
+		}
+
+		// Runs one attempt on the current thread; throws CancellationException when the load is already over
+		public <T> T attempt(Supplier<T> call) {
+			if (this.key == null) {
+				return call.get();
+			}
+			final Attempt attempt = new Attempt();
+			synchronized (this) {
+				if (this.abandoned || this.closed) {
+					throw new CancellationException("Upstream load abandoned");
+				}
+				this.attempts.add(attempt);
+			}
+			CURRENT.set(attempt);
+			try {
+				return call.get();
+			} finally {
+				CURRENT.remove();
+				attempt.finish();
+				synchronized (this) {
+					this.attempts.remove(attempt);
+				}
+			}
+		}
+
+		private synchronized boolean join() {
+			if (this.abandoned || this.closed) {
+				return false;
+			}
+			this.callers++;
+			return true;
+		}
+
+		private void withdraw() {
+			synchronized (this) {
+				if (--this.callers > 0 || this.closed) {
+					return;
+				}
+			}
+			final Duration grace = InFlightLoads.this.abandonAfter;
+			if (grace.isZero()) {
+				this.abandonIfUnwanted();
+			} else {
+				CompletableFuture.delayedExecutor(grace.toNanos(), TimeUnit.NANOSECONDS)
+						.execute(this::abandonIfUnwanted);
+			}
+		}
+
+		// A caller may have joined during the grace period
+		private synchronized void abandonIfUnwanted() {
+			if (this.callers > 0 || this.abandoned || this.closed) {
+				return;
+			}
+			this.abandoned = true;
+			InFlightLoads.this.abandonedLoads.increment();
+			this.abortAttempts();
+			InFlightLoads.this.loads.remove(this.key, this);
+		}
+
+		private synchronized void close() {
+			this.closed = true;
+			this.abortAttempts();
+			InFlightLoads.this.loads.remove(this.key, this);
+		}
+
+		private void abortAttempts() {
+			for (final Attempt attempt : this.attempts) {
+				if (attempt.abort()) {
+					InFlightLoads.this.abortedAttempts.increment();
+				}
+			}
+		}
+	}
+
+	// Abort, registration and finish are serialized, so an interrupt can never outlive its attempt
+	private static final class Attempt {
+
+		private final Thread thread = Thread.currentThread();
+		private Runnable abortHook;
+		private boolean aborted;
+		private boolean interrupted;
+		private boolean finished;
+
+		private synchronized boolean abort() {
+			if (this.finished || this.aborted) {
+				return false;
+			}
+			this.aborted = true;
+			if (this.abortHook != null) {
+				this.abortHook.run();
+			} else {
+				this.interrupted = true;
+				this.thread.interrupt();
+			}
+			return true;
+		}
+
+		private synchronized void register(Runnable abort) {
+			this.abortHook = abort;
+			if (this.aborted) {
+				abort.run();
+			}
+		}
+
+		private synchronized boolean isAborted() {
+			return this.aborted;
+		}
+
+		private synchronized void finish() {
+			this.finished = true;
+			if (this.interrupted) {
+				Thread.interrupted();
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.LongStream;
+
+// Lock-free rolling latency histogram: buckets grow by 2^(1/8) from 100us, reads cover the last one to two
+// half-window slots
+public class LatencyHistogram {
+
+	private static final long BASE_NANOS = 100_000L;
+	private static final double LOG_GROWTH = Math.log(2) / 8;
+	private static final int BUCKETS = 160;
+
+	private final Ticker ticker;
+	private final long slotNanos;
+	private final AtomicLongArray[] slots = {new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)};
+	private final AtomicLongArray slotEpochs = new AtomicLongArray(new long[] {Long.MIN_VALUE, Long.MIN_VALUE});
+
+	public LatencyHistogram(Duration window, Ticker ticker) {
+		this.ticker = ticker;
+		this.slotNanos = Math.max(1L, window.toNanos() / 2);
+	}
+
+	public void record(long elapsedNanos) {
+		final long epoch = Math.floorDiv(this.ticker.read(), this.slotNanos);
+		final int slot = (int) (epoch & 1);
+		final long slotEpoch = this.slotEpochs.get(slot);
+		if (slotEpoch != epoch && this.slotEpochs.compareAndSet(slot, slotEpoch, epoch)) {
+			for (int i = 0; i < BUCKETS; i++) {
+				this.slots[slot].set(i, 0L);
+			}
+		}
+		this.slots[slot].incrementAndGet(bucket(elapsedNanos));
+	}
+
+	public long count() {
+		return LongStream.of(this.snapshot()).sum();
+	}
+
+	// Upper bound of the bucket holding the percentile, in nanos, or -1 without samples
+	public long percentile(double percentile) {
+		final long[] counts = this.snapshot();
+		final long total = LongStream.of(counts).sum();
+		if (total == 0L) {
+			return -1L;
+		}
+		final long rank = Math.max(1L, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0L;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return upperBound(BUCKETS - 1);
+	}
+
+	private long[] snapshot() {
+		final long epoch = Math.floorDiv(this.ticker.read(), this.slotNanos);
+		final long[] counts = new long[BUCKETS];
+		for (int slot = 0; slot < this.slots.length; slot++) {
+			final long slotEpoch = this.slotEpochs.get(slot);
+			if (slotEpoch == epoch || slotEpoch == epoch - 1) {
+				for (int i = 0; i < BUCKETS; i++) {
+					counts[i] += this.slots[slot].get(i);
+				}
+			}
+		}
+		return counts;
+	}
+
+	private static int bucket(long elapsedNanos) {
+		if (elapsedNanos <= BASE_NANOS) {
+			return 0;
+		}
+		final int bucket = (int) Math.ceil(Math.log((double) elapsedNanos / BASE_NANOS) / LOG_GROWTH);
+		return Math.min(BUCKETS - 1, bucket);
+	}
+
+	private static long upperBound(int bucket) {
+		return (long) (BASE_NANOS * Math.exp(bucket * LOG_GROWTH));
+	}
+}
@@ -0,0 +1,248 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Second-level tier outside the heap for good answers evicted from the Caffeine cache: ring-buffer segments with
+// a primitive index, FIFO eviction; a capacity of zero disables it
+public class OffHeapCache<T> {
+
+	// Index slots per segment byte: product details encode to roughly this size with their key
+	private static final int AVERAGE_RECORD_BYTES = 64;
+	private static final int PROBES = 8;
+	// recordLength, keyLength, fetchedAt
+	private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+	private final BinaryCodec<T> codec;
+	private final long expireAfterWriteMillis;
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder puts = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public OffHeapCache(BinaryCodec<T> codec, long capacityBytes, int segmentCount, Duration expireAfterWrite) {
+		this.codec = codec;
+		this.expireAfterWriteMillis = expireAfterWrite.toMillis();
+		final int segmentBytes = (int) Math.min(Integer.MAX_VALUE, capacityBytes / Math.max(1, segmentCount));
+		this.segments = new Segment[capacityBytes > 0 ? segmentCount : 0];
+		for (int i = 0; i < this.segments.length; i++) {
+			this.segments[i] = new Segment(segmentBytes);
+		}
+	}
+
+	public boolean isEnabled() {
+		return this.segments.length > 0;
+	}
+
+	// Demotes a good answer; failures, stale copies and records larger than a segment are not kept
+	public void put(String key, UpstreamResult<T> value) {
+		if (!this.isEnabled() || value == null || !value.isFound() || value.isStale()) {
+			return;
+		}
+		final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		final int hash = hash(keyBytes);
+		final int evicted = this.segment(hash).put(keyBytes, hash, value.getFetchedAt(),
+				this.codec.encode(value.getValue()));
+		if (evicted >= 0) {
+			this.puts.increment();
+			this.evictions.add(evicted);
+		}
+	}
+
+	// Promotes an entry: returns it and removes it from this tier, or null on a miss
+	public UpstreamResult<T> remove(String key) {
+		if (!this.isEnabled()) {
+			return null;
+		}
+		final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		final int hash = hash(keyBytes);
+		final Segment segment = this.segment(hash);
+		final long expiredBefore = System.currentTimeMillis() - this.expireAfterWriteMillis;
+		final ByteBuffer record = segment.remove(keyBytes, hash);
+		if (record == null) {
+			this.misses.increment();
+			return null;
+		}
+		final long fetchedAt = record.getLong();
+		if (fetchedAt <= expiredBefore) {
+			this.evictions.increment();
+			this.misses.increment();
+			return null;
+		}
+		this.hits.increment();
+		return UpstreamResult.found(this.codec.decode(record), fetchedAt);
+	}
+
+	// The L1 loader: the promoted entry when this tier has it, otherwise the upstream load
+	public CompletableFuture<UpstreamResult<T>> getOrLoad(String key,
+			Supplier<CompletableFuture<UpstreamResult<T>>> loader) {
+		final UpstreamResult<T> promoted = this.remove(key);
+		return promoted != null ? CompletableFuture.completedFuture(promoted) : loader.get();
+	}
+
+	public long getHitCount() {
+		return this.hits.sum();
+	}
+
+	public long getMissCount() {
+		return this.misses.sum();
+	}
+
+	public long getPutCount() {
+		return this.puts.sum();
+	}
+
+	public long getEvictionCount() {
+		return this.evictions.sum();
+	}
+
+	// Indexed entries, including records already overwritten but not yet probed
+	public long estimatedSize() {
+		return Arrays.stream(this.segments).mapToLong(Segment::size).sum();
+	}
+
+	public long capacityBytes() {
+		return Arrays.stream(this.segments).mapToLong(segment -> segment.capacity).sum();
+	}
+
+	private Segment segment(int hash) {
+		return this.segments[Math.floorMod(hash, this.segments.length)];
+	}
+
+	private static int hash(byte[] key) {
+		final int hash = Arrays.hashCode(key);
+		return hash ^ (hash >>> 16);
+	}
+
+	private static final class Segment {
+
+		private final ByteBuffer buffer;
+		private final int capacity;
+		// Absolute write position of each slot's record (-1 when empty) and the hash of its key; guarded by this
+		private final long[] positions;
+		private final int[] hashes;
+		private final int mask;
+		private long writePosition;
+		private int size;
+
+		private Segment(int capacity) {
+			this.buffer = ByteBuffer.allocateDirect(capacity);
+			this.capacity = capacity;
+			final int slots = Integer.highestOneBit(Math.max(PROBES, capacity / AVERAGE_RECORD_BYTES - 1) << 1);
+			this.positions = new long[slots];
+			this.hashes = new int[slots];
+			this.mask = slots - 1;
+			Arrays.fill(this.positions, -1L);
+		}
+
+		// Appends the record and indexes it; returns the entries dropped from the index, or -1 if it does not fit
+		private synchronized int put(byte[] key, int hash, long fetchedAt, byte[] value) {
+			final int length = HEADER_BYTES + key.length + value.length;
+			if (length > this.capacity) {
+				return -1;
+			}
+			int offset = (int) (this.writePosition % this.capacity);
+			if (offset + length > this.capacity) {
+				this.writePosition += this.capacity - offset; // Records never wrap around the end
+				offset = 0;
+			}
+			final long position = this.writePosition;
+			this.buffer.putInt(offset, length).putInt(offset + Integer.BYTES, key.length)
+					.putLong(offset + 2 * Integer.BYTES, fetchedAt).put(offset + HEADER_BYTES, key)
+					.put(offset + HEADER_BYTES + key.length, value);
+			this.writePosition += length;
+
+			int evicted = 0;
+			int target = -1;
+			for (int probe = 0; probe < PROBES; probe++) {
+				final int slot = (hash + probe) & this.mask;
+				if (this.positions[slot] >= 0 && !this.isLive(this.positions[slot])) {
+					this.clear(slot);
+					evicted++;
+				}
+				if (this.positions[slot] >= 0 && this.hashes[slot] == hash
+						&& this.keyEquals(this.positions[slot], key)) {
+					this.clear(slot); // Replaced by the new record
+					target = slot;
+				} else if (this.positions[slot] < 0 && target < 0) {
+					target = slot;
+				}
+			}
+			if (target < 0) {
+				target = this.oldestProbed(hash);
+				this.clear(target);
+				evicted++;
+			}
+			this.positions[target] = position;
+			this.hashes[target] = hash;
+			this.size++;
+			return evicted;
+		}
+
+		// Unindexes the key and returns a copy of its record positioned at fetchedAt, or null
+		private synchronized ByteBuffer remove(byte[] key, int hash) {
+			for (int probe = 0; probe < PROBES; probe++) {
+				final int slot = (hash + probe) & this.mask;
+				final long position = this.positions[slot];
+				if (position < 0 || this.hashes[slot] != hash || !this.isLive(position)
+						|| !this.keyEquals(position, key)) {
+					continue;
+				}
+				final int offset = (int) (position % this.capacity);
+				final int length = this.buffer.getInt(offset);
+				final byte[] record = new byte[length - 2 * Integer.BYTES - key.length];
+				this.buffer.get(offset + 2 * Integer.BYTES, record, 0, Long.BYTES);
+				this.buffer.get(offset + HEADER_BYTES + key.length, record, Long.BYTES, record.length - Long.BYTES);
+				this.clear(slot);
+				return ByteBuffer.wrap(record);
+			}
+			return null;
+		}
+
+		// Not yet overwritten: nothing has been written a full ring after it
+		private boolean isLive(long position) {
+			return position >= this.writePosition - this.capacity;
+		}
+
+		private boolean keyEquals(long position, byte[] key) {
+			final int offset = (int) (position % this.capacity);
+			if (this.buffer.getInt(offset + Integer.BYTES) != key.length) {
+				return false;
+			}
+			for (int i = 0; i < key.length; i++) {
+				if (this.buffer.get(offset + HEADER_BYTES + i) != key[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private int oldestProbed(int hash) {
+			int oldest = hash & this.mask;
+			for (int probe = 1; probe < PROBES; probe++) {
+				final int slot = (hash + probe) & this.mask;
+				if (this.positions[slot] < this.positions[oldest]) {
+					oldest = slot;
+				}
+			}
+			return oldest;
+		}
+
+		private void clear(int slot) {
+			this.positions[slot] = -1L;
+			this.size--;
+		}
+
+		private synchronized long size() {
+			return this.size;
+		}
+	}
+}
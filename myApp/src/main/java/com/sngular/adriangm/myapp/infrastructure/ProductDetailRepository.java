@@ -1,10 +1,13 @@
 package com.sngular.adriangm.myapp.infrastructure;
 
 import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+// Concurrent misses share one load; cancelling a returned future only gives up this caller's wait
 public interface ProductDetailRepository {
-	List<String> getSimilarIds(String productId);
-	ProductDetail getProductDetail(String productId);
+	CompletableFuture<UpstreamResult<List<String>>> getSimilarIds(String productId);
+	CompletableFuture<UpstreamResult<ProductDetail>> getProductDetail(String productId);
 }
@@ -0,0 +1,42 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Meters recorded on the request path; gauges are bound in MetricsConfig
+@Component
+public class ProductServiceMetrics {
+
+	public static final String PRODUCT_DETAIL_ROUTE = "productDetail";
+	public static final String SIMILAR_IDS_ROUTE = "similarIds";
+
+	private final MeterRegistry registry;
+	private final DistributionSummary fanOutWidth;
+	// Registered on first use, so statuses a route never sees do not export empty series
+	private final Map<String, Map<UpstreamResult.Status, Timer>> upstreamCalls = new ConcurrentHashMap<>();
+
+	public ProductServiceMetrics(MeterRegistry registry) {
+		this.registry = registry;
+		this.fanOutWidth = DistributionSummary.builder("fanout.width")
+				.description("Product details requested by one fan-out").baseUnit("products").register(registry);
+	}
+
+	// Locally rejected calls (open breaker, quarantine, shed) are recorded too, so the status tag counts every call
+	public void recordUpstreamCall(String route, UpstreamResult.Status status, long elapsedNanos) {
+		this.upstreamCalls.computeIfAbsent(route, key -> new ConcurrentHashMap<>())
+				.computeIfAbsent(status, key -> Timer.builder("upstream.calls").description("Product API calls")
+						.tag("route", route).tag("status", key.name()).register(this.registry))
+				.record(elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordFanOutWidth(int width) {
+		this.fanOutWidth.record(width);
+	}
+}
@@ -0,0 +1,12 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ReactiveProductDetailRepository {
+	Mono<UpstreamResult<List<String>>> getSimilarIds(String productId);
+	Mono<UpstreamResult<ProductDetail>> getProductDetail(String productId);
+}
@@ -0,0 +1,211 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.model.UpstreamStatus;
+import lombok.Value;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+// Sends a second call when the first has not answered within a latency percentile; hedges are paid from a token
+// bucket, stop while the upstream is unhealthy and are dropped when the executor is full
+public class RequestHedger {
+
+	private static final long TOKEN = 1000L;
+	private static final long MAX_TOKENS = 10 * TOKEN;
+	// The hedge delay is recomputed every this many latency samples
+	private static final int RECOMPUTE_INTERVAL = 16;
+
+	private final ProductServiceProperties.Hedging config;
+	private final BooleanSupplier upstreamHealthy;
+	private final ScheduledExecutorService scheduler;
+	private final long[] latencies;
+	private final AtomicLong recorded = new AtomicLong();
+	private final AtomicLong tokens = new AtomicLong();
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder hedgeWins = new LongAdder();
+	private volatile long hedgeDelayNanos = -1L;
+
+	public RequestHedger(ProductServiceProperties.Hedging config, BooleanSupplier upstreamHealthy,
+			ScheduledExecutorService scheduler) {
+		this.config = config;
+		this.upstreamHealthy = upstreamHealthy;
+		this.scheduler = scheduler;
+		this.latencies = new long[Math.max(1, config.getSampleSize())];
+	}
+
+	// Runs a blocking call on the executor, hedged; a losing call runs until the caller aborts it
+	public <T> CompletableFuture<UpstreamResult<T>> execute(Supplier<UpstreamResult<T>> call, Executor executor) {
+		final CompletableFuture<UpstreamResult<T>> primary = CompletableFuture.supplyAsync(this.timed(call), executor);
+		final long delay = this.hedgeDelay();
+		if (delay < 0) {
+			return primary;
+		}
+		final Race<T> race = new Race<>();
+		primary.whenComplete((value, error) -> this.offer(race, value, error, false));
+		this.scheduler.schedule(() -> {
+			if (race.result.isDone() || !this.tryAcquireHedge()) {
+				return;
+			}
+			race.pending.incrementAndGet();
+			try {
+				CompletableFuture.supplyAsync(this.timed(call), withoutCallerRuns(executor))
+						.whenComplete((value, error) -> this.offer(race, value, error, true));
+			} catch (final RejectedExecutionException e) {
+				// Not sent: the original call decides, and settles the race here if it already failed
+				this.releaseHedge();
+				if (race.pending.decrementAndGet() == 0) {
+					primary.whenComplete((value, error) -> this.settle(race, value, error, false));
+				}
+			}
+		}, delay, TimeUnit.NANOSECONDS);
+		return race.result;
+	}
+
+	// Hedges a non-blocking call; the losing subscription is cancelled
+	public <T> Mono<UpstreamResult<T>> execute(Mono<UpstreamResult<T>> call) {
+		return Mono.defer(() -> {
+			final long delay = this.hedgeDelay();
+			if (delay < 0) {
+				return this.timed(call);
+			}
+			final Mono<Attempt<T>> primary = this.timed(call).map(value -> new Attempt<>(value, false));
+			final Mono<Attempt<T>> hedge = Mono.delay(Duration.ofNanos(delay)).filter(tick -> this.tryAcquireHedge())
+					.flatMap(tick -> this.timed(call)).map(value -> new Attempt<>(value, true));
+			return Flux.merge(primary, hedge).takeUntil(attempt -> isAnswer(attempt.getResult())).last()
+					.doOnNext(attempt -> {
+						if (attempt.isHedge() && isAnswer(attempt.getResult())) {
+							this.hedgeWins.increment();
+						}
+					}).map(Attempt::getResult);
+		});
+	}
+
+	public UpstreamStatus.HedgingStatus getStatus() {
+		final long delay = this.hedgeDelayNanos;
+		return new UpstreamStatus.HedgingStatus(this.config.isEnabled(), this.calls.sum(), this.hedges.sum(),
+				this.hedgeWins.sum(), delay < 0 ? -1L : TimeUnit.NANOSECONDS.toMillis(delay));
+	}
+
+	// Counts the call, refills the hedge budget and returns the hedge delay, or -1 when this call is not hedged
+	private long hedgeDelay() {
+		this.calls.increment();
+		if (!this.config.isEnabled()) {
+			return -1L;
+		}
+		final long refill = (long) (this.config.getMaxHedgePercent() * TOKEN / 100);
+		this.tokens.accumulateAndGet(refill, (current, added) -> Math.min(MAX_TOKENS, current + added));
+		return this.upstreamHealthy.getAsBoolean() ? this.hedgeDelayNanos : -1L;
+	}
+
+	private boolean tryAcquireHedge() {
+		if (this.tokens.getAndUpdate(current -> current >= TOKEN ? current - TOKEN : current) < TOKEN) {
+			return false;
+		}
+		this.hedges.increment();
+		return true;
+	}
+
+	private void releaseHedge() {
+		this.hedges.decrement();
+		this.tokens.accumulateAndGet(TOKEN, (current, added) -> Math.min(MAX_TOKENS, current + added));
+	}
+
+	// Settles the race with the first answer, or with the last failure once no attempt is pending
+	private <T> void offer(Race<T> race, UpstreamResult<T> value, Throwable error, boolean hedge) {
+		final int stillPending = race.pending.decrementAndGet();
+		final boolean answer = error == null && isAnswer(value);
+		if (!answer && stillPending > 0) {
+			return;
+		}
+		this.settle(race, value, error, answer && hedge);
+	}
+
+	private <T> void settle(Race<T> race, UpstreamResult<T> value, Throwable error, boolean hedgeWin) {
+		if (!race.settled.compareAndSet(false, true)) {
+			return;
+		}
+		if (hedgeWin) {
+			this.hedgeWins.increment();
+		}
+		if (error != null) {
+			race.result.completeExceptionally(error);
+		} else {
+			race.result.complete(value);
+		}
+	}
+
+	private <T> Supplier<UpstreamResult<T>> timed(Supplier<UpstreamResult<T>> call) {
+		// Calls that throw (e.g. aborted ones) say nothing about the upstream latency
+		return () -> {
+			final long start = System.nanoTime();
+			final UpstreamResult<T> result = call.get();
+			this.record(System.nanoTime() - start);
+			return result;
+		};
+	}
+
+	private <T> Mono<UpstreamResult<T>> timed(Mono<UpstreamResult<T>> call) {
+		return Mono.defer(() -> {
+			final long start = System.nanoTime();
+			return call.doOnNext(value -> this.record(System.nanoTime() - start));
+		});
+	}
+
+	private void record(long elapsedNanos) {
+		final long count = this.recorded.getAndIncrement() + 1;
+		this.latencies[(int) ((count - 1) % this.latencies.length)] = elapsedNanos;
+		if (count >= this.config.getMinSamples()
+				&& (count % RECOMPUTE_INTERVAL == 0 || count == this.config.getMinSamples())) {
+			final long[] window = Arrays.copyOf(this.latencies, (int) Math.min(count, this.latencies.length));
+			Arrays.sort(window);
+			final int index = (int) Math.ceil(this.config.getPercentile() / 100 * window.length) - 1;
+			final long percentile = window[Math.max(0, Math.min(window.length - 1, index))];
+			this.hedgeDelayNanos = Math.max(this.config.getMinDelay().toNanos(), percentile);
+		}
+	}
+
+	// A caller-runs pool would run the hedge on the delay thread shared by every hedge; refuse it there instead
+	private static Executor withoutCallerRuns(Executor executor) {
+		return task -> {
+			final Thread submitter = Thread.currentThread();
+			executor.execute(() -> {
+				if (Thread.currentThread() == submitter) {
+					throw new RejectedExecutionException("No room for the hedge");
+				}
+				task.run();
+			});
+		};
+	}
+
+	private static boolean isAnswer(UpstreamResult<?> result) {
+		return result != null && (result.isFound() || result.isNotFound());
+	}
+
+	private static final class Race<T> {
+		private final CompletableFuture<UpstreamResult<T>> result = new CompletableFuture<>();
+		private final AtomicInteger pending = new AtomicInteger(1);
+		private final AtomicBoolean settled = new AtomicBoolean();
+	}
+
+	@Value
+	private static class Attempt<T> {
+		UpstreamResult<T> result;
+		boolean hedge;
+	}
+}
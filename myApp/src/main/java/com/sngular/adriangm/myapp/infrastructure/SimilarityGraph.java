@@ -0,0 +1,520 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.model.CompactIds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Similarity graph in CSR form with reverse adjacency; updates go to an overlay that is compacted outside the
+// lock once it grows past an eighth of the vertices
+public class SimilarityGraph {
+
+	private static final int MIN_OVERLAY_BEFORE_COMPACTION = 1024;
+	private static final int[] NO_VERTICES = new int[0];
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	// Guarded by lock; the arrays are never modified once built, so a compaction can read them without it
+	private IdDictionary ids = new IdDictionary();
+	private int baseVertices;
+	private int[] forwardOffsets = {0};
+	private int[] forwardNeighbours = NO_VERTICES;
+	private int[] reverseOffsets = {0};
+	private int[] reverseNeighbours = NO_VERTICES;
+	// Rows replaced since the last compaction; while one runs, the overlay it merges is frozen and read-only
+	private Overlay overlay = new Overlay();
+	private Overlay frozen;
+	private long edges;
+
+	// May compact the graph, so callers must not hold locks of their own
+	public void update(String productId, Collection<String> similarIds) {
+		final Compaction compaction;
+		this.lock.writeLock().lock();
+		try {
+			final int source = this.ids.intern(productId);
+			this.replaceRow(source, similarIds.stream().mapToInt(this.ids::intern).distinct().toArray());
+			compaction = this.frozen == null
+					&& this.overlay.updates > Math.max(MIN_OVERLAY_BEFORE_COMPACTION, this.baseVertices / 8)
+							? this.freeze() : null;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+		if (compaction != null) {
+			this.swap(compaction.build());
+		}
+	}
+
+	// Never compacts, so it can run within the owner's map operations
+	public void remove(String productId) {
+		this.lock.writeLock().lock();
+		try {
+			final int source = this.ids.find(productId);
+			if (source >= 0) {
+				this.replaceRow(source, NO_VERTICES);
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	public List<String> similarTo(String productId) {
+		this.lock.readLock().lock();
+		try {
+			final int vertex = this.ids.find(productId);
+			return vertex < 0 ? List.of() : this.toIds(this.row(vertex));
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	// Whether the similar products of productId currently include every one of similarIds
+	public boolean links(String productId, Collection<String> similarIds) {
+		this.lock.readLock().lock();
+		try {
+			final int[] row = this.row(this.ids.find(productId));
+			for (final String similarId : similarIds) {
+				final int vertex = this.ids.find(similarId);
+				if (vertex < 0 || !contains(row, vertex)) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	// Products whose similar products currently include productId
+	public List<String> dependentsOf(String productId) {
+		this.lock.readLock().lock();
+		try {
+			final int vertex = this.ids.find(productId);
+			if (vertex < 0) {
+				return List.of();
+			}
+			final int[] base = vertex < this.baseVertices
+					? Arrays.copyOfRange(this.reverseNeighbours, this.reverseOffsets[vertex],
+							this.reverseOffsets[vertex + 1])
+					: NO_VERTICES;
+			int[] candidates = append(base, this.overlay.addedSources.get(vertex, NO_VERTICES));
+			if (this.frozen != null) {
+				candidates = append(candidates, this.frozen.addedSources.get(vertex, NO_VERTICES));
+			}
+			Arrays.sort(candidates);
+			final List<String> dependents = new ArrayList<>(candidates.length);
+			for (int i = 0; i < candidates.length; i++) {
+				if ((i == 0 || candidates[i] != candidates[i - 1]) && contains(this.row(candidates[i]), vertex)) {
+					dependents.add(this.ids.idOf(candidates[i]));
+				}
+			}
+			return dependents;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	public int vertexCount() {
+		this.lock.readLock().lock();
+		try {
+			return this.ids.size();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	public long edgeCount() {
+		this.lock.readLock().lock();
+		try {
+			return this.edges;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	// Estimated heap bytes of the arrays and dictionary; the overlay is not counted
+	public long estimatedFootprint() {
+		this.lock.readLock().lock();
+		try {
+			return (long) Integer.BYTES * (this.forwardOffsets.length + this.forwardNeighbours.length
+					+ this.reverseOffsets.length + this.reverseNeighbours.length) + this.ids.estimatedFootprint();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	private void replaceRow(int source, int[] targets) {
+		final int[] previous = this.row(source);
+		if (Arrays.equals(previous, targets)) {
+			return;
+		}
+		this.overlay.replace(source, targets);
+		this.edges += targets.length - previous.length;
+	}
+
+	private int[] row(int vertex) {
+		if (vertex < 0) {
+			return NO_VERTICES;
+		}
+		final int[] updated = this.overlay.rows.get(vertex, null);
+		if (updated != null) {
+			return updated;
+		}
+		final int[] frozenRow = this.frozen != null ? this.frozen.rows.get(vertex, null) : null;
+		return frozenRow != null ? frozenRow
+				: baseRow(vertex, this.baseVertices, this.forwardOffsets, this.forwardNeighbours);
+	}
+
+	// Under the write lock: later updates go to a fresh overlay while the frozen one is merged into new arrays
+	private Compaction freeze() {
+		this.frozen = this.overlay;
+		this.overlay = new Overlay();
+		return new Compaction(this.ids.size(), this.ids.packedIds, this.ids.textIds, this.baseVertices,
+				this.forwardOffsets, this.forwardNeighbours, this.frozen);
+	}
+
+	// Installs the built arrays and carries the updates made during the build over to the new vertex numbers
+	private void swap(Compacted compacted) {
+		this.lock.writeLock().lock();
+		try {
+			final IdDictionary previousIds = this.ids;
+			final Overlay pending = this.overlay;
+			this.ids = compacted.ids;
+			this.baseVertices = compacted.ids.size();
+			this.forwardOffsets = compacted.forwardOffsets;
+			this.forwardNeighbours = compacted.forwardNeighbours;
+			this.reverseOffsets = compacted.reverseOffsets;
+			this.reverseNeighbours = compacted.reverseNeighbours;
+			this.frozen = null;
+			this.overlay = new Overlay();
+			pending.rows.forEach((source, row) -> {
+				final int[] targets = new int[row.length];
+				for (int i = 0; i < row.length; i++) {
+					targets[i] = compacted.translate(previousIds, row[i]);
+				}
+				this.overlay.replace(compacted.translate(previousIds, source), targets);
+			});
+			this.overlay.updates = pending.updates;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	private List<String> toIds(int[] vertices) {
+		final List<String> result = new ArrayList<>(vertices.length);
+		for (final int vertex : vertices) {
+			result.add(this.ids.idOf(vertex));
+		}
+		return result;
+	}
+
+	private static int[] baseRow(int vertex, int baseVertices, int[] offsets, int[] neighbours) {
+		return vertex < baseVertices ? Arrays.copyOfRange(neighbours, offsets[vertex], offsets[vertex + 1])
+				: NO_VERTICES;
+	}
+
+	private static boolean contains(int[] values, int value) {
+		for (final int candidate : values) {
+			if (candidate == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[] append(int[] first, int[] second) {
+		if (second.length == 0) {
+			return first;
+		}
+		final int[] result = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	// Replaced rows and, per target, the sources that gained an edge to it, both keyed by vertex
+	private static final class Overlay {
+		private final IntRows rows = new IntRows();
+		private final IntRows addedSources = new IntRows();
+		private int updates;
+
+		private void replace(int source, int[] targets) {
+			this.rows.put(source, targets);
+			for (final int target : targets) {
+				final int[] sources = this.addedSources.get(target, NO_VERTICES);
+				if (!contains(sources, source)) {
+					this.addedSources.put(target, append(sources, new int[] {source}));
+				}
+			}
+			this.updates++;
+		}
+	}
+
+	// Open-addressing map from vertex to a row of vertices, without boxing
+	private static final class IntRows {
+
+		private int[] keys = new int[16]; // Vertex + 1, 0 when free
+		private int[][] values = new int[16][];
+		private int size;
+
+		private int[] get(int vertex, int[] missing) {
+			final int mask = this.keys.length - 1;
+			for (int slot = mix(vertex) & mask; this.keys[slot] != 0; slot = (slot + 1) & mask) {
+				if (this.keys[slot] == vertex + 1) {
+					return this.values[slot];
+				}
+			}
+			return missing;
+		}
+
+		private void put(int vertex, int[] row) {
+			if ((this.size + 1) * 2 > this.keys.length) {
+				this.rehash(this.keys.length * 2);
+			}
+			final int mask = this.keys.length - 1;
+			int slot = mix(vertex) & mask;
+			while (this.keys[slot] != 0 && this.keys[slot] != vertex + 1) {
+				slot = (slot + 1) & mask;
+			}
+			if (this.keys[slot] == 0) {
+				this.keys[slot] = vertex + 1;
+				this.size++;
+			}
+			this.values[slot] = row;
+		}
+
+		private void forEach(RowVisitor visitor) {
+			for (int slot = 0; slot < this.keys.length; slot++) {
+				if (this.keys[slot] != 0) {
+					visitor.visit(this.keys[slot] - 1, this.values[slot]);
+				}
+			}
+		}
+
+		private void rehash(int capacity) {
+			final int[] oldKeys = this.keys;
+			final int[][] oldValues = this.values;
+			this.keys = new int[capacity];
+			this.values = new int[capacity][];
+			this.size = 0;
+			for (int slot = 0; slot < oldKeys.length; slot++) {
+				if (oldKeys[slot] != 0) {
+					this.put(oldKeys[slot] - 1, oldValues[slot]);
+				}
+			}
+		}
+
+		private static int mix(int value) {
+			final int hash = value * 0x9E3779B9;
+			return hash ^ (hash >>> 16);
+		}
+	}
+
+	@FunctionalInterface
+	private interface RowVisitor {
+		void visit(int vertex, int[] row);
+	}
+
+	// Read by a compaction outside the lock; new ids are appended past known and new rows go to the live overlay
+	private static final class Compaction {
+		private final int known;
+		private final long[] packedIds;
+		private final Map<Integer, String> textIds;
+		private final int baseVertices;
+		private final int[] forwardOffsets;
+		private final int[] forwardNeighbours;
+		private final Overlay frozen;
+
+		private Compaction(int known, long[] packedIds, Map<Integer, String> textIds, int baseVertices,
+				int[] forwardOffsets, int[] forwardNeighbours, Overlay frozen) {
+			this.known = known;
+			this.packedIds = packedIds;
+			this.textIds = textIds;
+			this.baseVertices = baseVertices;
+			this.forwardOffsets = forwardOffsets;
+			this.forwardNeighbours = forwardNeighbours;
+			this.frozen = frozen;
+		}
+
+		// Renumbers the vertices that still have an edge either way and rebuilds both adjacencies over them
+		private Compacted build() {
+			final int[][] knownRows = new int[this.known][];
+			final boolean[] linked = new boolean[this.known];
+			for (int vertex = 0; vertex < this.known; vertex++) {
+				final int[] updated = this.frozen.rows.get(vertex, null);
+				knownRows[vertex] = updated != null ? updated
+						: baseRow(vertex, this.baseVertices, this.forwardOffsets, this.forwardNeighbours);
+				if (knownRows[vertex].length > 0) {
+					linked[vertex] = true;
+				}
+				for (final int target : knownRows[vertex]) {
+					linked[target] = true;
+				}
+			}
+			final IdDictionary ids = new IdDictionary();
+			final int[] renumbered = new int[this.known];
+			for (int vertex = 0; vertex < this.known; vertex++) {
+				renumbered[vertex] = linked[vertex]
+						? ids.intern(this.packedIds[vertex], this.textIds.get(vertex)) : -1;
+			}
+			final int vertices = ids.size();
+			final int[][] rows = new int[vertices][];
+			final int[] forwardOffsets = new int[vertices + 1];
+			final int[] reverseOffsets = new int[vertices + 1];
+			for (int vertex = 0; vertex < this.known; vertex++) {
+				if (renumbered[vertex] < 0) {
+					continue;
+				}
+				final int[] row = new int[knownRows[vertex].length];
+				for (int i = 0; i < row.length; i++) {
+					row[i] = renumbered[knownRows[vertex][i]];
+					reverseOffsets[row[i] + 1]++;
+				}
+				rows[renumbered[vertex]] = row;
+			}
+			for (int vertex = 0; vertex < vertices; vertex++) {
+				forwardOffsets[vertex + 1] = forwardOffsets[vertex] + rows[vertex].length;
+			}
+			for (int vertex = 0; vertex < vertices; vertex++) {
+				reverseOffsets[vertex + 1] += reverseOffsets[vertex];
+			}
+			final int[] forwardNeighbours = new int[forwardOffsets[vertices]];
+			final int[] reverseNeighbours = new int[forwardOffsets[vertices]];
+			final int[] reverseFill = Arrays.copyOf(reverseOffsets, vertices);
+			for (int vertex = 0; vertex < vertices; vertex++) {
+				System.arraycopy(rows[vertex], 0, forwardNeighbours, forwardOffsets[vertex], rows[vertex].length);
+				for (final int target : rows[vertex]) {
+					reverseNeighbours[reverseFill[target]++] = vertex;
+				}
+			}
+			return new Compacted(ids, renumbered, forwardOffsets, forwardNeighbours, reverseOffsets,
+					reverseNeighbours);
+		}
+	}
+
+	private static final class Compacted {
+		private final IdDictionary ids;
+		private final int[] renumbered;
+		private final int[] forwardOffsets;
+		private final int[] forwardNeighbours;
+		private final int[] reverseOffsets;
+		private final int[] reverseNeighbours;
+
+		private Compacted(IdDictionary ids, int[] renumbered, int[] forwardOffsets, int[] forwardNeighbours,
+				int[] reverseOffsets, int[] reverseNeighbours) {
+			this.ids = ids;
+			this.renumbered = renumbered;
+			this.forwardOffsets = forwardOffsets;
+			this.forwardNeighbours = forwardNeighbours;
+			this.reverseOffsets = reverseOffsets;
+			this.reverseNeighbours = reverseNeighbours;
+		}
+
+		// New number of a vertex of the previous dictionary; ids dropped or added during the build are interned again
+		private int translate(IdDictionary previous, int vertex) {
+			if (vertex < this.renumbered.length && this.renumbered[vertex] >= 0) {
+				return this.renumbered[vertex];
+			}
+			return this.ids.intern(previous.packedIds[vertex], previous.textIds.get(vertex));
+		}
+	}
+
+	// Numeric ids live in a primitive table; other ids in a concurrent map a compaction can read
+	private static final class IdDictionary {
+
+		private long[] keys = new long[1024]; // Packed id + 1, 0 when free
+		private int[] values = new int[1024];
+		private long[] packedIds = new long[1024];
+		private final Map<String, Integer> textVertices = new HashMap<>();
+		private final Map<Integer, String> textIds = new ConcurrentHashMap<>();
+		private int size;
+
+		private int find(String id) {
+			return this.find(CompactIds.pack(id), id);
+		}
+
+		private int find(long packed, String text) {
+			if (packed == CompactIds.NOT_NUMERIC) {
+				return this.textVertices.getOrDefault(text, -1);
+			}
+			final int mask = this.keys.length - 1;
+			for (int slot = mix(packed) & mask; this.keys[slot] != 0; slot = (slot + 1) & mask) {
+				if (this.keys[slot] == packed + 1) {
+					return this.values[slot];
+				}
+			}
+			return -1;
+		}
+
+		private int intern(String id) {
+			return this.intern(CompactIds.pack(id), id);
+		}
+
+		// The text is only read for ids that are not numeric
+		private int intern(long packed, String text) {
+			final int existing = this.find(packed, text);
+			if (existing >= 0) {
+				return existing;
+			}
+			final int vertex = this.size++;
+			if (vertex == this.packedIds.length) {
+				this.packedIds = Arrays.copyOf(this.packedIds, vertex * 2);
+			}
+			this.packedIds[vertex] = packed;
+			if (packed == CompactIds.NOT_NUMERIC) {
+				this.textVertices.put(text, vertex);
+				this.textIds.put(vertex, text);
+			} else {
+				if (this.size * 2 > this.keys.length) {
+					this.rehash(this.keys.length * 2);
+				}
+				this.insert(packed, vertex);
+			}
+			return vertex;
+		}
+
+		private String idOf(int vertex) {
+			final long packed = this.packedIds[vertex];
+			return packed == CompactIds.NOT_NUMERIC ? this.textIds.get(vertex) : Long.toString(packed);
+		}
+
+		private int size() {
+			return this.size;
+		}
+
+		private long estimatedFootprint() {
+			return (long) Long.BYTES * (this.keys.length + this.packedIds.length)
+					+ (long) Integer.BYTES * this.values.length;
+		}
+
+		private void insert(long packed, int vertex) {
+			final int mask = this.keys.length - 1;
+			int slot = mix(packed) & mask;
+			while (this.keys[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			this.keys[slot] = packed + 1;
+			this.values[slot] = vertex;
+		}
+
+		private void rehash(int capacity) {
+			final long[] oldKeys = this.keys;
+			final int[] oldValues = this.values;
+			this.keys = new long[capacity];
+			this.values = new int[capacity];
+			for (int slot = 0; slot < oldKeys.length; slot++) {
+				if (oldKeys[slot] != 0) {
+					this.insert(oldKeys[slot] - 1, oldValues[slot]);
+				}
+			}
+		}
+
+		private static int mix(long value) {
+			final long hash = value * 0x9E3779B97F4A7C15L;
+			return (int) (hash ^ (hash >>> 32));
+		}
+	}
+}
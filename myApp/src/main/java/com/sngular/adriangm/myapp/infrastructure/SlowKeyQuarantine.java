@@ -0,0 +1,70 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.model.UpstreamStatus;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Skips calls for a product that was slow several times in a row until its cooldown ends; then one probe call
+// decides whether it stays quarantined
+public class SlowKeyQuarantine {
+
+	private final ProductServiceProperties.Quarantine config;
+	private final Cache<String, Integer> slowStreaks;
+	private final Cache<String, Instant> quarantined;
+	private final LongAdder skippedCalls = new LongAdder();
+
+	public SlowKeyQuarantine(ProductServiceProperties.Quarantine config) {
+		this(config, Ticker.systemTicker());
+	}
+
+	public SlowKeyQuarantine(ProductServiceProperties.Quarantine config, Ticker ticker) {
+		this.config = config;
+		// Streaks outlive the cooldown so the probe call after it still sees them
+		this.slowStreaks = Caffeine.newBuilder().maximumSize(config.getMaximumSize())
+				.expireAfterWrite(config.getCooldown().multipliedBy(2)).ticker(ticker).build();
+		this.quarantined = Caffeine.newBuilder().maximumSize(config.getMaximumSize())
+				.expireAfterWrite(config.getCooldown()).ticker(ticker).build();
+	}
+
+	// Whether a call for the key may go upstream; skipped calls are counted
+	public boolean tryAcquire(String key) {
+		if (!this.config.isEnabled() || this.quarantined.getIfPresent(key) == null) {
+			return true;
+		}
+		this.skippedCalls.increment();
+		return false;
+	}
+
+	// Calls rejected locally say nothing about the key and are ignored
+	public void record(String key, long elapsedNanos, UpstreamResult.Status status) {
+		if (!this.config.isEnabled() || status.isRejectedLocally()) {
+			return;
+		}
+		if (status != UpstreamResult.Status.TIMEOUT && elapsedNanos < this.config.getSlowCallDuration().toNanos()) {
+			this.slowStreaks.invalidate(key);
+			this.quarantined.invalidate(key);
+			return;
+		}
+		final Integer streak = this.slowStreaks.asMap().merge(key, 1, Integer::sum);
+		if (streak >= this.config.getSlowCallsToQuarantine()) {
+			this.quarantined.put(key, Instant.now().plus(this.config.getCooldown()));
+		}
+	}
+
+	public boolean isQuarantined(String key) {
+		return this.quarantined.getIfPresent(key) != null;
+	}
+
+	public UpstreamStatus.QuarantineStatus getStatus() {
+		final Map<String, Instant> keys = new TreeMap<>(this.quarantined.asMap());
+		return new UpstreamStatus.QuarantineStatus(keys, this.skippedCalls.sum());
+	}
+}
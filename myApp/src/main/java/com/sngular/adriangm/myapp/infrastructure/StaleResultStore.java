@@ -0,0 +1,39 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Last good answer per key, served flagged as stale when a fresh lookup fails
+public class StaleResultStore<T> {
+
+	private final Cache<String, UpstreamResult<T>> lastGood;
+	private final LongAdder staleServed = new LongAdder();
+
+	public StaleResultStore(Cache<String, UpstreamResult<T>> lastGood) {
+		this.lastGood = lastGood;
+	}
+
+	// Records a fresh answer, or replaces a failure with the last good copy when there is one
+	public UpstreamResult<T> resolve(String key, UpstreamResult<T> fresh) {
+		if (fresh.isFound()) {
+			this.lastGood.put(key, fresh);
+			return fresh;
+		}
+		if (fresh.isNotFound()) {
+			this.lastGood.invalidate(key); // The product is gone upstream, never resurrect it
+			return fresh;
+		}
+		final UpstreamResult<T> last = this.lastGood.getIfPresent(key);
+		if (last == null) {
+			return fresh;
+		}
+		this.staleServed.increment();
+		return last.asStale();
+	}
+
+	public long getStaleServed() {
+		return this.staleServed.sum();
+	}
+}
@@ -0,0 +1,52 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeoutException;
+
+// Maps RestTemplate, WebClient and Resilience4j exceptions to an UpstreamResult.Status
+public final class UpstreamErrorClassifier {
+
+	private UpstreamErrorClassifier() {
+	}
+
+	public static UpstreamResult.Status classify(Throwable error) {
+		for (Throwable current = error; current != null; current = current.getCause()) {
+			if (current instanceof CallNotPermittedException) {
+				return UpstreamResult.Status.CIRCUIT_OPEN;
+			}
+			final HttpStatusCode status = statusOf(current);
+			if (status != null) {
+				return status.value() == 404 ? UpstreamResult.Status.NOT_FOUND : UpstreamResult.Status.SERVER_ERROR;
+			}
+			// Socket/connect/pool-lease timeouts are InterruptedIOExceptions, Reactor and Netty use TimeoutException
+			if (current instanceof TimeoutException || current instanceof InterruptedIOException
+					|| current instanceof io.netty.handler.timeout.TimeoutException) {
+				return UpstreamResult.Status.TIMEOUT;
+			}
+			if (current.getCause() == current) {
+				break;
+			}
+		}
+		return UpstreamResult.Status.SERVER_ERROR;
+	}
+
+	public static boolean isNotFound(Throwable error) {
+		return classify(error) == UpstreamResult.Status.NOT_FOUND;
+	}
+
+	private static HttpStatusCode statusOf(Throwable error) {
+		if (error instanceof final RestClientResponseException restClient) {
+			return restClient.getStatusCode();
+		}
+		if (error instanceof final WebClientResponseException webClient) {
+			return webClient.getStatusCode();
+		}
+		return null;
+	}
+}
@@ -0,0 +1,81 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.model.UpstreamStatus;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A route is degraded while its breaker is not closed or its failure or slow-call rate reaches degraded-failure-rate
+@Component
+public class UpstreamHealth {
+
+	private final CircuitBreakerRegistry circuitBreakerRegistry;
+	private final SlowKeyQuarantine productDetailQuarantine;
+	private final SlowKeyQuarantine similarIdsQuarantine;
+	private final AdaptiveTimeout productDetailTimeout;
+	private final AdaptiveTimeout similarIdsTimeout;
+	private final RequestHedger productDetailHedger;
+	private final AdaptiveConcurrencyLimiter productDetailConcurrencyLimiter;
+	private final AdaptiveConcurrencyLimiter similarIdsConcurrencyLimiter;
+	private final ProductServiceProperties properties;
+
+	public UpstreamHealth(CircuitBreakerRegistry circuitBreakerRegistry,
+			@Qualifier("productDetailQuarantine") SlowKeyQuarantine productDetailQuarantine,
+			@Qualifier("similarIdsQuarantine") SlowKeyQuarantine similarIdsQuarantine,
+			@Qualifier("productDetailTimeout") AdaptiveTimeout productDetailTimeout,
+			@Qualifier("similarIdsTimeout") AdaptiveTimeout similarIdsTimeout,
+			@Qualifier("productDetailHedger") RequestHedger productDetailHedger,
+			@Qualifier("productDetailConcurrencyLimiter") AdaptiveConcurrencyLimiter productDetailConcurrencyLimiter,
+			@Qualifier("similarIdsConcurrencyLimiter") AdaptiveConcurrencyLimiter similarIdsConcurrencyLimiter,
+			ProductServiceProperties properties) {
+		this.circuitBreakerRegistry = circuitBreakerRegistry;
+		this.productDetailQuarantine = productDetailQuarantine;
+		this.similarIdsQuarantine = similarIdsQuarantine;
+		this.productDetailTimeout = productDetailTimeout;
+		this.similarIdsTimeout = similarIdsTimeout;
+		this.productDetailHedger = productDetailHedger;
+		this.productDetailConcurrencyLimiter = productDetailConcurrencyLimiter;
+		this.similarIdsConcurrencyLimiter = similarIdsConcurrencyLimiter;
+		this.properties = properties;
+	}
+
+	public boolean isDegraded(String circuitBreakerName) {
+		final CircuitBreaker circuitBreaker = this.circuitBreakerRegistry.circuitBreaker(circuitBreakerName);
+		if (circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+			return true;
+		}
+		// Rates are -1 until the breaker has seen its minimum number of calls
+		final float threshold = this.properties.getCache().getDegradedFailureRate();
+		final CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+		return metrics.getFailureRate() >= threshold || metrics.getSlowCallRate() >= threshold;
+	}
+
+	public UpstreamStatus getStatus() {
+		final Map<String, UpstreamStatus.CircuitBreakerStatus> circuitBreakers = new LinkedHashMap<>();
+		for (final String name : new String[] {this.properties.getCircuitBreaker().getName(),
+				this.properties.getCircuitBreaker().getSimilarIdsName()}) {
+			final CircuitBreaker circuitBreaker = this.circuitBreakerRegistry.circuitBreaker(name);
+			final CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+			circuitBreakers.put(name, new UpstreamStatus.CircuitBreakerStatus(circuitBreaker.getState().name(),
+					metrics.getFailureRate(), metrics.getSlowCallRate(), metrics.getNumberOfBufferedCalls(),
+					metrics.getNumberOfNotPermittedCalls()));
+		}
+		final Map<String, UpstreamStatus.QuarantineStatus> quarantines = new LinkedHashMap<>();
+		quarantines.put(ProductServiceMetrics.PRODUCT_DETAIL_ROUTE, this.productDetailQuarantine.getStatus());
+		quarantines.put(ProductServiceMetrics.SIMILAR_IDS_ROUTE, this.similarIdsQuarantine.getStatus());
+		final Map<String, UpstreamStatus.TimeoutStatus> timeouts = new LinkedHashMap<>();
+		timeouts.put(ProductServiceMetrics.PRODUCT_DETAIL_ROUTE, this.productDetailTimeout.getStatus());
+		timeouts.put(ProductServiceMetrics.SIMILAR_IDS_ROUTE, this.similarIdsTimeout.getStatus());
+		final Map<String, UpstreamStatus.ConcurrencyStatus> concurrencyLimits = new LinkedHashMap<>();
+		concurrencyLimits.put(ProductServiceMetrics.PRODUCT_DETAIL_ROUTE,
+				this.productDetailConcurrencyLimiter.getStatus());
+		concurrencyLimits.put(ProductServiceMetrics.SIMILAR_IDS_ROUTE, this.similarIdsConcurrencyLimiter.getStatus());
+		return new UpstreamStatus(circuitBreakers, quarantines, timeouts, this.productDetailHedger.getStatus(),
+				concurrencyLimits);
+	}
+}
@@ -0,0 +1,171 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sngular.adriangm.myapp.model.CompactIds;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarIds;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Streaming decoders of the upstream payloads; values are coerced or rejected as the default object mapper would,
+// and an empty payload decodes to null
+public interface UpstreamPayloadDecoder<T> {
+
+	JsonFactory JSON = JsonFactory.builder().build();
+
+	UpstreamPayloadDecoder<ProductDetail> PRODUCT_DETAIL = new UpstreamPayloadDecoder<>() {
+
+		@Override
+		public ProductDetail decode(JsonParser parser) throws IOException {
+			expect(parser, JsonToken.START_OBJECT, "a product detail object");
+			long numericId = CompactIds.NOT_NUMERIC;
+			String textId = null;
+			String name = null;
+			double price = 0;
+			boolean availability = false;
+			for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+				parser.nextToken();
+				switch (field) {
+					case "id" -> {
+						expectScalar(parser, field);
+						numericId = packText(parser);
+						textId = numericId == CompactIds.NOT_NUMERIC ? parser.getValueAsString() : null;
+					}
+					case "name" -> name = expectScalar(parser, field).getValueAsString();
+					case "price" -> price = readDouble(expectScalar(parser, field));
+					case "availability" -> availability = readBoolean(expectScalar(parser, field));
+					default -> parser.skipChildren();
+				}
+			}
+			return numericId != CompactIds.NOT_NUMERIC
+					? ProductDetail.ofPackedId(numericId, name, price, availability)
+					: new ProductDetail(textId, name, price, availability);
+		}
+	};
+
+	UpstreamPayloadDecoder<List<String>> SIMILAR_IDS = new UpstreamPayloadDecoder<>() {
+
+		// Arrays grown past this many ids serve only the call that grew them, so one unusually long list does not
+		// stay pinned to every pool thread that ever decoded one
+		private static final int MAX_RETAINED_IDS = 1024;
+
+		// Packed ids of the array being read, reused by every call on the thread. Under virtual threads each call
+		// runs on a fresh thread, so every call allocates its own array and nothing is reused (nor retained)
+		private final ThreadLocal<long[]> scratch = ThreadLocal.withInitial(() -> new long[64]);
+
+		@Override
+		public List<String> decode(JsonParser parser) throws IOException {
+			expect(parser, JsonToken.START_ARRAY, "an array of similar ids");
+			long[] packed = this.scratch.get();
+			int size = 0;
+			for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+				if (token == null || !token.isScalarValue()) {
+					throw new JsonParseException(parser, "Expected a similar id, got " + token);
+				}
+				final long id = packText(parser);
+				if (id == CompactIds.NOT_NUMERIC) {
+					return SimilarIds.of(remainingAsText(parser, packed, size));
+				}
+				if (size == packed.length) {
+					packed = Arrays.copyOf(packed, size * 2);
+					if (packed.length <= MAX_RETAINED_IDS) {
+						this.scratch.set(packed);
+					}
+				}
+				packed[size++] = id;
+			}
+			return SimilarIds.ofPacked(packed, size);
+		}
+	};
+
+	// Reads one value from the parser, positioned before its first token
+	T decode(JsonParser parser) throws IOException;
+
+	default T read(InputStream in) throws IOException {
+		try (JsonParser parser = JSON.createParser(in)) {
+			return parser.nextToken() != null ? this.decode(parser) : null;
+		}
+	}
+
+	default T read(byte[] payload) throws IOException {
+		try (JsonParser parser = JSON.createParser(payload)) {
+			return parser.nextToken() != null ? this.decode(parser) : null;
+		}
+	}
+
+	private static void expect(JsonParser parser, JsonToken token, String what) throws IOException {
+		if (parser.currentToken() != token) {
+			throw new JsonParseException(parser, "Expected " + what + ", got " + parser.currentToken());
+		}
+	}
+
+	// The value of a known field must be a scalar: skipping a nested one would hide a malformed payload
+	private static JsonParser expectScalar(JsonParser parser, String field) throws IOException {
+		if (!parser.currentToken().isScalarValue()) {
+			throw new JsonParseException(parser, "Expected a scalar " + field + ", got " + parser.currentToken());
+		}
+		return parser;
+	}
+
+	private static double readDouble(JsonParser parser) throws IOException {
+		return switch (parser.currentToken()) {
+			case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+			case VALUE_NULL -> 0;
+			case VALUE_STRING -> {
+				final String text = parser.getText().trim();
+				try {
+					yield text.isEmpty() ? 0 : Double.parseDouble(text);
+				} catch (final NumberFormatException e) {
+					throw new JsonParseException(parser, "Expected a number, got \"" + text + '"', e);
+				}
+			}
+			default -> throw new JsonParseException(parser, "Expected a number, got " + parser.currentToken());
+		};
+	}
+
+	private static boolean readBoolean(JsonParser parser) throws IOException {
+		return switch (parser.currentToken()) {
+			case VALUE_TRUE -> true;
+			case VALUE_FALSE, VALUE_NULL -> false;
+			case VALUE_NUMBER_INT -> parser.getLongValue() != 0;
+			case VALUE_STRING -> {
+				final String text = parser.getText().trim();
+				if (text.isEmpty() || "false".equalsIgnoreCase(text)) {
+					yield false;
+				}
+				if ("true".equalsIgnoreCase(text)) {
+					yield true;
+				}
+				throw new JsonParseException(parser, "Expected a boolean, got \"" + text + '"');
+			}
+			default -> throw new JsonParseException(parser, "Expected a boolean, got " + parser.currentToken());
+		};
+	}
+
+	private static long packText(JsonParser parser) throws IOException {
+		return CompactIds.pack(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+	}
+
+	// A textual id keeps the whole list textual; the ids packed so far print back exactly as they were sent
+	private static String[] remainingAsText(JsonParser parser, long[] packed, int size) throws IOException {
+		final List<String> ids = new ArrayList<>(size + 8);
+		for (int i = 0; i < size; i++) {
+			ids.add(Long.toString(packed[i]));
+		}
+		ids.add(parser.getValueAsString());
+		for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+			if (token == null || !token.isScalarValue()) {
+				throw new JsonParseException(parser, "Expected a similar id, got " + token);
+			}
+			ids.add(parser.getValueAsString());
+		}
+		return ids.toArray(String[]::new);
+	}
+}
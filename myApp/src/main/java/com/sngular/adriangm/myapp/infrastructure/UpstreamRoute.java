@@ -0,0 +1,18 @@
+package com.sngular.adriangm.myapp.infrastructure;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import lombok.Value;
+
+// The caches and guards of one upstream route; name is the route tag of its metrics
+@Value
+public class UpstreamRoute<T> {
+	String name;
+	String circuitBreakerName;
+	AsyncCache<String, UpstreamResult<T>> cache;
+	OffHeapCache<T> offHeapCache;
+	StaleResultStore<T> staleStore;
+	SlowKeyQuarantine quarantine;
+	AdaptiveTimeout timeout;
+	AdaptiveConcurrencyLimiter concurrencyLimiter;
+}
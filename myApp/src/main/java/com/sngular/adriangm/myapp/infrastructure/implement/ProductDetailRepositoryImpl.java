@@ -1,78 +1,174 @@
 package com.sngular.adriangm.myapp.infrastructure.implement;
 
-import com.github.benmanes.caffeine.cache.Cache;
 import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveConcurrencyLimiter;
+import com.sngular.adriangm.myapp.infrastructure.InFlightLoads;
 import com.sngular.adriangm.myapp.infrastructure.ProductDetailRepository;
+import com.sngular.adriangm.myapp.infrastructure.ProductServiceMetrics;
+import com.sngular.adriangm.myapp.infrastructure.RequestHedger;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamErrorClassifier;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamPayloadDecoder;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamRoute;
 import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarIds;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Repository;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
 
-import javax.annotation.PostConstruct;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Repository
+@ConditionalOnProperty(prefix = "product-service", name = "mode", havingValue = "blocking", matchIfMissing = true)
 public class ProductDetailRepositoryImpl implements ProductDetailRepository {
 
+	private static final RequestCallback ACCEPT_JSON = request -> request.getHeaders()
+			.setAccept(List.of(MediaType.APPLICATION_JSON));
+
 	private final RestTemplate restTemplate;
 	private final CircuitBreakerRegistry circuitBreakerRegistry;
-	private final Cache<String, ProductDetail> productCache;
-	private final Cache<String, List<String>> similarIdsCache;
+	private final UpstreamRoute<ProductDetail> productRoute;
+	private final UpstreamRoute<List<String>> similarIdsRoute;
+	private final RequestHedger productHedger;
+	private final InFlightLoads inFlightLoads;
+	private final ProductServiceMetrics metrics;
 	private final ProductServiceProperties properties;
 
 	public ProductDetailRepositoryImpl(RestTemplate restTemplate, CircuitBreakerRegistry circuitBreakerRegistry,
-			@Qualifier("productDetailCache") Cache<String, ProductDetail> productCache,
-			@Qualifier("similarIdsCache") Cache<String, List<String>> similarIdsCache,
-			ProductServiceProperties properties) {
+			@Qualifier("productDetailRoute") UpstreamRoute<ProductDetail> productRoute,
+			@Qualifier("similarIdsRoute") UpstreamRoute<List<String>> similarIdsRoute,
+			@Qualifier("productDetailHedger") RequestHedger productHedger, InFlightLoads inFlightLoads,
+			ProductServiceMetrics metrics, ProductServiceProperties properties) {
 		this.restTemplate = restTemplate;
 		this.circuitBreakerRegistry = circuitBreakerRegistry;
-		this.productCache = productCache;
-		this.similarIdsCache = similarIdsCache;
+		this.productRoute = productRoute;
+		this.similarIdsRoute = similarIdsRoute;
+		this.productHedger = productHedger;
+		this.inFlightLoads = inFlightLoads;
+		this.metrics = metrics;
 		this.properties = properties;
 	}
 
-	@PostConstruct
-	public void initCache() {
-		this.productCache.invalidateAll();
-		this.similarIdsCache.invalidateAll();
+	private CircuitBreaker getCircuitBreaker(String name) {
+		return this.circuitBreakerRegistry.circuitBreaker(name);
 	}
 
-	private CircuitBreaker getCircuitBreaker() {
-		return this.circuitBreakerRegistry.circuitBreaker(this.properties.getCircuitBreaker().getName());
+	// The body is decoded straight from the response stream, bypassing the message converters; error statuses have
+	// already been raised by the RestTemplate error handler when the extractor runs
+	private <T> T get(String url, UpstreamPayloadDecoder<T> decoder) {
+		return this.restTemplate.execute(url, HttpMethod.GET, ACCEPT_JSON,
+				response -> decoder.read(response.getBody()));
 	}
 
-	private ProductDetail fetchProductDetail(String productId) {
+	private UpstreamResult<ProductDetail> fetchProductDetail(String productId) {
+		final CircuitBreaker circuitBreaker = this.getCircuitBreaker(this.productRoute.getCircuitBreakerName());
 		try {
-			return this.getCircuitBreaker().executeSupplier(() -> this.restTemplate
-					.getForObject(this.properties.getBaseUrl() + "/product/" + productId, ProductDetail.class));
+			final ProductDetail productDetail = circuitBreaker.executeSupplier(() -> InFlightLoads.exchange(
+					() -> this.get(this.properties.getBaseUrl() + "/product/" + productId,
+							UpstreamPayloadDecoder.PRODUCT_DETAIL)));
+			return productDetail != null ? UpstreamResult.found(productDetail) : UpstreamResult.notFound();
+		} catch (final CancellationException e) {
+			throw e;
 		} catch (final Exception e) {
-			return null;
+			return UpstreamResult.failure(UpstreamErrorClassifier.classify(e));
 		}
 	}
 
-	private List<String> fetchSimilarIds(String productId) {
+	private UpstreamResult<List<String>> fetchSimilarIds(String productId) {
+		final CircuitBreaker circuitBreaker = this.getCircuitBreaker(this.similarIdsRoute.getCircuitBreakerName());
 		try {
-			return this.getCircuitBreaker().executeSupplier(() -> {
-				final String[] similarIds = this.restTemplate.getForObject(
-						this.properties.getBaseUrl() + "/product/" + productId + "/similarids", String[].class);
-				return similarIds != null ? Arrays.asList(similarIds) : Collections.emptyList();
-			});
+			return UpstreamResult.found(circuitBreaker.executeSupplier(() -> {
+				final List<String> similarIds = InFlightLoads.exchange(() -> this.get(
+						this.properties.getBaseUrl() + "/product/" + productId + "/similarids",
+						UpstreamPayloadDecoder.SIMILAR_IDS));
+				return similarIds != null ? similarIds : SimilarIds.of();
+			}));
+		} catch (final CancellationException e) {
+			throw e;
 		} catch (final Exception e) {
-			return Collections.emptyList();
+			return UpstreamResult.failure(UpstreamErrorClassifier.classify(e));
 		}
 	}
 
 	@Override
-	public List<String> getSimilarIds(String productId) {
-		return this.similarIdsCache.get(productId, this::fetchSimilarIds);
+	public CompletableFuture<UpstreamResult<List<String>>> getSimilarIds(String productId) {
+		return this.cached(productId, this.similarIdsRoute, CompletableFuture::supplyAsync, this::fetchSimilarIds);
 	}
 
 	@Override
-	public ProductDetail getProductDetail(String productId) {
-		return this.productCache.get(productId, this::fetchProductDetail);
+	public CompletableFuture<UpstreamResult<ProductDetail>> getProductDetail(String productId) {
+		return this.cached(productId, this.productRoute, this.productHedger::execute, this::fetchProductDetail);
+	}
+
+	// Each caller gets its own handle on the shared load; the upstream call is aborted once every handle is cancelled.
+	// RestTemplate blocks, so the runner sends calls to the cache executor (the fan-out pool)
+	private <T> CompletableFuture<UpstreamResult<T>> cached(String productId, UpstreamRoute<T> route,
+			BiFunction<Supplier<UpstreamResult<T>>, Executor, CompletableFuture<UpstreamResult<T>>> runner,
+			Function<String, UpstreamResult<T>> fetch) {
+		final String key = route.getName() + ':' + productId;
+		final CompletableFuture<UpstreamResult<T>> shared = route.getCache().get(productId,
+				(id, executor) -> route.getOffHeapCache().getOrLoad(id, () -> this.inFlightLoads.track(key,
+						inFlight -> this.load(id, route, inFlight, call -> runner.apply(call, executor), fetch))));
+		return this.inFlightLoads.join(key, shared);
+	}
+
+	// Quarantined products skip the upstream call and the stale store serves their last good copy, if any
+	private <T> CompletableFuture<UpstreamResult<T>> load(String productId, UpstreamRoute<T> route,
+			InFlightLoads.Load inFlight,
+			Function<Supplier<UpstreamResult<T>>, CompletableFuture<UpstreamResult<T>>> runner,
+			Function<String, UpstreamResult<T>> fetch) {
+		if (!route.getQuarantine().tryAcquire(productId)) {
+			this.metrics.recordUpstreamCall(route.getName(), UpstreamResult.Status.QUARANTINED, 0L);
+			return CompletableFuture.completedFuture(route.getStaleStore().resolve(productId,
+					UpstreamResult.failure(UpstreamResult.Status.QUARANTINED)));
+		}
+		final Supplier<UpstreamResult<T>> call = () -> inFlight.attempt(() -> this.attempt(productId, route, fetch));
+		try {
+			// An abandoned load fails with a CancellationException, which is not cached either
+			return runner.apply(call).thenApply(result -> route.getStaleStore().resolve(productId, result));
+		} catch (final RejectedExecutionException e) {
+			return CompletableFuture.failedFuture(e); // Failed loads are not cached
+		}
+	}
+
+	// One upstream call within the route's concurrency limit, timed per attempt so a fast hedge clears a slow streak;
+	// the RestTemplate applies the route timeout. Aborted calls release their permit without a sample and are left out
+	// of the quarantine, timeout and call statistics
+	private <T> UpstreamResult<T> attempt(String productId, UpstreamRoute<T> route,
+			Function<String, UpstreamResult<T>> fetch) {
+		final AdaptiveConcurrencyLimiter.Permit permit = route.getConcurrencyLimiter().tryAcquire();
+		if (permit == null) {
+			this.metrics.recordUpstreamCall(route.getName(), UpstreamResult.Status.SHED, 0L);
+			return UpstreamResult.failure(UpstreamResult.Status.SHED);
+		}
+		final long start = System.nanoTime();
+		final UpstreamResult<T> result;
+		try {
+			result = fetch.apply(productId);
+		} catch (final RuntimeException e) {
+			permit.cancel();
+			throw e;
+		}
+		permit.release(result.getStatus());
+		final long elapsed = System.nanoTime() - start;
+		route.getQuarantine().record(productId, elapsed, result.getStatus());
+		if (!result.getStatus().isRejectedLocally()) {
+			route.getTimeout().record(elapsed);
+		}
+		this.metrics.recordUpstreamCall(route.getName(), result.getStatus(), elapsed);
+		return result;
 	}
 }
@@ -0,0 +1,141 @@
+package com.sngular.adriangm.myapp.infrastructure.implement;
+
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveConcurrencyLimiter;
+import com.sngular.adriangm.myapp.infrastructure.ProductServiceMetrics;
+import com.sngular.adriangm.myapp.infrastructure.ReactiveProductDetailRepository;
+import com.sngular.adriangm.myapp.infrastructure.RequestHedger;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamErrorClassifier;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamPayloadDecoder;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamRoute;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarIds;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+@Repository
+@ConditionalOnProperty(prefix = "product-service", name = "mode", havingValue = "reactive")
+public class ReactiveProductDetailRepositoryImpl implements ReactiveProductDetailRepository {
+
+	private final WebClient webClient;
+	private final CircuitBreakerRegistry circuitBreakerRegistry;
+	private final UpstreamRoute<ProductDetail> productRoute;
+	private final UpstreamRoute<List<String>> similarIdsRoute;
+	private final RequestHedger productHedger;
+	private final ProductServiceMetrics metrics;
+
+	public ReactiveProductDetailRepositoryImpl(@Qualifier("productWebClient") WebClient webClient,
+			CircuitBreakerRegistry circuitBreakerRegistry,
+			@Qualifier("productDetailRoute") UpstreamRoute<ProductDetail> productRoute,
+			@Qualifier("similarIdsRoute") UpstreamRoute<List<String>> similarIdsRoute,
+			@Qualifier("productDetailHedger") RequestHedger productHedger, ProductServiceMetrics metrics) {
+		this.webClient = webClient;
+		this.circuitBreakerRegistry = circuitBreakerRegistry;
+		this.productRoute = productRoute;
+		this.similarIdsRoute = similarIdsRoute;
+		this.productHedger = productHedger;
+		this.metrics = metrics;
+	}
+
+	private CircuitBreaker getCircuitBreaker(String name) {
+		return this.circuitBreakerRegistry.circuitBreaker(name);
+	}
+
+	private Mono<UpstreamResult<ProductDetail>> fetchProductDetail(String productId) {
+		final Mono<ProductDetail> call = this.webClient.get().uri("/product/{productId}", productId).retrieve()
+				.bodyToMono(byte[].class).handle(decode(UpstreamPayloadDecoder.PRODUCT_DETAIL));
+		return this.load(productId, this.productRoute,
+				this.productHedger.execute(this.attempt(call, this.productRoute, productId)));
+	}
+
+	private Mono<UpstreamResult<List<String>>> fetchSimilarIds(String productId) {
+		final Mono<List<String>> call = this.webClient.get().uri("/product/{productId}/similarids", productId)
+				.retrieve().bodyToMono(byte[].class).handle(decode(UpstreamPayloadDecoder.SIMILAR_IDS))
+				.defaultIfEmpty(SimilarIds.of());
+		return this.load(productId, this.similarIdsRoute, this.attempt(call, this.similarIdsRoute, productId));
+	}
+
+	// Quarantined products skip the upstream call; failures fall back to the last good copy
+	private <T> Mono<UpstreamResult<T>> load(String productId, UpstreamRoute<T> route,
+			Mono<UpstreamResult<T>> attempts) {
+		return Mono.defer(() -> {
+			if (route.getQuarantine().tryAcquire(productId)) {
+				return attempts;
+			}
+			this.metrics.recordUpstreamCall(route.getName(), UpstreamResult.Status.QUARANTINED, 0L);
+			return Mono.just(UpstreamResult.<T>failure(UpstreamResult.Status.QUARANTINED));
+		}).map(result -> route.getStaleStore().resolve(productId, result));
+	}
+
+	// One upstream call within the route's concurrency limit, guarded by its adaptive timeout and circuit breaker, and
+	// timed for quarantine and timeout. A cancelled attempt (losing hedge) frees its slot without a latency sample
+	private <T> Mono<UpstreamResult<T>> attempt(Mono<T> call, UpstreamRoute<T> route, String productId) {
+		return Mono.defer(() -> {
+			final AdaptiveConcurrencyLimiter.Permit permit = route.getConcurrencyLimiter().tryAcquire();
+			if (permit == null) {
+				this.metrics.recordUpstreamCall(route.getName(), UpstreamResult.Status.SHED, 0L);
+				return Mono.just(UpstreamResult.<T>failure(UpstreamResult.Status.SHED));
+			}
+			final CircuitBreaker circuitBreaker = this.getCircuitBreaker(route.getCircuitBreakerName());
+			final long start = System.nanoTime();
+			return call.timeout(route.getTimeout().current())
+					.transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+					.map(UpstreamResult::found).defaultIfEmpty(UpstreamResult.notFound())
+					.onErrorResume(e -> Mono.just(UpstreamResult.failure(UpstreamErrorClassifier.classify(e))))
+					.doOnNext(result -> {
+						final long elapsed = System.nanoTime() - start;
+						permit.release(result.getStatus());
+						route.getQuarantine().record(productId, elapsed, result.getStatus());
+						if (!result.getStatus().isRejectedLocally()) {
+							route.getTimeout().record(elapsed);
+						}
+						this.metrics.recordUpstreamCall(route.getName(), result.getStatus(), elapsed);
+					}).doFinally(signal -> permit.cancel());
+		});
+	}
+
+	@Override
+	public Mono<UpstreamResult<List<String>>> getSimilarIds(String productId) {
+		return cached(productId, this.similarIdsRoute, this::fetchSimilarIds);
+	}
+
+	@Override
+	public Mono<UpstreamResult<ProductDetail>> getProductDetail(String productId) {
+		return cached(productId, this.productRoute, this::fetchProductDetail);
+	}
+
+	// The aggregated body is decoded without the codec chain; a malformed payload fails the call, an empty one
+	// completes it empty
+	private static <T> BiConsumer<byte[], SynchronousSink<T>> decode(UpstreamPayloadDecoder<T> decoder) {
+		return (payload, sink) -> {
+			try {
+				final T value = decoder.read(payload);
+				if (value != null) {
+					sink.next(value);
+				}
+			} catch (final IOException e) {
+				sink.error(e);
+			}
+		};
+	}
+
+	// The cached future is shared by every concurrent caller, so a cancelled subscriber (e.g. request deadline) must
+	// not cancel it; late answers still fill the cache
+	private static <T> Mono<UpstreamResult<T>> cached(String productId, UpstreamRoute<T> route,
+			Function<String, Mono<UpstreamResult<T>>> fetch) {
+		return Mono.fromFuture(route.getCache().get(productId,
+				(id, executor) -> route.getOffHeapCache().getOrLoad(id, () -> fetch.apply(id).toFuture())), true);
+	}
+}
@@ -0,0 +1,65 @@
+package com.sngular.adriangm.myapp.model;
+
+/**
+ * Packing of product ids into primitives, and the heap layout figures used by the footprint estimates (64-bit JVM
+ * with compressed references).
+ */
+public final class CompactIds {
+
+	public static final long NOT_NUMERIC = -1L;
+	static final int OBJECT_HEADER = 12;
+	static final int ARRAY_HEADER = 16;
+	static final int REFERENCE = 4;
+
+	private CompactIds() {
+	}
+
+	/**
+	 * The id as a non-negative long, or {@link #NOT_NUMERIC} unless it prints back to exactly the same string (no
+	 * sign, no leading zeros), so packed ids always round-trip.
+	 */
+	public static long pack(String id) {
+		final int length = id == null ? 0 : id.length();
+		if (length == 0 || length > 18 || (id.charAt(0) == '0' && length > 1)) {
+			return NOT_NUMERIC;
+		}
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			final char digit = id.charAt(i);
+			if (digit < '0' || digit > '9') {
+				return NOT_NUMERIC;
+			}
+			value = value * 10 + (digit - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * {@link #pack(String)} over a slice of characters, e.g. the text buffer of a streaming JSON parser, so no string
+	 * is built for a numeric id.
+	 */
+	public static long pack(char[] chars, int offset, int length) {
+		if (length == 0 || length > 18 || (chars[offset] == '0' && length > 1)) {
+			return NOT_NUMERIC;
+		}
+		long value = 0;
+		for (int i = offset; i < offset + length; i++) {
+			final char digit = chars[i];
+			if (digit < '0' || digit > '9') {
+				return NOT_NUMERIC;
+			}
+			value = value * 10 + (digit - '0');
+		}
+		return value;
+	}
+
+	static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	// Compact (Latin-1) strings; UTF-16 ones take twice the array
+	static long stringFootprint(String value) {
+		return value == null ? 0 : align(OBJECT_HEADER + Integer.BYTES + REFERENCE + 1 + 1)
+				+ align(ARRAY_HEADER + value.length());
+	}
+}
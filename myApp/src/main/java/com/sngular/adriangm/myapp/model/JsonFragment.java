@@ -0,0 +1,179 @@
+package com.sngular.adriangm.myapp.model;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A complete JSON value kept as UTF-8 bytes, written as is: straight to an output stream, or through
+ * {@link com.fasterxml.jackson.core.JsonGenerator#writeRawValue(SerializableString)} inside a larger document. A
+ * fragment is raw JSON, not a string, so the quoting operations are not supported.
+ */
+public final class JsonFragment implements SerializableString {
+
+	private static final byte[] NULL = ascii("null");
+	private static final byte[] ID = ascii("{\"id\":");
+	private static final byte[] NAME = ascii(",\"name\":");
+	private static final byte[] PRICE = ascii(",\"price\":");
+	private static final byte[] AVAILABILITY = ascii(",\"availability\":");
+	private static final byte[] TRUE = ascii("true");
+	private static final byte[] FALSE = ascii("false");
+	private static final int FIELDS_LENGTH = ID.length + NAME.length + PRICE.length + AVAILABILITY.length + 1;
+
+	private final byte[] utf8;
+
+	private JsonFragment(byte[] utf8) {
+		this.utf8 = utf8;
+	}
+
+	/**
+	 * The API representation of a product, byte for byte what Jackson writes for the mapped {@code ProductDetailDTO}
+	 * ({@code id}, {@code name}, {@code price} as a decimal, {@code availability}; nulls written). A price JSON cannot
+	 * carry (NaN, infinite) is written as {@code null}.
+	 */
+	static JsonFragment product(String id, String name, double price, boolean availability) {
+		final byte[] idValue = escaped(id);
+		final byte[] nameValue = escaped(name);
+		final byte[] priceValue = Double.isFinite(price) ? ascii(BigDecimal.valueOf(price).toString()) : NULL;
+		final byte[] availabilityValue = availability ? TRUE : FALSE;
+		final ByteBuffer out = ByteBuffer.allocate(FIELDS_LENGTH + quotedLength(idValue) + quotedLength(nameValue)
+				+ priceValue.length + availabilityValue.length);
+		out.put(ID);
+		putQuoted(out, idValue);
+		out.put(NAME);
+		putQuoted(out, nameValue);
+		out.put(PRICE).put(priceValue).put(AVAILABILITY).put(availabilityValue).put((byte) '}');
+		return new JsonFragment(out.array());
+	}
+
+	public int length() {
+		return this.utf8.length;
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(this.utf8);
+	}
+
+	/**
+	 * The fragment's own bytes, shared rather than copied; callers must not modify them.
+	 */
+	@Override
+	public byte[] asUnquotedUTF8() {
+		return this.utf8;
+	}
+
+	@Override
+	public int appendUnquotedUTF8(byte[] buffer, int offset) {
+		if (offset + this.utf8.length > buffer.length) {
+			return -1;
+		}
+		System.arraycopy(this.utf8, 0, buffer, offset, this.utf8.length);
+		return this.utf8.length;
+	}
+
+	@Override
+	public int writeUnquotedUTF8(OutputStream out) throws IOException {
+		out.write(this.utf8);
+		return this.utf8.length;
+	}
+
+	@Override
+	public int putUnquotedUTF8(ByteBuffer buffer) {
+		if (this.utf8.length > buffer.remaining()) {
+			return -1;
+		}
+		buffer.put(this.utf8);
+		return this.utf8.length;
+	}
+
+	// Character-based generators (writers rather than streams) fall back to the decoded text
+	@Override
+	public String getValue() {
+		return new String(this.utf8, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public int charLength() {
+		return this.getValue().length();
+	}
+
+	@Override
+	public int appendUnquoted(char[] buffer, int offset) {
+		final String value = this.getValue();
+		if (offset + value.length() > buffer.length) {
+			return -1;
+		}
+		value.getChars(0, value.length(), buffer, offset);
+		return value.length();
+	}
+
+	@Override
+	public char[] asQuotedChars() {
+		throw notAString();
+	}
+
+	@Override
+	public byte[] asQuotedUTF8() {
+		throw notAString();
+	}
+
+	@Override
+	public int appendQuotedUTF8(byte[] buffer, int offset) {
+		throw notAString();
+	}
+
+	@Override
+	public int appendQuoted(char[] buffer, int offset) {
+		throw notAString();
+	}
+
+	@Override
+	public int writeQuotedUTF8(OutputStream out) {
+		throw notAString();
+	}
+
+	@Override
+	public int putQuotedUTF8(ByteBuffer buffer) {
+		throw notAString();
+	}
+
+	@Override
+	public String toString() {
+		return this.getValue();
+	}
+
+	long estimatedFootprint() {
+		return CompactIds.align(CompactIds.OBJECT_HEADER + CompactIds.REFERENCE)
+				+ CompactIds.align(CompactIds.ARRAY_HEADER + this.utf8.length);
+	}
+
+	// The escaped UTF-8 content of a string, null for a null value
+	private static byte[] escaped(String value) {
+		return value != null ? JsonStringEncoder.getInstance().quoteAsUTF8(value) : null;
+	}
+
+	private static int quotedLength(byte[] escaped) {
+		return escaped != null ? escaped.length + 2 : NULL.length;
+	}
+
+	private static void putQuoted(ByteBuffer out, byte[] escaped) {
+		if (escaped == null) {
+			out.put(NULL);
+		} else {
+			out.put((byte) '"').put(escaped).put((byte) '"');
+		}
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static UnsupportedOperationException notAString() {
+		return new UnsupportedOperationException("A JSON fragment is written raw, never quoted");
+	}
+}
@@ -1,18 +1,88 @@
 package com.sngular.adriangm.myapp.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-@Builder(toBuilder = true)
-public class ProductDetail {
-	private String id;
-	private String name;
-	private double price;
-	private boolean availability;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.benmanes.caffeine.cache.Interner;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 
+/**
+ * Immutable, cache-resident product detail. Numeric ids (the whole catalog today) are packed into a {@code long} and
+ * only printed back when read; other ids are kept as given. Names are deduplicated through a weak interner, so every
+ * cached copy of a product (product-detail cache, stale store, snapshots read back) shares one string. Each product
+ * also carries its API representation as a {@link JsonFragment}, identical to what {@code ProductDetailMapper} and
+ * Jackson would produce, so the public contract does not change.
+ */
+@EqualsAndHashCode
+public final class ProductDetail {
+
+	private static final Interner<String> NAMES = Interner.newWeakInterner();
+
+	// Shallow size: header, long, three references, double, boolean
+	private static final long SHALLOW_FOOTPRINT = CompactIds.align(CompactIds.OBJECT_HEADER + Long.BYTES
+			+ 3 * CompactIds.REFERENCE + Double.BYTES + 1);
+
+	private final long numericId;
+	// Set only when the id does not pack into numericId
+	private final String textId;
+	@Getter
+	private final String name;
+	@Getter
+	private final double price;
+	@Getter
+	private final boolean availability;
+	// Derived from the fields above
+	@EqualsAndHashCode.Exclude
+	private final JsonFragment json;
+
+	@JsonCreator
+	public ProductDetail(@JsonProperty("id") String id, @JsonProperty("name") String name,
+			@JsonProperty("price") double price, @JsonProperty("availability") boolean availability) {
+		this(CompactIds.pack(id), id, name, price, availability);
+	}
+
+	private ProductDetail(long numericId, String id, String name, double price, boolean availability) {
+		this.numericId = numericId;
+		this.textId = numericId == CompactIds.NOT_NUMERIC ? id : null;
+		this.name = name != null ? NAMES.intern(name) : null;
+		this.price = price;
+		this.availability = availability;
+		this.json = JsonFragment.product(this.getId(), this.name, price, availability);
+	}
+
+	/**
+	 * A product whose id was already packed by {@link CompactIds#pack}; never printed unless read.
+	 */
+	public static ProductDetail ofPackedId(long numericId, String name, double price, boolean availability) {
+		if (numericId < 0) {
+			throw new IllegalArgumentException("Not a packed id: " + numericId);
+		}
+		return new ProductDetail(numericId, null, name, price, availability);
+	}
+
+	public String getId() {
+		return this.numericId != CompactIds.NOT_NUMERIC ? Long.toString(this.numericId) : this.textId;
+	}
+
+	/**
+	 * The API representation of this product, serialized once when the product is built (on every cache fill) so
+	 * responses are assembled by concatenating fragments instead of mapping and serializing each product again.
+	 */
+	public JsonFragment json() {
+		return this.json;
+	}
+
+	/**
+	 * Estimated heap bytes owned by this entry, including its JSON fragment; the interned name is shared and not
+	 * counted.
+	 */
+	public long estimatedFootprint() {
+		return SHALLOW_FOOTPRINT + CompactIds.stringFootprint(this.textId) + this.json.estimatedFootprint();
+	}
+
+	@Override
+	public String toString() {
+		return "ProductDetail(id=" + this.getId() + ", name=" + this.name + ", price=" + this.price + ", availability="
+				+ this.availability + ")";
+	}
 }
@@ -0,0 +1,109 @@
+package com.sngular.adriangm.myapp.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Immutable, cache-resident list of similar product ids. When every id packs into a number (see {@link CompactIds})
+ * the list is a single {@code int[]}, or a {@code long[]} for larger ids, instead of a wrapper over one {@code String}
+ * per id; otherwise the ids are kept as given. Ids are printed back on {@link #get}, so callers still see a
+ * {@code List<String>}.
+ */
+public final class SimilarIds extends AbstractList<String> implements RandomAccess {
+
+	private static final SimilarIds EMPTY = new SimilarIds(new int[0], null, null);
+
+	// Shallow size: header, AbstractList.modCount, three references
+	private static final long SHALLOW_FOOTPRINT = CompactIds.align(CompactIds.OBJECT_HEADER + Integer.BYTES
+			+ 3 * CompactIds.REFERENCE);
+
+	// Exactly one is set
+	private final int[] ints;
+	private final long[] longs;
+	private final String[] texts;
+
+	private SimilarIds(int[] ints, long[] longs, String[] texts) {
+		this.ints = ints;
+		this.longs = longs;
+		this.texts = texts;
+	}
+
+	public static SimilarIds of(String... ids) {
+		if (ids.length == 0) {
+			return EMPTY;
+		}
+		final long[] packed = new long[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			packed[i] = CompactIds.pack(ids[i]);
+			if (packed[i] == CompactIds.NOT_NUMERIC) {
+				return new SimilarIds(null, null, ids.clone());
+			}
+		}
+		return ofPacked(packed, packed.length);
+	}
+
+	/**
+	 * The first {@code length} ids of {@code packed}, every one already packed by {@link CompactIds#pack}; the array
+	 * is copied, so callers may reuse it.
+	 */
+	public static SimilarIds ofPacked(long[] packed, int length) {
+		if (length == 0) {
+			return EMPTY;
+		}
+		long max = 0;
+		for (int i = 0; i < length; i++) {
+			if (packed[i] < 0) {
+				throw new IllegalArgumentException("Not a packed id: " + packed[i]);
+			}
+			max = Math.max(max, packed[i]);
+		}
+		if (max > Integer.MAX_VALUE) {
+			return new SimilarIds(null, Arrays.copyOf(packed, length), null);
+		}
+		final int[] ints = new int[length];
+		for (int i = 0; i < length; i++) {
+			ints[i] = (int) packed[i];
+		}
+		return new SimilarIds(ints, null, null);
+	}
+
+	public static SimilarIds of(Collection<String> ids) {
+		return ids instanceof SimilarIds similarIds ? similarIds : of(ids.toArray(String[]::new));
+	}
+
+	@Override
+	public String get(int index) {
+		if (this.ints != null) {
+			return Integer.toString(this.ints[index]);
+		}
+		return this.longs != null ? Long.toString(this.longs[index]) : this.texts[index];
+	}
+
+	@Override
+	public int size() {
+		if (this.ints != null) {
+			return this.ints.length;
+		}
+		return this.longs != null ? this.longs.length : this.texts.length;
+	}
+
+	/**
+	 * Estimated heap bytes owned by this list, including its array and any textual ids.
+	 */
+	public long estimatedFootprint() {
+		if (this.ints != null) {
+			return SHALLOW_FOOTPRINT + arrayFootprint(Integer.BYTES, this.ints.length);
+		}
+		if (this.longs != null) {
+			return SHALLOW_FOOTPRINT + arrayFootprint(Long.BYTES, this.longs.length);
+		}
+		return SHALLOW_FOOTPRINT + arrayFootprint(CompactIds.REFERENCE, this.texts.length)
+				+ Arrays.stream(this.texts).mapToLong(CompactIds::stringFootprint).sum();
+	}
+
+	private static long arrayFootprint(int elementBytes, int length) {
+		return CompactIds.align(CompactIds.ARRAY_HEADER + (long) elementBytes * length);
+	}
+}
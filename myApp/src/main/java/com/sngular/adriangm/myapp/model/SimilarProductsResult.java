@@ -0,0 +1,30 @@
+package com.sngular.adriangm.myapp.model;
+
+import lombok.Value;
+import lombok.With;
+
+import java.util.List;
+
+/**
+ * Similar products in similarity order. {@code partial} is set when the request budget ran out before every detail
+ * was resolved or a detail could not be loaded at all, {@code stale} when at least one answer is a last good copy
+ * served because the upstream failed.
+ * {@code similarIds} lists every id the result was built from, including the ones that were not found.
+ */
+@Value
+public class SimilarProductsResult {
+	List<ProductDetail> products;
+	boolean partial;
+	@With
+	boolean stale;
+	@With
+	List<String> similarIds;
+
+	public static SimilarProductsResult complete(List<ProductDetail> products) {
+		return new SimilarProductsResult(products, false, false, List.of());
+	}
+
+	public static SimilarProductsResult partial(List<ProductDetail> products) {
+		return new SimilarProductsResult(products, true, false, List.of());
+	}
+}
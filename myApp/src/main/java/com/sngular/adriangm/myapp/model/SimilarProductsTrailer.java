@@ -0,0 +1,23 @@
+package com.sngular.adriangm.myapp.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Last event of a streamed similar-products response. {@code skipped} lists the similar ids that resolved without a
+ * product (not found or failed), {@code timedOut} the ones still unresolved when the budget ran out. {@code partial}
+ * and {@code stale} mean the same as in {@link SimilarProductsResult}.
+ */
+@Value
+public class SimilarProductsTrailer {
+	List<String> skipped;
+	List<String> timedOut;
+	boolean partial;
+	boolean stale;
+
+	// Similar ids late or failed: nothing was streamed
+	public static SimilarProductsTrailer unresolved() {
+		return new SimilarProductsTrailer(List.of(), List.of(), true, false);
+	}
+}
@@ -0,0 +1,89 @@
+package com.sngular.adriangm.myapp.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Outcome of one upstream lookup. Failures are cached too (with a short, per-status TTL) so that missing or failing
+ * products do not hit the product API on every request. A {@code stale} result is an expired good copy served in place
+ * of an upstream failure.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class UpstreamResult<T> {
+
+	public enum Status {
+		FOUND, NOT_FOUND, SERVER_ERROR, TIMEOUT, CIRCUIT_OPEN, QUARANTINED, SHED;
+
+		/**
+		 * Whether the call was refused before reaching the upstream (open circuit, quarantine, concurrency limit).
+		 */
+		public boolean isRejectedLocally() {
+			return this == CIRCUIT_OPEN || this == QUARANTINED || this == SHED;
+		}
+	}
+
+	// Header, two references, long, boolean
+	private static final long SHALLOW_FOOTPRINT = CompactIds.align(CompactIds.OBJECT_HEADER
+			+ 2 * CompactIds.REFERENCE + Long.BYTES + 1);
+
+	Status status;
+	T value;
+	// Wall-clock time of the upstream answer, epoch millis
+	@EqualsAndHashCode.Exclude
+	long fetchedAt;
+	// Last good copy served because the upstream failed
+	boolean stale;
+
+	public static <T> UpstreamResult<T> found(T value) {
+		return new UpstreamResult<>(Status.FOUND, value, System.currentTimeMillis(), false);
+	}
+
+	/**
+	 * A good answer fetched at the given wall-clock time, e.g. restored from a cache snapshot.
+	 */
+	public static <T> UpstreamResult<T> found(T value, long fetchedAt) {
+		return new UpstreamResult<>(Status.FOUND, value, fetchedAt, false);
+	}
+
+	public static <T> UpstreamResult<T> notFound() {
+		return failure(Status.NOT_FOUND);
+	}
+
+	public static <T> UpstreamResult<T> failure(Status status) {
+		return new UpstreamResult<>(status, null, System.currentTimeMillis(), false);
+	}
+
+	/**
+	 * The same answer, flagged as served from the stale store.
+	 */
+	public UpstreamResult<T> asStale() {
+		return new UpstreamResult<>(this.status, this.value, this.fetchedAt, true);
+	}
+
+	public boolean isFound() {
+		return this.status == Status.FOUND;
+	}
+
+	public boolean isNotFound() {
+		return this.status == Status.NOT_FOUND;
+	}
+
+	/**
+	 * Estimated heap bytes of this result and its value, given the value's own estimate.
+	 */
+	public long estimatedFootprint(ToLongFunction<T> valueFootprint) {
+		return SHALLOW_FOOTPRINT + (this.value != null ? valueFootprint.applyAsLong(this.value) : 0);
+	}
+
+	/**
+	 * The value when found, {@code null} otherwise.
+	 */
+	public T orNull() {
+		return this.isFound() ? this.value : null;
+	}
+}
@@ -0,0 +1,64 @@
+package com.sngular.adriangm.myapp.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Point-in-time view of the upstream protections: circuit breaker state, quarantined products and adaptive timeout
+ * per route, product-detail hedging counters and the concurrency limit per route.
+ */
+@Value
+public class UpstreamStatus {
+
+	Map<String, CircuitBreakerStatus> circuitBreakers;
+	Map<String, QuarantineStatus> quarantines;
+	Map<String, TimeoutStatus> timeouts;
+	HedgingStatus productDetailHedging;
+	Map<String, ConcurrencyStatus> concurrencyLimits;
+
+	@Value
+	public static class CircuitBreakerStatus {
+		String state;
+		// -1 until the breaker has seen its minimum number of calls
+		float failureRate;
+		float slowCallRate;
+		int bufferedCalls;
+		long notPermittedCalls;
+	}
+
+	@Value
+	public static class QuarantineStatus {
+		// Quarantined key and the time its cooldown ends
+		Map<String, Instant> keys;
+		long skippedCalls;
+	}
+
+	@Value
+	public static class TimeoutStatus {
+		long currentMillis;
+		// Calls in the rolling latency window
+		long samples;
+	}
+
+	@Value
+	public static class HedgingStatus {
+		boolean enabled;
+		long calls;
+		long hedges;
+		// Hedges that answered before the original call
+		long hedgeWins;
+		// Current hedge delay, -1 until enough latencies have been observed
+		long hedgeDelayMillis;
+	}
+
+	@Value
+	public static class ConcurrencyStatus {
+		boolean enabled;
+		int limit;
+		int inFlight;
+		// Calls refused because the limit was reached
+		long shedCalls;
+	}
+}
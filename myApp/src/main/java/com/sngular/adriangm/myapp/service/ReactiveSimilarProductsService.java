@@ -0,0 +1,29 @@
+package com.sngular.adriangm.myapp.service;
+
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import com.sngular.adriangm.myapp.model.SimilarProductsTrailer;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+public interface ReactiveSimilarProductsService {
+
+	/**
+	 * @param timeout
+	 *            client requested budget, or {@code null} for the configured default
+	 */
+	Mono<SimilarProductsResult> getSimilarProducts(String productId, Duration timeout);
+
+	/**
+	 * @see com.sngular.adriangm.myapp.service.SimilarProductsService#getSimilarProductsBatch
+	 */
+	Mono<Map<String, SimilarProductsResult>> getSimilarProductsBatch(List<String> productIds, Duration timeout);
+
+	/**
+	 * @see com.sngular.adriangm.myapp.service.SimilarProductsService#streamSimilarProducts
+	 */
+	Mono<SimilarProductsTrailer> streamSimilarProducts(String productId, Duration timeout,
+			SimilarProductsListener listener);
+}
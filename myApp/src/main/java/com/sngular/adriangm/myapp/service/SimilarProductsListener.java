@@ -0,0 +1,24 @@
+package com.sngular.adriangm.myapp.service;
+
+import com.sngular.adriangm.myapp.model.ProductDetail;
+
+import java.util.List;
+
+/**
+ * Receives a streamed similar-products response. Calls are never concurrent, and none happens after the stream
+ * completed. They are made on the threads that resolve the products, while holding the stream's lock, so an
+ * implementation must not block in them: anything slow, such as writing to the client, is handed off.
+ */
+public interface SimilarProductsListener {
+
+	/**
+	 * The base product exists; called once, before any product. {@code similarIds} is empty when they could not be
+	 * resolved in time.
+	 */
+	void onStart(List<String> similarIds);
+
+	/**
+	 * A similar product resolved, in completion order rather than similarity order.
+	 */
+	void onProduct(ProductDetail product);
+}
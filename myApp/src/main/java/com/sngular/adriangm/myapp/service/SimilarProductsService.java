@@ -1,9 +1,46 @@
 package com.sngular.adriangm.myapp.service;
 
 import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import com.sngular.adriangm.myapp.model.SimilarProductsTrailer;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface SimilarProductsService {
-	List<ProductDetail> getSimilarProducts(String productId);
+
+	/**
+	 * @param timeout
+	 *            client requested budget, or {@code null} for the configured default
+	 */
+	SimilarProductsResult getSimilarProducts(String productId, Duration timeout);
+
+	/**
+	 * Similar products for several products under one budget. Product details shared between the products are
+	 * fetched once. Products that do not exist are left out of the result.
+	 *
+	 * @param productIds
+	 *            distinct product ids, in the order of the returned map
+	 * @param timeout
+	 *            client requested budget, or {@code null} for the configured default
+	 */
+	Map<String, SimilarProductsResult> getSimilarProductsBatch(List<String> productIds, Duration timeout);
+
+	/**
+	 * Streams the similar products of {@code productId} to {@code listener} as each detail resolves, without holding
+	 * the calling thread. The returned future completes with the trailer once every detail resolved or the budget ran
+	 * out, and fails with {@link com.sngular.adriangm.myapp.exception.ProductNotFoundException} before
+	 * {@link SimilarProductsListener#onStart} when the product does not exist.
+	 *
+	 * @param timeout
+	 *            client requested budget, or {@code null} for the configured default
+	 */
+	CompletableFuture<SimilarProductsTrailer> streamSimilarProducts(String productId, Duration timeout,
+			SimilarProductsListener listener);
+
+	default List<ProductDetail> getSimilarProducts(String productId) {
+		return this.getSimilarProducts(productId, null).getProducts();
+	}
 }
@@ -0,0 +1,28 @@
+package com.sngular.adriangm.myapp.service.fanout;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts queue-full events before handing them to the configured policy.
+ */
+public class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+	private final RejectedExecutionHandler delegate;
+	private final LongAdder rejected = new LongAdder();
+
+	public CountingRejectedExecutionHandler(RejectedExecutionHandler delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+		this.rejected.increment();
+		this.delegate.rejectedExecution(task, executor);
+	}
+
+	public long getRejectedCount() {
+		return this.rejected.sum();
+	}
+}
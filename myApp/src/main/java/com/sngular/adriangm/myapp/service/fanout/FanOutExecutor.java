@@ -0,0 +1,191 @@
+package com.sngular.adriangm.myapp.service.fanout;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the per-product work of a single request on a dedicated, bounded executor.
+ * <p>
+ * Every call opens a window of at most {@code perRequestParallelism} tasks; each finished task launches the next
+ * pending input, so one request with many similar ids can never take more than its share of the pool. The global
+ * cap is the pool itself (core/max size and queue capacity from {@code spring.task.execution}); with virtual threads
+ * there is no pool and only the per-request window applies.
+ * <p>
+ * {@link #fanOutAsync} applies the same window to work that is already asynchronous (e.g. cache loads that run on
+ * this pool): at most {@code perRequestParallelism} stages are in flight and no thread waits on them. Cancelling one
+ * of its results cancels the stage, or skips the input when its stage has not started yet.
+ */
+public class FanOutExecutor {
+
+	private final TaskExecutor executor;
+	private final int perRequestParallelism;
+	private final LongAdder fanOuts = new LongAdder();
+	private final LongAdder submittedTasks = new LongAdder();
+
+	public FanOutExecutor(TaskExecutor executor, int perRequestParallelism) {
+		if (perRequestParallelism < 1) {
+			throw new IllegalArgumentException("perRequestParallelism must be >= 1");
+		}
+		this.executor = executor;
+		this.perRequestParallelism = perRequestParallelism;
+	}
+
+	/**
+	 * Applies {@code task} to every input and returns one future per input, in input order. Tasks that are rejected
+	 * by the pool complete exceptionally with the {@link RejectedExecutionException}.
+	 */
+	public <T, R> List<CompletableFuture<R>> fanOut(List<T> inputs, Function<? super T, ? extends R> task) {
+		this.fanOuts.increment();
+		final Window<T, R> window = new Window<>(inputs);
+		final int width = Math.min(this.perRequestParallelism, inputs.size());
+		for (int i = 0; i < width; i++) {
+			this.launchNext(window, task);
+		}
+		return window.results;
+	}
+
+	/**
+	 * Starts {@code task} for every input, keeping at most {@code perRequestParallelism} stages in flight, and returns
+	 * one future per input, in input order. Stages that are already complete (e.g. cache hits) free their slot at
+	 * once.
+	 */
+	public <T, R> List<CompletableFuture<R>> fanOutAsync(List<T> inputs,
+			Function<? super T, ? extends CompletionStage<R>> task) {
+		this.fanOuts.increment();
+		final Window<T, R> window = new Window<>(inputs);
+		final int width = Math.min(this.perRequestParallelism, inputs.size());
+		for (int i = 0; i < width; i++) {
+			this.startNext(window, task);
+		}
+		return window.results;
+	}
+
+	/**
+	 * Runs a single task on the fan-out pool, e.g. the similar-ids lookup that precedes the fan-out itself.
+	 */
+	public <R> CompletableFuture<R> submit(Supplier<? extends R> task) {
+		this.submittedTasks.increment();
+		try {
+			return CompletableFuture.supplyAsync(task::get, this.executor);
+		} catch (final RejectedExecutionException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	private <T, R> void launchNext(Window<T, R> window, Function<? super T, ? extends R> task) {
+		int index;
+		while ((index = window.next.getAndIncrement()) < window.inputs.size()) {
+			final int current = index;
+			try {
+				this.submittedTasks.increment();
+				this.executor.execute(() -> {
+					try {
+						window.run(current, task);
+					} finally {
+						this.launchNext(window, task);
+					}
+				});
+				return;
+			} catch (final RejectedExecutionException e) {
+				window.results.get(current).completeExceptionally(e);
+			}
+		}
+	}
+
+	// Loops over stages that complete synchronously so long runs of cache hits do not grow the stack
+	private <T, R> void startNext(Window<T, R> window, Function<? super T, ? extends CompletionStage<R>> task) {
+		int index;
+		while ((index = window.next.getAndIncrement()) < window.inputs.size()) {
+			final CompletableFuture<R> result = window.results.get(index);
+			if (result.isDone()) {
+				continue; // Cancelled before it started
+			}
+			final CompletableFuture<R> stage;
+			try {
+				stage = task.apply(window.inputs.get(index)).toCompletableFuture();
+			} catch (final Exception e) {
+				result.completeExceptionally(e);
+				continue;
+			}
+			if (stage.isDone()) {
+				copy(stage, result);
+				continue;
+			}
+			result.whenComplete((value, error) -> {
+				if (error instanceof CancellationException) {
+					stage.cancel(false);
+				}
+			});
+			stage.whenComplete((value, error) -> {
+				copy(stage, result);
+				this.startNext(window, task);
+			});
+			return;
+		}
+	}
+
+	private static <R> void copy(CompletableFuture<R> from, CompletableFuture<R> to) {
+		from.whenComplete((value, error) -> {
+			if (error != null) {
+				to.completeExceptionally(error);
+			} else {
+				to.complete(value);
+			}
+		});
+	}
+
+	/**
+	 * Pool saturation and task counters; only the counters are reported for an executor without a pool (virtual
+	 * threads).
+	 */
+	public FanOutStats getStats() {
+		if (!(this.executor instanceof final ThreadPoolTaskExecutor poolExecutor)) {
+			return FanOutStats.builder().perRequestParallelism(this.perRequestParallelism)
+					.submittedTasks(this.submittedTasks.sum()).fanOuts(this.fanOuts.sum()).build();
+		}
+		final ThreadPoolExecutor pool = poolExecutor.getThreadPoolExecutor();
+		final long rejected = pool.getRejectedExecutionHandler() instanceof final CountingRejectedExecutionHandler counting
+				? counting.getRejectedCount()
+				: 0L;
+		return FanOutStats.builder().perRequestParallelism(this.perRequestParallelism)
+				.globalParallelism(pool.getMaximumPoolSize()).poolSize(pool.getPoolSize())
+				.activeCount(pool.getActiveCount()).largestPoolSize(pool.getLargestPoolSize())
+				.queueSize(pool.getQueue().size()).queueRemainingCapacity(pool.getQueue().remainingCapacity())
+				.completedTasks(pool.getCompletedTaskCount()).submittedTasks(this.submittedTasks.sum())
+				.rejectedTasks(rejected).fanOuts(this.fanOuts.sum()).build();
+	}
+
+	private static final class Window<T, R> {
+		private final List<T> inputs;
+		private final List<CompletableFuture<R>> results;
+		private final AtomicInteger next = new AtomicInteger();
+
+		private Window(List<T> inputs) {
+			this.inputs = inputs;
+			this.results = new ArrayList<>(inputs.size());
+			for (int i = 0; i < inputs.size(); i++) {
+				this.results.add(new CompletableFuture<>());
+			}
+		}
+
+		private void run(int index, Function<? super T, ? extends R> task) {
+			try {
+				this.results.get(index).complete(task.apply(this.inputs.get(index)));
+			} catch (final Exception e) {
+				this.results.get(index).completeExceptionally(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.sngular.adriangm.myapp.service.fanout;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Point-in-time saturation snapshot of the fan-out pool.
+ */
+@Value
+@Builder
+public class FanOutStats {
+	int perRequestParallelism;
+	int globalParallelism;
+	int poolSize;
+	int activeCount;
+	int largestPoolSize;
+	int queueSize;
+	int queueRemainingCapacity;
+	long completedTasks;
+	long submittedTasks;
+	long rejectedTasks;
+	long fanOuts;
+
+	public double getSaturation() {
+		return this.globalParallelism == 0 ? 0d : (double) this.activeCount / this.globalParallelism;
+	}
+}
@@ -0,0 +1,180 @@
+package com.sngular.adriangm.myapp.service.implement;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.exception.ProductNotFoundException;
+import com.sngular.adriangm.myapp.exception.SimilarProductsRetrievalException;
+import com.sngular.adriangm.myapp.infrastructure.ProductServiceMetrics;
+import com.sngular.adriangm.myapp.infrastructure.ReactiveProductDetailRepository;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import com.sngular.adriangm.myapp.model.SimilarProductsTrailer;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.service.ReactiveSimilarProductsService;
+import com.sngular.adriangm.myapp.service.SimilarProductsListener;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "product-service", name = "mode", havingValue = "reactive")
+public class ReactiveSimilarProductsServiceImpl implements ReactiveSimilarProductsService {
+
+	private final ReactiveProductDetailRepository productDetailRepository;
+	private final ProductServiceMetrics metrics;
+	private final ProductServiceProperties properties;
+
+	@Override
+	public Mono<SimilarProductsResult> getSimilarProducts(String productId, Duration timeout) {
+		final Duration budget = RequestBudget.resolve(this.properties.getService(), timeout);
+		final long deadline = System.nanoTime() + budget.toNanos();
+
+		return this.productDetailRepository.getSimilarIds(productId).timeout(budget)
+				.onErrorMap(e -> !(e instanceof TimeoutException), e -> new SimilarProductsRetrievalException(productId, e))
+				.flatMap(similarIds -> {
+					if (similarIds.isNotFound()) {
+						return Mono.error(new ProductNotFoundException(productId));
+					}
+					if (!similarIds.isFound()) {
+						return Mono.just(SimilarProductsResult.partial(List.of())); // Upstream failure, degrade
+					}
+					return this.collect(similarIds.getValue(), deadline)
+							.map(result -> result.withStale(result.isStale() || similarIds.isStale())
+									.withSimilarIds(similarIds.getValue()));
+				}).onErrorResume(TimeoutException.class, e -> Mono.just(SimilarProductsResult.partial(List.of())));
+	}
+
+	@Override
+	public Mono<Map<String, SimilarProductsResult>> getSimilarProductsBatch(List<String> productIds, Duration timeout) {
+		final Duration budget = RequestBudget.resolve(this.properties.getService(), timeout);
+		final int concurrency = this.properties.getService().getConcurrencyLevel();
+		final Map<String, UpstreamResult<List<String>>> similarIds = new ConcurrentHashMap<>();
+		final Map<String, UpstreamResult<ProductDetail>> details = new ConcurrentHashMap<>();
+
+		// Similar ids first, then one shared fan-out over the distinct similar ids of the whole batch
+		return Flux.fromIterable(productIds).distinct()
+				.flatMap(productId -> this.productDetailRepository.getSimilarIds(productId)
+						.doOnNext(ids -> similarIds.put(productId, ids)).onErrorResume(e -> Mono.empty()), concurrency)
+				.thenMany(Flux.defer(() -> {
+					final List<String> detailIds = similarIds.values().stream().filter(UpstreamResult::isFound)
+							.flatMap(ids -> ids.getValue().stream()).distinct().toList();
+					this.metrics.recordFanOutWidth(detailIds.size());
+					return Flux.fromIterable(detailIds);
+				}))
+				.flatMap(id -> this.productDetailRepository.getProductDetail(id)
+						.doOnNext(detail -> details.put(id, detail)).onErrorResume(e -> Mono.empty()), concurrency)
+				.then(Mono.fromCallable(() -> batchResults(productIds, similarIds, details)))
+				.timeout(budget, Mono.fromCallable(() -> batchResults(productIds, similarIds, details)));
+	}
+
+	@Override
+	public Mono<SimilarProductsTrailer> streamSimilarProducts(String productId, Duration timeout,
+			SimilarProductsListener listener) {
+		final Duration budget = RequestBudget.resolve(this.properties.getService(), timeout);
+		final long deadline = System.nanoTime() + budget.toNanos();
+
+		return this.productDetailRepository.getSimilarIds(productId).timeout(budget)
+				.onErrorMap(e -> !(e instanceof TimeoutException), e -> new SimilarProductsRetrievalException(productId, e))
+				.flatMap(similarIds -> {
+					if (similarIds.isNotFound()) {
+						return Mono.error(new ProductNotFoundException(productId));
+					}
+					if (!similarIds.isFound()) {
+						return Mono.fromCallable(() -> unresolved(listener)); // Upstream failure, degrade
+					}
+					return this.stream(similarIds, deadline, listener);
+				}).onErrorResume(TimeoutException.class, e -> Mono.fromCallable(() -> unresolved(listener)));
+	}
+
+	private Mono<SimilarProductsTrailer> stream(UpstreamResult<List<String>> similarIds, long deadline,
+			SimilarProductsListener listener) {
+		final List<String> ids = similarIds.getValue();
+		final StreamedProducts stream = StreamedProducts.start(similarIds, listener);
+		final Duration remaining = Duration.ofNanos(Math.max(0L, deadline - System.nanoTime()));
+		this.metrics.recordFanOutWidth(ids.size());
+
+		return Flux.range(0, ids.size())
+				.flatMap(index -> this.productDetailRepository.getProductDetail(ids.get(index))
+						.doOnSuccess(detail -> stream.resolve(index, detail)).onErrorResume(e -> {
+							stream.resolve(index, null);
+							return Mono.empty();
+						}), this.properties.getService().getConcurrencyLevel())
+				.then(Mono.fromCallable(stream::close)).timeout(remaining, Mono.fromCallable(stream::close));
+	}
+
+	private static SimilarProductsTrailer unresolved(SimilarProductsListener listener) {
+		listener.onStart(List.of());
+		return SimilarProductsTrailer.unresolved();
+	}
+
+	private static Map<String, SimilarProductsResult> batchResults(List<String> productIds,
+			Map<String, UpstreamResult<List<String>>> similarIds, Map<String, UpstreamResult<ProductDetail>> details) {
+		final Map<String, SimilarProductsResult> results = new LinkedHashMap<>();
+		for (final String productId : productIds) {
+			final UpstreamResult<List<String>> ids = similarIds.get(productId);
+			if (ids != null && ids.isFound()) {
+				final List<UpstreamResult<ProductDetail>> ready = ids.getValue().stream().map(details::get)
+						.filter(detail -> detail != null && detail.isFound()).toList();
+				final List<ProductDetail> products = ready.stream().map(UpstreamResult::getValue).toList();
+				// Late or failed details are missing; failed loads are not cached, so their result is partial too
+				final boolean partial = !details.keySet().containsAll(ids.getValue());
+				final boolean stale = ids.isStale() || ready.stream().anyMatch(UpstreamResult::isStale);
+				results.put(productId,
+						(partial ? SimilarProductsResult.partial(products) : SimilarProductsResult.complete(products))
+								.withStale(stale).withSimilarIds(ids.getValue()));
+			} else if (ids == null || !ids.isNotFound()) {
+				results.put(productId, SimilarProductsResult.partial(List.of())); // Late or failed, degrade
+			} // Unknown products are left out of the batch
+		}
+		return results;
+	}
+
+	private Mono<SimilarProductsResult> collect(List<String> similarIds, long deadline) {
+		final AtomicReferenceArray<ProductDetail> slots = new AtomicReferenceArray<>(similarIds.size());
+		final AtomicBoolean stale = new AtomicBoolean();
+		final AtomicBoolean failed = new AtomicBoolean();
+		final Duration remaining = Duration.ofNanos(Math.max(0L, deadline - System.nanoTime()));
+		this.metrics.recordFanOutWidth(similarIds.size());
+
+		// Bounded concurrent fetches; each detail lands in its similarity slot. Failed loads are not cached, so they
+		// mark the result as partial like late ones
+		return Flux.range(0, similarIds.size())
+				.flatMap(index -> this.productDetailRepository.getProductDetail(similarIds.get(index))
+						.filter(UpstreamResult::isFound).doOnNext(detail -> {
+							if (detail.isStale()) {
+								stale.set(true);
+							}
+							slots.set(index, detail.getValue());
+						}).onErrorResume(e -> {
+							failed.set(true);
+							return Mono.empty();
+						}), this.properties.getService().getConcurrencyLevel())
+				.then(Mono.fromCallable(() -> (failed.get() ? SimilarProductsResult.partial(ready(slots))
+						: SimilarProductsResult.complete(ready(slots))).withStale(stale.get())))
+				.timeout(remaining,
+						Mono.fromCallable(() -> SimilarProductsResult.partial(ready(slots)).withStale(stale.get())));
+	}
+
+	private static List<ProductDetail> ready(AtomicReferenceArray<ProductDetail> slots) {
+		final List<ProductDetail> products = new ArrayList<>(slots.length());
+		for (int i = 0; i < slots.length(); i++) {
+			final ProductDetail detail = slots.get(i);
+			if (detail != null) {
+				products.add(detail);
+			}
+		}
+		return products;
+	}
+}
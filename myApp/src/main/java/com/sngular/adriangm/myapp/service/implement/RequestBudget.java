@@ -0,0 +1,22 @@
+package com.sngular.adriangm.myapp.service.implement;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+
+import java.time.Duration;
+
+final class RequestBudget {
+
+	private RequestBudget() {
+	}
+
+	/**
+	 * The client budget when present and positive, capped at the configured maximum; otherwise the default timeout.
+	 */
+	static Duration resolve(ProductServiceProperties.ServiceConfig config, Duration requested) {
+		if (requested == null || requested.isNegative() || requested.isZero()) {
+			return config.getSimilarProductsTimeout();
+		}
+		final Duration max = config.getMaxSimilarProductsTimeout();
+		return max != null && requested.compareTo(max) > 0 ? max : requested;
+	}
+}
@@ -1,37 +1,213 @@
 package com.sngular.adriangm.myapp.service.implement;
 
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.exception.ProductNotFoundException;
 import com.sngular.adriangm.myapp.exception.SimilarProductsRetrievalException;
 import com.sngular.adriangm.myapp.infrastructure.ProductDetailRepository;
+import com.sngular.adriangm.myapp.infrastructure.ProductServiceMetrics;
 import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import com.sngular.adriangm.myapp.model.SimilarProductsTrailer;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.service.SimilarProductsListener;
 import com.sngular.adriangm.myapp.service.SimilarProductsService;
+import com.sngular.adriangm.myapp.service.fanout.FanOutExecutor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "product-service", name = "mode", havingValue = "blocking", matchIfMissing = true)
 public class SimilarProductsServiceImpl implements SimilarProductsService {
 
 	private final ProductDetailRepository productDetailRepository;
+	private final FanOutExecutor fanOutExecutor;
+	private final ProductServiceMetrics metrics;
+	private final ProductServiceProperties properties;
 
 	@Override
-	public List<ProductDetail> getSimilarProducts(String productId) {
+	public SimilarProductsResult getSimilarProducts(String productId, Duration timeout) {
+		final long deadline = System.nanoTime() + RequestBudget.resolve(this.properties.getService(), timeout).toNanos();
+
+		final CompletableFuture<UpstreamResult<List<String>>> similarIdsLoad = this.similarIdsOrFailure(productId);
+		final UpstreamResult<List<String>> similarIds;
 		try {
-			final List<String> similarIds = this.productDetailRepository.getSimilarIds(productId);
+			similarIds = similarIdsLoad.get(remaining(deadline), TimeUnit.NANOSECONDS);
+		} catch (final TimeoutException e) {
+			similarIdsLoad.cancel(false);
+			return SimilarProductsResult.partial(List.of());
+		} catch (final InterruptedException e) {
+			similarIdsLoad.cancel(false);
+			Thread.currentThread().interrupt();
+			return SimilarProductsResult.partial(List.of());
+		} catch (final ExecutionException e) {
+			throw new SimilarProductsRetrievalException(productId, e.getCause());
+		} catch (final Exception e) {
+			throw new SimilarProductsRetrievalException(productId, e);
+		}
+
+		if (similarIds.isNotFound()) {
+			throw new ProductNotFoundException(productId);
+		}
+		if (!similarIds.isFound()) {
+			return SimilarProductsResult.partial(List.of()); // Upstream failure, degrade to an empty list
+		}
+
+		this.metrics.recordFanOutWidth(similarIds.getValue().size());
+		// Compose the cache futures, at most concurrency-level loads in flight; loads still running at the deadline are
+		// given up on, and the repository aborts them unless another request still waits
+		final List<CompletableFuture<UpstreamResult<ProductDetail>>> details = this.fanOutExecutor
+				.fanOutAsync(similarIds.getValue(), this.productDetailRepository::getProductDetail);
+		awaitUntil(details, deadline);
+		final SimilarProductsResult result = assemble(similarIds, details);
+		cancelUnfinished(details);
+		return result;
+	}
+
+	@Override
+	public Map<String, SimilarProductsResult> getSimilarProductsBatch(List<String> productIds, Duration timeout) {
+		final long deadline = System.nanoTime() + RequestBudget.resolve(this.properties.getService(), timeout).toNanos();
+
+		final Map<String, CompletableFuture<UpstreamResult<List<String>>>> similarIds = new LinkedHashMap<>();
+		productIds.forEach(productId -> similarIds.computeIfAbsent(productId, this::similarIdsOrFailure));
+		awaitUntil(List.copyOf(similarIds.values()), deadline);
+
+		// One shared fan-out over the distinct similar ids of the whole batch
+		final List<String> detailIds = similarIds.values().stream().map(SimilarProductsServiceImpl::nowOrNull)
+				.filter(ids -> ids != null && ids.isFound()).flatMap(ids -> ids.getValue().stream()).distinct()
+				.toList();
+		this.metrics.recordFanOutWidth(detailIds.size());
+		final List<CompletableFuture<UpstreamResult<ProductDetail>>> fetched = this.fanOutExecutor
+				.fanOutAsync(detailIds, this.productDetailRepository::getProductDetail);
+		awaitUntil(fetched, deadline);
+		final Map<String, CompletableFuture<UpstreamResult<ProductDetail>>> details = new HashMap<>();
+		for (int i = 0; i < detailIds.size(); i++) {
+			details.put(detailIds.get(i), fetched.get(i));
+		}
+
+		final Map<String, SimilarProductsResult> results = new LinkedHashMap<>();
+		similarIds.forEach((productId, future) -> {
+			final UpstreamResult<List<String>> ids = nowOrNull(future);
+			if (ids != null && ids.isFound()) {
+				results.put(productId, assemble(ids, ids.getValue().stream().map(details::get).toList()));
+			} else if (ids == null || !ids.isNotFound()) {
+				results.put(productId, SimilarProductsResult.partial(List.of())); // Late or failed, degrade
+			} // Unknown products are left out of the batch
+		});
+		cancelUnfinished(similarIds.values());
+		cancelUnfinished(fetched);
+		return results;
+	}
+
+	@Override
+	public CompletableFuture<SimilarProductsTrailer> streamSimilarProducts(String productId, Duration timeout,
+			SimilarProductsListener listener) {
+		final long deadline = System.nanoTime() + RequestBudget.resolve(this.properties.getService(), timeout).toNanos();
 
-			// Use parallel stream for concurrent processing of product details
-			return similarIds.parallelStream().map(id -> {
-				try {
-					return this.productDetailRepository.getProductDetail(id);
-				} catch (final Exception e) {
-					return null; // Skip products that are not found or have errors
-				}
-			}).filter(Objects::nonNull).toList();
+		// A copy, so that the timeout does not complete the looked up future. The trailer is cancelled when the client
+		// goes away, which gives up on every lookup still running
+		final CompletableFuture<UpstreamResult<List<String>>> similarIdsLoad = this.similarIdsOrFailure(productId);
+		final CompletableFuture<SimilarProductsTrailer> trailer = new CompletableFuture<>();
+		trailer.whenComplete((value, error) -> similarIdsLoad.cancel(false));
+		similarIdsLoad.copy().completeOnTimeout(null, remaining(deadline), TimeUnit.NANOSECONDS)
+				.handle((similarIds, error) -> {
+					if (error != null) {
+						throw new SimilarProductsRetrievalException(productId,
+								error instanceof CompletionException ? error.getCause() : error);
+					}
+					if (similarIds != null && similarIds.isNotFound()) {
+						throw new ProductNotFoundException(productId);
+					}
+					if (similarIds == null || !similarIds.isFound()) {
+						listener.onStart(List.of()); // Late or failed, degrade to an empty stream
+						return CompletableFuture.completedFuture(SimilarProductsTrailer.unresolved());
+					}
+					return this.stream(similarIds, deadline, listener, trailer);
+				}).thenCompose(Function.identity()).whenComplete((value, error) -> {
+					if (error != null) {
+						trailer.completeExceptionally(error);
+					} else {
+						trailer.complete(value);
+					}
+				});
+		return trailer;
+	}
 
+	private CompletableFuture<SimilarProductsTrailer> stream(UpstreamResult<List<String>> similarIds, long deadline,
+			SimilarProductsListener listener, CompletableFuture<SimilarProductsTrailer> trailer) {
+		final StreamedProducts stream = StreamedProducts.start(similarIds, listener);
+		this.metrics.recordFanOutWidth(similarIds.getValue().size());
+		final List<CompletableFuture<UpstreamResult<ProductDetail>>> details = this.fanOutExecutor
+				.fanOutAsync(similarIds.getValue(), this.productDetailRepository::getProductDetail);
+		trailer.whenComplete((value, error) -> cancelUnfinished(details));
+		// Wait on the delivery callbacks rather than the fetches, so every resolved detail is delivered before closing
+		final List<CompletableFuture<?>> delivered = new ArrayList<>(details.size());
+		for (int i = 0; i < details.size(); i++) {
+			final int index = i;
+			delivered.add(details.get(i).whenComplete((detail, error) -> stream.resolve(index, detail)));
+		}
+		return CompletableFuture.allOf(delivered.toArray(CompletableFuture[]::new)).exceptionally(error -> null)
+				.completeOnTimeout(null, remaining(deadline), TimeUnit.NANOSECONDS).thenApply(ignored -> stream.close());
+	}
+
+	private CompletableFuture<UpstreamResult<List<String>>> similarIdsOrFailure(String productId) {
+		try {
+			return this.productDetailRepository.getSimilarIds(productId);
 		} catch (final Exception e) {
-			throw new SimilarProductsRetrievalException(productId, e);
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	// Ready products in similarity order; unfinished ones mark the result as partial, and so do failed loads (rejected,
+	// abandoned or thrown), since nothing caches them and a complete result would keep missing the product
+	private static SimilarProductsResult assemble(UpstreamResult<List<String>> similarIds,
+			List<CompletableFuture<UpstreamResult<ProductDetail>>> details) {
+		final List<UpstreamResult<ProductDetail>> ready = details.stream().map(SimilarProductsServiceImpl::nowOrNull)
+				.filter(detail -> detail != null && detail.isFound()).toList();
+		final List<ProductDetail> products = ready.stream().map(UpstreamResult::getValue).toList();
+		final boolean partial = details.stream()
+				.anyMatch(future -> !future.isDone() || future.isCompletedExceptionally());
+		final boolean stale = similarIds.isStale() || ready.stream().anyMatch(UpstreamResult::isStale);
+		return (partial ? SimilarProductsResult.partial(products) : SimilarProductsResult.complete(products))
+				.withStale(stale).withSimilarIds(similarIds.getValue());
+	}
+
+	private static void awaitUntil(List<? extends CompletableFuture<?>> futures, long deadline) {
+		try {
+			CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(remaining(deadline),
+					TimeUnit.NANOSECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final ExecutionException | TimeoutException e) {
+			// Failed products are skipped and unfinished ones mark the result as partial
 		}
 	}
+
+	// Futures handed out by the repository and the fan-out are per caller, so cancelling them only gives up on the work
+	private static void cancelUnfinished(Collection<? extends CompletableFuture<?>> futures) {
+		futures.forEach(future -> future.cancel(false));
+	}
+
+	private static long remaining(long deadline) {
+		return Math.max(0L, deadline - System.nanoTime());
+	}
+
+	private static <T> T nowOrNull(CompletableFuture<T> future) {
+		return future.isDone() ? future.exceptionally(e -> null).join() : null; // Skip failed or late products
+	}
 }
@@ -0,0 +1,84 @@
+package com.sngular.adriangm.myapp.service.implement;
+
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarProductsTrailer;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.service.SimilarProductsListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delivery state of one streamed response, shared by both modes: forwards details to the listener as they resolve
+ * until {@link #close()}, which reports what was skipped or still unresolved. Serializes the listener calls with a
+ * lock; the listener hands its writes off (see {@link SimilarProductsListener}), so the lock is only ever held briefly
+ * and neither the fan-out threads nor the deadline's {@link #close()} wait on a client.
+ */
+final class StreamedProducts {
+
+	private static final byte UNRESOLVED = 0;
+	private static final byte DELIVERED = 1;
+	private static final byte SKIPPED = 2;
+
+	private final List<String> similarIds;
+	private final SimilarProductsListener listener;
+	private final byte[] states;
+	private final Lock lock = new ReentrantLock();
+	private boolean stale;
+	private boolean closed;
+
+	private StreamedProducts(List<String> similarIds, boolean stale, SimilarProductsListener listener) {
+		this.similarIds = similarIds;
+		this.listener = listener;
+		this.states = new byte[similarIds.size()];
+		this.stale = stale;
+	}
+
+	static StreamedProducts start(UpstreamResult<List<String>> similarIds, SimilarProductsListener listener) {
+		listener.onStart(similarIds.getValue());
+		return new StreamedProducts(similarIds.getValue(), similarIds.isStale(), listener);
+	}
+
+	/**
+	 * @param detail
+	 *            the detail of the similar id at {@code index}, or {@code null} when its fetch failed
+	 */
+	void resolve(int index, UpstreamResult<ProductDetail> detail) {
+		this.lock.lock();
+		try {
+			if (this.closed || this.states[index] != UNRESOLVED) {
+				return;
+			}
+			if (detail != null && detail.isFound()) {
+				this.states[index] = DELIVERED;
+				this.stale |= detail.isStale();
+				this.listener.onProduct(detail.getValue());
+			} else {
+				this.states[index] = SKIPPED;
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	SimilarProductsTrailer close() {
+		this.lock.lock();
+		try {
+			this.closed = true;
+			final List<String> skipped = new ArrayList<>();
+			final List<String> timedOut = new ArrayList<>();
+			for (int i = 0; i < this.states.length; i++) {
+				if (this.states[i] == SKIPPED) {
+					skipped.add(this.similarIds.get(i));
+				} else if (this.states[i] == UNRESOLVED) {
+					timedOut.add(this.similarIds.get(i));
+				}
+			}
+			return new SimilarProductsTrailer(skipped, timedOut, !timedOut.isEmpty(), this.stale);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.controller.PreSerializedProducts;
+import com.sngular.adriangm.myapp.controller.PreSerializedProductsConverter;
+import com.sngular.adriangm.myapp.controller.SimilarProductsResponseAssembler;
+import com.sngular.adriangm.myapp.controller.mapper.ProductDetailMapper;
+import com.sngular.adriangm.myapp.controller.mapper.ProductDetailMapperImpl;
+import com.sngular.adriangm.myapp.dto.ProductDetailDTO;
+import com.sngular.adriangm.myapp.infrastructure.AssembledResponseCache;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreSerializedProductsTest {
+
+	private final ProductDetailMapper productDetailMapper = new ProductDetailMapperImpl();
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private final PreSerializedProductsConverter converter = new PreSerializedProductsConverter();
+
+	private SimilarProductsResponseAssembler assembler;
+
+	@BeforeEach
+	void setUp() {
+		this.assembler = new SimilarProductsResponseAssembler(this.productDetailMapper,
+				new AssembledResponseCache<>(false, 100, Duration.ofMinutes(1), false), new ProductServiceProperties(),
+				Runnable::run);
+	}
+
+	// ===== SERIALIZATION TESTS =====
+
+	@Test
+	@DisplayName("Should write exactly what Jackson writes for the mapped products")
+	void writeTo_matchesObjectMapper() throws IOException {
+		final List<ProductDetail> products = List.of(new ProductDetail("1", "Shirt", 9.99, true),
+				new ProductDetail("sku-2", "Café \"crème\" ☕ \u0001\n\\", 1000000.0, false),
+				new ProductDetail("007", null, 0.1, true), new ProductDetail("4", "Tiny", 1.0E-7, false),
+				new ProductDetail("5", "Huge", 12345678901234.5, true));
+
+		final MockHttpOutputMessage message = this.write(this.body(products));
+
+		assertEquals(this.objectMapper.writeValueAsString(this.mapped(products)), message.getBodyAsString());
+	}
+
+	@Test
+	@DisplayName("Should keep the first of duplicate products and announce the exact content length")
+	void writeTo_dedupesWithContentLength() throws IOException {
+		final ProductDetail shirt = new ProductDetail("1", "Shirt", 9.99, true);
+		final ProductDetail dress = new ProductDetail("2", "Dress", 19.99, false);
+
+		final Set<ProductDetailDTO> body = this.body(List.of(shirt, dress, shirt));
+		final MockHttpOutputMessage message = this.write(body);
+
+		assertEquals(2, body.size());
+		assertEquals(this.mapped(List.of(shirt, dress)), new ArrayList<>(body));
+		assertEquals(message.getBodyAsBytes().length, message.getHeaders().getContentLength());
+		assertEquals("[]", this.write(this.body(List.of())).getBodyAsString());
+	}
+
+	@Test
+	@DisplayName("Should write the fragments through Jackson inside a batch response")
+	void batchResponse_writesFragments() throws IOException {
+		final List<ProductDetail> first = List.of(new ProductDetail("1", "Shirt", 9.99, true));
+		final List<ProductDetail> second = List.of(new ProductDetail("2", "Dress", 19.99, false),
+				new ProductDetail("3", "Coat \"long\"", 99.0, true));
+		final Map<String, ResponseEntity<Set<ProductDetailDTO>>> responses = new LinkedHashMap<>();
+		responses.put("10", ResponseEntity.ok(this.body(first)));
+		responses.put("20", ResponseEntity.ok(this.body(second)));
+
+		final Map<String, List<ProductDetailDTO>> expected = new LinkedHashMap<>();
+		expected.put("10", this.mapped(first));
+		expected.put("20", this.mapped(second));
+
+		assertEquals(this.objectMapper.writeValueAsString(expected),
+				this.objectMapper.writeValueAsString(this.assembler.toBatchResponse(responses).getBody()));
+	}
+
+	// ===== CONVERTER TESTS =====
+
+	@Test
+	@DisplayName("Should only write pre-serialized products")
+	void converter_writesOnlyPreSerializedProducts() {
+		assertTrue(this.converter.canWrite(PreSerializedProducts.class, MediaType.APPLICATION_JSON));
+		assertFalse(this.converter.canWrite(PreSerializedProducts.class, MediaType.APPLICATION_XML));
+		assertFalse(this.converter.canWrite(Set.class, MediaType.APPLICATION_JSON));
+		assertFalse(this.converter.canRead(PreSerializedProducts.class, MediaType.APPLICATION_JSON));
+	}
+
+	// ===== HELPER METHODS =====
+
+	private Set<ProductDetailDTO> body(List<ProductDetail> products) {
+		return this.assembler.toResponse("0", SimilarProductsResult.complete(products), 0).getBody();
+	}
+
+	private List<ProductDetailDTO> mapped(List<ProductDetail> products) {
+		return products.stream().map(this.productDetailMapper::toApiModel).toList();
+	}
+
+	private MockHttpOutputMessage write(Set<ProductDetailDTO> body) throws IOException {
+		final MockHttpOutputMessage message = new MockHttpOutputMessage();
+		this.converter.write((PreSerializedProducts) body, MediaType.APPLICATION_JSON, message);
+		return message;
+	}
+}
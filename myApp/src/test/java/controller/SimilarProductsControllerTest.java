@@ -1,25 +1,46 @@
 package controller;
 
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
 import com.sngular.adriangm.myapp.controller.SimilarProductsController;
+import com.sngular.adriangm.myapp.controller.SimilarProductsResponseAssembler;
 import com.sngular.adriangm.myapp.controller.mapper.ProductDetailMapper;
 import com.sngular.adriangm.myapp.dto.ProductDetailDTO;
+import com.sngular.adriangm.myapp.exception.InvalidBatchRequestException;
+import com.sngular.adriangm.myapp.infrastructure.AssembledResponseCache;
 import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.exception.ProductNotFoundException;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import com.sngular.adriangm.myapp.model.SimilarProductsTrailer;
+import com.sngular.adriangm.myapp.service.SimilarProductsListener;
 import com.sngular.adriangm.myapp.service.SimilarProductsService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class SimilarProductsControllerTest {
@@ -28,14 +49,23 @@ class SimilarProductsControllerTest {
 	private ProductDetailMapper productDetailMapper;
 	@Mock
 	private SimilarProductsService similarProductsService;
+	@Mock
+	private HttpServletRequest request;
 
 	@InjectMocks
 	private SimilarProductsController controller;
 
+	private AssembledResponseCache<ResponseEntity<Set<ProductDetailDTO>>> assembledResponseCache;
+
 	@BeforeEach
 	void setUp() {
 		MockitoAnnotations.openMocks(this);
-		this.controller = new SimilarProductsController(this.productDetailMapper, this.similarProductsService);
+		this.assembledResponseCache = new AssembledResponseCache<>(true, 100, Duration.ofMinutes(1), false);
+		final ProductServiceProperties properties = new ProductServiceProperties();
+		properties.getService().setMaxBatchSize(3);
+		final SimilarProductsResponseAssembler assembler = new SimilarProductsResponseAssembler(
+				this.productDetailMapper, this.assembledResponseCache, properties, Runnable::run);
+		this.controller = new SimilarProductsController(this.similarProductsService, this.request, assembler);
 	}
 
 	// ===== BASIC FUNCTIONALITY TESTS =====
@@ -48,7 +78,8 @@ class SimilarProductsControllerTest {
 		final ProductDetailDTO dto = this.createProductDetailDTO("1", "Product 1", 10.0, true);
 		final List<ProductDetail> products = List.of(product);
 
-		when(this.similarProductsService.getSimilarProducts("1")).thenReturn(products);
+		when(this.similarProductsService.getSimilarProducts("1", null))
+				.thenReturn(SimilarProductsResult.complete(products));
 		when(this.productDetailMapper.toApiModel(product)).thenReturn(dto);
 
 		// Act
@@ -61,7 +92,7 @@ class SimilarProductsControllerTest {
 		assertEquals(1, result.getBody().size());
 
 		// Verify interactions
-		verify(this.similarProductsService).getSimilarProducts("1");
+		verify(this.similarProductsService).getSimilarProducts("1", null);
 		verify(this.productDetailMapper).toApiModel(product);
 	}
 
@@ -69,7 +100,8 @@ class SimilarProductsControllerTest {
 	@DisplayName("Should return empty set with OK status when no similar products found")
 	void getProductSimilar_returnsEmpty() {
 		// Arrange
-		when(this.similarProductsService.getSimilarProducts("2")).thenReturn(List.of());
+		when(this.similarProductsService.getSimilarProducts("2", null))
+				.thenReturn(SimilarProductsResult.complete(List.of()));
 
 		// Act
 		final ResponseEntity<Set<ProductDetailDTO>> result = this.controller.getProductSimilar("2");
@@ -80,7 +112,7 @@ class SimilarProductsControllerTest {
 		assertTrue(result.getBody().isEmpty());
 
 		// Verify interactions
-		verify(this.similarProductsService).getSimilarProducts("2");
+		verify(this.similarProductsService).getSimilarProducts("2", null);
 		verifyNoInteractions(this.productDetailMapper);
 	}
 
@@ -97,7 +129,8 @@ class SimilarProductsControllerTest {
 				this.createProductDetailDTO("2", "Product 2", 20.0, false),
 				this.createProductDetailDTO("3", "Product 3", 30.0, true));
 
-		when(this.similarProductsService.getSimilarProducts("0")).thenReturn(products);
+		when(this.similarProductsService.getSimilarProducts("0", null))
+				.thenReturn(SimilarProductsResult.complete(products));
 		when(this.productDetailMapper.toApiModel(products.get(0))).thenReturn(dtos.get(0));
 		when(this.productDetailMapper.toApiModel(products.get(1))).thenReturn(dtos.get(1));
 		when(this.productDetailMapper.toApiModel(products.get(2))).thenReturn(dtos.get(2));
@@ -111,8 +144,8 @@ class SimilarProductsControllerTest {
 		assertEquals(3, result.getBody().size());
 		assertTrue(result.getBody().containsAll(dtos));
 
-		// Verify all products were mapped
-		verify(this.productDetailMapper, times(3)).toApiModel(any(ProductDetail.class));
+		// Verify every product was mapped when the body was read
+		verify(this.productDetailMapper, atLeast(3)).toApiModel(any(ProductDetail.class));
 	}
 
 	@Test
@@ -126,7 +159,8 @@ class SimilarProductsControllerTest {
 				this.createProductDetailDTO("1", "Product 1", 10.0, true),
 				this.createProductDetailDTO("2", "Product 2", 20.0, false));
 
-		when(this.similarProductsService.getSimilarProducts("0")).thenReturn(products);
+		when(this.similarProductsService.getSimilarProducts("0", null))
+				.thenReturn(SimilarProductsResult.complete(products));
 		when(this.productDetailMapper.toApiModel(products.get(0))).thenReturn(dtos.get(0));
 		when(this.productDetailMapper.toApiModel(products.get(1))).thenReturn(dtos.get(1));
 		when(this.productDetailMapper.toApiModel(products.get(2))).thenReturn(dtos.get(2));
@@ -148,32 +182,37 @@ class SimilarProductsControllerTest {
 	void getProductSimilar_serviceError() {
 		// Arrange
 		final RuntimeException serviceError = new RuntimeException("Service error");
-		when(this.similarProductsService.getSimilarProducts("3")).thenThrow(serviceError);
+		when(this.similarProductsService.getSimilarProducts("3", null)).thenThrow(serviceError);
 
 		// Act & Assert
 		assertThrows(RuntimeException.class, () -> this.controller.getProductSimilar("3"));
 
 		// Verify interactions
-		verify(this.similarProductsService).getSimilarProducts("3");
+		verify(this.similarProductsService).getSimilarProducts("3", null);
 		verifyNoInteractions(this.productDetailMapper);
 	}
 
 	@Test
-	@DisplayName("Should handle mapper errors gracefully")
+	@DisplayName("Should assemble without mapping and surface mapper errors when the body is read")
 	void getProductSimilar_mapperError() {
 		// Arrange
 		final ProductDetail product = new ProductDetail("1", "Product 1", 10.0, true);
 		final RuntimeException mapperError = new RuntimeException("Mapping error");
 		final List<ProductDetail> products = List.of(product);
 
-		when(this.similarProductsService.getSimilarProducts("1")).thenReturn(products);
+		when(this.similarProductsService.getSimilarProducts("1", null))
+				.thenReturn(SimilarProductsResult.complete(products));
 		when(this.productDetailMapper.toApiModel(product)).thenThrow(mapperError);
 
-		// Act & Assert
-		assertThrows(RuntimeException.class, () -> this.controller.getProductSimilar("1"));
+		// Act
+		final ResponseEntity<Set<ProductDetailDTO>> result = this.controller.getProductSimilar("1");
+
+		// Assert
+		verifyNoInteractions(this.productDetailMapper);
+		assertThrows(RuntimeException.class, () -> result.getBody().iterator().next());
 
 		// Verify interactions
-		verify(this.similarProductsService).getSimilarProducts("1");
+		verify(this.similarProductsService).getSimilarProducts("1", null);
 		verify(this.productDetailMapper).toApiModel(product);
 	}
 
@@ -183,7 +222,8 @@ class SimilarProductsControllerTest {
 	@DisplayName("Should handle empty string product ID")
 	void getProductSimilar_emptyProductId() {
 		// Arrange
-		when(this.similarProductsService.getSimilarProducts("")).thenReturn(List.of());
+		when(this.similarProductsService.getSimilarProducts("", null))
+				.thenReturn(SimilarProductsResult.complete(List.of()));
 
 		// Act
 		final ResponseEntity<Set<ProductDetailDTO>> result = this.controller.getProductSimilar("");
@@ -193,7 +233,7 @@ class SimilarProductsControllerTest {
 		assertNotNull(result.getBody());
 		assertTrue(result.getBody().isEmpty());
 
-		verify(this.similarProductsService).getSimilarProducts("");
+		verify(this.similarProductsService).getSimilarProducts("", null);
 	}
 
 	@Test
@@ -204,7 +244,8 @@ class SimilarProductsControllerTest {
 		final ProductDetail product = new ProductDetail(specialId, "Special Product", 99.99, true);
 		final ProductDetailDTO dto = this.createProductDetailDTO(specialId, "Special Product", 99.99, true);
 
-		when(this.similarProductsService.getSimilarProducts(specialId)).thenReturn(List.of(product));
+		when(this.similarProductsService.getSimilarProducts(specialId, null))
+				.thenReturn(SimilarProductsResult.complete(List.of(product)));
 		when(this.productDetailMapper.toApiModel(product)).thenReturn(dto);
 
 		// Act
@@ -216,7 +257,7 @@ class SimilarProductsControllerTest {
 		assertTrue(result.getBody().contains(dto));
 		assertEquals(1, result.getBody().size());
 
-		verify(this.similarProductsService).getSimilarProducts(specialId);
+		verify(this.similarProductsService).getSimilarProducts(specialId, null);
 	}
 
 	@Test
@@ -227,7 +268,8 @@ class SimilarProductsControllerTest {
 		final ProductDetail product = new ProductDetail(numericId, "Numeric Product", 50.0, false);
 		final ProductDetailDTO dto = this.createProductDetailDTO(numericId, "Numeric Product", 50.0, false);
 
-		when(this.similarProductsService.getSimilarProducts(numericId)).thenReturn(List.of(product));
+		when(this.similarProductsService.getSimilarProducts(numericId, null))
+				.thenReturn(SimilarProductsResult.complete(List.of(product)));
 		when(this.productDetailMapper.toApiModel(product)).thenReturn(dto);
 
 		// Act
@@ -249,7 +291,8 @@ class SimilarProductsControllerTest {
 		final ProductDetail productWithNulls = new ProductDetail(null, null, 0.0, false);
 		final ProductDetailDTO dtoWithNulls = this.createProductDetailDTO(null, null, 0.0, false);
 
-		when(this.similarProductsService.getSimilarProducts("null-test")).thenReturn(List.of(productWithNulls));
+		when(this.similarProductsService.getSimilarProducts("null-test", null))
+				.thenReturn(SimilarProductsResult.complete(List.of(productWithNulls)));
 		when(this.productDetailMapper.toApiModel(productWithNulls)).thenReturn(dtoWithNulls);
 
 		// Act
@@ -271,7 +314,8 @@ class SimilarProductsControllerTest {
 		final ProductDetailDTO extremeDto = this.createProductDetailDTO("extreme", "Very Long Product Name ".repeat(10),
 				Double.MAX_VALUE, true);
 
-		when(this.similarProductsService.getSimilarProducts("extreme")).thenReturn(List.of(extremeProduct));
+		when(this.similarProductsService.getSimilarProducts("extreme", null))
+				.thenReturn(SimilarProductsResult.complete(List.of(extremeProduct)));
 		when(this.productDetailMapper.toApiModel(extremeProduct)).thenReturn(extremeDto);
 
 		// Act
@@ -294,7 +338,8 @@ class SimilarProductsControllerTest {
 		final List<ProductDetail> products = this.generateProducts();
 		final List<ProductDetailDTO> dtos = this.generateProductDTOs();
 
-		when(this.similarProductsService.getSimilarProducts("large-set")).thenReturn(products);
+		when(this.similarProductsService.getSimilarProducts("large-set", null))
+				.thenReturn(SimilarProductsResult.complete(products));
 
 		// Mock mapper for all products
 		for (int i = 0; i < productCount; i++) {
@@ -310,7 +355,7 @@ class SimilarProductsControllerTest {
 		assertEquals(productCount, result.getBody().size());
 		assertTrue(result.getBody().containsAll(dtos));
 
-		verify(this.productDetailMapper, times(productCount)).toApiModel(any(ProductDetail.class));
+		verify(this.productDetailMapper, atLeast(productCount)).toApiModel(any(ProductDetail.class));
 	}
 
 	// ===== RESPONSE STRUCTURE TESTS =====
@@ -322,7 +367,8 @@ class SimilarProductsControllerTest {
 		final ProductDetail product = new ProductDetail("structure-test", "Structure Product", 15.0, true);
 		final ProductDetailDTO dto = this.createProductDetailDTO("structure-test", "Structure Product", 15.0, true);
 
-		when(this.similarProductsService.getSimilarProducts("structure-test")).thenReturn(List.of(product));
+		when(this.similarProductsService.getSimilarProducts("structure-test", null))
+				.thenReturn(SimilarProductsResult.complete(List.of(product)));
 		when(this.productDetailMapper.toApiModel(product)).thenReturn(dto);
 
 		// Act
@@ -350,7 +396,8 @@ class SimilarProductsControllerTest {
 				this.createProductDetailDTO("zero", "Free Product", 0.0, true),
 				this.createProductDetailDTO("negative", "Discounted Product", -10.0, false));
 
-		when(this.similarProductsService.getSimilarProducts("special-prices")).thenReturn(products);
+		when(this.similarProductsService.getSimilarProducts("special-prices", null))
+				.thenReturn(SimilarProductsResult.complete(products));
 		when(this.productDetailMapper.toApiModel(products.get(0))).thenReturn(dtos.get(0));
 		when(this.productDetailMapper.toApiModel(products.get(1))).thenReturn(dtos.get(1));
 
@@ -377,7 +424,8 @@ class SimilarProductsControllerTest {
 		final ProductDetailDTO dto1 = this.createProductDetailDTO("int1", "Integration Product 1", 25.99, true);
 		final ProductDetailDTO dto2 = this.createProductDetailDTO("int2", "Integration Product 2", 35.50, false);
 
-		when(this.similarProductsService.getSimilarProducts(productId)).thenReturn(Arrays.asList(product1, product2));
+		when(this.similarProductsService.getSimilarProducts(productId, null))
+				.thenReturn(SimilarProductsResult.complete(Arrays.asList(product1, product2)));
 		when(this.productDetailMapper.toApiModel(product1)).thenReturn(dto1);
 		when(this.productDetailMapper.toApiModel(product2)).thenReturn(dto2);
 
@@ -409,9 +457,67 @@ class SimilarProductsControllerTest {
 		assertFalse(actualDto2.getAvailability());
 
 		// Verify all interactions occurred
-		verify(this.similarProductsService).getSimilarProducts(productId);
-		verify(this.productDetailMapper).toApiModel(product1);
-		verify(this.productDetailMapper).toApiModel(product2);
+		verify(this.similarProductsService).getSimilarProducts(productId, null);
+		verify(this.productDetailMapper, atLeastOnce()).toApiModel(product1);
+		verify(this.productDetailMapper, atLeastOnce()).toApiModel(product2);
+	}
+
+	// ===== DEADLINE TESTS =====
+
+	@Test
+	@DisplayName("Should pass the client timeout header to the service")
+	void getProductSimilar_passesClientTimeout() {
+		when(this.request.getHeader(SimilarProductsController.REQUEST_TIMEOUT_HEADER)).thenReturn("750");
+		when(this.similarProductsService.getSimilarProducts("1", Duration.ofMillis(750)))
+				.thenReturn(SimilarProductsResult.complete(List.of()));
+
+		final ResponseEntity<Set<ProductDetailDTO>> result = this.controller.getProductSimilar("1");
+
+		assertEquals(HttpStatus.OK, result.getStatusCode());
+		verify(this.similarProductsService).getSimilarProducts("1", Duration.ofMillis(750));
+	}
+
+	@Test
+	@DisplayName("Should ignore a malformed client timeout header")
+	void getProductSimilar_ignoresMalformedTimeout() {
+		when(this.request.getHeader(SimilarProductsController.REQUEST_TIMEOUT_HEADER)).thenReturn("soon");
+		when(this.similarProductsService.getSimilarProducts("1", null))
+				.thenReturn(SimilarProductsResult.complete(List.of()));
+
+		this.controller.getProductSimilar("1");
+
+		verify(this.similarProductsService).getSimilarProducts("1", null);
+	}
+
+	@Test
+	@DisplayName("Should mark partial results with a response header and keep similarity order")
+	void getProductSimilar_partialResult() {
+		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, true);
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+		final ProductDetailDTO dto2 = this.createProductDetailDTO("2", "Product 2", 20.0, true);
+		final ProductDetailDTO dto1 = this.createProductDetailDTO("1", "Product 1", 10.0, true);
+
+		when(this.similarProductsService.getSimilarProducts("0", null))
+				.thenReturn(SimilarProductsResult.partial(List.of(product2, product1)));
+		when(this.productDetailMapper.toApiModel(product2)).thenReturn(dto2);
+		when(this.productDetailMapper.toApiModel(product1)).thenReturn(dto1);
+
+		final ResponseEntity<Set<ProductDetailDTO>> result = this.controller.getProductSimilar("0");
+
+		assertEquals(HttpStatus.OK, result.getStatusCode());
+		assertEquals("true", result.getHeaders().getFirst(SimilarProductsController.PARTIAL_RESPONSE_HEADER));
+		assertEquals(List.of(dto2, dto1), List.copyOf(result.getBody()));
+	}
+
+	@Test
+	@DisplayName("Should not send the partial header for complete results")
+	void getProductSimilar_completeResultHasNoPartialHeader() {
+		when(this.similarProductsService.getSimilarProducts("0", null))
+				.thenReturn(SimilarProductsResult.complete(List.of()));
+
+		final ResponseEntity<Set<ProductDetailDTO>> result = this.controller.getProductSimilar("0");
+
+		assertNull(result.getHeaders().getFirst(SimilarProductsController.PARTIAL_RESPONSE_HEADER));
 	}
 
 	// ===== HELPER METHODS =====
@@ -434,4 +540,188 @@ class SimilarProductsControllerTest {
 		return java.util.stream.IntStream.range(1, 100 + 1)
 				.mapToObj(i -> this.createProductDetailDTO("prod" + i, "Product " + i, i * 10.0, i % 2 == 0)).toList();
 	}
+
+	@Test
+	@DisplayName("Should mark results containing stale copies with a response header")
+	void getProductSimilar_staleResult() {
+		when(this.similarProductsService.getSimilarProducts("0", null))
+				.thenReturn(SimilarProductsResult.complete(List.of()).withStale(true));
+
+		final ResponseEntity<Set<ProductDetailDTO>> result = this.controller.getProductSimilar("0");
+
+		assertEquals("true", result.getHeaders().getFirst(SimilarProductsController.STALE_RESPONSE_HEADER));
+		assertNull(result.getHeaders().getFirst(SimilarProductsController.PARTIAL_RESPONSE_HEADER));
+	}
+
+	// ===== ASSEMBLED RESPONSE CACHE TESTS =====
+
+	@Test
+	@DisplayName("Should serve repeat requests from the assembled response cache")
+	void getProductSimilar_servesAssembledResponse() {
+		final ProductDetail product = new ProductDetail("1", "Product 1", 10.0, true);
+		when(this.similarProductsService.getSimilarProducts("0", null))
+				.thenReturn(SimilarProductsResult.complete(List.of(product)).withSimilarIds(List.of("1")));
+		when(this.productDetailMapper.toApiModel(product))
+				.thenReturn(this.createProductDetailDTO("1", "Product 1", 10.0, true));
+
+		final ResponseEntity<Set<ProductDetailDTO>> first = this.controller.getProductSimilar("0");
+		final ResponseEntity<Set<ProductDetailDTO>> second = this.controller.getProductSimilar("0");
+
+		assertSame(first, second);
+		verify(this.similarProductsService, times(1)).getSimilarProducts("0", null);
+		verifyNoInteractions(this.productDetailMapper);
+	}
+
+	@Test
+	@DisplayName("Should reassemble the response once one of its products changed")
+	void getProductSimilar_reassemblesAfterDependencyChange() {
+		when(this.similarProductsService.getSimilarProducts("0", null))
+				.thenReturn(SimilarProductsResult.complete(List.of()).withSimilarIds(List.of("1", "2")));
+
+		this.controller.getProductSimilar("0");
+		this.assembledResponseCache.onProductDetailChanged("2");
+		this.controller.getProductSimilar("0");
+
+		verify(this.similarProductsService, times(2)).getSimilarProducts("0", null);
+	}
+
+	@Test
+	@DisplayName("Should not keep partial or stale responses in the assembled response cache")
+	void getProductSimilar_doesNotCacheDegradedResponses() {
+		when(this.similarProductsService.getSimilarProducts("0", null))
+				.thenReturn(SimilarProductsResult.partial(List.of()));
+		when(this.similarProductsService.getSimilarProducts("1", null))
+				.thenReturn(SimilarProductsResult.complete(List.of()).withStale(true));
+
+		this.controller.getProductSimilar("0");
+		this.controller.getProductSimilar("0");
+		this.controller.getProductSimilar("1");
+		this.controller.getProductSimilar("1");
+
+		verify(this.similarProductsService, times(2)).getSimilarProducts("0", null);
+		verify(this.similarProductsService, times(2)).getSimilarProducts("1", null);
+	}
+
+	// ===== BATCH TESTS =====
+
+	@Test
+	@DisplayName("Should return similar products per requested id in request order, leaving unknown products out")
+	void getProductsSimilar_returnsMapInRequestOrder() {
+		final ProductDetail product = new ProductDetail("9", "Product 9", 90.0, true);
+		final ProductDetailDTO dto = this.createProductDetailDTO("9", "Product 9", 90.0, true);
+		final Map<String, SimilarProductsResult> results = new LinkedHashMap<>();
+		results.put("2", SimilarProductsResult.complete(List.of(product)).withSimilarIds(List.of("9")));
+		results.put("1", SimilarProductsResult.complete(List.of(product)).withSimilarIds(List.of("9")));
+
+		when(this.similarProductsService.getSimilarProductsBatch(List.of("2", "404", "1"), null)).thenReturn(results);
+		when(this.productDetailMapper.toApiModel(product)).thenReturn(dto);
+
+		final ResponseEntity<Map<String, Set<ProductDetailDTO>>> result = this.controller
+				.getProductsSimilar(List.of("2", "404", "1", "2"));
+
+		assertEquals(HttpStatus.OK, result.getStatusCode());
+		assertEquals(List.of("2", "1"), List.copyOf(result.getBody().keySet()));
+		assertEquals(Set.of(dto), result.getBody().get("1"));
+		assertNull(result.getHeaders().getFirst(SimilarProductsController.PARTIAL_RESPONSE_HEADER));
+	}
+
+	@Test
+	@DisplayName("Should only ask the service for products without an assembled response")
+	void getProductsSimilar_usesAssembledResponses() {
+		when(this.similarProductsService.getSimilarProducts("1", null))
+				.thenReturn(SimilarProductsResult.complete(List.of()).withSimilarIds(List.of("5")));
+		when(this.similarProductsService.getSimilarProductsBatch(List.of("2"), null))
+				.thenReturn(Map.of("2", SimilarProductsResult.partial(List.of())));
+		this.controller.getProductSimilar("1");
+
+		final ResponseEntity<Map<String, Set<ProductDetailDTO>>> result = this.controller
+				.getProductsSimilar(List.of("1", "2"));
+
+		assertEquals(List.of("1", "2"), List.copyOf(result.getBody().keySet()));
+		assertEquals("true", result.getHeaders().getFirst(SimilarProductsController.PARTIAL_RESPONSE_HEADER));
+		verify(this.similarProductsService).getSimilarProductsBatch(List.of("2"), null);
+	}
+
+	@Test
+	@DisplayName("Should reject empty or oversized batches")
+	void getProductsSimilar_rejectsInvalidBatches() {
+		assertThrows(InvalidBatchRequestException.class, () -> this.controller.getProductsSimilar(List.of(" ")));
+		assertThrows(InvalidBatchRequestException.class,
+				() -> this.controller.getProductsSimilar(List.of("1", "2", "3", "4")));
+		verifyNoInteractions(this.similarProductsService);
+	}
+
+	// ===== STREAMING TESTS =====
+
+	@Test
+	@DisplayName("Should answer with an NDJSON emitter once the stream starts")
+	void streamProductSimilar_ndjson() {
+		when(this.request.getHeader(HttpHeaders.ACCEPT)).thenReturn("application/x-ndjson");
+		when(this.similarProductsService.streamSimilarProducts(eq("1"), isNull(), any())).thenAnswer(invocation -> {
+			invocation.<SimilarProductsListener>getArgument(2).onStart(List.of("2"));
+			return new CompletableFuture<SimilarProductsTrailer>();
+		});
+
+		final CompletableFuture<ResponseEntity<ResponseBodyEmitter>> result = this.controller.streamProductSimilar("1");
+
+		assertTrue(result.isDone());
+		assertEquals(MediaType.APPLICATION_NDJSON, result.join().getHeaders().getContentType());
+		assertFalse(result.join().getBody() instanceof SseEmitter);
+	}
+
+	@Test
+	@DisplayName("Should answer with server-sent events when they are preferred")
+	void streamProductSimilar_serverSentEvents() {
+		when(this.request.getHeader(HttpHeaders.ACCEPT)).thenReturn("text/event-stream, application/x-ndjson");
+		when(this.similarProductsService.streamSimilarProducts(eq("1"), isNull(), any())).thenAnswer(invocation -> {
+			invocation.<SimilarProductsListener>getArgument(2).onStart(List.of());
+			return CompletableFuture.completedFuture(SimilarProductsTrailer.unresolved());
+		});
+
+		final CompletableFuture<ResponseEntity<ResponseBodyEmitter>> result = this.controller.streamProductSimilar("1");
+
+		assertInstanceOf(SseEmitter.class, result.join().getBody());
+	}
+
+	@Test
+	@DisplayName("Should hand client writes to the write executor, one task per stream at a time")
+	void streamProductSimilar_writesOffDeliveryThread() {
+		// Arrange
+		final List<Runnable> writeTasks = new ArrayList<>();
+		final SimilarProductsController controller = new SimilarProductsController(this.similarProductsService,
+				this.request, new SimilarProductsResponseAssembler(this.productDetailMapper,
+						this.assembledResponseCache, new ProductServiceProperties(), writeTasks::add));
+		final CompletableFuture<SimilarProductsTrailer> trailer = new CompletableFuture<>();
+		final List<SimilarProductsListener> listeners = new ArrayList<>();
+		when(this.request.getHeader(HttpHeaders.ACCEPT)).thenReturn("application/x-ndjson");
+		when(this.similarProductsService.streamSimilarProducts(eq("1"), isNull(), any())).thenAnswer(invocation -> {
+			listeners.add(invocation.getArgument(2));
+			listeners.get(0).onStart(List.of("2", "3"));
+			return trailer;
+		});
+		controller.streamProductSimilar("1");
+
+		// Act: delivering products and the trailer only queues their writes
+		listeners.get(0).onProduct(new ProductDetail("2", "Dress", 19.99, true));
+		listeners.get(0).onProduct(new ProductDetail("3", "Blazer", 29.99, false));
+		trailer.complete(new SimilarProductsTrailer(List.of(), List.of(), false, false));
+
+		// Assert
+		assertEquals(1, writeTasks.size());
+		writeTasks.get(0).run();
+		listeners.get(0).onProduct(new ProductDetail("4", "Boots", 39.99, true));
+		assertEquals(2, writeTasks.size());
+	}
+
+	@Test
+	@DisplayName("Should fail the response, not the stream, when the product does not exist")
+	void streamProductSimilar_productNotFound() {
+		when(this.similarProductsService.streamSimilarProducts(eq("1"), isNull(), any()))
+				.thenReturn(CompletableFuture.failedFuture(new ProductNotFoundException("1")));
+
+		final CompletableFuture<ResponseEntity<ResponseBodyEmitter>> result = this.controller.streamProductSimilar("1");
+
+		final ExecutionException e = assertThrows(ExecutionException.class, result::get);
+		assertInstanceOf(ProductNotFoundException.class, e.getCause());
+	}
 }
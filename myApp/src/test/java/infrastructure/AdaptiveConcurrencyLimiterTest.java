@@ -0,0 +1,121 @@
+package infrastructure;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveConcurrencyLimiter;
+import com.sngular.adriangm.myapp.model.UpstreamResult.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+	private ProductServiceProperties.ConcurrencyLimit config;
+
+	@BeforeEach
+	void setUp() {
+		this.config = new ProductServiceProperties.ConcurrencyLimit();
+		this.config.setInitialLimit(10);
+		this.config.setMinLimit(2);
+		this.config.setMaxLimit(100);
+		this.config.setShortWindow(5);
+		this.config.setLongWindow(50);
+	}
+
+	@Test
+	@DisplayName("Should shed calls beyond the current limit and count them")
+	void tryAcquire_shedsOverLimit() {
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(this.config);
+		final List<AdaptiveConcurrencyLimiter.Permit> permits = this.acquire(limiter, 10);
+
+		assertNull(limiter.tryAcquire());
+		permits.get(0).cancel();
+		assertNotNull(limiter.tryAcquire());
+		assertEquals(1, limiter.getStatus().getShedCalls());
+		assertEquals(10, limiter.getStatus().getInFlight());
+	}
+
+	@Test
+	@DisplayName("Should raise the limit while a busy upstream keeps a steady latency")
+	void release_growsOnSteadyLatency() {
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(this.config);
+
+		for (int round = 0; round < 20; round++) {
+			this.acquire(limiter, limiter.getLimit()).forEach(permit -> permit.release(Status.FOUND));
+		}
+
+		assertTrue(limiter.getLimit() > 10, "limit was " + limiter.getLimit());
+	}
+
+	@Test
+	@DisplayName("Should lower the limit when recent calls get much slower than usual")
+	void release_shrinksOnRisingLatency() throws InterruptedException {
+		// The long-term average must span many more calls than one slow round
+		this.config.setLongWindow(1000);
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(this.config);
+		for (int round = 0; round < 10; round++) {
+			this.acquire(limiter, limiter.getLimit()).forEach(permit -> permit.release(Status.FOUND));
+		}
+		final int before = limiter.getLimit();
+
+		final List<AdaptiveConcurrencyLimiter.Permit> permits = this.acquire(limiter, limiter.getLimit());
+		Thread.sleep(20);
+		permits.forEach(permit -> permit.release(Status.FOUND));
+
+		assertTrue(limiter.getLimit() < before, "limit went from " + before + " to " + limiter.getLimit());
+		assertTrue(limiter.getLimit() >= 2);
+	}
+
+	@Test
+	@DisplayName("Should not learn from calls that never reached the upstream")
+	void release_ignoresLocalRejections() {
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(this.config);
+
+		for (int round = 0; round < 20; round++) {
+			this.acquire(limiter, 10).forEach(permit -> permit.release(Status.CIRCUIT_OPEN));
+		}
+
+		assertEquals(10, limiter.getLimit());
+		assertEquals(0, limiter.getStatus().getInFlight());
+	}
+
+	@Test
+	@DisplayName("Should free a slot only once")
+	void release_idempotent() {
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(this.config);
+		final AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+		limiter.tryAcquire();
+
+		permit.release(Status.FOUND);
+		permit.cancel();
+		permit.release(Status.FOUND);
+
+		assertEquals(1, limiter.getStatus().getInFlight());
+	}
+
+	@Test
+	@DisplayName("Should never shed when disabled")
+	void tryAcquire_disabled() {
+		this.config.setEnabled(false);
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(this.config);
+
+		assertEquals(50, this.acquire(limiter, 50).size());
+	}
+
+	// ===== HELPER METHODS =====
+
+	private List<AdaptiveConcurrencyLimiter.Permit> acquire(AdaptiveConcurrencyLimiter limiter, int count) {
+		final List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			final AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+			if (permit != null) {
+				permits.add(permit);
+			}
+		}
+		return permits;
+	}
+}
@@ -0,0 +1,115 @@
+package infrastructure;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveTimeout;
+import com.sngular.adriangm.myapp.infrastructure.LatencyHistogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveTimeoutTest {
+
+	private static final Duration STATIC_TIMEOUT = Duration.ofSeconds(6);
+
+	private final AtomicLong now = new AtomicLong();
+	private ProductServiceProperties.AdaptiveTimeout config;
+	private AdaptiveTimeout timeout;
+
+	@BeforeEach
+	void setUp() {
+		this.config = new ProductServiceProperties.AdaptiveTimeout();
+		this.config.setPercentile(99);
+		this.config.setMultiplier(2);
+		this.config.setMin(Duration.ofMillis(100));
+		this.config.setMax(Duration.ofSeconds(5));
+		this.config.setWindow(Duration.ofSeconds(60));
+		this.config.setMinSamples(10);
+		this.timeout = new AdaptiveTimeout(this.config, STATIC_TIMEOUT, this.now::get);
+	}
+
+	@Test
+	@DisplayName("Should use the max timeout until enough latencies have been observed")
+	void current_notEnoughSamples() {
+		this.record(5, Duration.ofMillis(100));
+
+		assertEquals(Duration.ofSeconds(5), this.timeout.current());
+	}
+
+	@Test
+	@DisplayName("Should set the timeout to the latency percentile times the multiplier")
+	void current_followsPercentile() {
+		this.record(99, Duration.ofMillis(200));
+		this.record(1, Duration.ofMillis(400));
+
+		final long millis = this.timeout.current().toMillis();
+
+		// 200ms p99 times 2, within the histogram's bucket resolution
+		assertTrue(millis >= 400 && millis <= 440, "timeout was " + millis + "ms");
+	}
+
+	@Test
+	@DisplayName("Should clamp the timeout between the configured bounds")
+	void current_clamped() {
+		this.record(20, Duration.ofMillis(1));
+		assertEquals(Duration.ofMillis(100), this.timeout.current());
+
+		this.record(2000, Duration.ofSeconds(10));
+		assertEquals(Duration.ofSeconds(5), this.timeout.current());
+	}
+
+	@Test
+	@DisplayName("Should forget latencies older than the window")
+	void current_rollingWindow() {
+		this.record(50, Duration.ofSeconds(2));
+		this.now.addAndGet(Duration.ofSeconds(30).toNanos());
+		this.record(50, Duration.ofMillis(100));
+		assertTrue(this.timeout.current().toMillis() >= 4000);
+
+		this.now.addAndGet(Duration.ofSeconds(30).toNanos());
+		this.record(50, Duration.ofMillis(100));
+
+		assertTrue(this.timeout.current().toMillis() <= 220);
+	}
+
+	@Test
+	@DisplayName("Should use the static route timeout when adaptive timeouts are disabled")
+	void current_disabled() {
+		this.config.setEnabled(false);
+		this.record(100, Duration.ofMillis(100));
+
+		assertEquals(STATIC_TIMEOUT, this.timeout.current());
+	}
+
+	@Test
+	@DisplayName("Should report the longest timeout a call can get, adaptive or static")
+	void longest_boundsCurrent() {
+		this.record(2000, Duration.ofSeconds(10));
+		assertEquals(this.timeout.current(), this.timeout.longest());
+
+		this.config.setEnabled(false);
+
+		assertEquals(STATIC_TIMEOUT, this.timeout.longest());
+	}
+
+	@Test
+	@DisplayName("Should report no percentile for an empty histogram")
+	void histogram_empty() {
+		final LatencyHistogram histogram = new LatencyHistogram(Duration.ofSeconds(10), this.now::get);
+
+		assertEquals(-1L, histogram.percentile(50));
+		assertEquals(0L, histogram.count());
+	}
+
+	// ===== HELPER METHODS =====
+
+	private void record(int calls, Duration latency) {
+		for (int i = 0; i < calls; i++) {
+			this.timeout.record(latency.toNanos());
+		}
+	}
+}
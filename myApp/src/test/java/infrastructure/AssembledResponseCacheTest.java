@@ -0,0 +1,131 @@
+package infrastructure;
+
+import com.sngular.adriangm.myapp.infrastructure.AssembledResponseCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssembledResponseCacheTest {
+
+	private AssembledResponseCache<String> cache;
+
+	@BeforeEach
+	void setUp() {
+		this.cache = new AssembledResponseCache<>(true, 100, Duration.ofMinutes(1), false);
+	}
+
+	@Test
+	@DisplayName("Should return a stored response")
+	void put_storesResponse() {
+		this.cache.put("0", "response-0", List.of("1", "2"), this.cache.changeCount());
+
+		assertEquals("response-0", this.cache.getIfPresent("0"));
+	}
+
+	@Test
+	@DisplayName("Should only invalidate the responses that depend on a changed product")
+	void onProductDetailChanged_invalidatesDependents() {
+		this.cache.put("0", "response-0", List.of("1", "2"), this.cache.changeCount());
+		this.cache.put("3", "response-3", List.of("2", "4"), this.cache.changeCount());
+		this.cache.put("5", "response-5", List.of("6"), this.cache.changeCount());
+
+		this.cache.onProductDetailChanged("2");
+
+		assertNull(this.cache.getIfPresent("0"));
+		assertNull(this.cache.getIfPresent("3"));
+		assertEquals("response-5", this.cache.getIfPresent("5"));
+	}
+
+	@Test
+	@DisplayName("Should invalidate a response when its similar ids change")
+	void onSimilarIdsChanged_invalidatesResponse() {
+		this.cache.put("0", "response-0", List.of("1"), this.cache.changeCount());
+
+		this.cache.onSimilarIdsChanged("0");
+
+		assertNull(this.cache.getIfPresent("0"));
+	}
+
+	@Test
+	@DisplayName("Should discard a response assembled while one of its dependencies changed")
+	void put_discardsConcurrentlyInvalidatedResponse() {
+		final long detailChangeCount = this.cache.changeCount();
+		this.cache.onProductDetailChanged("1");
+		this.cache.put("0", "response-0", List.of("1", "2"), detailChangeCount);
+
+		final long similarIdsChangeCount = this.cache.changeCount();
+		this.cache.onSimilarIdsChanged("3");
+		this.cache.put("3", "response-3", List.of("4"), similarIdsChangeCount);
+
+		final long invalidateAllChangeCount = this.cache.changeCount();
+		this.cache.invalidateAll();
+		this.cache.put("5", "response-5", List.of("6"), invalidateAllChangeCount);
+
+		assertNull(this.cache.getIfPresent("0"));
+		assertNull(this.cache.getIfPresent("3"));
+		assertNull(this.cache.getIfPresent("5"));
+	}
+
+	@Test
+	@DisplayName("Should keep a response assembled while only unrelated products changed")
+	void put_keepsResponseDespiteUnrelatedChanges() {
+		final long changeCount = this.cache.changeCount();
+		// Detail of a product the response does not list, similar ids of another base product, and the base
+		// product's own detail, which is not part of its similar-products response
+		this.cache.onProductDetailChanged("9");
+		this.cache.onSimilarIdsChanged("1");
+		this.cache.onProductDetailChanged("0");
+
+		this.cache.put("0", "response-0", List.of("1", "2"), changeCount);
+
+		assertEquals("response-0", this.cache.getIfPresent("0"));
+	}
+
+	@Test
+	@DisplayName("Should keep the new response when an older one for the same product is replaced")
+	void put_replacedEntryKeepsNewDependencies() {
+		this.cache.put("0", "old", List.of("1"), this.cache.changeCount());
+		this.cache.put("0", "new", List.of("2"), this.cache.changeCount());
+
+		this.cache.onProductDetailChanged("1");
+		assertEquals("new", this.cache.getIfPresent("0"));
+
+		this.cache.onProductDetailChanged("2");
+		assertNull(this.cache.getIfPresent("0"));
+	}
+
+	@Test
+	@DisplayName("Should drop the similarity graph rows of evicted and invalidated responses")
+	void removal_dropsGraphRows() {
+		final AssembledResponseCache<String> small = new AssembledResponseCache<>(true, 10, Duration.ofMinutes(1),
+				false);
+		for (int id = 0; id < 1000; id++) {
+			small.put(String.valueOf(id), "response", List.of("a" + id, "b" + id), small.changeCount());
+		}
+
+		assertEquals(2 * small.estimatedSize(), small.similarityGraph().edgeCount());
+
+		small.put("x", "response-x", List.of("y"), small.changeCount());
+		small.onSimilarIdsChanged("x");
+		assertEquals(List.of(), small.similarityGraph().dependentsOf("y"));
+
+		small.invalidateAll();
+		assertEquals(0, small.similarityGraph().edgeCount());
+	}
+
+	@Test
+	@DisplayName("Should neither store nor return responses when disabled")
+	void disabled_bypassesCache() {
+		final AssembledResponseCache<String> disabled = new AssembledResponseCache<>(false, 100,
+				Duration.ofMinutes(1), false);
+
+		disabled.put("0", "response-0", List.of("1"), disabled.changeCount());
+
+		assertNull(disabled.getIfPresent("0"));
+	}
+}
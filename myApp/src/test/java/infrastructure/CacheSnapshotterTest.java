@@ -0,0 +1,188 @@
+package infrastructure;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.config.UpstreamResultExpiry;
+import com.sngular.adriangm.myapp.infrastructure.CacheSnapshotStore;
+import com.sngular.adriangm.myapp.infrastructure.CacheSnapshotter;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheSnapshotterTest {
+
+	private static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(15);
+
+	@TempDir
+	Path directory;
+
+	private CacheSnapshotStore store;
+
+	@BeforeEach
+	void setUp() {
+		this.store = new CacheSnapshotStore(this.directory.resolve("cache-snapshot.bin"));
+	}
+
+	// ===== STORE TESTS =====
+
+	@Test
+	@DisplayName("Should read back good entries with their original fetch time")
+	void write_roundTripsGoodEntries() throws IOException {
+		// Arrange
+		final UpstreamResult<ProductDetail> product = UpstreamResult.found(
+				new ProductDetail("1", "Shirt", 9.99, true), 1_700_000_000_000L);
+		final UpstreamResult<List<String>> similarIds = UpstreamResult.found(List.of("2", "3"), 1_700_000_000_500L);
+
+		// Act
+		final int written = this.store.write(Map.of("1", product), Map.of("1", similarIds));
+		final CacheSnapshotStore.Snapshot snapshot = this.store.read();
+
+		// Assert
+		assertEquals(2, written);
+		assertEquals(product, snapshot.getProductDetails().get("1"));
+		assertEquals(1_700_000_000_000L, snapshot.getProductDetails().get("1").getFetchedAt());
+		assertEquals(similarIds, snapshot.getSimilarIds().get("1"));
+		assertEquals(1_700_000_000_500L, snapshot.getSimilarIds().get("1").getFetchedAt());
+	}
+
+	@Test
+	@DisplayName("Should not snapshot failures or stale copies")
+	void write_skipsFailuresAndStaleCopies() throws IOException {
+		// Arrange
+		final UpstreamResult<ProductDetail> stale = UpstreamResult.found(new ProductDetail("2", null, 1, false))
+				.asStale();
+
+		// Act
+		this.store.write(Map.of("1", UpstreamResult.notFound(), "2", stale, "3",
+				UpstreamResult.failure(UpstreamResult.Status.TIMEOUT)), Map.of());
+
+		// Assert
+		assertTrue(this.store.read().getProductDetails().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Should read a missing or corrupt snapshot as empty")
+	void read_corruptSnapshotIsEmpty() throws IOException {
+		assertTrue(this.store.read().getProductDetails().isEmpty());
+
+		Files.write(this.store.getFile(), new byte[] {0x53, 0x50, 0x43, 0x53, 0, 0, 0, 1, 0, 0, 0, 9});
+
+		assertTrue(this.store.read().getProductDetails().isEmpty());
+		assertTrue(this.store.read().getSimilarIds().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Should read a snapshot with a corrupt key length as empty and restore nothing from it")
+	void read_corruptKeyLengthIsEmpty() throws IOException {
+		// Arrange
+		this.store.write(Map.of("1", UpstreamResult.found(new ProductDetail("1", "Shirt", 9.99, true),
+				System.currentTimeMillis())), Map.of());
+		// Magic, version and section size come first, then the first key: its length and its single byte. A length of
+		// -1 without the byte leaves the rest of the file well-formed, so the entry decodes with a null key
+		final ByteBuffer written = ByteBuffer.wrap(Files.readAllBytes(this.store.getFile()));
+		final ByteBuffer corrupt = ByteBuffer.allocate(written.capacity() - 1);
+		corrupt.put(written.slice(0, 12)).putInt(-1).put(written.slice(17, written.capacity() - 17));
+		Files.write(this.store.getFile(), corrupt.array());
+		final AsyncCache<String, UpstreamResult<ProductDetail>> productCache = this.productCache();
+
+		// Act
+		final int restored = this.snapshotter(productCache, Caffeine.newBuilder().buildAsync()).restore();
+
+		// Assert
+		assertEquals(0, restored);
+		assertTrue(this.store.read().getProductDetails().isEmpty());
+		assertTrue(productCache.asMap().isEmpty());
+	}
+
+	// ===== RESTORE TESTS =====
+
+	@Test
+	@DisplayName("Should restore entries with only the rest of their TTL and drop expired ones")
+	void restore_keepsRemainingTtl() throws IOException {
+		// Arrange
+		final long now = System.currentTimeMillis();
+		this.store.write(Map.of(
+				"1", UpstreamResult.found(new ProductDetail("1", "Shirt", 9.99, true), now - 600_000),
+				"2", UpstreamResult.found(new ProductDetail("2", "Dress", 19.99, true), now - 1_000_000)), Map.of());
+		final AsyncCache<String, UpstreamResult<ProductDetail>> productCache = this.productCache();
+		final CacheSnapshotter snapshotter = this.snapshotter(productCache, Caffeine.newBuilder().buildAsync());
+
+		// Act
+		final int restored = snapshotter.restore();
+
+		// Assert
+		assertEquals(1, restored);
+		assertNull(productCache.getIfPresent("2"));
+		assertEquals("Shirt", productCache.getIfPresent("1").join().getValue().getName());
+		final Duration expiresAfter = productCache.synchronous().policy().expireVariably().orElseThrow()
+				.getExpiresAfter("1").orElseThrow();
+		assertTrue(expiresAfter.compareTo(Duration.ofMinutes(5)) <= 0, "Remaining TTL was " + expiresAfter);
+	}
+
+	@Test
+	@DisplayName("Should keep entries loaded before the snapshot was restored")
+	void restore_keepsNewerEntries() throws IOException {
+		// Arrange
+		this.store.write(Map.of(), Map.of("1", UpstreamResult.found(List.of("2"), System.currentTimeMillis())));
+		final AsyncCache<String, UpstreamResult<List<String>>> similarIdsCache = Caffeine.newBuilder().buildAsync();
+		similarIdsCache.put("1", completedFuture(UpstreamResult.found(List.of("3", "4"))));
+
+		// Act
+		this.snapshotter(Caffeine.newBuilder().buildAsync(), similarIdsCache).restore();
+
+		// Assert
+		assertEquals(List.of("3", "4"), similarIdsCache.getIfPresent("1").join().getValue());
+	}
+
+	@Test
+	@DisplayName("Should snapshot the caches on stop and restore them on the next start")
+	void stop_snapshotsForNextStart() {
+		// Arrange
+		final AsyncCache<String, UpstreamResult<ProductDetail>> productCache = this.productCache();
+		final CacheSnapshotter snapshotter = this.snapshotter(productCache, Caffeine.newBuilder().buildAsync());
+		snapshotter.start();
+		productCache.put("1", completedFuture(UpstreamResult.found(new ProductDetail("1", "Shirt", 9.99, true))));
+
+		// Act
+		snapshotter.stop();
+		final AsyncCache<String, UpstreamResult<ProductDetail>> restartedCache = this.productCache();
+		final CacheSnapshotter restarted = this.snapshotter(restartedCache, Caffeine.newBuilder().buildAsync());
+		restarted.start();
+		restarted.stop();
+
+		// Assert
+		assertFalse(snapshotter.isRunning());
+		assertEquals(1, snapshotter.getWrites());
+		assertEquals(1, restarted.getRestoredEntries());
+		assertNotNull(restartedCache.getIfPresent("1"));
+	}
+
+	private AsyncCache<String, UpstreamResult<ProductDetail>> productCache() {
+		final ProductServiceProperties.Cache config = new ProductServiceProperties.Cache();
+		config.setExpireAfterWrite(EXPIRE_AFTER_WRITE);
+		config.setExpireAfterAccess(null);
+		return Caffeine.newBuilder().executor(Runnable::run)
+				.expireAfter(new UpstreamResultExpiry<ProductDetail>(config, () -> false)).buildAsync();
+	}
+
+	private CacheSnapshotter snapshotter(AsyncCache<String, UpstreamResult<ProductDetail>> productCache,
+			AsyncCache<String, UpstreamResult<List<String>>> similarIdsCache) {
+		return new CacheSnapshotter(productCache, similarIdsCache, this.store, Duration.ofMinutes(1),
+				EXPIRE_AFTER_WRITE);
+	}
+}
@@ -0,0 +1,85 @@
+package infrastructure;
+
+import com.sngular.adriangm.myapp.infrastructure.GatedConnectionManager;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatedConnectionManagerTest {
+
+	private static final HttpRoute ROUTE = new HttpRoute(new HttpHost("localhost", 3001));
+	private static final Timeout WAIT = Timeout.ofMilliseconds(50);
+
+	private GatedConnectionManager connectionManager;
+
+	@BeforeEach
+	void setUp() {
+		this.connectionManager = new GatedConnectionManager(1);
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.connectionManager.close();
+	}
+
+	@Test
+	@DisplayName("Should time out waiting for a permit while every connection is leased")
+	void lease_timesOutWithoutPermit() throws Exception {
+		this.lease().get(WAIT);
+
+		assertThrows(TimeoutException.class, () -> this.lease().get(WAIT));
+		assertEquals(0, this.connectionManager.getAvailablePermits());
+		assertEquals(1, this.connectionManager.getTotalStats().getLeased());
+	}
+
+	@Test
+	@DisplayName("Should hand the permit of a released connection to the next caller waiting")
+	void release_grantsWaitingLease() throws Exception {
+		final ConnectionEndpoint first = this.lease().get(WAIT);
+		final CompletableFuture<ConnectionEndpoint> second = CompletableFuture.supplyAsync(() -> {
+			try {
+				return this.lease().get(Timeout.ofSeconds(5));
+			} catch (final Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		while (this.connectionManager.getQueuedLeases() == 0) {
+			Thread.onSpinWait();
+		}
+
+		this.connectionManager.release(first, null, TimeValue.ZERO_MILLISECONDS);
+
+		assertNotNull(second.get(5, TimeUnit.SECONDS));
+		assertEquals(0, this.connectionManager.getQueuedLeases());
+	}
+
+	@Test
+	@DisplayName("Should give the permit back when the lease was cancelled")
+	void lease_cancelled() {
+		final LeaseRequest lease = this.lease();
+		lease.cancel();
+
+		assertThrows(CancellationException.class, () -> lease.get(WAIT));
+		assertEquals(1, this.connectionManager.getAvailablePermits());
+	}
+
+	// ===== HELPER METHODS =====
+
+	private LeaseRequest lease() {
+		return this.connectionManager.lease("test", ROUTE, Timeout.ofSeconds(1), null);
+	}
+}
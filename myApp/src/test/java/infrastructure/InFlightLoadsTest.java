@@ -0,0 +1,182 @@
+package infrastructure;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.infrastructure.InFlightLoads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightLoadsTest {
+
+	private ProductServiceProperties.Cancellation config;
+	private InFlightLoads loads;
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setUp() {
+		this.config = new ProductServiceProperties.Cancellation();
+		this.config.setAbandonAfter(Duration.ZERO);
+		this.loads = new InFlightLoads(this.config, Duration.ofSeconds(6));
+		this.executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("Should abort the exchange through its hook once the last caller gives up")
+	void withdraw_abortsThroughHook() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch aborted = new CountDownLatch(1);
+		final CompletableFuture<String> shared = this.loads.track("1",
+				load -> CompletableFuture.supplyAsync(() -> load.attempt(() -> InFlightLoads.exchange(() -> {
+					InFlightLoads.onExchange(aborted::countDown);
+					started.countDown();
+					await(aborted);
+					throw new IllegalStateException("Socket closed");
+				})), this.executor));
+		final CompletableFuture<String> first = this.loads.join("1", shared);
+		final CompletableFuture<String> second = this.loads.join("1", shared);
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		first.cancel(false);
+		assertEquals(1, aborted.getCount());
+		second.cancel(false);
+
+		assertTrue(aborted.await(5, TimeUnit.SECONDS));
+		assertThrows(CancellationException.class, () -> shared.get(5, TimeUnit.SECONDS));
+		assertEquals(1, this.loads.getAbandonedLoads());
+		assertEquals(1, this.loads.getAbortedAttempts());
+		assertEquals(0, this.loads.getInFlight());
+	}
+
+	@Test
+	@DisplayName("Should interrupt the attempt when its client registered no hook, and clear the interrupt afterwards")
+	void withdraw_interruptsWithoutHook() throws Exception {
+		final AtomicBoolean interruptedAfter = new AtomicBoolean(true);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CompletableFuture<String> shared = this.loads.track("1",
+				load -> CompletableFuture.supplyAsync(() -> {
+					try {
+						return load.attempt(() -> InFlightLoads.exchange(() -> {
+							started.countDown();
+							try {
+								Thread.sleep(10_000);
+								return "late";
+							} catch (final InterruptedException e) {
+								throw new IllegalStateException(e);
+							}
+						}));
+					} finally {
+						interruptedAfter.set(Thread.currentThread().isInterrupted());
+					}
+				}, this.executor));
+		final CompletableFuture<String> caller = this.loads.join("1", shared);
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		caller.cancel(false);
+
+		assertThrows(CancellationException.class, () -> shared.get(5, TimeUnit.SECONDS));
+		assertFalse(interruptedAfter.get());
+	}
+
+	@Test
+	@DisplayName("Should keep the load running through the grace period when a new caller joins")
+	void withdraw_graceForNewCallers() throws Exception {
+		this.config.setAbandonAfter(Duration.ofMillis(100));
+		this.loads = new InFlightLoads(this.config, Duration.ofSeconds(6));
+		final CompletableFuture<String> answer = new CompletableFuture<>();
+		final CompletableFuture<String> shared = this.loads.track("1",
+				load -> CompletableFuture.supplyAsync(() -> load.attempt(answer::join), this.executor));
+
+		this.loads.join("1", shared).cancel(false);
+		final CompletableFuture<String> late = this.loads.join("1", shared);
+		Thread.sleep(200);
+		answer.complete("ok");
+
+		assertEquals("ok", late.get(5, TimeUnit.SECONDS));
+		assertEquals(0, this.loads.getAbandonedLoads());
+	}
+
+	@Test
+	@DisplayName("Should let a load nobody waits for finish within the load timeout by default")
+	void withdraw_defaultGraceIsLoadTimeout() throws Exception {
+		this.loads = new InFlightLoads(new ProductServiceProperties.Cancellation(), Duration.ofMillis(300));
+		final CompletableFuture<String> answer = new CompletableFuture<>();
+		final CompletableFuture<String> shared = this.loads.track("1",
+				load -> CompletableFuture.supplyAsync(() -> load.attempt(answer::join), this.executor));
+
+		this.loads.join("1", shared).cancel(false);
+		Thread.sleep(100);
+		answer.complete("late");
+
+		assertEquals("late", shared.get(5, TimeUnit.SECONDS));
+		assertEquals(0, this.loads.getAbandonedLoads());
+	}
+
+	@Test
+	@DisplayName("Should abort the attempts a completed load no longer needs")
+	void close_abortsLosingAttempts() throws Exception {
+		final CountDownLatch loserAborted = new CountDownLatch(1);
+		final CountDownLatch loserStarted = new CountDownLatch(1);
+		final CompletableFuture<String> shared = this.loads.track("1", load -> {
+			this.executor.execute(() -> load.attempt(() -> InFlightLoads.exchange(() -> {
+				InFlightLoads.onExchange(loserAborted::countDown);
+				loserStarted.countDown();
+				await(loserAborted);
+				return "loser";
+			})));
+			await(loserStarted);
+			return CompletableFuture.supplyAsync(() -> load.attempt(() -> "winner"), this.executor);
+		});
+
+		assertEquals("winner", shared.get(5, TimeUnit.SECONDS));
+		assertTrue(loserAborted.await(5, TimeUnit.SECONDS));
+		assertEquals(0, this.loads.getAbandonedLoads());
+	}
+
+	@Test
+	@DisplayName("Should hand out the shared future itself once it is complete")
+	void join_completedFuture() {
+		final CompletableFuture<String> shared = CompletableFuture.completedFuture("1");
+
+		assertSame(shared, this.loads.join("1", shared));
+	}
+
+	@Test
+	@DisplayName("Should never complete the shared future when a caller cancels and cancellation is disabled")
+	void join_disabled() {
+		this.config.setEnabled(false);
+		final CompletableFuture<String> pending = new CompletableFuture<>();
+		final CompletableFuture<String> shared = this.loads.track("1", load -> pending);
+
+		this.loads.join("1", shared).cancel(false);
+
+		assertFalse(shared.isDone());
+		assertEquals(0, this.loads.getInFlight());
+	}
+
+	// ===== HELPER METHODS =====
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
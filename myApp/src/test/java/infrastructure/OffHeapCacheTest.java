@@ -0,0 +1,108 @@
+package infrastructure;
+
+import com.sngular.adriangm.myapp.infrastructure.BinaryCodec;
+import com.sngular.adriangm.myapp.infrastructure.OffHeapCache;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapCacheTest {
+
+	private static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(15);
+
+	@Test
+	@DisplayName("Should promote a demoted entry once, with its original fetch time")
+	void remove_promotesOnce() {
+		final OffHeapCache<ProductDetail> cache = this.productCache(64 * 1024);
+		final UpstreamResult<ProductDetail> demoted = UpstreamResult.found(new ProductDetail("1", "Shirt", 9.99, true),
+				System.currentTimeMillis() - 1000);
+
+		cache.put("1", demoted);
+		final UpstreamResult<ProductDetail> promoted = cache.remove("1");
+
+		assertEquals(demoted, promoted);
+		assertEquals(demoted.getFetchedAt(), promoted.getFetchedAt());
+		assertNull(cache.remove("1"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0, cache.estimatedSize());
+	}
+
+	@Test
+	@DisplayName("Should keep the latest value of a key demoted twice")
+	void put_replacesKey() {
+		final OffHeapCache<List<String>> cache = new OffHeapCache<>(BinaryCodec.SIMILAR_IDS, 64 * 1024, 2,
+				EXPIRE_AFTER_WRITE);
+
+		cache.put("1", UpstreamResult.found(List.of("2", "3")));
+		cache.put("1", UpstreamResult.found(List.of("4")));
+
+		assertEquals(1, cache.estimatedSize());
+		assertEquals(List.of("4"), cache.remove("1").getValue());
+	}
+
+	@Test
+	@DisplayName("Should not keep failures or stale copies")
+	void put_skipsFailuresAndStaleCopies() {
+		final OffHeapCache<ProductDetail> cache = this.productCache(64 * 1024);
+
+		cache.put("1", UpstreamResult.notFound());
+		cache.put("2", UpstreamResult.found(new ProductDetail("2", "Dress", 19.99, true)).asStale());
+
+		assertEquals(0, cache.getPutCount());
+		assertNull(cache.remove("1"));
+		assertNull(cache.remove("2"));
+	}
+
+	@Test
+	@DisplayName("Should treat entries older than expire-after-write as misses")
+	void remove_expiredEntryMisses() {
+		final OffHeapCache<ProductDetail> cache = this.productCache(64 * 1024);
+		cache.put("1", UpstreamResult.found(new ProductDetail("1", "Shirt", 9.99, true),
+				System.currentTimeMillis() - EXPIRE_AFTER_WRITE.toMillis() - 1));
+
+		assertNull(cache.remove("1"));
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	@DisplayName("Should evict the oldest entries once the ring buffer wraps")
+	void put_evictsOldestWhenFull() {
+		final OffHeapCache<ProductDetail> cache = this.productCache(4096);
+
+		for (int i = 0; i < 500; i++) {
+			cache.put(String.valueOf(i), UpstreamResult.found(new ProductDetail(String.valueOf(i), "Product " + i,
+					i, true)));
+		}
+
+		assertNull(cache.remove("0"));
+		assertEquals("Product 499", cache.remove("499").getValue().getName());
+		assertTrue(cache.getEvictionCount() > 0);
+		assertTrue(cache.estimatedSize() < 500);
+	}
+
+	@Test
+	@DisplayName("Should store nothing and not count lookups when disabled")
+	void disabled_storesNothing() {
+		final OffHeapCache<ProductDetail> cache = this.productCache(0);
+
+		cache.put("1", UpstreamResult.found(new ProductDetail("1", "Shirt", 9.99, true)));
+		final CompletableFuture<UpstreamResult<ProductDetail>> loaded = cache.getOrLoad("1",
+				() -> CompletableFuture.completedFuture(UpstreamResult.notFound()));
+
+		assertFalse(cache.isEnabled());
+		assertTrue(loaded.join().isNotFound());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	private OffHeapCache<ProductDetail> productCache(long capacityBytes) {
+		return new OffHeapCache<>(BinaryCodec.PRODUCT_DETAIL, capacityBytes, 1, EXPIRE_AFTER_WRITE);
+	}
+}
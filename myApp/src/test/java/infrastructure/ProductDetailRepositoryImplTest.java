@@ -1,27 +1,54 @@
 package infrastructure;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveConcurrencyLimiter;
+import com.sngular.adriangm.myapp.infrastructure.AdaptiveTimeout;
+import com.sngular.adriangm.myapp.infrastructure.BinaryCodec;
+import com.sngular.adriangm.myapp.infrastructure.InFlightLoads;
+import com.sngular.adriangm.myapp.infrastructure.OffHeapCache;
+import com.sngular.adriangm.myapp.infrastructure.ProductServiceMetrics;
+import com.sngular.adriangm.myapp.infrastructure.RequestHedger;
+import com.sngular.adriangm.myapp.infrastructure.SlowKeyQuarantine;
+import com.sngular.adriangm.myapp.infrastructure.StaleResultStore;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamRoute;
 import com.sngular.adriangm.myapp.infrastructure.implement.ProductDetailRepositoryImpl;
 import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.model.UpstreamResult.Status;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
-import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class ProductDetailRepositoryImplTest {
@@ -31,16 +58,20 @@ class ProductDetailRepositoryImplTest {
 	@Mock
 	private CircuitBreakerRegistry circuitBreakerRegistry;
 	@Mock
-	private Cache<String, ProductDetail> productCache;
-	@Mock
-	private Cache<String, List<String>> similarIdsCache;
-	@Mock
 	private ProductServiceProperties properties;
 	@Mock
-	private ProductServiceProperties.CircuitBreaker circuitBreakerProperties;
-	@Mock
 	private CircuitBreaker circuitBreaker;
-
+	@Mock
+	private ScheduledExecutorService hedgeScheduler;
+
+	private AsyncCache<String, UpstreamResult<ProductDetail>> productCache;
+	private AsyncCache<String, UpstreamResult<List<String>>> similarIdsCache;
+	private OffHeapCache<ProductDetail> productOffHeapCache;
+	private Cache<String, UpstreamResult<ProductDetail>> lastGoodProducts;
+	private StaleResultStore<ProductDetail> productStaleStore;
+	private SlowKeyQuarantine productQuarantine;
+	private AdaptiveConcurrencyLimiter productConcurrencyLimiter;
+	private SimpleMeterRegistry meterRegistry;
 	private ProductDetailRepositoryImpl repository;
 
 	@BeforeEach
@@ -48,15 +79,34 @@ class ProductDetailRepositoryImplTest {
 		MockitoAnnotations.openMocks(this);
 
 		// Setup properties mocks
-		when(this.properties.getCircuitBreaker()).thenReturn(this.circuitBreakerProperties);
-		when(this.circuitBreakerProperties.getName()).thenReturn("productDetailCB");
 		when(this.properties.getBaseUrl()).thenReturn("http://localhost:3001");
 
 		// Setup circuit breaker mocks
 		when(this.circuitBreakerRegistry.circuitBreaker("productDetailCB")).thenReturn(this.circuitBreaker);
-
+		when(this.circuitBreakerRegistry.circuitBreaker("similarIdsCB")).thenReturn(this.circuitBreaker);
+
+		// Real async caches; loads run on the calling thread
+		this.productCache = Caffeine.newBuilder().executor(Runnable::run).buildAsync();
+		this.similarIdsCache = Caffeine.newBuilder().executor(Runnable::run).buildAsync();
+		this.productOffHeapCache = new OffHeapCache<>(BinaryCodec.PRODUCT_DETAIL, 64 * 1024, 1,
+				Duration.ofMinutes(15));
+		this.lastGoodProducts = Caffeine.newBuilder().build();
+		this.productStaleStore = new StaleResultStore<>(this.lastGoodProducts);
+		this.productQuarantine = new SlowKeyQuarantine(new ProductServiceProperties.Quarantine());
+		this.productConcurrencyLimiter = this.concurrencyLimiter();
+		this.meterRegistry = new SimpleMeterRegistry();
 		this.repository = new ProductDetailRepositoryImpl(this.restTemplate, this.circuitBreakerRegistry,
-				this.productCache, this.similarIdsCache, this.properties);
+				new UpstreamRoute<>(ProductServiceMetrics.PRODUCT_DETAIL_ROUTE, "productDetailCB", this.productCache,
+						this.productOffHeapCache, this.productStaleStore, this.productQuarantine, this.timeout(),
+						this.productConcurrencyLimiter),
+				new UpstreamRoute<>(ProductServiceMetrics.SIMILAR_IDS_ROUTE, "similarIdsCB", this.similarIdsCache,
+						new OffHeapCache<>(BinaryCodec.SIMILAR_IDS, 0, 1, Duration.ofMinutes(15)),
+						new StaleResultStore<>(Caffeine.newBuilder().build()),
+						new SlowKeyQuarantine(new ProductServiceProperties.Quarantine()), this.timeout(),
+						this.concurrencyLimiter()),
+				new RequestHedger(new ProductServiceProperties.Hedging(), () -> true, this.hedgeScheduler),
+				new InFlightLoads(new ProductServiceProperties.Cancellation(), Duration.ofSeconds(6)),
+				new ProductServiceMetrics(this.meterRegistry), this.properties);
 	}
 
 	@Test
@@ -66,13 +116,21 @@ class ProductDetailRepositoryImplTest {
 	}
 
 	@Test
-	@DisplayName("Should clear cache on initialization")
-	void initCache_clearsCache() {
+	@DisplayName("Should share one in-flight load between concurrent callers of the same product")
+	void getProductDetail_coalescesConcurrentMisses() {
+		// Arrange
+		final CompletableFuture<UpstreamResult<ProductDetail>> inFlight = new CompletableFuture<>();
+		this.productCache.put("1", inFlight);
+
 		// Act
-		this.repository.initCache();
+		final CompletableFuture<UpstreamResult<ProductDetail>> first = this.repository.getProductDetail("1");
+		final CompletableFuture<UpstreamResult<ProductDetail>> second = this.repository.getProductDetail("1");
+		inFlight.complete(UpstreamResult.found(new ProductDetail("1", "Product 1", 10.0, true)));
 
 		// Assert
-		verify(this.productCache).invalidateAll();
+		assertSame(first.join(), second.join());
+		assertTrue(first.join().isFound());
+		verifyNoInteractions(this.circuitBreaker);
 	}
 
 	// ===== GET SIMILAR IDS TESTS =====
@@ -81,29 +139,21 @@ class ProductDetailRepositoryImplTest {
 	@DisplayName("Should retrieve similar product IDs successfully")
 	void getSimilarIds_success() {
 		// Arrange
-		final String[] expectedIds = {"1", "2", "3"};
-		final List<String> expectedList = Arrays.asList(expectedIds);
-
-		// Mock cache to call the mapping function
-		when(this.similarIdsCache.get(eq("0"), any())).thenAnswer(invocation -> {
-			final Function<String, List<String>> mappingFunction = invocation.getArgument(1);
-			return mappingFunction.apply("0");
-		});
+		final List<String> expectedList = List.of("1", "2", "3");
 
 		when(this.circuitBreaker.executeSupplier(any())).thenAnswer(invocation -> {
 			// Execute the actual supplier to simulate circuit breaker passing through
 			final var supplier = invocation.getArgument(0, java.util.function.Supplier.class);
 			return supplier.get();
 		});
-		when(this.restTemplate.getForObject("http://localhost:3001/product/0/similarids", String[].class))
-				.thenReturn(expectedIds);
+		this.upstreamAnswers("http://localhost:3001/product/0/similarids", "[\"1\",\"2\",\"3\"]");
 
 		// Act
-		final List<String> result = this.repository.getSimilarIds("0");
+		final UpstreamResult<List<String>> result = this.repository.getSimilarIds("0").join();
 
 		// Assert
-		assertNotNull(result);
-		assertEquals(expectedList, result);
+		assertTrue(result.isFound());
+		assertEquals(expectedList, result.getValue());
 		verify(this.circuitBreaker).executeSupplier(any());
 	}
 
@@ -111,46 +161,33 @@ class ProductDetailRepositoryImplTest {
 	@DisplayName("Should return empty list when no similar IDs found")
 	void getSimilarIds_emptyResult() {
 		// Arrange
-		// Mock cache to call the mapping function
-		when(this.similarIdsCache.get(eq("0"), any())).thenAnswer(invocation -> {
-			final Function<String, List<String>> mappingFunction = invocation.getArgument(1);
-			return mappingFunction.apply("0");
-		});
-
 		when(this.circuitBreaker.executeSupplier(any())).thenAnswer(invocation -> {
 			// Execute the actual supplier to simulate circuit breaker passing through
 			final var supplier = invocation.getArgument(0, java.util.function.Supplier.class);
 			return supplier.get();
 		});
-		when(this.restTemplate.getForObject("http://localhost:3001/product/0/similarids", String[].class))
-				.thenReturn(null);
+		this.upstreamAnswers("http://localhost:3001/product/0/similarids", "");
 
 		// Act
-		final List<String> result = this.repository.getSimilarIds("0");
+		final UpstreamResult<List<String>> result = this.repository.getSimilarIds("0").join();
 
 		// Assert
-		assertNotNull(result);
-		assertTrue(result.isEmpty());
+		assertTrue(result.isFound());
+		assertTrue(result.getValue().isEmpty());
 	}
 
 	@Test
-	@DisplayName("Should return empty list when getSimilarIds throws exception")
+	@DisplayName("Should classify a getSimilarIds exception as a server error")
 	void getSimilarIds_exception() {
 		// Arrange
-		// Mock cache to call the mapping function
-		when(this.similarIdsCache.get(eq("0"), any())).thenAnswer(invocation -> {
-			final Function<String, List<String>> mappingFunction = invocation.getArgument(1);
-			return mappingFunction.apply("0");
-		});
-
 		when(this.circuitBreaker.executeSupplier(any())).thenThrow(new RuntimeException("Service error"));
 
 		// Act
-		final List<String> result = this.repository.getSimilarIds("0");
+		final UpstreamResult<List<String>> result = this.repository.getSimilarIds("0").join();
 
 		// Assert
-		assertNotNull(result);
-		assertTrue(result.isEmpty());
+		assertEquals(Status.SERVER_ERROR, result.getStatus());
+		assertNull(result.orNull());
 	}
 
 	// ===== GET PRODUCT DETAIL TESTS =====
@@ -160,45 +197,91 @@ class ProductDetailRepositoryImplTest {
 	void getProductDetail_success() {
 		// Arrange
 		final ProductDetail expected = new ProductDetail("1", "Product 1", 10.0, true);
-		when(this.productCache.get(eq("1"), any())).thenReturn(expected);
+		this.productCache.put("1", completedFuture(UpstreamResult.found(expected)));
+
+		// Act
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertTrue(result.isFound());
+		assertEquals(expected, result.getValue());
+		verifyNoInteractions(this.circuitBreaker);
+	}
+
+	@Test
+	@DisplayName("Should decode the product detail read from the upstream response")
+	void getProductDetail_decodesUpstreamBody() {
+		// Arrange
+		when(this.circuitBreaker.executeSupplier(any())).thenAnswer(invocation -> invocation
+				.getArgument(0, java.util.function.Supplier.class).get());
+		this.upstreamAnswers("http://localhost:3001/product/1",
+				"{\"id\":\"1\",\"name\":\"Shirt\",\"price\":9.99,\"availability\":true,\"extra\":[1]}");
 
 		// Act
-		final ProductDetail result = this.repository.getProductDetail("1");
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
 
 		// Assert
-		assertNotNull(result);
-		assertEquals(expected, result);
-		verify(this.productCache).get(eq("1"), any());
+		assertEquals(new ProductDetail("1", "Shirt", 9.99, true), result.getValue());
 	}
 
 	@Test
-	@DisplayName("Should return null when product not found")
+	@DisplayName("Should classify a 404 from upstream as not found")
 	void getProductDetail_notFound() {
 		// Arrange
-		when(this.productCache.get(eq("999"), any())).thenReturn(null);
+		when(this.circuitBreaker.executeSupplier(any())).thenThrow(HttpClientErrorException
+				.create(HttpStatus.NOT_FOUND, "Not Found", HttpHeaders.EMPTY, new byte[0], null));
 
 		// Act
-		final ProductDetail result = this.repository.getProductDetail("999");
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("999").join();
 
 		// Assert
-		assertNull(result);
+		assertTrue(result.isNotFound());
+		assertNull(result.orNull());
 	}
 
 	@Test
 	@DisplayName("Should handle RestClientException gracefully")
 	void getProductDetail_restClientException() {
 		// Arrange
-		when(this.productCache.get(eq("1"), any())).thenAnswer(invocation -> {
-			final Function<String, ProductDetail> loader = invocation.getArgument(1);
-			return loader.apply("1"); // This will trigger the circuit breaker
-		});
 		when(this.circuitBreaker.executeSupplier(any())).thenThrow(new RestClientException("Service unavailable"));
 
 		// Act
-		final ProductDetail result = this.repository.getProductDetail("1");
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertEquals(Status.SERVER_ERROR, result.getStatus());
+	}
+
+	@Test
+	@DisplayName("Should classify a rejected call as circuit open")
+	void getProductDetail_circuitOpen() {
+		// Arrange
+		final CallNotPermittedException rejected = CallNotPermittedException
+				.createCallNotPermittedException(CircuitBreaker.ofDefaults("productDetailCB"));
+		when(this.circuitBreaker.executeSupplier(any())).thenThrow(rejected);
+
+		// Act
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertEquals(Status.CIRCUIT_OPEN, result.getStatus());
+	}
+
+	@Test
+	@DisplayName("Should promote a product from the off-heap tier without calling the upstream")
+	void getProductDetail_promotesFromOffHeapTier() {
+		// Arrange
+		final ProductDetail expected = new ProductDetail("1", "Product 1", 10.0, true);
+		this.productOffHeapCache.put("1", UpstreamResult.found(expected));
+
+		// Act
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
 
 		// Assert
-		assertNull(result);
+		assertEquals(expected, result.getValue());
+		assertNotNull(this.productCache.getIfPresent("1"));
+		assertNull(this.productOffHeapCache.remove("1"));
+		verifyNoInteractions(this.circuitBreaker);
 	}
 
 	// ===== CIRCUIT BREAKER TESTS =====
@@ -208,18 +291,190 @@ class ProductDetailRepositoryImplTest {
 	void circuitBreaker_integration() {
 		// Arrange
 		final ProductDetail expected = new ProductDetail("1", "Product 1", 10.0, true);
-		when(this.productCache.get(eq("1"), any())).thenAnswer(invocation -> {
-			final Function<String, ProductDetail> loader = invocation.getArgument(1);
-			return loader.apply("1");
-		});
 		when(this.circuitBreaker.executeSupplier(any())).thenReturn(expected);
 
 		// Act
-		final ProductDetail result = this.repository.getProductDetail("1");
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
 
 		// Assert
-		assertNotNull(result);
-		assertEquals(expected, result);
+		assertTrue(result.isFound());
+		assertEquals(expected, result.getValue());
 		verify(this.circuitBreaker).executeSupplier(any());
 	}
+
+	// ===== SERVE-STALE TESTS =====
+
+	@Test
+	@DisplayName("Should serve the last good copy flagged as stale when the upstream fails")
+	void getProductDetail_servesStaleOnFailure() {
+		// Arrange
+		final ProductDetail lastGood = new ProductDetail("1", "Product 1", 10.0, true);
+		this.lastGoodProducts.put("1", UpstreamResult.found(lastGood));
+		when(this.circuitBreaker.executeSupplier(any())).thenThrow(new RestClientException("Service unavailable"));
+
+		// Act
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertTrue(result.isFound());
+		assertTrue(result.isStale());
+		assertEquals(lastGood, result.getValue());
+		assertEquals(1, this.productStaleStore.getStaleServed());
+	}
+
+	@Test
+	@DisplayName("Should not serve a stale copy for a product that is gone upstream")
+	void getProductDetail_notFoundDropsStaleCopy() {
+		// Arrange
+		this.lastGoodProducts.put("1", UpstreamResult.found(new ProductDetail("1", "Product 1", 10.0, true)));
+		when(this.circuitBreaker.executeSupplier(any())).thenReturn(null);
+
+		// Act
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertTrue(result.isNotFound());
+		assertNull(this.lastGoodProducts.getIfPresent("1"));
+	}
+
+	@Test
+	@DisplayName("Should remember fresh answers as the last good copy")
+	void getProductDetail_recordsLastGoodCopy() {
+		// Arrange
+		final ProductDetail expected = new ProductDetail("1", "Product 1", 10.0, true);
+		when(this.circuitBreaker.executeSupplier(any())).thenReturn(expected);
+
+		// Act
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertFalse(result.isStale());
+		assertEquals(expected, this.lastGoodProducts.getIfPresent("1").getValue());
+	}
+
+	// ===== QUARANTINE TESTS =====
+
+	@Test
+	@DisplayName("Should skip the upstream for a quarantined product and serve its last good copy")
+	void getProductDetail_quarantinedServesStale() {
+		// Arrange
+		final ProductDetail lastGood = new ProductDetail("1", "Product 1", 10.0, true);
+		this.lastGoodProducts.put("1", UpstreamResult.found(lastGood));
+		for (int i = 0; i < 3; i++) {
+			this.productQuarantine.record("1", 0L, Status.TIMEOUT);
+		}
+
+		// Act
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertTrue(result.isStale());
+		assertEquals(lastGood, result.getValue());
+		verifyNoInteractions(this.circuitBreaker);
+	}
+
+	@Test
+	@DisplayName("Should report a quarantined product without a last good copy as quarantined")
+	void getProductDetail_quarantinedWithoutStaleCopy() {
+		// Arrange
+		for (int i = 0; i < 3; i++) {
+			this.productQuarantine.record("1", 0L, Status.TIMEOUT);
+		}
+
+		// Act
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertEquals(Status.QUARANTINED, result.getStatus());
+		verifyNoInteractions(this.circuitBreaker);
+	}
+
+	// ===== CONCURRENCY LIMIT TESTS =====
+
+	@Test
+	@DisplayName("Should shed a call when the concurrency limit is reached and serve the last good copy")
+	void getProductDetail_shedAtConcurrencyLimit() {
+		// Arrange
+		final ProductDetail lastGood = new ProductDetail("1", "Product 1", 10.0, true);
+		this.lastGoodProducts.put("1", UpstreamResult.found(lastGood));
+		while (this.productConcurrencyLimiter.tryAcquire() != null) {
+			// Fill every slot
+		}
+
+		// Act
+		final UpstreamResult<ProductDetail> result = this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertTrue(result.isStale());
+		assertEquals(lastGood, result.getValue());
+		verifyNoInteractions(this.circuitBreaker);
+	}
+
+	@Test
+	@DisplayName("Should not shed similar-ids calls when the product-detail limit is reached")
+	void getSimilarIds_ownConcurrencyLimit() {
+		// Arrange
+		while (this.productConcurrencyLimiter.tryAcquire() != null) {
+			// Fill every product-detail slot
+		}
+		when(this.circuitBreaker.executeSupplier(any())).thenReturn(List.of("2"));
+
+		// Act
+		final UpstreamResult<List<String>> result = this.repository.getSimilarIds("1").join();
+
+		// Assert
+		assertTrue(result.isFound());
+		assertEquals(List.of("2"), result.getValue());
+	}
+
+	// ===== METRICS TESTS =====
+
+	@Test
+	@DisplayName("Should time upstream calls per route and status")
+	void getProductDetail_recordsUpstreamCall() {
+		// Arrange
+		when(this.circuitBreaker.executeSupplier(any())).thenThrow(new RestClientException("Service unavailable"));
+
+		// Act
+		this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertEquals(1L, this.meterRegistry.get("upstream.calls").tag("route", "productDetail")
+				.tag("status", Status.SERVER_ERROR.name()).timer().count());
+	}
+
+	@Test
+	@DisplayName("Should count quarantined calls without going upstream")
+	void getProductDetail_recordsQuarantinedCall() {
+		// Arrange
+		for (int i = 0; i < 3; i++) {
+			this.productQuarantine.record("1", Duration.ofSeconds(2).toNanos(), Status.TIMEOUT);
+		}
+
+		// Act
+		this.repository.getProductDetail("1").join();
+
+		// Assert
+		assertEquals(1L, this.meterRegistry.get("upstream.calls").tag("status", Status.QUARANTINED.name()).timer()
+				.count());
+		verifyNoInteractions(this.circuitBreaker);
+	}
+
+	// ===== HELPER METHODS =====
+
+	@SuppressWarnings("unchecked")
+	private void upstreamAnswers(String url, String body) {
+		when(this.restTemplate.execute(eq(url), eq(HttpMethod.GET), any(RequestCallback.class),
+				any(ResponseExtractor.class)))
+				.thenAnswer(invocation -> invocation.getArgument(3, ResponseExtractor.class).extractData(
+						new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), HttpStatus.OK)));
+	}
+
+	private AdaptiveTimeout timeout() {
+		return new AdaptiveTimeout(new ProductServiceProperties.AdaptiveTimeout(), Duration.ofSeconds(6));
+	}
+
+	private AdaptiveConcurrencyLimiter concurrencyLimiter() {
+		return new AdaptiveConcurrencyLimiter(new ProductServiceProperties.ConcurrencyLimit());
+	}
 }
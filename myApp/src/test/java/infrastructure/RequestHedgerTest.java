@@ -0,0 +1,202 @@
+package infrastructure;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.infrastructure.RequestHedger;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.model.UpstreamStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHedgerTest {
+
+	private ProductServiceProperties.Hedging config;
+	private ExecutorService executor;
+	private ScheduledExecutorService scheduler;
+
+	@BeforeEach
+	void setUp() {
+		this.config = new ProductServiceProperties.Hedging();
+		this.config.setEnabled(true);
+		this.config.setPercentile(50);
+		this.config.setMinDelay(Duration.ofMillis(1));
+		this.config.setMaxHedgePercent(100);
+		this.config.setMinSamples(5);
+		this.executor = Executors.newCachedThreadPool();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.executor.shutdownNow();
+		this.scheduler.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("Should send a hedge once the call outlives the latency percentile and take the first answer")
+	void execute_hedgeWins() {
+		final RequestHedger hedger = this.warmedUp(() -> true);
+		final AtomicInteger attempts = new AtomicInteger();
+
+		final UpstreamResult<String> result = hedger
+				.execute(() -> attempts.incrementAndGet() == 1 ? slow("primary") : UpstreamResult.found("hedge"),
+						this.executor)
+				.join();
+
+		assertEquals("hedge", result.getValue());
+		final UpstreamStatus.HedgingStatus status = hedger.getStatus();
+		assertEquals(1, status.getHedges());
+		assertEquals(1, status.getHedgeWins());
+	}
+
+	@Test
+	@DisplayName("Should keep waiting for the hedge when the original call fails")
+	void execute_failureDoesNotWin() {
+		final RequestHedger hedger = this.warmedUp(() -> true);
+		final AtomicInteger attempts = new AtomicInteger();
+
+		final UpstreamResult<String> result = hedger.execute(() -> {
+			if (attempts.incrementAndGet() == 1) {
+				sleep(100);
+				return UpstreamResult.failure(UpstreamResult.Status.SERVER_ERROR);
+			}
+			return slow("hedge");
+		}, this.executor).join();
+
+		assertEquals("hedge", result.getValue());
+	}
+
+	@Test
+	@DisplayName("Should not hedge beyond the configured share of calls")
+	void execute_budgetExhausted() {
+		this.config.setMaxHedgePercent(0);
+		final RequestHedger hedger = this.warmedUp(() -> true);
+
+		final UpstreamResult<String> result = hedger.execute(() -> slow("primary"), this.executor).join();
+
+		assertEquals("primary", result.getValue());
+		assertEquals(0, hedger.getStatus().getHedges());
+	}
+
+	@Test
+	@DisplayName("Should not hedge while the upstream is unhealthy")
+	void execute_unhealthyUpstream() {
+		final RequestHedger hedger = this.warmedUp(() -> false);
+
+		hedger.execute(() -> slow("primary"), this.executor).join();
+
+		assertEquals(0, hedger.getStatus().getHedges());
+	}
+
+	@Test
+	@DisplayName("Should not send a hedge the executor has no room for, even with a caller-runs policy")
+	void execute_rejectedHedgeNotSent() {
+		final RequestHedger hedger = this.warmedUp(() -> true);
+		final ThreadPoolExecutor full = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new SynchronousQueue<>(), new ThreadPoolExecutor.CallerRunsPolicy());
+		final AtomicInteger attempts = new AtomicInteger();
+
+		try {
+			final UpstreamResult<String> result = hedger.execute(() -> {
+				attempts.incrementAndGet();
+				return slow("primary");
+			}, full).join();
+
+			assertEquals("primary", result.getValue());
+			assertEquals(1, attempts.get());
+			assertEquals(0, hedger.getStatus().getHedges());
+		} finally {
+			full.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("Should settle with the original failure when the hedge is not sent")
+	void execute_rejectedHedgeKeepsFailure() {
+		final RequestHedger hedger = this.warmedUp(() -> true);
+		final ThreadPoolExecutor full = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+
+		try {
+			final UpstreamResult<String> result = hedger.execute(() -> {
+				sleep(100);
+				return UpstreamResult.<String>failure(UpstreamResult.Status.SERVER_ERROR);
+			}, full).join();
+
+			assertEquals(UpstreamResult.Status.SERVER_ERROR, result.getStatus());
+			assertEquals(0, hedger.getStatus().getHedges());
+		} finally {
+			full.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("Should hedge reactive calls and cancel the loser")
+	void executeReactive_hedgeWins() {
+		final RequestHedger hedger = this.warmedUp(() -> true);
+		final AtomicInteger attempts = new AtomicInteger();
+		final AtomicInteger cancelled = new AtomicInteger();
+		final Mono<UpstreamResult<String>> call = Mono.defer(() -> attempts.incrementAndGet() == 1
+				? Mono.just(UpstreamResult.found("primary")).delayElement(Duration.ofSeconds(5))
+						.doOnCancel(cancelled::incrementAndGet)
+				: Mono.just(UpstreamResult.found("hedge")));
+
+		final UpstreamResult<String> result = hedger.execute(call).block(Duration.ofSeconds(2));
+
+		assertNotNull(result);
+		assertEquals("hedge", result.getValue());
+		assertEquals(1, cancelled.get());
+		assertEquals(1, hedger.getStatus().getHedgeWins());
+	}
+
+	@Test
+	@DisplayName("Should not hedge when disabled")
+	void execute_disabled() {
+		this.config.setEnabled(false);
+		final RequestHedger hedger = this.warmedUp(() -> true);
+
+		hedger.execute(() -> slow("primary"), this.executor).join();
+
+		assertFalse(hedger.getStatus().isEnabled());
+		assertEquals(0, hedger.getStatus().getHedges());
+	}
+
+	// ===== HELPER METHODS =====
+
+	// Records enough fast calls for the percentile to be known
+	private RequestHedger warmedUp(java.util.function.BooleanSupplier healthy) {
+		final RequestHedger hedger = new RequestHedger(this.config, healthy, this.scheduler);
+		final Supplier<UpstreamResult<String>> fast = () -> UpstreamResult.found("warm-up");
+		for (int i = 0; i < this.config.getMinSamples(); i++) {
+			hedger.execute(fast, Runnable::run).join();
+		}
+		return hedger;
+	}
+
+	private static UpstreamResult<String> slow(String value) {
+		sleep(300);
+		return UpstreamResult.found(value);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package infrastructure;
+
+import com.sngular.adriangm.myapp.infrastructure.SimilarityGraph;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarityGraphTest {
+
+	@Test
+	@DisplayName("Should answer forward and reverse lookups")
+	void update_forwardAndReverse() {
+		final SimilarityGraph graph = new SimilarityGraph();
+
+		graph.update("1", List.of("2", "3", "4"));
+		graph.update("2", List.of("3", "100"));
+
+		assertEquals(List.of("2", "3", "4"), graph.similarTo("1"));
+		assertEquals(List.of("1", "2"), graph.dependentsOf("3"));
+		assertEquals(List.of("2"), graph.dependentsOf("100"));
+		assertEquals(List.of(), graph.dependentsOf("1"));
+		assertEquals(List.of(), graph.dependentsOf("unknown"));
+		assertEquals(5, graph.vertexCount());
+		assertEquals(5, graph.edgeCount());
+	}
+
+	@Test
+	@DisplayName("Should drop reverse edges of a replaced row")
+	void update_replacesRow() {
+		final SimilarityGraph graph = new SimilarityGraph();
+		graph.update("1", List.of("2", "3"));
+
+		graph.update("1", List.of("3", "4"));
+
+		assertEquals(List.of("3", "4"), graph.similarTo("1"));
+		assertEquals(List.of(), graph.dependentsOf("2"));
+		assertEquals(List.of("1"), graph.dependentsOf("4"));
+		assertEquals(2, graph.edgeCount());
+	}
+
+	@Test
+	@DisplayName("Should keep non-numeric ids and ignore duplicates")
+	void update_textIds() {
+		final SimilarityGraph graph = new SimilarityGraph();
+
+		graph.update("a-1", List.of("b-2", "b-2", "007"));
+
+		assertEquals(List.of("b-2", "007"), graph.similarTo("a-1"));
+		assertEquals(List.of("a-1"), graph.dependentsOf("007"));
+		assertEquals(List.of(), graph.dependentsOf("7"));
+	}
+
+	@Test
+	@DisplayName("Should stay bounded while one row keeps changing")
+	void update_sameRowStaysBounded() {
+		final SimilarityGraph graph = new SimilarityGraph();
+
+		for (int i = 0; i < 100_000; i++) {
+			graph.update("1", List.of(i % 2 == 0 ? "2" : "3"));
+		}
+		for (int i = 0; i < 100_000; i++) {
+			graph.update("4", List.of(String.valueOf(1_000_000 + i)));
+		}
+
+		assertEquals(List.of("3"), graph.similarTo("1"));
+		assertEquals(List.of("1"), graph.dependentsOf("3"));
+		assertEquals(List.of(), graph.dependentsOf("2"));
+		assertEquals(List.of("4"), graph.dependentsOf("1099999"));
+		assertEquals(2, graph.edgeCount());
+		assertTrue(graph.vertexCount() < 2100, "Vertices: " + graph.vertexCount());
+	}
+
+	@Test
+	@DisplayName("Should forget products without edges at compaction")
+	void remove_forgetsUnlinkedProducts() {
+		final SimilarityGraph graph = new SimilarityGraph();
+		IntStream.range(0, 3000).forEach(id -> graph.update(String.valueOf(id), List.of("s" + id)));
+
+		IntStream.range(0, 3000).forEach(id -> graph.remove(String.valueOf(id)));
+		graph.remove("unknown");
+		assertEquals(0, graph.edgeCount());
+		assertEquals(List.of(), graph.dependentsOf("s2999"));
+
+		// Removals never compact; the next update does
+		graph.update("a", List.of("b"));
+
+		assertEquals(1, graph.edgeCount());
+		assertEquals(List.of(), graph.dependentsOf("s2999"));
+		assertEquals(List.of("a"), graph.dependentsOf("b"));
+		assertTrue(graph.vertexCount() < 3000, "Vertices: " + graph.vertexCount());
+	}
+
+	@Test
+	@DisplayName("Should keep the updates made by other threads while a compaction builds")
+	void update_concurrentWithCompaction() throws Exception {
+		final SimilarityGraph graph = new SimilarityGraph();
+		final int threads = 4;
+		final int products = 2000;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<?>> writers = IntStream.range(0, threads).mapToObj(thread -> executor.submit(() -> {
+				for (int round = 0; round < 5; round++) {
+					for (int i = 0; i < products; i++) {
+						final String id = thread + "-" + i;
+						graph.update(id, List.of(String.valueOf(i), "r" + round));
+						if (i % 3 == 0) {
+							graph.remove(id);
+						}
+					}
+				}
+			})).collect(Collectors.toList());
+			for (final Future<?> writer : writers) {
+				writer.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (int thread = 0; thread < threads; thread++) {
+			for (int i = 0; i < products; i++) {
+				final String id = thread + "-" + i;
+				assertEquals(i % 3 == 0 ? List.of() : List.of(String.valueOf(i), "r4"), graph.similarTo(id), id);
+			}
+		}
+		assertEquals(threads * (products - (products + 2) / 3), graph.dependentsOf("r4").size());
+		assertEquals(List.of(), graph.dependentsOf("r3"));
+		assertTrue(graph.links("0-1", List.of("1", "r4")));
+		assertFalse(graph.links("0-1", List.of("r3")));
+		assertFalse(graph.links("0-0", List.of("0")));
+		assertTrue(graph.links("unknown", List.of()));
+		assertEquals(2L * threads * (products - (products + 2) / 3), graph.edgeCount());
+	}
+
+	@Test
+	@DisplayName("Should give the same answers after compacting the overlay")
+	void update_compacts() {
+		final SimilarityGraph graph = new SimilarityGraph();
+		final int products = 5000;
+
+		IntStream.range(0, products).forEach(id -> graph.update(String.valueOf(id),
+				List.of(String.valueOf((id + 1) % products), String.valueOf((id + 2) % products))));
+		graph.update("10", List.of("12"));
+
+		assertEquals(List.of("12"), graph.similarTo("10"));
+		assertEquals(List.of("9", "10"), graph.similarTo("8"));
+		assertEquals(List.of("10", "11"), graph.dependentsOf("12"));
+		assertEquals(List.of("9"), graph.dependentsOf("11"));
+		assertEquals(products, graph.vertexCount());
+		assertEquals(2L * products - 1, graph.edgeCount());
+		assertTrue(graph.estimatedFootprint() > 4L * 2 * 2 * products);
+	}
+}
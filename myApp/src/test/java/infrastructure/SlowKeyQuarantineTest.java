@@ -0,0 +1,100 @@
+package infrastructure;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.infrastructure.SlowKeyQuarantine;
+import com.sngular.adriangm.myapp.model.UpstreamResult.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowKeyQuarantineTest {
+
+	private static final long SLOW = Duration.ofSeconds(2).toNanos();
+	private static final long FAST = Duration.ofMillis(10).toNanos();
+
+	private final AtomicLong now = new AtomicLong();
+	private ProductServiceProperties.Quarantine config;
+	private SlowKeyQuarantine quarantine;
+
+	@BeforeEach
+	void setUp() {
+		this.config = new ProductServiceProperties.Quarantine();
+		this.config.setSlowCallDuration(Duration.ofSeconds(1));
+		this.config.setSlowCallsToQuarantine(3);
+		this.config.setCooldown(Duration.ofSeconds(30));
+		this.quarantine = new SlowKeyQuarantine(this.config, this.now::get);
+	}
+
+	@Test
+	@DisplayName("Should quarantine a key after consecutive slow calls and leave other keys alone")
+	void record_quarantinesConsistentlySlowKey() {
+		this.quarantine.record("1000", SLOW, Status.FOUND);
+		this.quarantine.record("1000", SLOW, Status.FOUND);
+		assertTrue(this.quarantine.tryAcquire("1000"));
+
+		this.quarantine.record("1000", 0L, Status.TIMEOUT);
+		this.quarantine.record("1", FAST, Status.FOUND);
+
+		assertFalse(this.quarantine.tryAcquire("1000"));
+		assertTrue(this.quarantine.tryAcquire("1"));
+		assertEquals(Set.of("1000"), this.quarantine.getStatus().getKeys().keySet());
+		assertEquals(1, this.quarantine.getStatus().getSkippedCalls());
+	}
+
+	@Test
+	@DisplayName("Should reset the slow streak on a fast call")
+	void record_fastCallResetsStreak() {
+		this.quarantine.record("1000", SLOW, Status.FOUND);
+		this.quarantine.record("1000", SLOW, Status.FOUND);
+		this.quarantine.record("1000", FAST, Status.SERVER_ERROR);
+		this.quarantine.record("1000", SLOW, Status.FOUND);
+
+		assertFalse(this.quarantine.isQuarantined("1000"));
+	}
+
+	@Test
+	@DisplayName("Should ignore calls rejected locally by the circuit breaker")
+	void record_ignoresCircuitOpen() {
+		this.quarantine.record("1000", SLOW, Status.FOUND);
+		this.quarantine.record("1000", SLOW, Status.FOUND);
+		this.quarantine.record("1000", 0L, Status.CIRCUIT_OPEN);
+		this.quarantine.record("1000", SLOW, Status.FOUND);
+
+		assertTrue(this.quarantine.isQuarantined("1000"));
+	}
+
+	@Test
+	@DisplayName("Should let one probe through after the cooldown and re-quarantine when it is still slow")
+	void tryAcquire_probeAfterCooldown() {
+		for (int i = 0; i < 3; i++) {
+			this.quarantine.record("1000", SLOW, Status.FOUND);
+		}
+
+		this.now.addAndGet(Duration.ofSeconds(31).toNanos());
+		assertTrue(this.quarantine.tryAcquire("1000"));
+		this.quarantine.record("1000", SLOW, Status.FOUND);
+		assertFalse(this.quarantine.tryAcquire("1000"));
+
+		this.now.addAndGet(Duration.ofSeconds(31).toNanos());
+		this.quarantine.record("1000", FAST, Status.FOUND);
+		this.quarantine.record("1000", SLOW, Status.FOUND);
+		assertTrue(this.quarantine.tryAcquire("1000"));
+	}
+
+	@Test
+	@DisplayName("Should never quarantine when disabled")
+	void tryAcquire_disabled() {
+		this.config.setEnabled(false);
+		for (int i = 0; i < 5; i++) {
+			this.quarantine.record("1000", SLOW, Status.FOUND);
+		}
+
+		assertTrue(this.quarantine.tryAcquire("1000"));
+	}
+}
@@ -0,0 +1,132 @@
+package infrastructure;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sngular.adriangm.myapp.infrastructure.UpstreamPayloadDecoder;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarIds;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamPayloadDecoderTest {
+
+	// ===== PRODUCT DETAIL TESTS =====
+
+	@Test
+	@DisplayName("Should decode a product detail and skip unknown fields")
+	void productDetail_skipsUnknownFields() throws IOException {
+		final ProductDetail product = UpstreamPayloadDecoder.PRODUCT_DETAIL.read(stream(
+				"{\"tags\":{\"a\":[1,{\"b\":2}]},\"id\":\"1\",\"name\":\"Shirt\",\"price\":9.99,\"availability\":true,"
+						+ "\"extra\":null}"));
+
+		assertEquals(new ProductDetail("1", "Shirt", 9.99, true), product);
+	}
+
+	@Test
+	@DisplayName("Should decode like the object mapper: coerced scalars, missing fields as defaults")
+	void productDetail_matchesObjectMapper() throws IOException {
+		final ObjectMapper objectMapper = new ObjectMapper();
+		for (final String json : List.of("{\"id\":\"2\",\"name\":\"Dress\",\"price\":19.99,\"availability\":false}",
+				"{\"id\":7,\"price\":\"5.5\",\"availability\":\"true\"}",
+				"{\"id\":\"sku-9\",\"name\":null,\"price\":1}", "{\"id\":\"007\"}", "{}")) {
+			assertEquals(objectMapper.readValue(json, ProductDetail.class),
+					UpstreamPayloadDecoder.PRODUCT_DETAIL.read(json.getBytes(StandardCharsets.UTF_8)), json);
+		}
+	}
+
+	@Test
+	@DisplayName("Should fail, like the object mapper, on nested or mistyped values of known fields")
+	void productDetail_rejectsMalformedValues() {
+		final ObjectMapper objectMapper = new ObjectMapper();
+		for (final String json : List.of("{\"id\":{\"id\":\"1\"},\"name\":\"Shirt\"}", "{\"id\":[1]}",
+				"{\"id\":\"1\",\"name\":{\"id\":\"2\",\"price\":5},\"price\":9.99}",
+				"{\"name\":[\"Shirt\"],\"price\":1}", "{\"price\":[1],\"availability\":true}",
+				"{\"price\":true}", "{\"price\":\"cheap\"}", "{\"availability\":{\"price\":1}}",
+				"{\"availability\":\"yes\"}", "{\"availability\":2.5}")) {
+			assertThrows(JsonProcessingException.class, () -> objectMapper.readValue(json, ProductDetail.class), json);
+			assertThrows(JsonParseException.class,
+					() -> UpstreamPayloadDecoder.PRODUCT_DETAIL.read(json.getBytes(StandardCharsets.UTF_8)), json);
+		}
+	}
+
+	@Test
+	@DisplayName("Should coerce scalars of other types like the object mapper")
+	void productDetail_coercesScalars() throws IOException {
+		final ObjectMapper objectMapper = new ObjectMapper();
+		for (final String json : List.of("{\"id\":true,\"name\":5,\"price\":\"\",\"availability\":1}",
+				"{\"id\":1.5,\"name\":true,\"price\":null,\"availability\":0}",
+				"{\"availability\":\"\"}", "{\"availability\":null}", "{\"availability\":\"TRUE\"}")) {
+			assertEquals(objectMapper.readValue(json, ProductDetail.class),
+					UpstreamPayloadDecoder.PRODUCT_DETAIL.read(json.getBytes(StandardCharsets.UTF_8)), json);
+		}
+	}
+
+	@Test
+	@DisplayName("Should decode an empty payload to null")
+	void productDetail_emptyPayload() throws IOException {
+		assertNull(UpstreamPayloadDecoder.PRODUCT_DETAIL.read(stream("")));
+	}
+
+	@Test
+	@DisplayName("Should reject a payload that is not an object")
+	void productDetail_wrongShape() {
+		assertThrows(JsonParseException.class, () -> UpstreamPayloadDecoder.PRODUCT_DETAIL.read(stream("[\"1\"]")));
+	}
+
+	// ===== SIMILAR IDS TESTS =====
+
+	@Test
+	@DisplayName("Should pack numeric similar ids, given as strings or numbers")
+	void similarIds_numeric() throws IOException {
+		final List<String> ids = UpstreamPayloadDecoder.SIMILAR_IDS.read(stream("[\"2\", \"100\", 1000]"));
+
+		assertEquals(List.of("2", "100", "1000"), ids);
+		assertEquals(SimilarIds.of("2", "100", "1000").estimatedFootprint(),
+				((SimilarIds) ids).estimatedFootprint());
+	}
+
+	@Test
+	@DisplayName("Should keep every id as given once one is not numeric")
+	void similarIds_textual() throws IOException {
+		assertEquals(List.of("1", "99999999999", "007", "sku-9"),
+				UpstreamPayloadDecoder.SIMILAR_IDS.read(stream("[\"1\",\"99999999999\",\"007\",\"sku-9\"]")));
+	}
+
+	@Test
+	@DisplayName("Should grow the reused buffer for long lists, past what it keeps, without leaking ids between calls")
+	void similarIds_growsBuffer() throws IOException {
+		for (final int count : List.of(300, 5000)) {
+			final List<String> many = IntStream.range(0, count).mapToObj(Integer::toString).toList();
+			final String json = many.stream().collect(Collectors.joining("\",\"", "[\"", "\"]"));
+
+			assertEquals(many, UpstreamPayloadDecoder.SIMILAR_IDS.read(stream(json)));
+			assertEquals(many, UpstreamPayloadDecoder.SIMILAR_IDS.read(stream(json)));
+		}
+		assertEquals(List.of("5"), UpstreamPayloadDecoder.SIMILAR_IDS.read(stream("[\"5\"]")));
+		assertEquals(List.of(), UpstreamPayloadDecoder.SIMILAR_IDS.read(stream("[]")));
+	}
+
+	@Test
+	@DisplayName("Should reject nested values and truncated arrays")
+	void similarIds_malformed() {
+		assertThrows(JsonParseException.class, () -> UpstreamPayloadDecoder.SIMILAR_IDS.read(stream("[[\"1\"]]")));
+		assertThrows(JsonParseException.class, () -> UpstreamPayloadDecoder.SIMILAR_IDS.read(stream("[\"1\",")));
+		assertThrows(JsonParseException.class, () -> UpstreamPayloadDecoder.SIMILAR_IDS.read(stream("{}")));
+	}
+
+	// ===== HELPER METHODS =====
+
+	private static ByteArrayInputStream stream(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
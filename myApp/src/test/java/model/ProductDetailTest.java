@@ -0,0 +1,58 @@
+package model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductDetailTest {
+
+	@Test
+	@DisplayName("Should read packed and textual ids back unchanged")
+	void getId_roundTrips() {
+		assertEquals("1000", new ProductDetail("1000", "Coat", 89.99, true).getId());
+		assertEquals("007", new ProductDetail("007", "Coat", 89.99, true).getId());
+		assertEquals("sku-9", new ProductDetail("sku-9", "Coat", 89.99, true).getId());
+		assertNull(new ProductDetail(null, "Coat", 89.99, true).getId());
+	}
+
+	@Test
+	@DisplayName("Should equal the product built from the printed id when built from a packed one")
+	void ofPackedId_equalsTextualConstruction() {
+		assertEquals(new ProductDetail("1000", "Coat", 89.99, true),
+				ProductDetail.ofPackedId(1000, "Coat", 89.99, true));
+		assertThrows(IllegalArgumentException.class, () -> ProductDetail.ofPackedId(-1, "Coat", 89.99, true));
+	}
+
+	@Test
+	@DisplayName("Should share one name string between copies of a product")
+	void constructor_deduplicatesNames() {
+		final ProductDetail first = new ProductDetail("1", new String("Leather jacket"), 89.99, true);
+		final ProductDetail second = new ProductDetail("1", new String("Leather jacket"), 89.99, true);
+
+		assertSame(first.getName(), second.getName());
+		assertEquals(first, second);
+	}
+
+	@Test
+	@DisplayName("Should deserialize the upstream product detail JSON")
+	void jackson_deserializesUpstreamJson() throws Exception {
+		final ProductDetail product = new ObjectMapper().readValue(
+				"{\"id\":\"10000\",\"name\":\"Leather jacket\",\"price\":89.99,\"availability\":true}",
+				ProductDetail.class);
+
+		assertEquals(new ProductDetail("10000", "Leather jacket", 89.99, true), product);
+	}
+
+	@Test
+	@DisplayName("Should count a textual id and the JSON fragment in the footprint but not the shared name")
+	void estimatedFootprint_countsOwnedStrings() {
+		final ProductDetail packed = new ProductDetail("1", "Shirt", 9.99, true);
+
+		// 48 for the instance, 16 + 80 for the fragment and its 58 bytes
+		assertEquals(144, packed.estimatedFootprint());
+		assertTrue(new ProductDetail("sku-1", "Shirt", 9.99, true).estimatedFootprint() > 144);
+	}
+}
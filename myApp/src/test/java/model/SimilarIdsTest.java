@@ -0,0 +1,66 @@
+package model;
+
+import com.sngular.adriangm.myapp.model.SimilarIds;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarIdsTest {
+
+	@Test
+	@DisplayName("Should read numeric ids back as the same strings")
+	void of_numericIdsRoundTrip() {
+		final SimilarIds ids = SimilarIds.of("2", "100", "1000", "0");
+
+		assertEquals(List.of("2", "100", "1000", "0"), ids);
+		assertEquals(List.of("2", "100", "1000", "0").hashCode(), ids.hashCode());
+	}
+
+	@Test
+	@DisplayName("Should keep ids that do not print back as numbers unchanged")
+	void of_keepsNonCanonicalIds() {
+		assertEquals(List.of("007", "2"), SimilarIds.of("007", "2"));
+		assertEquals(List.of("-1", "2"), SimilarIds.of("-1", "2"));
+		assertEquals(List.of("sku-9"), SimilarIds.of("sku-9"));
+		assertEquals(List.of("99999999999", "1"), SimilarIds.of("99999999999", "1"));
+	}
+
+	@Test
+	@DisplayName("Should copy the leading packed ids, leaving the buffer free for reuse")
+	void ofPacked_copiesPrefix() {
+		final long[] buffer = {2, 100, 99999999999L, 7};
+
+		final SimilarIds ints = SimilarIds.ofPacked(buffer, 2);
+		final SimilarIds longs = SimilarIds.ofPacked(buffer, 3);
+		buffer[0] = 5;
+
+		assertEquals(List.of("2", "100"), ints);
+		assertEquals(List.of("2", "100", "99999999999"), longs);
+		assertEquals(SimilarIds.of("2", "100"), ints);
+		assertTrue(SimilarIds.ofPacked(buffer, 0).isEmpty());
+	}
+
+	@Test
+	@DisplayName("Should take less heap when the ids are numeric")
+	void estimatedFootprint_packedIdsAreSmaller() {
+		final SimilarIds packed = SimilarIds.of("100", "1000", "10000");
+		final SimilarIds large = SimilarIds.of("100", "1000", "99999999999");
+		final SimilarIds textual = SimilarIds.of("100", "1000", "sku-1");
+
+		assertEquals(64, packed.estimatedFootprint());
+		assertTrue(packed.estimatedFootprint() < large.estimatedFootprint());
+		assertTrue(large.estimatedFootprint() < textual.estimatedFootprint());
+	}
+
+	@Test
+	@DisplayName("Should be immutable")
+	void of_isImmutable() {
+		final SimilarIds ids = SimilarIds.of("1", "2");
+
+		assertThrows(UnsupportedOperationException.class, () -> ids.add("3"));
+		assertThrows(UnsupportedOperationException.class, () -> ids.set(0, "3"));
+	}
+}
@@ -0,0 +1,261 @@
+package service;
+
+import com.sngular.adriangm.myapp.service.fanout.CountingRejectedExecutionHandler;
+import com.sngular.adriangm.myapp.service.fanout.FanOutExecutor;
+import com.sngular.adriangm.myapp.service.fanout.FanOutStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FanOutExecutorTest {
+
+	private ThreadPoolTaskExecutor executor;
+
+	@AfterEach
+	void tearDown() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Should return one future per input in input order")
+	void fanOut_preservesOrder() {
+		final FanOutExecutor fanOut = new FanOutExecutor(this.executor(4, 4, 100, new ThreadPoolExecutor.AbortPolicy()),
+				2);
+
+		final List<CompletableFuture<String>> results = fanOut.fanOut(List.of("a", "b", "c"), String::toUpperCase);
+
+		assertEquals(List.of("A", "B", "C"), results.stream().map(CompletableFuture::join).toList());
+	}
+
+	@Test
+	@DisplayName("Should never run more tasks than the per-request parallelism")
+	void fanOut_respectsPerRequestParallelism() {
+		final FanOutExecutor fanOut = new FanOutExecutor(this.executor(8, 8, 100, new ThreadPoolExecutor.AbortPolicy()),
+				2);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+
+		final List<CompletableFuture<Integer>> results = fanOut.fanOut(IntStream.range(0, 10).boxed().toList(), i -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			sleep(20);
+			running.decrementAndGet();
+			return i;
+		});
+
+		CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+		assertTrue(maxRunning.get() <= 2);
+	}
+
+	@Test
+	@DisplayName("Should complete the future exceptionally when a task fails")
+	void fanOut_taskFailure() {
+		final FanOutExecutor fanOut = new FanOutExecutor(this.executor(2, 2, 10, new ThreadPoolExecutor.AbortPolicy()),
+				2);
+
+		final List<CompletableFuture<String>> results = fanOut.fanOut(List.of("ok", "boom"), s -> {
+			if ("boom".equals(s)) {
+				throw new IllegalStateException(s);
+			}
+			return s;
+		});
+
+		assertEquals("ok", results.get(0).join());
+		assertTrue(results.get(1).isCompletedExceptionally() || this.failsOnJoin(results.get(1)));
+	}
+
+	@Test
+	@DisplayName("Should reject work when the pool and queue are full under the abort policy")
+	void fanOut_abortPolicyRejects() throws InterruptedException {
+		final FanOutExecutor fanOut = new FanOutExecutor(
+				this.executor(1, 1, 1, new CountingRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy())), 4);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		final List<CompletableFuture<Integer>> results = fanOut.fanOut(List.of(1, 2, 3, 4), i -> {
+			await(release);
+			return i;
+		});
+		release.countDown();
+
+		final long rejected = results.stream().filter(f -> this.failsWith(f, RejectedExecutionException.class))
+				.count();
+		assertEquals(2, rejected);
+		assertEquals(2, fanOut.getStats().getRejectedTasks());
+	}
+
+	// ===== ASYNC FAN-OUT TESTS =====
+
+	@Test
+	@DisplayName("Should keep at most the per-request parallelism of async stages in flight, in input order")
+	void fanOutAsync_respectsPerRequestParallelism() {
+		final FanOutExecutor fanOut = new FanOutExecutor(this.executor(1, 1, 1, new ThreadPoolExecutor.AbortPolicy()),
+				2);
+		final List<CompletableFuture<Integer>> pending = IntStream.range(0, 5)
+				.mapToObj(i -> new CompletableFuture<Integer>()).toList();
+		final AtomicInteger started = new AtomicInteger();
+
+		final List<CompletableFuture<Integer>> results = fanOut.fanOutAsync(IntStream.range(0, 5).boxed().toList(),
+				i -> {
+					started.incrementAndGet();
+					return pending.get(i);
+				});
+
+		assertEquals(2, started.get());
+		pending.get(0).complete(0);
+		assertEquals(3, started.get());
+		for (int i = 4; i >= 1; i--) {
+			pending.get(i).complete(i);
+		}
+		assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(CompletableFuture::join).toList());
+	}
+
+	@Test
+	@DisplayName("Should run through long runs of already completed stages without growing the stack")
+	void fanOutAsync_completedStages() {
+		final FanOutExecutor fanOut = new FanOutExecutor(this.executor(1, 1, 1, new ThreadPoolExecutor.AbortPolicy()),
+				1);
+		final List<Integer> inputs = IntStream.range(0, 50_000).boxed().toList();
+
+		final List<CompletableFuture<Integer>> results = fanOut.fanOutAsync(inputs,
+				CompletableFuture::completedFuture);
+
+		assertTrue(results.stream().allMatch(CompletableFuture::isDone));
+		assertEquals(49_999, results.get(49_999).join());
+	}
+
+	@Test
+	@DisplayName("Should complete the future exceptionally when an async task throws")
+	void fanOutAsync_taskFailure() {
+		final FanOutExecutor fanOut = new FanOutExecutor(this.executor(1, 1, 1, new ThreadPoolExecutor.AbortPolicy()),
+				2);
+
+		final List<CompletableFuture<String>> results = fanOut.fanOutAsync(List.of("ok", "boom"), s -> {
+			if ("boom".equals(s)) {
+				throw new IllegalStateException(s);
+			}
+			return CompletableFuture.completedFuture(s);
+		});
+
+		assertEquals("ok", results.get(0).join());
+		assertTrue(this.failsOnJoin(results.get(1)));
+	}
+
+	@Test
+	@DisplayName("Should cancel the stage of a cancelled result and skip inputs not started yet")
+	void fanOutAsync_cancellation() {
+		final FanOutExecutor fanOut = new FanOutExecutor(this.executor(1, 1, 1, new ThreadPoolExecutor.AbortPolicy()),
+				1);
+		final List<CompletableFuture<Integer>> pending = IntStream.range(0, 3)
+				.mapToObj(i -> new CompletableFuture<Integer>()).toList();
+		final AtomicInteger started = new AtomicInteger();
+
+		final List<CompletableFuture<Integer>> results = fanOut.fanOutAsync(List.of(0, 1, 2), i -> {
+			started.incrementAndGet();
+			return pending.get(i);
+		});
+		results.get(1).cancel(false);
+		results.get(0).cancel(false);
+
+		assertTrue(pending.get(0).isCancelled());
+		assertEquals(2, started.get());
+		assertFalse(pending.get(1).isDone());
+		pending.get(2).complete(2);
+		assertEquals(2, results.get(2).join());
+	}
+
+	@Test
+	@DisplayName("Should expose executor saturation statistics")
+	void getStats_reportsPoolConfiguration() {
+		final FanOutExecutor fanOut = new FanOutExecutor(this.executor(2, 6, 50, new ThreadPoolExecutor.AbortPolicy()),
+				3);
+
+		fanOut.fanOut(List.of(1, 2, 3), i -> i).forEach(CompletableFuture::join);
+		final FanOutStats stats = fanOut.getStats();
+
+		assertEquals(3, stats.getPerRequestParallelism());
+		assertEquals(6, stats.getGlobalParallelism());
+		assertEquals(3, stats.getSubmittedTasks());
+		assertEquals(1, stats.getFanOuts());
+		assertEquals(50, stats.getQueueRemainingCapacity() + stats.getQueueSize());
+	}
+
+	@Test
+	@DisplayName("Should report only the task counters for an executor without a pool")
+	void getStats_withoutPool() {
+		final FanOutExecutor fanOut = new FanOutExecutor(new SimpleAsyncTaskExecutor("fanout-test-"), 2);
+
+		assertEquals(List.of(1, 2, 3),
+				fanOut.fanOut(List.of(1, 2, 3), i -> i).stream().map(CompletableFuture::join).toList());
+		final FanOutStats stats = fanOut.getStats();
+
+		assertEquals(2, stats.getPerRequestParallelism());
+		assertEquals(3, stats.getSubmittedTasks());
+		assertEquals(0, stats.getGlobalParallelism());
+		assertEquals(0d, stats.getSaturation());
+	}
+
+	@Test
+	@DisplayName("Should reject a non-positive per-request parallelism")
+	void constructor_invalidParallelism() {
+		final ThreadPoolTaskExecutor pool = this.executor(1, 1, 1, new ThreadPoolExecutor.AbortPolicy());
+		assertThrows(IllegalArgumentException.class, () -> new FanOutExecutor(pool, 0));
+	}
+
+	// ===== HELPER METHODS =====
+
+	private ThreadPoolTaskExecutor executor(int core, int max, int queue,
+			java.util.concurrent.RejectedExecutionHandler handler) {
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setCorePoolSize(core);
+		this.executor.setMaxPoolSize(max);
+		this.executor.setQueueCapacity(queue);
+		this.executor.setRejectedExecutionHandler(handler);
+		this.executor.initialize();
+		return this.executor;
+	}
+
+	private boolean failsOnJoin(CompletableFuture<?> future) {
+		return this.failsWith(future, IllegalStateException.class);
+	}
+
+	private boolean failsWith(CompletableFuture<?> future, Class<? extends Throwable> type) {
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			return false;
+		} catch (final java.util.concurrent.ExecutionException e) {
+			return type.isInstance(e.getCause());
+		} catch (final Exception e) {
+			return false;
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package service;
+
+import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.exception.ProductNotFoundException;
+import com.sngular.adriangm.myapp.exception.SimilarProductsRetrievalException;
+import com.sngular.adriangm.myapp.infrastructure.ProductServiceMetrics;
+import com.sngular.adriangm.myapp.infrastructure.ReactiveProductDetailRepository;
+import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import com.sngular.adriangm.myapp.model.SimilarProductsTrailer;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.service.SimilarProductsListener;
+import com.sngular.adriangm.myapp.service.implement.ReactiveSimilarProductsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveSimilarProductsServiceImplTest {
+
+	private ReactiveProductDetailRepository productDetailRepository;
+	private ProductServiceProperties.ServiceConfig serviceConfig;
+	private ReactiveSimilarProductsServiceImpl similarProductsService;
+
+	@BeforeEach
+	void setUp() {
+		this.productDetailRepository = Mockito.mock(ReactiveProductDetailRepository.class);
+		final ProductServiceProperties properties = Mockito.mock(ProductServiceProperties.class);
+		this.serviceConfig = Mockito.mock(ProductServiceProperties.ServiceConfig.class);
+
+		when(properties.getService()).thenReturn(this.serviceConfig);
+		when(this.serviceConfig.getSimilarProductsTimeout()).thenReturn(Duration.ofSeconds(2));
+		when(this.serviceConfig.getMaxSimilarProductsTimeout()).thenReturn(Duration.ofSeconds(10));
+		when(this.serviceConfig.getConcurrencyLevel()).thenReturn(8);
+
+		this.similarProductsService = new ReactiveSimilarProductsServiceImpl(this.productDetailRepository,
+				new ProductServiceMetrics(new SimpleMeterRegistry()), properties);
+	}
+
+	@Test
+	@DisplayName("Should return product details in similarity order")
+	void getSimilarProducts_returnsProductsInOrder() {
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, false);
+
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(Mono.just(UpstreamResult.found(List.of("2", "1"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(Mono.just(UpstreamResult.found(product1)).delayElement(Duration.ofMillis(50)));
+		when(this.productDetailRepository.getProductDetail("2")).thenReturn(Mono.just(UpstreamResult.found(product2)));
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0", null).block();
+
+		assertNotNull(result);
+		assertFalse(result.isPartial());
+		assertEquals(List.of(product2, product1), result.getProducts());
+	}
+
+	@Test
+	@DisplayName("Should skip products that are missing or fail, flagging failed loads as partial")
+	void getSimilarProducts_skipsFailedProducts() {
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(Mono.just(UpstreamResult.found(List.of("1", "2", "3"))));
+		when(this.productDetailRepository.getProductDetail("1")).thenReturn(Mono.just(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2")).thenReturn(Mono.just(UpstreamResult.notFound()));
+		when(this.productDetailRepository.getProductDetail("3"))
+				.thenReturn(Mono.error(new RuntimeException("Upstream error")));
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0", null).block();
+
+		assertNotNull(result);
+		assertTrue(result.isPartial());
+		assertEquals(List.of(product1), result.getProducts());
+	}
+
+	@Test
+	@DisplayName("Should return ready products and flag the result as partial when the budget runs out")
+	void getSimilarProducts_partialResultOnDeadline() {
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(Mono.just(UpstreamResult.found(List.of("1", "2"))));
+		when(this.productDetailRepository.getProductDetail("1")).thenReturn(Mono.just(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2")).thenReturn(Mono.never());
+
+		final SimilarProductsResult result = this.similarProductsService
+				.getSimilarProducts("0", Duration.ofSeconds(1)).block();
+
+		assertNotNull(result);
+		assertTrue(result.isPartial());
+		assertEquals(List.of(product1), result.getProducts());
+	}
+
+	@Test
+	@DisplayName("Should return an empty partial result when similar ids do not arrive in time")
+	void getSimilarProducts_similarIdsTimeout() {
+		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(Mono.never());
+
+		final SimilarProductsResult result = this.similarProductsService
+				.getSimilarProducts("0", Duration.ofMillis(100)).block();
+
+		assertNotNull(result);
+		assertTrue(result.isPartial());
+		assertTrue(result.getProducts().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Should wrap similar ids failures in SimilarProductsRetrievalException")
+	void getSimilarProducts_similarIdsFailure() {
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(Mono.error(new RuntimeException("Repository error")));
+
+		final Mono<SimilarProductsResult> result = this.similarProductsService.getSimilarProducts("0", null);
+
+		assertThrows(SimilarProductsRetrievalException.class, result::block);
+	}
+
+	@Test
+	@DisplayName("Should signal ProductNotFoundException when the requested product does not exist upstream")
+	void getSimilarProducts_productNotFound() {
+		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(Mono.just(UpstreamResult.notFound()));
+
+		final Mono<SimilarProductsResult> result = this.similarProductsService.getSimilarProducts("0", null);
+
+		assertThrows(ProductNotFoundException.class, result::block);
+	}
+
+	@Test
+	@DisplayName("Should fetch product details shared across the batch once and leave unknown products out")
+	void getSimilarProductsBatch_dedupesSharedDetails() {
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, true);
+
+		when(this.productDetailRepository.getSimilarIds("a"))
+				.thenReturn(Mono.just(UpstreamResult.found(List.of("1", "2"))));
+		when(this.productDetailRepository.getSimilarIds("b")).thenReturn(Mono.just(UpstreamResult.found(List.of("2"))));
+		when(this.productDetailRepository.getSimilarIds("missing")).thenReturn(Mono.just(UpstreamResult.notFound()));
+		when(this.productDetailRepository.getProductDetail("1")).thenReturn(Mono.just(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2")).thenReturn(Mono.just(UpstreamResult.found(product2)));
+
+		final Map<String, SimilarProductsResult> result = this.similarProductsService
+				.getSimilarProductsBatch(List.of("a", "missing", "b"), null).block();
+
+		assertNotNull(result);
+		assertEquals(List.of("a", "b"), List.copyOf(result.keySet()));
+		assertEquals(List.of(product1, product2), result.get("a").getProducts());
+		assertEquals(List.of(product2), result.get("b").getProducts());
+		assertFalse(result.get("a").isPartial());
+		verify(this.productDetailRepository, times(1)).getProductDetail("2");
+	}
+
+	@Test
+	@DisplayName("Should stream products in completion order and report skipped and timed-out ids in the trailer")
+	void streamSimilarProducts_completionOrderAndTrailer() {
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, true);
+		final List<ProductDetail> streamed = new ArrayList<>();
+
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(Mono.just(UpstreamResult.found(List.of("1", "2", "3", "4"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(Mono.just(UpstreamResult.found(product1)).delayElement(Duration.ofMillis(100)));
+		when(this.productDetailRepository.getProductDetail("2")).thenReturn(Mono.just(UpstreamResult.found(product2)));
+		when(this.productDetailRepository.getProductDetail("3"))
+				.thenReturn(Mono.error(new RuntimeException("Upstream error")));
+		when(this.productDetailRepository.getProductDetail("4")).thenReturn(Mono.never());
+
+		final SimilarProductsTrailer trailer = this.similarProductsService
+				.streamSimilarProducts("0", Duration.ofMillis(500), new SimilarProductsListener() {
+					@Override
+					public void onStart(List<String> similarIds) {
+						assertTrue(streamed.isEmpty());
+					}
+
+					@Override
+					public void onProduct(ProductDetail product) {
+						streamed.add(product);
+					}
+				}).block();
+
+		assertNotNull(trailer);
+		assertEquals(List.of(product2, product1), streamed);
+		assertEquals(List.of("3"), trailer.getSkipped());
+		assertEquals(List.of("4"), trailer.getTimedOut());
+		assertTrue(trailer.isPartial());
+	}
+}
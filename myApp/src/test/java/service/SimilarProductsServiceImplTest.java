@@ -1,44 +1,86 @@
 package service;
 
 import com.sngular.adriangm.myapp.config.ProductServiceProperties;
+import com.sngular.adriangm.myapp.controller.SimilarProductsResponseAssembler;
+import com.sngular.adriangm.myapp.controller.mapper.ProductDetailMapperImpl;
 import com.sngular.adriangm.myapp.exception.ProductNotFoundException;
 import com.sngular.adriangm.myapp.exception.SimilarProductsRetrievalException;
+import com.sngular.adriangm.myapp.infrastructure.AssembledResponseCache;
 import com.sngular.adriangm.myapp.infrastructure.ProductDetailRepository;
+import com.sngular.adriangm.myapp.infrastructure.ProductServiceMetrics;
 import com.sngular.adriangm.myapp.model.ProductDetail;
+import com.sngular.adriangm.myapp.model.SimilarProductsResult;
+import com.sngular.adriangm.myapp.model.SimilarProductsTrailer;
+import com.sngular.adriangm.myapp.model.UpstreamResult;
+import com.sngular.adriangm.myapp.model.UpstreamResult.Status;
+import com.sngular.adriangm.myapp.service.SimilarProductsListener;
+import com.sngular.adriangm.myapp.service.fanout.FanOutExecutor;
 import com.sngular.adriangm.myapp.service.implement.SimilarProductsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class SimilarProductsServiceImplTest {
 
 	private ProductDetailRepository productDetailRepository;
+	private ProductServiceProperties properties;
 	private ProductServiceProperties.ServiceConfig serviceConfig;
+	private ThreadPoolTaskExecutor executor;
+	private SimpleMeterRegistry meterRegistry;
+	private ProductServiceMetrics metrics;
 	private SimilarProductsServiceImpl similarProductsService;
 
 	@BeforeEach
 	void setUp() {
 		this.productDetailRepository = Mockito.mock(ProductDetailRepository.class);
-		final ProductServiceProperties properties = Mockito.mock(ProductServiceProperties.class);
+		this.properties = Mockito.mock(ProductServiceProperties.class);
 		this.serviceConfig = Mockito.mock(ProductServiceProperties.ServiceConfig.class);
 
 		// Default mock configuration
-		when(properties.getService()).thenReturn(this.serviceConfig);
+		when(this.properties.getService()).thenReturn(this.serviceConfig);
 		when(this.serviceConfig.getSimilarProductsTimeout()).thenReturn(Duration.ofSeconds(2));
+		when(this.serviceConfig.getMaxSimilarProductsTimeout()).thenReturn(Duration.ofSeconds(10));
 		when(this.serviceConfig.getConcurrencyLevel()).thenReturn(8);
 
-		this.similarProductsService = new SimilarProductsServiceImpl(this.productDetailRepository);
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setCorePoolSize(4);
+		this.executor.setMaxPoolSize(4);
+		this.executor.setQueueCapacity(100);
+		this.executor.initialize();
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.metrics = new ProductServiceMetrics(this.meterRegistry);
+
+		this.similarProductsService = new SimilarProductsServiceImpl(this.productDetailRepository,
+				new FanOutExecutor(this.executor, this.serviceConfig.getConcurrencyLevel()), this.metrics,
+				this.properties);
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.executor.shutdown();
 	}
 
 	// ===== BASIC FUNCTIONALITY TESTS =====
@@ -51,9 +93,12 @@ class SimilarProductsServiceImplTest {
 		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
 		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, false);
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
-		when(this.productDetailRepository.getProductDetail("1")).thenReturn(product1);
-		when(this.productDetailRepository.getProductDetail("2")).thenReturn(product2);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(completedFuture(UpstreamResult.found(product2)));
 
 		// Act
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
@@ -68,7 +113,8 @@ class SimilarProductsServiceImplTest {
 	@Test
 	@DisplayName("Should return empty list when no similar IDs found")
 	void getSimilarProducts_emptyWhenNoSimilarIds() {
-		when(this.productDetailRepository.getSimilarIds(anyString())).thenReturn(Collections.emptyList());
+		when(this.productDetailRepository.getSimilarIds(anyString()))
+				.thenReturn(completedFuture(UpstreamResult.found(Collections.emptyList())));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -85,10 +131,14 @@ class SimilarProductsServiceImplTest {
 		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
 		final ProductDetail product3 = new ProductDetail("3", "Product 3", 30.0, true);
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
-		when(this.productDetailRepository.getProductDetail("1")).thenReturn(product1);
-		when(this.productDetailRepository.getProductDetail("2")).thenReturn(null); // Simulates failure
-		when(this.productDetailRepository.getProductDetail("3")).thenReturn(product3);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(completedFuture(UpstreamResult.failure(Status.SERVER_ERROR)));
+		when(this.productDetailRepository.getProductDetail("3"))
+				.thenReturn(completedFuture(UpstreamResult.found(product3)));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -102,9 +152,12 @@ class SimilarProductsServiceImplTest {
 	@DisplayName("Should return empty list when all product details fail to load")
 	void getSimilarProducts_allProductsFail() {
 		final List<String> similarIds = Arrays.asList("1", "2");
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
-		when(this.productDetailRepository.getProductDetail("1")).thenReturn(null);
-		when(this.productDetailRepository.getProductDetail("2")).thenReturn(null);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.failure(Status.SERVER_ERROR)));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(completedFuture(UpstreamResult.failure(Status.SERVER_ERROR)));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -112,6 +165,28 @@ class SimilarProductsServiceImplTest {
 		assertTrue(result.isEmpty());
 	}
 
+	@Test
+	@DisplayName("Should flag the result as partial and keep it out of the response cache when a load fails")
+	void getSimilarProducts_failedLoadIsPartial() {
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1", "2"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("Pool saturated")));
+		final SimilarProductsResponseAssembler assembler = new SimilarProductsResponseAssembler(
+				new ProductDetailMapperImpl(), new AssembledResponseCache<>(true, 100, Duration.ofMinutes(1), false),
+				new ProductServiceProperties(), Runnable::run);
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0", null);
+		assembler.toResponse("0", result, assembler.changeCount());
+
+		assertTrue(result.isPartial());
+		assertEquals(List.of(product1), result.getProducts());
+		assertNull(assembler.cached("0"));
+	}
+
 	// ===== EXCEPTION HANDLING TESTS =====
 
 	@Test
@@ -121,10 +196,13 @@ class SimilarProductsServiceImplTest {
 		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
 		final ProductDetail product3 = new ProductDetail("3", "Product 3", 30.0, true);
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
-		when(this.productDetailRepository.getProductDetail("1")).thenReturn(product1);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
 		when(this.productDetailRepository.getProductDetail("2")).thenThrow(new ProductNotFoundException("2"));
-		when(this.productDetailRepository.getProductDetail("3")).thenReturn(product3);
+		when(this.productDetailRepository.getProductDetail("3"))
+				.thenReturn(completedFuture(UpstreamResult.found(product3)));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -141,11 +219,15 @@ class SimilarProductsServiceImplTest {
 		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
 		final ProductDetail product4 = new ProductDetail("4", "Product 4", 40.0, true);
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
-		when(this.productDetailRepository.getProductDetail("1")).thenReturn(product1);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
 		when(this.productDetailRepository.getProductDetail("2")).thenThrow(new ProductNotFoundException("2"));
-		when(this.productDetailRepository.getProductDetail("3")).thenReturn(null); // Simulate failure returning null
-		when(this.productDetailRepository.getProductDetail("4")).thenReturn(product4);
+		when(this.productDetailRepository.getProductDetail("3"))
+				.thenReturn(completedFuture(UpstreamResult.failure(Status.SERVER_ERROR)));
+		when(this.productDetailRepository.getProductDetail("4"))
+				.thenReturn(completedFuture(UpstreamResult.found(product4)));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -164,13 +246,34 @@ class SimilarProductsServiceImplTest {
 				() -> this.similarProductsService.getSimilarProducts("0"));
 	}
 
+	@Test
+	@DisplayName("Should throw ProductNotFoundException when the requested product does not exist upstream")
+	void getSimilarProducts_productNotFound() {
+		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(completedFuture(UpstreamResult.notFound()));
+
+		assertThrows(ProductNotFoundException.class, () -> this.similarProductsService.getSimilarProducts("0"));
+	}
+
+	@Test
+	@DisplayName("Should degrade to an empty partial result when similar ids fail upstream")
+	void getSimilarProducts_similarIdsUpstreamFailure() {
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.failure(Status.CIRCUIT_OPEN)));
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0", null);
+
+		assertTrue(result.isPartial());
+		assertTrue(result.getProducts().isEmpty());
+	}
+
 	@Test
 	@DisplayName("Should handle RuntimeException during product detail retrieval")
 	void getSimilarProducts_handlesRuntimeExceptionInProductDetail() {
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(Arrays.asList("1", "2"));
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(Arrays.asList("1", "2"))));
 		when(this.productDetailRepository.getProductDetail("1")).thenThrow(new RuntimeException("Unexpected error"));
 		when(this.productDetailRepository.getProductDetail("2"))
-				.thenReturn(new ProductDetail("2", "Product 2", 20.0, true));
+				.thenReturn(completedFuture(UpstreamResult.found(new ProductDetail("2", "Product 2", 20.0, true))));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -180,6 +283,26 @@ class SimilarProductsServiceImplTest {
 		assertEquals("2", result.get(0).getId());
 	}
 
+	@Test
+	@DisplayName("Should flag the result as stale when a product is served from the stale store")
+	void getSimilarProducts_staleProduct() {
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, true);
+
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1", "2"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(completedFuture(UpstreamResult.found(product2).asStale()));
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0", null);
+
+		assertTrue(result.isStale());
+		assertFalse(result.isPartial());
+		assertEquals(List.of(product1, product2), result.getProducts());
+	}
+
 	// ===== TIMEOUT TESTS =====
 
 	@Test
@@ -190,9 +313,10 @@ class SimilarProductsServiceImplTest {
 
 		// In blocking implementation, timeout is handled by CompletableFuture.get()
 		// with timeout
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(List.of("1"));
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1"))));
 		when(this.productDetailRepository.getProductDetail("1"))
-				.thenReturn(new ProductDetail("1", "Product 1", 10.0, true));
+				.thenReturn(completedFuture(UpstreamResult.found(new ProductDetail("1", "Product 1", 10.0, true))));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -202,22 +326,109 @@ class SimilarProductsServiceImplTest {
 	}
 
 	@Test
-	@DisplayName("Should work regardless of configured timeout in synchronous mode")
+	@DisplayName("Should use the configured timeout when the client sends none")
 	void getSimilarProducts_usesConfiguredTimeout() {
 		final Duration customTimeout = Duration.ofSeconds(5);
 		when(this.serviceConfig.getSimilarProductsTimeout()).thenReturn(customTimeout);
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(List.of("1"));
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1"))));
 		when(this.productDetailRepository.getProductDetail("1"))
-				.thenReturn(new ProductDetail("1", "Product 1", 10.0, true));
+				.thenReturn(completedFuture(UpstreamResult.found(new ProductDetail("1", "Product 1", 10.0, true))));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
 		assertNotNull(result);
 		assertEquals(1, result.size());
+		verify(this.serviceConfig).getSimilarProductsTimeout();
+	}
+
+	@Test
+	@DisplayName("Should return ready products in order and flag the result as partial when the budget runs out")
+	void getSimilarProducts_partialResultOnDeadline() {
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+		final ProductDetail product3 = new ProductDetail("3", "Product 3", 30.0, true);
+
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1", "2", "3"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(delayed(UpstreamResult.found(new ProductDetail("2", "Slow Product", 20.0, true)), 2_000));
+		when(this.productDetailRepository.getProductDetail("3"))
+				.thenReturn(completedFuture(UpstreamResult.found(product3)));
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0",
+				Duration.ofMillis(200));
+
+		assertTrue(result.isPartial());
+		assertEquals(List.of(product1, product3), result.getProducts());
+	}
+
+	@Test
+	@DisplayName("Should give up on the product details still loading at the deadline")
+	void getSimilarProducts_cancelsUnfinishedDetails() {
+		final CompletableFuture<UpstreamResult<ProductDetail>> slow = new CompletableFuture<>();
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1", "2"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(new ProductDetail("1", "Product 1", 10.0, true))));
+		when(this.productDetailRepository.getProductDetail("2")).thenReturn(slow);
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0",
+				Duration.ofMillis(100));
+
+		assertTrue(result.isPartial());
+		assertEquals(1, result.getProducts().size());
+		assertTrue(slow.isCancelled());
+	}
+
+	@Test
+	@DisplayName("Should return an empty partial result when similar ids do not arrive in time")
+	void getSimilarProducts_similarIdsTimeout() {
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(delayed(UpstreamResult.found(List.of("1")), 2_000));
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0",
+				Duration.ofMillis(100));
+
+		assertTrue(result.isPartial());
+		assertTrue(result.getProducts().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Should let the client budget override the configured timeout")
+	void getSimilarProducts_clientBudgetOverridesConfiguration() {
+		when(this.serviceConfig.getSimilarProductsTimeout()).thenReturn(Duration.ofMillis(50));
+		final ProductDetail product = new ProductDetail("1", "Product 1", 10.0, true);
+
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(delayed(UpstreamResult.found(product), 300));
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0",
+				Duration.ofSeconds(3));
 
-		// Note: In synchronous mode, timeout configuration is not actively used
-		// so we don't verify the call to getSimilarProductsTimeout()
+		assertFalse(result.isPartial());
+		assertEquals(List.of(product), result.getProducts());
+	}
+
+	@Test
+	@DisplayName("Should cap the client budget at the configured maximum")
+	void getSimilarProducts_clientBudgetIsCapped() {
+		when(this.serviceConfig.getMaxSimilarProductsTimeout()).thenReturn(Duration.ofMillis(100));
+
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(delayed(UpstreamResult.found(new ProductDetail("1", "Product 1", 10.0, true)), 2_000));
+
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0",
+				Duration.ofMinutes(5));
+
+		assertTrue(result.isPartial());
+		assertTrue(result.getProducts().isEmpty());
 	}
 
 	// ===== CONCURRENCY TESTS =====
@@ -232,19 +443,21 @@ class SimilarProductsServiceImplTest {
 		final List<ProductDetail> products = similarIds.stream()
 				.map(id -> new ProductDetail(id, "Product " + id, Double.parseDouble(id) * 10, true)).toList();
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
 		for (int i = 0; i < similarIds.size(); i++) {
-			when(this.productDetailRepository.getProductDetail(similarIds.get(i))).thenReturn(products.get(i));
+			when(this.productDetailRepository.getProductDetail(similarIds.get(i)))
+					.thenReturn(completedFuture(UpstreamResult.found(products.get(i))));
 		}
 
-		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
+		final SimilarProductsServiceImpl service = new SimilarProductsServiceImpl(this.productDetailRepository,
+				new FanOutExecutor(this.executor, this.serviceConfig.getConcurrencyLevel()), this.metrics,
+				this.properties);
+		final List<ProductDetail> result = service.getSimilarProducts("0");
 
 		assertNotNull(result);
 		assertEquals(5, result.size()); // All products should be processed
-		assertTrue(result.containsAll(products));
-
-		// Note: In synchronous implementation, concurrency config is not used
-		// but the test validates all products are still processed
+		assertEquals(products, result);
 	}
 
 	// ===== EDGE CASES =====
@@ -256,9 +469,12 @@ class SimilarProductsServiceImplTest {
 		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
 		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, false);
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
-		when(this.productDetailRepository.getProductDetail("1")).thenReturn(product1);
-		when(this.productDetailRepository.getProductDetail("2")).thenReturn(product2);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(completedFuture(UpstreamResult.found(product2)));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -275,24 +491,24 @@ class SimilarProductsServiceImplTest {
 		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
 		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, false);
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
-		when(this.productDetailRepository.getProductDetail("1")).thenReturn(product1);
-		when(this.productDetailRepository.getProductDetail("2")).thenReturn(product2);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(completedFuture(UpstreamResult.found(product2)));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
 		assertNotNull(result);
-		assertEquals(2, result.size());
-		// Note: With parallel streams, order may not be preserved, so we just check
-		// content
-		assertTrue(result.contains(product1));
-		assertTrue(result.contains(product2));
+		assertEquals(List.of(product2, product1), result);
 	}
 
 	@Test
 	@DisplayName("Should handle empty string product ID")
 	void getSimilarProducts_emptyProductId() {
-		when(this.productDetailRepository.getSimilarIds("")).thenReturn(Collections.emptyList());
+		when(this.productDetailRepository.getSimilarIds(""))
+				.thenReturn(completedFuture(UpstreamResult.found(Collections.emptyList())));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("");
 
@@ -304,12 +520,13 @@ class SimilarProductsServiceImplTest {
 	@DisplayName("Should handle filtered similar IDs list")
 	void getSimilarProducts_withFilteredSimilarIds() {
 		// Simulate repository returning already filtered list (no nulls)
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(Arrays.asList("1", "2"));
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(Arrays.asList("1", "2"))));
 
 		when(this.productDetailRepository.getProductDetail("1"))
-				.thenReturn(new ProductDetail("1", "Product 1", 10.0, true));
+				.thenReturn(completedFuture(UpstreamResult.found(new ProductDetail("1", "Product 1", 10.0, true))));
 		when(this.productDetailRepository.getProductDetail("2"))
-				.thenReturn(new ProductDetail("2", "Product 2", 20.0, false));
+				.thenReturn(completedFuture(UpstreamResult.found(new ProductDetail("2", "Product 2", 20.0, false))));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -325,13 +542,15 @@ class SimilarProductsServiceImplTest {
 		final int productCount = 50;
 		final List<String> similarIds = IntStream.range(1, productCount + 1).mapToObj(String::valueOf).toList();
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
 
 		// Mock all product details
 		similarIds.forEach(id -> {
 			final ProductDetail product = new ProductDetail(id, "Product " + id, Double.parseDouble(id) * 10,
 					Integer.parseInt(id) % 2 == 0);
-			when(this.productDetailRepository.getProductDetail(id)).thenReturn(product);
+			when(this.productDetailRepository.getProductDetail(id))
+					.thenReturn(completedFuture(UpstreamResult.found(product)));
 		});
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
@@ -345,8 +564,10 @@ class SimilarProductsServiceImplTest {
 	void getSimilarProducts_singleProduct() {
 		final ProductDetail product = new ProductDetail("1", "Single Product", 99.99, true);
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(List.of("1"));
-		when(this.productDetailRepository.getProductDetail("1")).thenReturn(product);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product)));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -358,19 +579,20 @@ class SimilarProductsServiceImplTest {
 	// ===== CONFIGURATION VALIDATION TESTS =====
 
 	@Test
-	@DisplayName("Should work with minimum timeout configuration")
+	@DisplayName("Should flag the result as partial with minimum timeout configuration")
 	void getSimilarProducts_minimumTimeoutConfiguration() {
 		when(this.serviceConfig.getSimilarProductsTimeout()).thenReturn(Duration.ofMillis(1));
 
-		final ProductDetail product = new ProductDetail("1", "Fast Product", 10.0, true);
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(List.of("1"));
-		when(this.productDetailRepository.getProductDetail("1")).thenReturn(product);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(delayed(UpstreamResult.found(new ProductDetail("1", "Slow Product", 10.0, true)), 500));
 
-		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
+		final SimilarProductsResult result = this.similarProductsService.getSimilarProducts("0", null);
 
 		assertNotNull(result);
-		assertEquals(1, result.size());
-		assertEquals(product, result.get(0));
+		assertTrue(result.isPartial());
+		assertTrue(result.getProducts().isEmpty());
 	}
 
 	@Test
@@ -382,11 +604,17 @@ class SimilarProductsServiceImplTest {
 		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
 		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, false);
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
-		when(this.productDetailRepository.getProductDetail("1")).thenReturn(product1);
-		when(this.productDetailRepository.getProductDetail("2")).thenReturn(product2);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(completedFuture(UpstreamResult.found(product2)));
 
-		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
+		final SimilarProductsServiceImpl service = new SimilarProductsServiceImpl(this.productDetailRepository,
+				new FanOutExecutor(this.executor, this.serviceConfig.getConcurrencyLevel()), this.metrics,
+				this.properties);
+		final List<ProductDetail> result = service.getSimilarProducts("0");
 
 		assertNotNull(result);
 		assertEquals(2, result.size()); // All products should be processed even with concurrency=1
@@ -404,11 +632,15 @@ class SimilarProductsServiceImplTest {
 		final ProductDetail successProduct2 = new ProductDetail("success2", "Success 2", 20.0, true);
 		final ProductDetail timeoutProduct = new ProductDetail("timeout1", "Timeout", 30.0, true);
 
-		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(similarIds);
-		when(this.productDetailRepository.getProductDetail("success1")).thenReturn(successProduct1);
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(similarIds)));
+		when(this.productDetailRepository.getProductDetail("success1"))
+				.thenReturn(completedFuture(UpstreamResult.found(successProduct1)));
 		when(this.productDetailRepository.getProductDetail("fail1")).thenThrow(new ProductNotFoundException("fail1"));
-		when(this.productDetailRepository.getProductDetail("success2")).thenReturn(successProduct2);
-		when(this.productDetailRepository.getProductDetail("timeout1")).thenReturn(timeoutProduct);
+		when(this.productDetailRepository.getProductDetail("success2"))
+				.thenReturn(completedFuture(UpstreamResult.found(successProduct2)));
+		when(this.productDetailRepository.getProductDetail("timeout1"))
+				.thenReturn(completedFuture(UpstreamResult.found(timeoutProduct)));
 
 		final List<ProductDetail> result = this.similarProductsService.getSimilarProducts("0");
 
@@ -418,4 +650,145 @@ class SimilarProductsServiceImplTest {
 		assertTrue(result.contains(successProduct2));
 		assertTrue(result.contains(timeoutProduct));
 	}
+
+	// ===== BATCH TESTS =====
+
+	@Test
+	@DisplayName("Should fetch product details shared across the batch only once")
+	void getSimilarProductsBatch_dedupesSharedDetails() {
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, true);
+		final ProductDetail product3 = new ProductDetail("3", "Product 3", 30.0, true);
+
+		when(this.productDetailRepository.getSimilarIds("a"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1", "2"))));
+		when(this.productDetailRepository.getSimilarIds("b"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("2", "3"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(completedFuture(UpstreamResult.found(product1)));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(completedFuture(UpstreamResult.found(product2)));
+		when(this.productDetailRepository.getProductDetail("3"))
+				.thenReturn(completedFuture(UpstreamResult.found(product3)));
+
+		final Map<String, SimilarProductsResult> result = this.similarProductsService
+				.getSimilarProductsBatch(List.of("a", "b"), null);
+
+		assertEquals(List.of("a", "b"), List.copyOf(result.keySet()));
+		assertEquals(List.of(product1, product2), result.get("a").getProducts());
+		assertEquals(List.of(product2, product3), result.get("b").getProducts());
+		verify(this.productDetailRepository, times(1)).getProductDetail("2");
+		assertEquals(3d, this.meterRegistry.get("fanout.width").summary().totalAmount());
+	}
+
+	@Test
+	@DisplayName("Should leave unknown products out of the batch and degrade failed ones to partial")
+	void getSimilarProductsBatch_unknownAndFailedProducts() {
+		when(this.productDetailRepository.getSimilarIds("missing"))
+				.thenReturn(completedFuture(UpstreamResult.notFound()));
+		when(this.productDetailRepository.getSimilarIds("failing"))
+				.thenReturn(completedFuture(UpstreamResult.failure(Status.SERVER_ERROR)));
+		when(this.productDetailRepository.getSimilarIds("slow"))
+				.thenReturn(delayed(UpstreamResult.found(List.of("1")), 2_000));
+
+		final Map<String, SimilarProductsResult> result = this.similarProductsService
+				.getSimilarProductsBatch(List.of("missing", "failing", "slow"), Duration.ofMillis(100));
+
+		assertEquals(List.of("failing", "slow"), List.copyOf(result.keySet()));
+		assertTrue(result.get("failing").isPartial());
+		assertTrue(result.get("slow").isPartial());
+	}
+
+	// ===== STREAMING TESTS =====
+
+	@Test
+	@DisplayName("Should stream products in completion order and report skipped and timed-out ids in the trailer")
+	void streamSimilarProducts_completionOrderAndTrailer() throws Exception {
+		final ProductDetail product1 = new ProductDetail("1", "Product 1", 10.0, true);
+		final ProductDetail product2 = new ProductDetail("2", "Product 2", 20.0, true);
+
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1", "2", "3", "4"))));
+		when(this.productDetailRepository.getProductDetail("1"))
+				.thenReturn(delayed(UpstreamResult.found(product1), 100));
+		when(this.productDetailRepository.getProductDetail("2"))
+				.thenReturn(completedFuture(UpstreamResult.found(product2)));
+		when(this.productDetailRepository.getProductDetail("3")).thenReturn(completedFuture(UpstreamResult.notFound()));
+		when(this.productDetailRepository.getProductDetail("4"))
+				.thenReturn(delayed(UpstreamResult.found(new ProductDetail("4", "Slow", 40.0, true)), 2_000));
+		final RecordingListener listener = new RecordingListener();
+
+		final SimilarProductsTrailer trailer = this.similarProductsService
+				.streamSimilarProducts("0", Duration.ofMillis(500), listener).get(1, TimeUnit.SECONDS);
+
+		assertEquals(List.of("1", "2", "3", "4"), listener.similarIds);
+		assertEquals(List.of(product2, product1), listener.products);
+		assertEquals(List.of("3"), trailer.getSkipped());
+		assertEquals(List.of("4"), trailer.getTimedOut());
+		assertTrue(trailer.isPartial());
+	}
+
+	@Test
+	@DisplayName("Should fail the stream with ProductNotFoundException before starting it")
+	void streamSimilarProducts_productNotFound() {
+		when(this.productDetailRepository.getSimilarIds("0")).thenReturn(completedFuture(UpstreamResult.notFound()));
+		final RecordingListener listener = new RecordingListener();
+
+		final CompletableFuture<SimilarProductsTrailer> trailer = this.similarProductsService.streamSimilarProducts("0",
+				null, listener);
+
+		final ExecutionException e = assertThrows(ExecutionException.class, () -> trailer.get(1, TimeUnit.SECONDS));
+		assertInstanceOf(ProductNotFoundException.class, e.getCause());
+		assertNull(listener.similarIds);
+	}
+
+	@Test
+	@DisplayName("Should start an empty stream when similar ids do not arrive in time")
+	void streamSimilarProducts_similarIdsTimeout() throws Exception {
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(delayed(UpstreamResult.found(List.of("1")), 2_000));
+		final RecordingListener listener = new RecordingListener();
+
+		final SimilarProductsTrailer trailer = this.similarProductsService
+				.streamSimilarProducts("0", Duration.ofMillis(100), listener).get(1, TimeUnit.SECONDS);
+
+		assertEquals(List.of(), listener.similarIds);
+		assertTrue(listener.products.isEmpty());
+		assertTrue(trailer.isPartial());
+	}
+
+	@Test
+	@DisplayName("Should give up on the products still loading when the stream is cancelled")
+	void streamSimilarProducts_cancelledStream() {
+		final CompletableFuture<UpstreamResult<ProductDetail>> slow = new CompletableFuture<>();
+		when(this.productDetailRepository.getSimilarIds("0"))
+				.thenReturn(completedFuture(UpstreamResult.found(List.of("1"))));
+		when(this.productDetailRepository.getProductDetail("1")).thenReturn(slow);
+
+		final CompletableFuture<SimilarProductsTrailer> trailer = this.similarProductsService.streamSimilarProducts("0",
+				Duration.ofSeconds(5), new RecordingListener());
+		trailer.cancel(false);
+
+		assertTrue(slow.isCancelled());
+	}
+
+	private static final class RecordingListener implements SimilarProductsListener {
+		private final List<ProductDetail> products = new ArrayList<>();
+		private List<String> similarIds;
+
+		@Override
+		public void onStart(List<String> similarIds) {
+			this.similarIds = similarIds;
+		}
+
+		@Override
+		public void onProduct(ProductDetail product) {
+			this.products.add(product);
+		}
+	}
+
+	private static <T> CompletableFuture<T> delayed(T value, long millis) {
+		return CompletableFuture.supplyAsync(() -> value,
+				CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS));
+	}
 }